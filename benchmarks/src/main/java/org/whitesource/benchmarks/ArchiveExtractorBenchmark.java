@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.agent.DependencyInfoFactory;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.archive.ArchiveExtractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures unpacking a single archive per format, either extracting it to the temp folder or streaming its entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveExtractorBenchmark {
+
+    /* --- Static members --- */
+
+    private static final String[] NONE = new String[0];
+    private static final String[] INCLUDES = {"**/*"};
+    private static final int DEPTH = 1;
+    private static final int ENTRIES = 500;
+    private static final int ENTRY_SIZE = 8 * 1024;
+
+    /* --- Members --- */
+
+    @Param({"zip", "jar", "tar", "tar.gz", "tar.bz2"})
+    private String format;
+
+    private File folder;
+    private DependencyInfoFactory factory;
+    private final List<String> archiveDirectories = new ArrayList<>();
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("archive-benchmark").toFile();
+        Fixtures.archive(folder, format, ENTRIES, ENTRY_SIZE);
+        factory = new DependencyInfoFactory(Collections.emptyList(), false, false, false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteExtracted() {
+        archiveDirectories.forEach(directory -> FileUtils.deleteQuietly(new File(directory)));
+        archiveDirectories.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public String extractArchives() {
+        return new ArchiveExtractor(NONE, NONE, NONE).extractArchives(folder.getPath(), DEPTH, archiveDirectories);
+    }
+
+    @Benchmark
+    public String extractArchivesFast() {
+        return new ArchiveExtractor(NONE, NONE, NONE, true).extractArchives(folder.getPath(), DEPTH, archiveDirectories);
+    }
+
+    @Benchmark
+    public Collection<DependencyInfo> streamArchives() {
+        return new ArchiveExtractor(NONE, NONE, NONE).streamArchives(folder.getPath(), DEPTH, INCLUDES, false, factory, false,
+                Runtime.getRuntime().availableProcessors(), null);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.agent.DependencyInfoFactory;
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the checksums calculated for a single file, text files go through the whitespace-insensitive hashing
+ * and the partial hashes while binaries are only hashed as a whole.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyInfoFactoryBenchmark {
+
+    /* --- Members --- */
+
+    @Param({"1024", "65536", "1048576", "16777216"})
+    private int size;
+
+    @Param({"java", "jar"})
+    private String extension;
+
+    @Param({"false", "true"})
+    private boolean calculateMd5;
+
+    private File folder;
+    private String fileName;
+    private byte[] content;
+    private DependencyInfoFactory factory;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("hash-benchmark").toFile();
+        fileName = "File" + size + "." + extension;
+        content = "java".equals(extension) ? Fixtures.text(size) : Fixtures.binary(size);
+        Fixtures.write(new File(folder, fileName), content);
+        factory = new DependencyInfoFactory(Collections.emptyList(), false, false, calculateMd5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public DependencyInfo createFromFile() {
+        return factory.createDependencyInfo(folder, fileName);
+    }
+
+    @Benchmark
+    public DependencyInfo createFromContent() throws IOException {
+        return factory.createDependencyInfo(content, fileName, fileName);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.whitesource.agent.dependency.resolver.ResolvedFolder;
+import org.whitesource.agent.utils.FilesIndex;
+import org.whitesource.agent.utils.FilesScanner;
+import org.whitesource.agent.utils.FilesUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures walking a synthetic tree of modules, collecting the files to scan and finding the top folders of the
+ * dependency resolvers.
+ * The fillFilesMap and findTopFolders benchmarks walk the tree for each lookup, the indexed benchmarks walk it once into a
+ * {@link FilesIndex} and answer both lookups from it, as the scanner does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilesWalkBenchmark {
+
+    /* --- Static members --- */
+
+    private static final String[] INCLUDES = {"**/*.jar", "**/*.java", "**/*.js"};
+    private static final String[] EXCLUDES = {"**/module3/**"};
+    private static final String[] BOM_PATTERN = {"**/*pom.xml", "**/*package.json"};
+
+    /* --- Members --- */
+
+    // depth and width of the tree, 3x6 is ~260 folders and 4x6 is ~1550 folders
+    @Param({"3", "4"})
+    private int depth;
+
+    @Param({"6"})
+    private int width;
+
+    @Param({"8"})
+    private int filesPerFolder;
+
+    private Path root;
+    private List<String> pathsToScan;
+    private FilesIndex filesIndex;
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("walk-benchmark");
+        Fixtures.tree(root, depth, width, filesPerFolder);
+        pathsToScan = Collections.singletonList(root.toString());
+        filesIndex = new FilesIndex(pathsToScan, EXCLUDES, false, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(root.toFile());
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public Map<File, Collection<String>> fillFilesMap() {
+        return new FilesUtils().fillFilesMap(pathsToScan, INCLUDES, EXCLUDES, false, false);
+    }
+
+    @Benchmark
+    public Collection<ResolvedFolder> findTopFolders() {
+        return new FilesScanner().findTopFolders(pathsToScan, BOM_PATTERN, Collections.emptyList());
+    }
+
+    @Benchmark
+    public void indexedWalk(Blackhole blackhole) {
+        FilesIndex index = new FilesIndex(pathsToScan, EXCLUDES, false, false);
+        blackhole.consume(new FilesUtils().fillFilesMap(index, pathsToScan, INCLUDES, EXCLUDES, false, false));
+        blackhole.consume(index.findTopFolders(pathsToScan, BOM_PATTERN, Collections.emptyList()));
+    }
+
+    // the lookups alone, on an index built once per trial
+    @Benchmark
+    public Map<File, Collection<String>> indexedFillFilesMap() {
+        return new FilesUtils().fillFilesMap(filesIndex, pathsToScan, INCLUDES, EXCLUDES, false, false);
+    }
+
+    @Benchmark
+    public Collection<ResolvedFolder> indexedFindTopFolders() {
+        return filesIndex.findTopFolders(pathsToScan, BOM_PATTERN, Collections.emptyList());
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.benchmarks;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the local fixtures the benchmarks run on. All the content is derived from a fixed seed so every run of a
+ * benchmark sees the same input.
+ */
+public final class Fixtures {
+
+    /* --- Static members --- */
+
+    private static final long SEED = 42;
+    private static final String SOURCE_LINE = "    public static final int VALUE_%d = computeValue(%d, \"value-%d\");\n";
+
+    /* --- Constructors --- */
+
+    private Fixtures() {
+    }
+
+    /* --- Files --- */
+
+    /**
+     * @return source-like text of the given size, text files go through the whitespace-insensitive hashing
+     */
+    public static byte[] text(int size) {
+        StringBuilder builder = new StringBuilder(size + SOURCE_LINE.length() * 2);
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append(String.format(SOURCE_LINE, i, i * 31, i));
+        }
+        builder.setLength(size);
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return random bytes of the given size, like the content of a compressed binary
+     */
+    public static byte[] binary(int size) {
+        byte[] content = new byte[size];
+        new Random(SEED + size).nextBytes(content);
+        return content;
+    }
+
+    public static File write(File file, byte[] content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * Creates a tree of folders, every folder holds source files and binaries and every second folder is a module
+     * with its own pom.xml and package.json.
+     *
+     * @return the number of files created
+     */
+    public static int tree(Path root, int depth, int width, int filesPerFolder) throws IOException {
+        return tree(root.toFile(), depth, width, filesPerFolder, 0);
+    }
+
+    private static int tree(File folder, int depth, int width, int filesPerFolder, int index) throws IOException {
+        int count = 0;
+        for (int i = 0; i < filesPerFolder; i++) {
+            String name = i % 4 == 0 ? "lib-" + i + ".jar" : "Source" + i + (i % 4 == 1 ? ".java" : i % 4 == 2 ? ".js" : ".txt");
+            write(new File(folder, name), text(256));
+            count++;
+        }
+        if (index % 2 == 0) {
+            write(new File(folder, "pom.xml"), text(128));
+            write(new File(folder, "package.json"), "{}".getBytes(StandardCharsets.UTF_8));
+            count += 2;
+        }
+        if (depth > 0) {
+            for (int i = 0; i < width; i++) {
+                count += tree(new File(folder, "module" + i), depth - 1, width, filesPerFolder, index + i + 1);
+            }
+        }
+        return count;
+    }
+
+    /* --- Archives --- */
+
+    /**
+     * Creates an archive of the given format ("zip", "jar", "tar", "tar.gz" or "tar.bz2") holding entries of source text.
+     */
+    public static File archive(File folder, String format, int entries, int entrySize) throws IOException {
+        File archive = new File(folder, "archive." + format);
+        folder.mkdirs();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archive));
+             ArchiveOutputStream archiveStream = createArchiveStream(format, out)) {
+            for (int i = 0; i < entries; i++) {
+                byte[] content = text(entrySize + i);
+                String name = "folder" + (i % 10) + "/Entry" + i + ".java";
+                ArchiveEntry entry;
+                if (archiveStream instanceof TarArchiveOutputStream) {
+                    TarArchiveEntry tarEntry = new TarArchiveEntry(name);
+                    tarEntry.setSize(content.length);
+                    entry = tarEntry;
+                } else {
+                    entry = new ZipArchiveEntry(name);
+                }
+                archiveStream.putArchiveEntry(entry);
+                archiveStream.write(content);
+                archiveStream.closeArchiveEntry();
+            }
+            archiveStream.finish();
+        }
+        return archive;
+    }
+
+    private static ArchiveOutputStream createArchiveStream(String format, OutputStream out) throws IOException {
+        switch (format) {
+            case "zip":
+            case "jar":
+                return new ZipArchiveOutputStream(out);
+            case "tar":
+                return new TarArchiveOutputStream(out);
+            case "tar.gz":
+                return new TarArchiveOutputStream(new GzipCompressorOutputStream(out));
+            case "tar.bz2":
+                return new TarArchiveOutputStream(new BZip2CompressorOutputStream(out));
+            default:
+                throw new IllegalArgumentException("Unsupported archive format " + format);
+        }
+    }
+
+    /* --- Captured outputs --- */
+
+    /**
+     * @return output of 'mvn dependency:tree' for a reactor of modules, each with direct and transitive dependencies
+     */
+    public static List<String> mavenTree(int modules, int dependenciesPerModule) {
+        List<String> lines = new ArrayList<>();
+        lines.add("[INFO] Scanning for projects...");
+        lines.add("[INFO] ------------------------------------------------------------------------");
+        for (int module = 0; module < modules; module++) {
+            lines.add("[INFO] --- maven-dependency-plugin:2.8:tree (default-cli) @ module-" + module + " ---");
+            lines.add("[INFO] com.example:module-" + module + ":jar:1.0.0");
+            for (int i = 0; i < dependenciesPerModule; i++) {
+                String prefix = i == dependenciesPerModule - 1 ? "\\- " : "+- ";
+                String childIndent = i == dependenciesPerModule - 1 ? "   " : "|  ";
+                lines.add("[INFO] " + prefix + "org.group" + i + ":artifact-" + i + ":jar:1." + i + ".0:compile");
+                lines.add("[INFO] " + childIndent + "+- org.transitive" + i + ":library-" + i + ":jar:2." + i + ":compile");
+                lines.add("[INFO] " + childIndent + "\\- org.transitive" + i + ":util-" + i + ":jar:3." + i + ":runtime");
+            }
+            lines.add("[INFO] ------------------------------------------------------------------------");
+        }
+        lines.add("[INFO] BUILD SUCCESS");
+        return lines;
+    }
+
+    /**
+     * @return content of a yarn.lock with the given number of packages, each depending on the two packages after it
+     */
+    public static String yarnLock(int packages) {
+        StringBuilder builder = new StringBuilder("# THIS IS AN AUTOGENERATED FILE. DO NOT EDIT THIS FILE DIRECTLY.\n# yarn lockfile v1\n\n");
+        for (int i = 0; i < packages; i++) {
+            String version = "1." + (i % 10) + "." + (i % 7);
+            builder.append("package-").append(i).append("@^").append(version).append(", package-").append(i).append("@~").append(version).append(":\n");
+            builder.append("  version \"").append(version).append("\"\n");
+            builder.append("  resolved \"https://registry.yarnpkg.com/package-").append(i).append("/-/package-").append(i).append('-').append(version)
+                    .append(".tgz#").append(String.format("%040x", i)).append("\"\n");
+            if (i + 2 < packages) {
+                builder.append("  dependencies:\n");
+                for (int child = i + 1; child <= i + 2; child++) {
+                    builder.append("    package-").append(child).append(" \"^1.").append(child % 10).append('.').append(child % 7).append("\"\n");
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return output of 'npm ls --json' for a project with the given number of direct dependencies, each with children
+     */
+    public static String npmLsJson(int dependencies, int childrenPerDependency) {
+        StringBuilder builder = new StringBuilder("{\"name\":\"project\",\"version\":\"1.0.0\",\"dependencies\":{");
+        for (int i = 0; i < dependencies; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"package-").append(i).append("\":{\"version\":\"1.").append(i).append(".0\",")
+                    .append("\"resolved\":\"https://registry.npmjs.org/package-").append(i).append("/-/package-").append(i).append("-1.").append(i).append(".0.tgz\",")
+                    .append("\"dependencies\":{");
+            for (int child = 0; child < childrenPerDependency; child++) {
+                if (child > 0) {
+                    builder.append(',');
+                }
+                builder.append("\"package-").append(i).append('-').append(child).append("\":{\"version\":\"2.").append(child).append(".0\"}");
+            }
+            builder.append("}}");
+        }
+        return builder.append("}}").toString();
+    }
+
+    /**
+     * @return output of 'npm ls' matching {@link #npmLsJson(int, int)}
+     */
+    public static List<String> npmLs(int dependencies, int childrenPerDependency) {
+        List<String> lines = new ArrayList<>();
+        lines.add("project@1.0.0 /home/user/project");
+        for (int i = 0; i < dependencies; i++) {
+            boolean lastDependency = i == dependencies - 1;
+            lines.add((lastDependency ? "`-- " : "+-- ") + "package-" + i + "@1." + i + ".0");
+            for (int child = 0; child < childrenPerDependency; child++) {
+                lines.add((lastDependency ? "  " : "| ") + (child == childrenPerDependency - 1 ? "`-- " : "+-- ") + "package-" + i + '-' + child + "@2." + child + ".0");
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return a version 2 package-lock.json of the same packages as {@link #npmLsJson(int, int)}
+     */
+    public static String packageLock(int dependencies, int childrenPerDependency) {
+        StringBuilder builder = new StringBuilder("{\"name\":\"project\",\"version\":\"1.0.0\",\"lockfileVersion\":2,\"packages\":{");
+        StringBuilder packages = new StringBuilder();
+        builder.append("\"\":{\"name\":\"project\",\"version\":\"1.0.0\",\"dependencies\":{");
+        for (int i = 0; i < dependencies; i++) {
+            builder.append(i > 0 ? "," : "").append("\"package-").append(i).append("\":\"^1.").append(i).append(".0\"");
+            packages.append(",\"node_modules/package-").append(i).append("\":{\"version\":\"1.").append(i).append(".0\",")
+                    .append("\"resolved\":\"https://registry.npmjs.org/package-").append(i).append("/-/package-").append(i).append("-1.").append(i).append(".0.tgz\",")
+                    .append("\"integrity\":\"sha1-2jmj7l5rSw0yVb/vlWAYkK/YBwk=\",\"dependencies\":{");
+            for (int child = 0; child < childrenPerDependency; child++) {
+                packages.append(child > 0 ? "," : "").append("\"package-").append(i).append('-').append(child).append("\":\"^2.").append(child).append(".0\"");
+            }
+            packages.append("}}");
+            for (int child = 0; child < childrenPerDependency; child++) {
+                packages.append(",\"node_modules/package-").append(i).append('-').append(child).append("\":{\"version\":\"2.").append(child).append(".0\"}");
+            }
+        }
+        return builder.append("}}").append(packages).append("}}").toString();
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.dependency.resolver.maven.MavenLinesParser;
+import org.whitesource.agent.dependency.resolver.npm.NpmLockFileParser;
+import org.whitesource.agent.dependency.resolver.npm.NpmLsJsonDependencyCollector;
+import org.whitesource.agent.dependency.resolver.npm.YarnDependencyCollector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing large outputs of the package managers, the outputs are generated so no package manager runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsersBenchmark {
+
+    /* --- Static members --- */
+
+    private static final int CHILDREN = 5;
+
+    /* --- Members --- */
+
+    // number of packages (yarn), direct dependencies (npm) or dependencies per module (maven, with 20 modules)
+    @Param({"1000", "10000"})
+    private int packages;
+
+    private List<String> mavenLines;
+    private File folder;
+    private File yarnLock;
+    private String npmLsJson;
+    private List<String> npmLsLines;
+    private File packageLock;
+    private final YarnParser yarnParser = new YarnParser();
+    private final NpmLsParser npmLsParser = new NpmLsParser();
+
+    /* --- Setup --- */
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mavenLines = Fixtures.mavenTree(20, packages / 20);
+        folder = Files.createTempDirectory("parsers-benchmark").toFile();
+        yarnLock = Fixtures.write(new File(folder, "yarn.lock"), Fixtures.yarnLock(packages).getBytes(StandardCharsets.UTF_8));
+        npmLsJson = Fixtures.npmLsJson(packages, CHILDREN);
+        npmLsLines = Fixtures.npmLs(packages, CHILDREN);
+        packageLock = Fixtures.write(new File(folder, "package-lock.json"), Fixtures.packageLock(packages, CHILDREN).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /* --- Benchmarks --- */
+
+    @Benchmark
+    public Object parseMavenTree() {
+        return new MavenLinesParser().parseLines(mavenLines);
+    }
+
+    @Benchmark
+    public List<DependencyInfo> parseYarnLock() {
+        return yarnParser.parse(yarnLock);
+    }
+
+    @Benchmark
+    public Collection<DependencyInfo> parseNpmLs() {
+        return npmLsParser.parse(npmLsJson, npmLsLines);
+    }
+
+    @Benchmark
+    public List<DependencyInfo> parsePackageLock() {
+        return new NpmLockFileParser(true).parse(packageLock);
+    }
+
+    /* --- Nested classes --- */
+
+    private static class YarnParser extends YarnDependencyCollector {
+
+        private YarnParser() {
+            super(true, 0, false, false);
+        }
+
+        private List<DependencyInfo> parse(File yarnLock) {
+            return parseYarnLock(yarnLock);
+        }
+    }
+
+    private static class NpmLsParser extends NpmLsJsonDependencyCollector {
+
+        private NpmLsParser() {
+            super(true, 0, false, false);
+        }
+
+        private Collection<DependencyInfo> parse(String npmLsJson, List<String> npmLsLines) {
+            Collection<DependencyInfo> dependencies = new ArrayList<>();
+            getDependencies(new JSONObject(npmLsJson), npmLsLines, 1, dependencies);
+            return dependencies;
+        }
+    }
+}
@@ -32,6 +32,8 @@ public final class ConfigPropertyKeys {
     public static final String IA_LANGUAGE = "iaLanguage"; // optional
     public static final String CONNECTION_RETRIES = "connectionRetries";
     public static final String CONNECTION_RETRIES_INTERVALS = "connectionRetriesInterval";
+    public static final String SEND_BATCH_SIZE = "sendBatchSize";
+    public static final String SEND_THREADS = "sendThreads";
     public static final String ORG_TOKEN_PROPERTY_KEY = "apiKey";
     public static final String ORG_TOKEN_FILE = "apiKeyFile";
     public static final String USER_KEY_PROPERTY_KEY = "userKey";
@@ -56,8 +58,11 @@ public final class ConfigPropertyKeys {
     public static final String ARCHIVE_INCLUDES_PATTERN_KEY = "archiveIncludes";
     public static final String ARCHIVE_EXCLUDES_PATTERN_KEY = "archiveExcludes";
     public static final String ARCHIVE_FAST_UNPACK_KEY = "archiveFastUnpack";
+    public static final String ARCHIVE_STREAMING_KEY = "archiveStreaming";
     public static final String CALCULATE_HINTS = "calculate.hints";
     public static final String CALCULATE_MD5 = "calculate.md5";
+    public static final String CALCULATE_THREADS = "calculate.threads";
+    public static final String CALCULATE_HASH_CACHE_FILE = "calculate.hashCacheFile"; // optional
     public static final String REQUESTER_EMAIL = "requesterEmail";
     public static final String CASE_SENSITIVE_GLOB_PROPERTY_KEY = "case.sensitive.glob";
     public static final String PROXY_HOST_PROPERTY_KEY = "proxy.host";
@@ -94,6 +99,8 @@ public final class ConfigPropertyKeys {
     public static final String NPM_YARN_PROJECT                             = "npm.yarnProject";
     public static final String NPM_IGNORE_JAVA_SCRIPT_FILES                 = "npm.ignoreJavaScriptFiles";
     public static final String NPM_IGNORE_SOURCE_FILES                      = "npm.ignoreSourceFiles";
+    public static final String NPM_REGISTRY_CACHE_FILE                      = "npm.registryCacheFile"; // optional
+    public static final String NPM_REGISTRY_CONCURRENCY                     = "npm.registryConcurrency";
 
 
     public static final String BOWER_RESOLVE_DEPENDENCIES   = "bower.resolveDependencies";
@@ -122,6 +129,7 @@ public final class ConfigPropertyKeys {
     public static final String MAVEN_IGNORE_POM_MODULES     = "maven.ignorePomModules";
     public static final String MAVEN_IGNORE_SOURCE_FILES    = "maven.ignoreSourceFiles";
     public static final String MAVEN_RUN_PRE_STEP           = "maven.runPreStep";
+    public static final String MAVEN_SHA1_FILE_VERIFICATION_RATE = "maven.sha1FileVerificationRate";
 
     public static final String IGNORE_SOURCE_FILES          = "ignoreSourceFiles";
 
@@ -139,6 +147,8 @@ public final class ConfigPropertyKeys {
     public static final String ENDPOINT_CERTIFICATE     = "endpoint.certificate";
     public static final String ENDPOINT_PASS            = "endpoint.pass";
     public static final String ENDPOINT_SSL_ENABLED     = "endpoint.ssl";
+    public static final String ENDPOINT_WORKERS         = "endpoint.workers";
+    public static final String ENDPOINT_QUEUE_SIZE      = "endpoint.queueSize";
 
     public static final String GRADLE_RUN_PRE_STEP          = "gradle.runPreStep";
     public static final String GRADLE_RESOLVE_DEPENDENCIES  = "gradle.resolveDependencies";
@@ -187,6 +197,7 @@ public final class ConfigPropertyKeys {
 
     public static final String DEPENDENCIES_ONLY            = "dependenciesOnly";
     public static final String WHITESOURCE_CONFIGURATION    = "whitesourceConfiguration";
+    public static final String RESOLVER_THREADS             = "resolver.threads";
 
     public static final String SCANNED_FOLDERS = "d";
     public static final String SEND_LOGS_TO_WSS = "sendLogsToWss";
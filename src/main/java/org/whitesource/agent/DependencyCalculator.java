@@ -1,21 +1,51 @@
 package org.whitesource.agent;
 
+import org.slf4j.Logger;
 import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
 
 import java.io.File;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class DependencyCalculator {
 
     private static final List<String> progressAnimation = Arrays.asList("|", "/", Constants.DASH, "\\");
     private static final int ANIMATION_FRAMES = progressAnimation.size();
+    // number of files waiting to be hashed per worker thread
+    private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(DependencyCalculator.class);
     private final boolean showProgressBar;
+    private final int hashCalculationThreads;
+    private final HashCache hashCache;
     private int animationIndex = 0;
 
     public DependencyCalculator(boolean showProgressBar) {
+        this(showProgressBar, 1);
+    }
+
+    /**
+     * @param showProgressBar        whether to display the progress bar
+     * @param hashCalculationThreads number of files hashed concurrently, values below 1 mean a single thread
+     */
+    public DependencyCalculator(boolean showProgressBar, int hashCalculationThreads) {
+        this(showProgressBar, hashCalculationThreads, null);
+    }
+
+    /**
+     * @param showProgressBar        whether to display the progress bar
+     * @param hashCalculationThreads number of files hashed concurrently, values below 1 mean a single thread
+     * @param hashCache              cache of previously calculated hashes, null to hash all files
+     */
+    public DependencyCalculator(boolean showProgressBar, int hashCalculationThreads, HashCache hashCache) {
         this.showProgressBar = showProgressBar;
+        this.hashCache = hashCache;
         this.animationIndex = 0;
+        // files are hashed one at a time unless more threads are configured, concurrent reads are slower on network drives and HDDs
+        this.hashCalculationThreads = Math.max(1, hashCalculationThreads);
     }
 
     public Collection<DependencyInfo> createDependencies(boolean scmConnector, int totalFiles, Map<File, Collection<String>> fileMap,
@@ -30,26 +60,90 @@ public class DependencyCalculator {
             displayProgress(0, totalFiles);
         }
 
+        DependencyInfoFactory factory = createFactory(excludedCopyrights, partialSha1Match, calculateHints, calculateMd5);
+        ExecutorService executorService = hashCalculationThreads > 1 ? Executors.newFixedThreadPool(hashCalculationThreads) : null;
+        // files are submitted in order and their results are collected in the same order, at most queueSize files are pending at any time
+        int queueSize = hashCalculationThreads * QUEUE_SIZE_PER_THREAD;
+        Deque<Future<DependencyInfo>> pendingFiles = new ArrayDeque<>(queueSize);
+        Metrics.Gauge queueDepth = Metrics.gauge("hash_queue_depth");
+        Metrics.Timer.Context hashTime = Metrics.timer("hash").start();
         int index = 1;
-        for (Map.Entry<File, Collection<String>> entry : fileMap.entrySet()) {
-            for (String fileName : entry.getValue()) {
-                DependencyInfoFactory factory = new DependencyInfoFactory(excludedCopyrights, partialSha1Match, calculateHints, calculateMd5);
-                DependencyInfo originalDependencyInfo = factory.createDependencyInfo(entry.getKey(), fileName);
-                if (originalDependencyInfo != null) {
-                    if (scmConnector) {
-                        originalDependencyInfo.setSystemPath(fileName.replace(Constants.BACK_SLASH, Constants.FORWARD_SLASH));
+        try {
+            for (Map.Entry<File, Collection<String>> entry : fileMap.entrySet()) {
+                for (String fileName : entry.getValue()) {
+                    if (executorService == null) {
+                        addDependency(allDependencies, createDependencyInfo(factory, entry.getKey(), fileName, scmConnector));
+                    } else {
+                        if (pendingFiles.size() == queueSize) {
+                            addDependency(allDependencies, getResult(pendingFiles.poll()));
+                        }
+                        pendingFiles.add(executorService.submit(() -> createDependencyInfo(factory, entry.getKey(), fileName, scmConnector)));
+                        queueDepth.set(pendingFiles.size());
+                    }
+                    if (showProgressBar) {
+                        displayProgress(index - pendingFiles.size(), totalFiles);
                     }
-                    allDependencies.add(originalDependencyInfo);
+                    index++;
                 }
+            }
+            while (!pendingFiles.isEmpty()) {
+                addDependency(allDependencies, getResult(pendingFiles.poll()));
+                queueDepth.set(pendingFiles.size());
                 if (showProgressBar) {
-                    displayProgress(index, totalFiles);
+                    displayProgress(index - 1 - pendingFiles.size(), totalFiles);
                 }
-                index++;
             }
+        } catch (InterruptedException e) {
+            logger.warn("Calculating dependencies was interrupted: {}", e.getMessage());
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+            queueDepth.set(0);
+            hashTime.close();
         }
         return allDependencies;
     }
 
+    /* --- Protected methods --- */
+
+    // overridden by tests to control how each file is hashed
+    protected DependencyInfoFactory createFactory(Collection<String> excludedCopyrights, boolean partialSha1Match, boolean calculateHints, boolean calculateMd5) {
+        return new DependencyInfoFactory(excludedCopyrights, partialSha1Match, calculateHints, calculateMd5, hashCache);
+    }
+
+    /* --- Private methods --- */
+
+    private DependencyInfo createDependencyInfo(DependencyInfoFactory factory, File basedir, String fileName, boolean scmConnector) {
+        DependencyInfo dependencyInfo = null;
+        try {
+            dependencyInfo = factory.createDependencyInfo(basedir, fileName);
+            if (dependencyInfo != null && scmConnector) {
+                dependencyInfo.setSystemPath(fileName.replace(Constants.BACK_SLASH, Constants.FORWARD_SLASH));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to create dependency {}: {}", fileName, e.getMessage());
+            logger.debug("{}", e.getStackTrace());
+        }
+        return dependencyInfo;
+    }
+
+    private DependencyInfo getResult(Future<DependencyInfo> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            logger.warn("Failed to create dependency: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void addDependency(List<DependencyInfo> allDependencies, DependencyInfo dependencyInfo) {
+        if (dependencyInfo != null) {
+            allDependencies.add(dependencyInfo);
+        }
+    }
+
     private void displayProgress(int index, int totalFiles) {
         StringBuilder sb = new StringBuilder("[INFO] ");
 
@@ -23,9 +23,12 @@ import org.whitesource.agent.api.model.CopyrightInfo;
 import org.whitesource.agent.api.model.DependencyHintsInfo;
 import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.hash.ChecksumUtils;
+import org.whitesource.agent.hash.FileExtensions;
+import org.whitesource.agent.hash.HashCalculationResult;
 import org.whitesource.agent.hash.HashAlgorithm;
 import org.whitesource.agent.hash.HashCalculator;
 import org.whitesource.agent.hash.HintUtils;
+import org.whitesource.agent.utils.Metrics;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -64,6 +67,13 @@ public class DependencyInfoFactory {
 
     private static final Map<String, String> commentStartEndMap;
 
+    // same limit the hash calculator uses for other platform sha1
+    public static final long MAX_IN_MEMORY_FILE_SIZE = 10 * 1024 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final String EMPTY_FILE_SHA1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+    private static final String CRLF = "\r\n";
+    private static final String LF = "\n";
+
     static {
         commentStartEndMap = new HashMap<>();
         commentStartEndMap.put("/*", "*/");
@@ -80,6 +90,7 @@ public class DependencyInfoFactory {
     private final boolean partialSha1Match;
     private boolean calculateHints;
     private boolean calculateMd5;
+    private HashCache hashCache;
 
     /* --- Constructors --- */
 
@@ -99,53 +110,130 @@ public class DependencyInfoFactory {
         this.calculateMd5 = calculateMd5;
     }
 
+    public DependencyInfoFactory(Collection<String> excludedCopyrights, boolean partialSha1Match, boolean calculateHints, boolean calculateMd5,
+                                 HashCache hashCache) {
+        this(excludedCopyrights, partialSha1Match, calculateHints, calculateMd5);
+        this.hashCache = hashCache;
+    }
+
     /* --- Public methods --- */
 
     public DependencyInfo createDependencyInfo(File basedir, String filename) {
+        File dependencyFile = new File(basedir, filename);
+        HashCache.FileStamp fileStamp = hashCache == null ? null : hashCache.getFileStamp(dependencyFile);
+        DependencyInfo dependency = fileStamp == null ? null : hashCache.get(fileStamp);
+        if (dependency != null) {
+            Metrics.counter("hash_cache_hits").increment();
+        } else {
+            dependency = calculateDependencyInfo(dependencyFile, filename);
+            if (dependency != null && fileStamp != null) {
+                hashCache.put(fileStamp, dependency);
+            }
+        }
+
+        // populate hints
+        if (dependency != null && calculateHints) {
+            DependencyHintsInfo hints = HintUtils.getHints(dependencyFile.getPath());
+            dependency.setHints(hints);
+        }
+        return dependency;
+    }
+
+    /**
+     * Create a dependency from content already in memory, such as an archive entry.
+     * Hints are not calculated since they require a file on disk.
+     *
+     * @param content    the content of the file
+     * @param fileName   the name of the file
+     * @param systemPath the path reported for the file
+     * @return the dependency with all its hashes
+     */
+    public DependencyInfo createDependencyInfo(byte[] content, String fileName, String systemPath) throws IOException {
+        Metrics.counter("files_hashed").increment();
+        Metrics.counter("bytes_hashed").add(content.length);
+        HashCalculator hashCalculator = new HashCalculator();
+        DependencyInfo dependency = new DependencyInfo(hashCalculator.calculateByteArraySHA1(removeBom(content)));
+        dependency.setArtifactId(fileName);
+        dependency.setFilename(fileName);
+        dependency.setSystemPath(systemPath);
+
+        // additional sha1s
+        // MD5
+        if (calculateMd5) {
+            dependency.addChecksum(ChecksumType.MD5, hashCalculator.calculateByteArrayHash(removeBom(content), HashAlgorithm.MD5));
+        }
+
+        // handle JavaScript files
+        if (fileName.toLowerCase().matches(JAVA_SCRIPT_REGEX)) {
+            try {
+                addChecksums(dependency, hashCalculator.calculateJavaScriptHashes(content));
+            } catch (Exception e) {
+                logger.warn("Failed to calculate javaScript hash for file: {}, error: {}", systemPath, e.getMessage());
+                logger.debug("Failed to calculate javaScript hash for file: {}, error: {}", systemPath, e.getStackTrace());
+            }
+        }
+
+        // other platform SHA1
+        dependency.setOtherPlatformSha1(calculateOtherPlatformSha1(hashCalculator, content));
+
+        // super hash
+        if (!fileName.toLowerCase().matches(FileExtensions.BINARY_FILE_EXTENSION_REGEX)) {
+            try {
+                HashCalculationResult superHash = hashCalculator.calculateSuperHash(content);
+                if (superHash != null) {
+                    dependency.setFullHash(superHash.getFullHash());
+                    dependency.setMostSigBitsHash(superHash.getMostSigBitsHash());
+                    dependency.setLeastSigBitsHash(superHash.getLeastSigBitsHash());
+                }
+            } catch (IOException e) {
+                logger.warn("Error calculating fullHash for {}, Error - {}", fileName, e.getMessage());
+            }
+        }
+        return dependency;
+    }
+
+    /* --- Private methods --- */
+
+    private DependencyInfo calculateDependencyInfo(File dependencyFile, String filename) {
         DependencyInfo dependency;
         try {
-            File dependencyFile = new File(basedir, filename);
-            String sha1 = ChecksumUtils.calculateSHA1(dependencyFile);
-            dependency = new DependencyInfo(sha1);
-            dependency.setArtifactId(dependencyFile.getName());
-            dependency.setFilename(dependencyFile.getName());
-
             // system path
+            String systemPath;
             try {
-                dependency.setSystemPath(dependencyFile.getCanonicalPath());
+                systemPath = dependencyFile.getCanonicalPath();
             } catch (IOException e) {
-                dependency.setSystemPath(dependencyFile.getAbsolutePath());
+                systemPath = dependencyFile.getAbsolutePath();
             }
 
-            // populate hints
-            if (calculateHints) {
-                DependencyHintsInfo hints = HintUtils.getHints(dependencyFile.getPath());
-                dependency.setHints(hints);
+            // read small files once and calculate all hashes from memory, larger files are streamed per hash
+            if (dependencyFile.length() < MAX_IN_MEMORY_FILE_SIZE) {
+                return createDependencyInfo(FileUtils.readFileToByteArray(dependencyFile), dependencyFile.getName(), systemPath);
             }
 
+            Metrics.counter("files_hashed").increment();
+            Metrics.counter("bytes_hashed").add(dependencyFile.length());
+            dependency = new DependencyInfo(ChecksumUtils.calculateSHA1(dependencyFile));
+            dependency.setArtifactId(dependencyFile.getName());
+            dependency.setFilename(dependencyFile.getName());
+            dependency.setSystemPath(systemPath);
+
             // additional sha1s
             // MD5
             if (calculateMd5) {
-                String md5 = ChecksumUtils.calculateHash(dependencyFile, HashAlgorithm.MD5);
-                dependency.addChecksum(ChecksumType.MD5, md5);
+                dependency.addChecksum(ChecksumType.MD5, ChecksumUtils.calculateHash(dependencyFile, HashAlgorithm.MD5));
             }
 
             // handle JavaScript files
             if (filename.toLowerCase().matches(JAVA_SCRIPT_REGEX)) {
-                Map<ChecksumType, String> javaScriptChecksums;
                 try {
-                    javaScriptChecksums = new HashCalculator().calculateJavaScriptHashes(dependencyFile);
-                    for (Map.Entry<ChecksumType, String> entry : javaScriptChecksums.entrySet()) {
-                        dependency.addChecksum(entry.getKey(), entry.getValue());
-                    }
+                    addChecksums(dependency, new HashCalculator().calculateJavaScriptHashes(dependencyFile));
                 } catch (Exception e) {
                     logger.warn("Failed to calculate javaScript hash for file: {}, error: {}", dependencyFile.getPath(), e.getMessage());
                     logger.debug("Failed to calculate javaScript hash for file: {}, error: {}", dependencyFile.getPath(), e.getStackTrace());
                 }
             }
 
-            // other platform SHA1
-            ChecksumUtils.calculateOtherPlatformSha1(dependency, dependencyFile);
+            // other platform SHA1 is not calculated for files larger than MAX_IN_MEMORY_FILE_SIZE
 
             // super hash
             ChecksumUtils.calculateSuperHash(dependency, dependencyFile);
@@ -156,7 +244,34 @@ public class DependencyInfoFactory {
         return dependency;
     }
 
-    /* --- Private methods --- */
+    private void addChecksums(DependencyInfo dependency, Map<ChecksumType, String> checksums) {
+        for (Map.Entry<ChecksumType, String> entry : checksums.entrySet()) {
+            dependency.addChecksum(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // the file based hash methods skip a UTF-8 byte order mark, do the same for in-memory content
+    private byte[] removeBom(byte[] content) {
+        if (content.length >= UTF8_BOM.length && content[0] == UTF8_BOM[0] && content[1] == UTF8_BOM[1] && content[2] == UTF8_BOM[2]) {
+            return Arrays.copyOfRange(content, UTF8_BOM.length, content.length);
+        }
+        return content;
+    }
+
+    // sha1 of the content with its line endings converted to the other platform (CRLF <-> LF)
+    private String calculateOtherPlatformSha1(HashCalculator hashCalculator, byte[] content) throws IOException {
+        String text = new String(content);
+        String otherPlatformText;
+        if (text.contains(CRLF)) {
+            otherPlatformText = text.replace(CRLF, LF);
+        } else if (text.contains(LF)) {
+            otherPlatformText = text.replace(LF, CRLF);
+        } else {
+            return null;
+        }
+        String sha1 = hashCalculator.calculateByteArraySHA1(removeBom(otherPlatformText.getBytes()));
+        return EMPTY_FILE_SHA1.equals(sha1) ? null : sha1;
+    }
 
     private Collection<CopyrightInfo> extractCopyrights(File file) {
         Collection<CopyrightInfo> copyrights = new ArrayList<>();
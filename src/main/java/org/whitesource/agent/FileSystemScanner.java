@@ -16,6 +16,7 @@
 package org.whitesource.agent;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.whitesource.agent.api.model.AgentProjectInfo;
 import org.whitesource.agent.api.model.Coordinates;
@@ -25,9 +26,12 @@ import org.whitesource.agent.archive.ArchiveExtractor;
 import org.whitesource.agent.dependency.resolver.AbstractDependencyResolver;
 import org.whitesource.agent.dependency.resolver.DependencyResolutionService;
 import org.whitesource.agent.dependency.resolver.ResolutionResult;
+import org.whitesource.agent.utils.FilesIndex;
 import org.whitesource.agent.utils.FilesUtils;
 import org.whitesource.agent.utils.LoggerFactory;
 import org.whitesource.agent.utils.MemoryUsageHelper;
+import org.whitesource.agent.utils.Metrics;
+import org.whitesource.agent.utils.PathTrie;
 import org.whitesource.fs.FSAConfiguration;
 import org.whitesource.fs.FileSystemAgent;
 import org.whitesource.fs.Main;
@@ -162,21 +166,26 @@ public class FileSystemScanner {
         // go over all base directories, look for archives
         Map<String, String> archiveToBaseDirMap = new HashMap<>();
         List<String> archiveDirectories = new ArrayList<>();
-        if (archiveExtractionDepth > 0) {
+        // archives are read as streams with the other files when archive streaming is enabled
+        boolean archiveStreaming = archiveExtractionDepth > 0 && agent.isArchiveStreaming();
+        Collection<String> archiveBaseDirs = new LinkedHashSet<>(pathsToScan);
+        if (archiveExtractionDepth > 0 && !archiveStreaming) {
             ArchiveExtractor archiveExtractor = new ArchiveExtractor(archiveIncludes, archiveExcludes, excludes, archiveFastUnpack);
             logger.info("Starting Archive Extraction (may take a few minutes)");
-            for (String scannerBaseDir : new LinkedHashSet<>(pathsToScan)) {
-                unpackDirectory = archiveExtractor.extractArchives(scannerBaseDir, archiveExtractionDepth, archiveDirectories);
-                if (unpackDirectory != null) {
-                    archiveExtraction = true;
-                    String parentFileUrl = new File(scannerBaseDir).getParent();
-                    logger.debug("Unpack directory: {}, parent file: {}", unpackDirectory, parentFileUrl);
-                    archiveToBaseDirMap.put(unpackDirectory, parentFileUrl);
-                    pathsToScan.add(unpackDirectory);
-                    if (!appPathsToDependencyDirs.containsKey(FSAConfiguration.DEFAULT_KEY)) {
-                        appPathsToDependencyDirs.put(FSAConfiguration.DEFAULT_KEY, new HashSet<>());
+            try (Metrics.Timer.Context ignored = Metrics.timer("archive_extraction", "mode", "extract").start()) {
+                for (String scannerBaseDir : new LinkedHashSet<>(pathsToScan)) {
+                    unpackDirectory = archiveExtractor.extractArchives(scannerBaseDir, archiveExtractionDepth, archiveDirectories);
+                    if (unpackDirectory != null) {
+                        archiveExtraction = true;
+                        String parentFileUrl = new File(scannerBaseDir).getParent();
+                        logger.debug("Unpack directory: {}, parent file: {}", unpackDirectory, parentFileUrl);
+                        archiveToBaseDirMap.put(unpackDirectory, parentFileUrl);
+                        pathsToScan.add(unpackDirectory);
+                        if (!appPathsToDependencyDirs.containsKey(FSAConfiguration.DEFAULT_KEY)) {
+                            appPathsToDependencyDirs.put(FSAConfiguration.DEFAULT_KEY, new HashSet<>());
+                        }
+                        appPathsToDependencyDirs.get(FSAConfiguration.DEFAULT_KEY).add(unpackDirectory);
                     }
-                    appPathsToDependencyDirs.get(FSAConfiguration.DEFAULT_KEY).add(unpackDirectory);
                 }
             }
         }
@@ -195,7 +204,13 @@ public class FileSystemScanner {
         logger.info("Excluded file types: {}", String.join(Constants.COMMA, excludes));
         String[] resolversIncludesPattern = createResolversIncludesPattern(dependencyResolutionService.getDependencyResolvers());
 
-        Map<File, Collection<String>> fileMapBeforeResolve = new FilesUtils().fillFilesMap(pathsToScan, resolversIncludesPattern, excludes, followSymlinks, globCaseSensitive);
+        // walk the scanned folders only once, all the following files lookups are answered from the index
+        FilesIndex filesIndex;
+        Map<File, Collection<String>> fileMapBeforeResolve;
+        try (Metrics.Timer.Context ignored = Metrics.timer("walk").start()) {
+            filesIndex = new FilesIndex(pathsToScan, excludes, followSymlinks, globCaseSensitive);
+            fileMapBeforeResolve = new FilesUtils().fillFilesMap(filesIndex, pathsToScan, resolversIncludesPattern, excludes, followSymlinks, globCaseSensitive);
+        }
         Set<String> allFiles = fileMapBeforeResolve.entrySet().stream().flatMap(folder -> folder.getValue().stream()).collect(Collectors.toSet());
 
         final int[] totalDependencies = {0};
@@ -222,9 +237,9 @@ public class FileSystemScanner {
                 LinkedList<String> pathsList = new LinkedList<>();
                 pathsList.addAll(appPathsToDependencyDirs.get(appPath));
                 if (appPath.equals(FSAConfiguration.DEFAULT_KEY) && appPathsToDependencyDirs.keySet().size() == 1) {
-                    resolutionResult = dependencyResolutionService.resolveDependencies(pathsList, excludes);
+                    resolutionResult = dependencyResolutionService.resolveDependencies(pathsList, excludes, filesIndex);
                 } else if (!appPath.equals(FSAConfiguration.DEFAULT_KEY) && appPathsToDependencyDirs.keySet().size() > 1) {
-                    resolutionResult = dependencyResolutionService.resolveDependencies(pathsList, excludes);
+                    resolutionResult = dependencyResolutionService.resolveDependencies(pathsList, excludes, filesIndex);
                 }
                 if (resolutionResult.size() == 1 && !appPath.equals(FSAConfiguration.DEFAULT_KEY)) {
                     DependencyType dependencyType = resolutionResult.stream().findFirst().get().getDependencyType();
@@ -315,16 +330,40 @@ public class FileSystemScanner {
 
         String[] excludesExtended = excludeFileSystemAgent(excludes);
         logger.info("Scanning directories {} for matching Files (may take a few minutes)", pathsToScan);
-        Map<File, Collection<String>> fileMap = new FilesUtils().fillFilesMap(pathsToScan, includes, excludesExtended, followSymlinks, globCaseSensitive);
+        // pick up files created or removed by the resolvers
+        Map<File, Collection<String>> fileMap;
+        try (Metrics.Timer.Context ignored = Metrics.timer("walk").start()) {
+            filesIndex.refresh();
+            fileMap = new FilesUtils().fillFilesMap(filesIndex, pathsToScan, includes, excludesExtended, followSymlinks, globCaseSensitive);
+        }
         long filesCount = fileMap.entrySet().stream().flatMap(folder -> folder.getValue().stream()).count();
+        Metrics.counter("files_found").add(filesCount);
         totalFiles += filesCount;
         logger.info(MessageFormat.format("Total files found according to the includes/excludes pattern: {0}", totalFiles));
-        DependencyCalculator dependencyCalculator = new DependencyCalculator(showProgressBar);
+        HashCache hashCache = null;
+        if (StringUtils.isNotBlank(agent.getHashCacheFile())) {
+            hashCache = new HashCache(new File(agent.getHashCacheFile()), calculateMd5);
+        }
+        DependencyCalculator dependencyCalculator = new DependencyCalculator(showProgressBar, agent.getCalculateThreads(), hashCache);
         final Collection<DependencyInfo> filesDependencies = new LinkedList<>();
 
         if (!isIgnoreSourceFiles) {
             filesDependencies.addAll(dependencyCalculator.createDependencies(
                     scmConnector, totalFiles, fileMap, excludedCopyrights, partialSha1Match, calculateHints, calculateMd5));
+            if (archiveStreaming) {
+                ArchiveExtractor archiveExtractor = new ArchiveExtractor(archiveIncludes, archiveExcludes, excludes, archiveFastUnpack);
+                DependencyInfoFactory dependencyInfoFactory = new DependencyInfoFactory(excludedCopyrights, partialSha1Match, false, calculateMd5);
+                logger.info("Starting Archive Streaming (may take a few minutes)");
+                try (Metrics.Timer.Context ignored = Metrics.timer("archive_extraction", "mode", "stream").start()) {
+                    for (String scannerBaseDir : archiveBaseDirs) {
+                        filesDependencies.addAll(archiveExtractor.streamArchives(scannerBaseDir, archiveExtractionDepth, includes, globCaseSensitive,
+                                dependencyInfoFactory, calculateMd5, agent.getCalculateThreads(), hashCache));
+                    }
+                }
+            }
+            if (hashCache != null) {
+                hashCache.save();
+            }
         }
 
         if (allProjects.size() == 1) {
@@ -343,27 +382,32 @@ public class FileSystemScanner {
                 }
             }*/
         } else {
-            // Sort the projects by length of paths (from the longest to the shortest) in order to add filesDependencies to the most appropriate project
+            // add each file dependency to the project of the deepest folder containing it
             // Example: project1 path: C:\Users\file\Data; project2 path: C:\Users\file\Data\folder; file dependency path: C:\Users\file\Data\folder\a.jar
-            // Before sorting, the file dependency will be in project1. After sorting, the file dependency will be in project2.
-            List<Map.Entry<AgentProjectInfo, Path>> entriesList = new ArrayList<>();
-            allProjects.entrySet().forEach(entry -> {
-                if (entry.getValue() != null) {
-                    entriesList.add(entry);
+            // The file dependency will be in project2. Projects of the same folder are resolved to the last one added.
+            PathTrie<AgentProjectInfo> projectFolders = new PathTrie<>();
+            allProjects.forEach((project, folder) -> {
+                if (folder != null) {
+                    projectFolders.put(folder, project);
+                    try {
+                        // system paths of file dependencies are canonical
+                        projectFolders.put(folder.toFile().getCanonicalFile().toPath(), project);
+                    } catch (IOException e) {
+                        logger.debug("Failed to get canonical path of {}: {}", folder, e.getMessage());
+                    }
                 }
             });
-            entriesList.sort(Map.Entry.comparingByValue());
-            Collections.reverse(entriesList);
-            Map<AgentProjectInfo, Path> result = new LinkedHashMap<>();
-            entriesList.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
 
             // remove files from handled projects
-            result.entrySet().forEach(project -> {
-                Collection<DependencyInfo> projectDependencies = filesDependencies.stream()
-                        .filter(dependencyInfo -> project.getValue() != null && dependencyInfo.getSystemPath().contains(project.getValue().toString())).collect(Collectors.toList());
-                project.getKey().getDependencies().addAll(projectDependencies);
-                filesDependencies.removeAll(projectDependencies);
-            });
+            Iterator<DependencyInfo> iterator = filesDependencies.iterator();
+            while (iterator.hasNext()) {
+                DependencyInfo dependencyInfo = iterator.next();
+                AgentProjectInfo project = projectFolders.getDeepest(dependencyInfo.getSystemPath());
+                if (project != null) {
+                    project.getDependencies().add(dependencyInfo);
+                    iterator.remove();
+                }
+            }
 
             // create new projects if necessary
             if (!isIgnoreSourceFiles && filesDependencies.size() > 0) {
@@ -372,7 +416,7 @@ public class FileSystemScanner {
                     // check all folders
 
                     String[] includesAll = {Constants.PATTERN};
-                    subDirectories = new FilesUtils().getSubDirectories(directory, includesAll, null, followSymlinks, globCaseSensitive);
+                    subDirectories = new FilesUtils().getSubDirectories(filesIndex, directory, includesAll, null, followSymlinks, globCaseSensitive);
                     subDirectories.forEach(subFolder -> {
                         if (filesDependencies.size() > 0) {
                             List<DependencyInfo> projectDependencies = filesDependencies.stream().
@@ -410,7 +454,7 @@ public class FileSystemScanner {
                 } else {
                     for (String key : archiveToBaseDirMap.keySet()) {
                         if (systemPath.contains(key) && archiveExtraction) {
-                            String newSystemPath = systemPath.replace(key, archiveToBaseDirMap.get(key)).replaceAll(ArchiveExtractor.DEPTH_REGEX, Constants.EMPTY_STRING);
+                            String newSystemPath = ArchiveExtractor.getOriginalSystemPath(systemPath, key, archiveToBaseDirMap.get(key));
                             logger.debug("Original system path: {}, new system path: {}, key: {}", systemPath, newSystemPath, key);
                             dependencyInfo.setSystemPath(newSystemPath);
                             break;
@@ -479,9 +523,13 @@ public class FileSystemScanner {
         return pathsToScan;
     }
 
+    // the dependencies trees may be too deep to walk recursively
     private void increaseCount(DependencyInfo dependency, int[] totalDependencies) {
-        totalDependencies[0] += dependency.getChildren().size();
-        dependency.getChildren().forEach(dependencyInfo -> increaseCount(dependencyInfo, totalDependencies));
+        Deque<DependencyInfo> stack = new ArrayDeque<>(dependency.getChildren());
+        while (!stack.isEmpty()) {
+            totalDependencies[0]++;
+            stack.pop().getChildren().forEach(stack::push);
+        }
     }
 
     private String[] excludeFileSystemAgent(String[] excludes) {
@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.whitesource.agent.api.model.ChecksumType;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.hash.HashCalculator;
+import org.whitesource.agent.utils.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of the hashes calculated for files, keyed by canonical path, size, modification time and file key (inode).
+ * Unchanged files are answered from the cache without reading their content.
+ * Files inside archives are keyed by the path of the archive and their path in it, their size and modification time,
+ * and the stamp of the archive file itself, so any change of the archive invalidates its entries.
+ * Only entries of files looked up during the current run are written back, so removed files do not accumulate.
+ */
+public class HashCache {
+
+    /* --- Static members --- */
+
+    private static final Logger logger = LoggerFactory.getLogger(HashCache.class);
+
+    // bump when the cached fields or the way they are calculated change
+    private static final int CACHE_VERSION = 2;
+    // files modified this close to the time they were hashed may change again without a new modification time
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+    // separates the path of an archive from the path of an entry inside it
+    private static final String ENTRY_SEPARATOR = "!/";
+
+    /* --- Members --- */
+
+    private final File cacheFile;
+    private final String settings;
+    private final Map<String, Entry> previousEntries;
+    private final Map<String, Entry> currentEntries = new ConcurrentHashMap<>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param cacheFile    the cache file, loaded if it exists
+     * @param calculateMd5 whether md5 checksums are calculated, entries cached with a different setting are ignored
+     */
+    public HashCache(File cacheFile, boolean calculateMd5) {
+        this.cacheFile = cacheFile;
+        this.settings = "md5=" + calculateMd5 + ",hashCalculator=" + HashCalculator.class.getPackage().getImplementationVersion();
+        this.previousEntries = load();
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the current state of the file, or null if it can't be cached
+     */
+    public FileStamp getFileStamp(File file) {
+        try {
+            Path path = file.toPath().toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return new FileStamp(path.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    fileKey == null ? Constants.EMPTY_STRING : fileKey.toString());
+        } catch (IOException | SecurityException e) {
+            logger.debug("Unable to read attributes of {}: {}", file.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param archiveStamp the stamp of the archive file, or of the archive entry for archives nested in other archives
+     * @param entryPath    the path of the entry inside the archive
+     * @param size         the size of the entry
+     * @param lastModified the modification time of the entry
+     * @return the state of the archive entry
+     */
+    public FileStamp getEntryStamp(FileStamp archiveStamp, String entryPath, long size, long lastModified) {
+        String path = archiveStamp.path + ENTRY_SEPARATOR + entryPath.replace(Constants.BACK_SLASH, Constants.FORWARD_SLASH);
+        // the entry is only as recent as its archive, entries are not cached while the archive may still change
+        String fileKey = archiveStamp.fileKey + Constants.COLON + archiveStamp.size + Constants.COLON + lastModified;
+        return new FileStamp(path, size, archiveStamp.lastModified, fileKey);
+    }
+
+    /**
+     * @return a new dependency with the cached hashes of the file, or null if the file changed or isn't cached
+     */
+    public DependencyInfo get(FileStamp fileStamp) {
+        Entry entry = currentEntries.get(fileStamp.path);
+        if (entry == null) {
+            entry = previousEntries.get(fileStamp.path);
+        }
+        if (entry == null || !entry.matches(fileStamp)) {
+            return null;
+        }
+        currentEntries.put(fileStamp.path, entry);
+
+        DependencyInfo dependency = new DependencyInfo(entry.sha1);
+        dependency.setOtherPlatformSha1(entry.otherPlatformSha1);
+        String fileName = new File(fileStamp.path).getName();
+        dependency.setArtifactId(fileName);
+        dependency.setFilename(fileName);
+        dependency.setSystemPath(fileStamp.path);
+        dependency.setFullHash(entry.fullHash);
+        dependency.setMostSigBitsHash(entry.mostSigBitsHash);
+        dependency.setLeastSigBitsHash(entry.leastSigBitsHash);
+        if (entry.checksums != null) {
+            for (Map.Entry<ChecksumType, String> checksum : entry.checksums.entrySet()) {
+                dependency.addChecksum(checksum.getKey(), checksum.getValue());
+            }
+        }
+        return dependency;
+    }
+
+    /**
+     * Cache the hashes of a file.
+     *
+     * @param fileStamp  the state of the file taken before it was hashed
+     * @param dependency the dependency calculated for the file
+     */
+    public void put(FileStamp fileStamp, DependencyInfo dependency) {
+        if (System.currentTimeMillis() - fileStamp.lastModified < TIMESTAMP_GRANULARITY_MILLIS) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.size = fileStamp.size;
+        entry.lastModified = fileStamp.lastModified;
+        entry.fileKey = fileStamp.fileKey;
+        entry.sha1 = dependency.getSha1();
+        entry.otherPlatformSha1 = dependency.getOtherPlatformSha1();
+        entry.fullHash = dependency.getFullHash();
+        entry.mostSigBitsHash = dependency.getMostSigBitsHash();
+        entry.leastSigBitsHash = dependency.getLeastSigBitsHash();
+        entry.checksums = new HashMap<>(dependency.getChecksums());
+        currentEntries.put(fileStamp.path, entry);
+    }
+
+    /**
+     * Write the entries used in this run to the cache file.
+     * The file is replaced atomically so an interrupted run never leaves a partial cache behind.
+     */
+    public void save() {
+        CacheContent content = new CacheContent();
+        content.version = CACHE_VERSION;
+        content.settings = settings;
+        content.entries = currentEntries;
+        File tempFile = null;
+        try {
+            File parent = cacheFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", parent);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+                new Gson().toJson(content, writer);
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.debug("Saved {} entries to hash cache {}", currentEntries.size(), cacheFile.getPath());
+        } catch (IOException e) {
+            logger.warn("Failed to save hash cache {}: {}", cacheFile.getPath(), e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private Map<String, Entry> load() {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (!cacheFile.isFile()) {
+            return entries;
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+            CacheContent content = new Gson().fromJson(reader, CacheContent.class);
+            if (content == null || content.version != CACHE_VERSION || !settings.equals(content.settings) || content.entries == null) {
+                logger.info("Hash cache {} was created with different settings, ignoring it", cacheFile.getPath());
+                return entries;
+            }
+            for (Map.Entry<String, Entry> entry : content.entries.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && entry.getValue().sha1 != null) {
+                    entries.put(entry.getKey(), entry.getValue());
+                }
+            }
+            logger.debug("Loaded {} entries from hash cache {}", entries.size(), cacheFile.getPath());
+        } catch (Exception e) {
+            // a corrupted cache is discarded, all files are hashed again
+            logger.warn("Failed to read hash cache {}, ignoring it: {}", cacheFile.getPath(), e.getMessage());
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /* --- Nested classes --- */
+
+    public static class FileStamp {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String fileKey;
+
+        private FileStamp(String path, long size, long lastModified, String fileKey) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+        }
+    }
+
+    private static class Entry {
+
+        private long size;
+        private long lastModified;
+        private String fileKey;
+        private String sha1;
+        private String otherPlatformSha1;
+        private String fullHash;
+        private String mostSigBitsHash;
+        private String leastSigBitsHash;
+        private Map<ChecksumType, String> checksums;
+
+        private boolean matches(FileStamp fileStamp) {
+            return size == fileStamp.size && lastModified == fileStamp.lastModified && fileStamp.fileKey.equals(fileKey);
+        }
+    }
+
+    private static class CacheContent {
+
+        private int version;
+        private String settings;
+        private Map<String, Entry> entries;
+    }
+}
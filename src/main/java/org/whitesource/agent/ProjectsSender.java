@@ -16,7 +16,6 @@
 package org.whitesource.agent;
 
 import ch.qos.logback.classic.Level;
-import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import org.apache.commons.lang.StringUtils;
@@ -30,6 +29,7 @@ import org.whitesource.agent.client.WssServiceException;
 import org.whitesource.agent.report.OfflineUpdateRequest;
 import org.whitesource.agent.report.PolicyCheckReport;
 import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
 import org.whitesource.agent.utils.Pair;
 import org.whitesource.contracts.PluginInfo;
 import org.whitesource.fs.LogMapAppender;
@@ -50,7 +50,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +66,7 @@ public class ProjectsSender {
     private static final String DATE_FORMAT = "HH:mm:ss";
     public static final String PROJECT_URL_PREFIX = "Wss/WSS.html#!project;id=";
     protected static final int MAX_LOG_EVENTS = 1000;
+    private static final String REQUEST_TOKENS_SEPARATOR = ", ";
     /* --- Members --- */
     private final Logger logger = LoggerFactory.getLogger(ProjectsSender.class);
     private final SenderConfiguration senderConfig;
@@ -72,6 +74,7 @@ public class ProjectsSender {
     private final RequestConfiguration requestConfig;
     private final PluginInfo pluginInfo;
     protected StatusCode prepStepStatusCode = StatusCode.SUCCESS;
+    private long logStartSequence;
 
     /* --- Constructors --- */
 
@@ -84,12 +87,19 @@ public class ProjectsSender {
 
     /* --- Public methods --- */
 
+    /**
+     * @param logStartSequence sequence of the first log event sent with the requests, see {@link LogMapAppender#getSequence()}
+     */
+    public void setLogStartSequence(long logStartSequence) {
+        this.logStartSequence = logStartSequence;
+    }
+
     public Pair<String, StatusCode> sendRequest(ProjectsDetails projectsDetails) {
         // send request
         logger.info("Initializing WhiteSource Client");
         Collection<AgentProjectInfo> projects = projectsDetails.getProjects();
 
-        if (checkDependenciesUpbound(projects)) {
+        if (checkDependenciesUpbound(offlineConfig.isEnabled() ? Collections.singletonList(projects) : getBatches(projects))) {
             return new Pair<>("Number of dependencies exceeded the maximum supported", StatusCode.SERVER_FAILURE);
         }
 
@@ -115,42 +125,21 @@ public class ProjectsSender {
             } else if (!senderConfig.isEnableImpactAnalysis()) {
                 //todo return logs when needed would be enabled for all WSE-342
             }
-            int retries = senderConfig.getConnectionRetries();
-            while (retries-- > -1) {
-                try {
-                    statusCode = checkPolicies(service, projects);
-                    if (senderConfig.isUpdateInventory()) {
-                        if (statusCode == StatusCode.SUCCESS || (senderConfig.isForceUpdate() && senderConfig.isForceUpdateFailBuildOnPolicyViolation())) {
-                            resultInfo = update(service, projects);
-                        }
-                    }
-                    break;
-                } catch (WssServiceException e) {
-                    if (e.getCause() != null &&
-                            e.getCause().getClass().getCanonicalName().substring(0,
-                                    e.getCause().getClass().getCanonicalName().lastIndexOf(Constants.DOT)).equals(Constants.JAVA_NETWORKING)) {
-                        statusCode = StatusCode.CONNECTION_FAILURE;
-                        logger.error("Trying " + (retries + 1) + " more time" + (retries != 0 ? "s" : Constants.EMPTY_STRING));
-                    } else {
-                        statusCode = StatusCode.SERVER_FAILURE;
-                        retries = -1;
-                    }
-                    resultInfo = "Failed to send request to WhiteSource server: " + e.getMessage();
-                    logger.error(resultInfo, e.getMessage());
-                    logger.debug(resultInfo, e);
-                    if (retries > -1) {
-                        try {
-                            Thread.sleep(senderConfig.getConnectionRetriesIntervals());
-                        } catch (InterruptedException e1) {
-                            logger.error("Failed to sleep while retrying to connect to server " + e1.getMessage(), e1);
-                        }
-                    }
-                    String requestToken = e.getRequestToken();
-                    if (StringUtils.isNotBlank(requestToken)) {
-                        resultInfo += Constants.NEW_LINE + "Support token: " + requestToken;
-                        logger.info("Support token: {}", requestToken);
+            // each batch of projects is retried separately, see sendBatches
+            try {
+                statusCode = checkPolicies(service, projects);
+                if (senderConfig.isUpdateInventory()) {
+                    if (statusCode == StatusCode.SUCCESS || (senderConfig.isForceUpdate() && senderConfig.isForceUpdateFailBuildOnPolicyViolation())) {
+                        resultInfo = update(service, projects);
                     }
                 }
+            } catch (WssServiceException e) {
+                statusCode = isConnectionFailure(e) ? StatusCode.CONNECTION_FAILURE : StatusCode.SERVER_FAILURE;
+                resultInfo = "Failed to send request to WhiteSource server: " + e.getMessage();
+                String requestToken = e.getRequestToken();
+                if (StringUtils.isNotBlank(requestToken)) {
+                    resultInfo += Constants.NEW_LINE + "Support token: " + requestToken;
+                }
             }
             if (service != null) {
                 service.shutdown();
@@ -247,15 +236,164 @@ public class ProjectsSender {
         }
     }
 
-    private boolean checkDependenciesUpbound(Collection<AgentProjectInfo> projects) {
-        int numberOfDependencies = projects.stream().map(x -> x.getDependencies()).mapToInt(x -> x.size()).sum();
-        if (numberOfDependencies > Constants.MAX_NUMBER_OF_DEPENDENCIES) {
-            logger.warn("Number of dependencies: {} exceeded the maximum supported: {}", numberOfDependencies, Constants.MAX_NUMBER_OF_DEPENDENCIES);
-            return true;
+    private boolean checkDependenciesUpbound(Collection<? extends Collection<AgentProjectInfo>> batches) {
+        // the limit applies to each request separately
+        for (Collection<AgentProjectInfo> projects : batches) {
+            int numberOfDependencies = projects.stream().map(x -> x.getDependencies()).mapToInt(x -> x.size()).sum();
+            if (numberOfDependencies > Constants.MAX_NUMBER_OF_DEPENDENCIES) {
+                logger.warn("Number of dependencies: {} exceeded the maximum supported: {}", numberOfDependencies, Constants.MAX_NUMBER_OF_DEPENDENCIES);
+                return true;
+            }
         }
         return false;
     }
 
+    /**
+     * Split the projects to batches sent in separate requests, each batch holds whole projects with up to the configured
+     * number of dependencies (including transitive ones), a project with more dependencies is sent in a batch of its own.
+     */
+    List<List<AgentProjectInfo>> getBatches(Collection<AgentProjectInfo> projects) {
+        int batchSize = senderConfig.getSendBatchSize();
+        List<List<AgentProjectInfo>> batches = new ArrayList<>();
+        if (batchSize <= 0) {
+            batches.add(new ArrayList<>(projects));
+            return batches;
+        }
+        List<AgentProjectInfo> batch = new ArrayList<>();
+        int batchDependencies = 0;
+        for (AgentProjectInfo project : projects) {
+            int projectDependencies = countDependencies(project.getDependencies());
+            if (!batch.isEmpty() && batchDependencies + projectDependencies > batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchDependencies = 0;
+            }
+            batch.add(project);
+            batchDependencies += projectDependencies;
+        }
+        if (!batch.isEmpty() || batches.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    // the dependencies trees may be too deep to walk recursively
+    private int countDependencies(Collection<DependencyInfo> dependencies) {
+        int count = 0;
+        Deque<DependencyInfo> stack = dependencies == null ? new ArrayDeque<>() : new ArrayDeque<>(dependencies);
+        while (!stack.isEmpty()) {
+            count++;
+            stack.pop().getChildren().forEach(stack::push);
+        }
+        return count;
+    }
+
+    /**
+     * Send a request for each batch of projects, up to the configured number of requests are sent concurrently, each on a
+     * service of its own. Each request is retried separately on connection failures.
+     *
+     * @return the results of the batches, in the order of the batches
+     */
+    private <T> List<T> sendBatches(WhitesourceService service, List<List<AgentProjectInfo>> batches, BatchRequest<T> request) throws WssServiceException {
+        List<T> results = new ArrayList<>(Collections.nCopies(batches.size(), null));
+        int threads = Math.min(Math.max(senderConfig.getSendThreads(), 1), batches.size());
+        if (threads == 1) {
+            for (int i = 0; i < batches.size(); i++) {
+                results.set(i, sendWithRetries(service, batches.get(i), i, batches.size(), request));
+            }
+            return results;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        AtomicInteger nextBatch = new AtomicInteger();
+        List<Future<Void>> workers = new ArrayList<>();
+        Metrics.gauge("send_batches_pending", () -> Math.max(batches.size() - nextBatch.get(), 0));
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(executorService.submit(() -> {
+                    WhitesourceService batchService = createService();
+                    try {
+                        int index;
+                        while ((index = nextBatch.getAndIncrement()) < batches.size()) {
+                            results.set(index, sendWithRetries(batchService, batches.get(index), index, batches.size(), request));
+                        }
+                    } catch (WssServiceException e) {
+                        // stop the other workers from sending more batches
+                        nextBatch.set(batches.size());
+                        throw e;
+                    } finally {
+                        batchService.shutdown();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WssServiceException) {
+                throw (WssServiceException) e.getCause();
+            }
+            throw new WssServiceException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WssServiceException(e);
+        } finally {
+            executorService.shutdownNow();
+            Metrics.removeGauge("send_batches_pending");
+        }
+        return results;
+    }
+
+    private <T> T sendWithRetries(WhitesourceService service, List<AgentProjectInfo> batch, int index, int batchesCount,
+                                  BatchRequest<T> request) throws WssServiceException {
+        if (batchesCount > 1) {
+            logger.info("Sending batch {} of {} ({} projects)", index + 1, batchesCount, batch.size());
+        }
+        int retries = senderConfig.getConnectionRetries();
+        Metrics.counter("send_batches").increment();
+        while (true) {
+            try (Metrics.Timer.Context ignored = Metrics.timer("send").start()) {
+                // the log data is sent only once, with the first batch
+                return request.send(service, batch, index == 0);
+            } catch (WssServiceException e) {
+                boolean retry = isConnectionFailure(e) && retries-- > 0;
+                String resultInfo = "Failed to send request to WhiteSource server: " + e.getMessage();
+                if (retry) {
+                    Metrics.counter("send_retries").increment();
+                    logger.error("Trying " + (retries + 1) + " more time" + (retries != 0 ? "s" : Constants.EMPTY_STRING));
+                }
+                logger.error(resultInfo, e.getMessage());
+                logger.debug(resultInfo, e);
+                String requestToken = e.getRequestToken();
+                if (StringUtils.isNotBlank(requestToken)) {
+                    logger.info("Support token: {}", requestToken);
+                }
+                if (!retry) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(senderConfig.getConnectionRetriesIntervals());
+                } catch (InterruptedException e1) {
+                    logger.error("Failed to sleep while retrying to connect to server " + e1.getMessage(), e1);
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean isConnectionFailure(WssServiceException e) {
+        return e.getCause() != null &&
+                e.getCause().getClass().getCanonicalName().substring(0,
+                        e.getCause().getClass().getCanonicalName().lastIndexOf(Constants.DOT)).equals(Constants.JAVA_NETWORKING);
+    }
+
+    private String joinRequestTokens(List<? extends BaseResult> results) {
+        return results.stream().map(BaseResult::getRequestToken).filter(StringUtils::isNotBlank).distinct()
+                .collect(Collectors.joining(REQUEST_TOKENS_SEPARATOR));
+    }
+
     protected WhitesourceService createService() {
         logger.info("Service URL is " + senderConfig.getServiceUrl());
         boolean setProxy = false;
@@ -275,15 +413,17 @@ public class ProjectsSender {
         boolean policyCompliance = true;
         if (senderConfig.isCheckPolicies() || !senderConfig.isUpdateInventory()) {
             logger.info("Checking policies");
-            CheckPolicyComplianceResult checkPoliciesResult;
-            if (senderConfig.isSendLogsToWss()) {
-                String logData = getLogData();
-                checkPoliciesResult = service.checkPolicyCompliance(requestConfig.getApiToken(), requestConfig.getProductNameOrToken(),
-                        requestConfig.getProductVersion(), projects, senderConfig.isForceCheckAllDependencies(), requestConfig.getUserKey(), requestConfig.getRequesterEmail(), logData);
-            } else {
-                checkPoliciesResult = service.checkPolicyCompliance(requestConfig.getApiToken(), requestConfig.getProductNameOrToken(),
-                        requestConfig.getProductVersion(), projects, senderConfig.isForceCheckAllDependencies(), requestConfig.getUserKey(), requestConfig.getRequesterEmail());
-            }
+            String logData = senderConfig.isSendLogsToWss() ? getLogData() : null;
+            List<CheckPolicyComplianceResult> results = sendBatches(service, getBatches(projects), (batchService, batch, withLogs) -> {
+                if (logData != null && withLogs) {
+                    return batchService.checkPolicyCompliance(requestConfig.getApiToken(), requestConfig.getProductNameOrToken(),
+                            requestConfig.getProductVersion(), batch, senderConfig.isForceCheckAllDependencies(), requestConfig.getUserKey(), requestConfig.getRequesterEmail(), logData);
+                } else {
+                    return batchService.checkPolicyCompliance(requestConfig.getApiToken(), requestConfig.getProductNameOrToken(),
+                            requestConfig.getProductVersion(), batch, senderConfig.isForceCheckAllDependencies(), requestConfig.getUserKey(), requestConfig.getRequesterEmail());
+                }
+            });
+            CheckPolicyComplianceResult checkPoliciesResult = mergeCheckPoliciesResults(results);
             if (checkPoliciesResult.hasRejections()) {
                 if (senderConfig.isForceUpdate() && senderConfig.isUpdateInventory()) {
                     logger.info("Some dependencies violate open source policies, however all were force " +
@@ -328,14 +468,12 @@ public class ProjectsSender {
             saveRequestToFile(projects);
         }
         //--------------------------------
-        if (senderConfig.isSendLogsToWss()) {
-            String logData = getLogData();
-            updateResult = service.update(requestConfig.getApiToken(), requestConfig.getRequesterEmail(), UpdateType.valueOf(senderConfig.getUpdateTypeValue()),
-                    requestConfig.getProductNameOrToken(), requestConfig.getProductVersion(), projects, requestConfig.getUserKey(), logData, requestConfig.getScanComment());
-        } else {
-            updateResult = service.update(requestConfig.getApiToken(), requestConfig.getRequesterEmail(), UpdateType.valueOf(senderConfig.getUpdateTypeValue()),
-                    requestConfig.getProductNameOrToken(), requestConfig.getProductVersion(), projects, requestConfig.getUserKey(), null, requestConfig.getScanComment());
-        }
+        String logData = senderConfig.isSendLogsToWss() ? getLogData() : null;
+        List<UpdateInventoryResult> results = sendBatches(service, getBatches(projects), (batchService, batch, withLogs) ->
+                batchService.update(requestConfig.getApiToken(), requestConfig.getRequesterEmail(), UpdateType.valueOf(senderConfig.getUpdateTypeValue()),
+                        requestConfig.getProductNameOrToken(), requestConfig.getProductVersion(), batch, requestConfig.getUserKey(),
+                        withLogs ? logData : null, requestConfig.getScanComment()));
+        updateResult = mergeUpdateResults(results);
         String resultInfo = logResult(updateResult);
         // remove line separators
         resultInfo = resultInfo.replace(System.lineSeparator(), Constants.EMPTY_STRING);
@@ -403,6 +541,50 @@ public class ProjectsSender {
         return resultInfo;
     }
 
+    private CheckPolicyComplianceResult mergeCheckPoliciesResults(List<CheckPolicyComplianceResult> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        CheckPolicyComplianceResult mergedResult = new CheckPolicyComplianceResult(results.get(0).getOrganization());
+        mergedResult.setNewProjects(new HashMap<>());
+        mergedResult.setExistingProjects(new HashMap<>());
+        mergedResult.setProjectNewResources(new HashMap<>());
+        for (CheckPolicyComplianceResult result : results) {
+            putAll(mergedResult.getNewProjects(), result.getNewProjects());
+            putAll(mergedResult.getExistingProjects(), result.getExistingProjects());
+            putAll(mergedResult.getProjectNewResources(), result.getProjectNewResources());
+        }
+        mergedResult.setRequestToken(joinRequestTokens(results));
+        return mergedResult;
+    }
+
+    private UpdateInventoryResult mergeUpdateResults(List<UpdateInventoryResult> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        UpdateInventoryResult mergedResult = new UpdateInventoryResult(results.get(0).getOrganization());
+        mergedResult.setCreatedProjects(new ArrayList<>());
+        mergedResult.setUpdatedProjects(new ArrayList<>());
+        mergedResult.setProjectNamesToIds(new HashMap<>());
+        for (UpdateInventoryResult result : results) {
+            if (result.getCreatedProjects() != null) {
+                mergedResult.getCreatedProjects().addAll(result.getCreatedProjects());
+            }
+            if (result.getUpdatedProjects() != null) {
+                mergedResult.getUpdatedProjects().addAll(result.getUpdatedProjects());
+            }
+            putAll(mergedResult.getProjectNamesToIds(), result.getProjectNamesToIds());
+        }
+        mergedResult.setRequestToken(joinRequestTokens(results));
+        return mergedResult;
+    }
+
+    private <K, V> void putAll(Map<K, V> target, Map<K, V> source) {
+        if (source != null) {
+            target.putAll(source);
+        }
+    }
+
     private String logResult(UpdateInventoryResult updateResult) {
         StringBuilder resultLogMsg = new StringBuilder("Inventory update results for ").append(updateResult.getOrganization()).append(Constants.NEW_LINE);
         logger.info("Inventory update results for {}", updateResult.getOrganization());
@@ -452,19 +634,32 @@ public class ProjectsSender {
     }
 
     private String getLogData() {
-        String logs = Constants.EMPTY_STRING;
-        ch.qos.logback.classic.Logger setLog = (ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(Constants.MAP_LOG_NAME);
-        ConcurrentSkipListMap<Long, ILoggingEvent> collectToSet = ((LogMapAppender) setLog.getAppender(Constants.MAP_APPENDER_NAME)).getLogEvents();
-        // going over all the collected events, filtering out the empty ones, and writing them to a long string
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(DATE_FORMAT);
-        List<ILoggingEvent> events = collectToSet.values().stream().filter(iLoggingEvent -> !iLoggingEvent.getMessage().isEmpty() && !iLoggingEvent.getMessage().equals(Constants.NEW_LINE)).collect(Collectors.toList());
+        LogMapAppender logMapAppender = LogMapAppender.getInstance();
+        if (logMapAppender == null) {
+            return Constants.EMPTY_STRING;
+        }
+        // the appender already filters out the empty events and caps the retained ones
+        List<LogMapAppender.LogEvent> events = logMapAppender.getLogEvents(logStartSequence);
         if (events.size() > MAX_LOG_EVENTS) {
-            events = events.stream().filter(iLoggingEvent -> iLoggingEvent.getLevel().levelInt >= Level.INFO.levelInt).collect(Collectors.toList());
+            events = events.stream().filter(event -> event.getLevel().isGreaterOrEqual(Level.INFO)).collect(Collectors.toList());
         }
-        for (ILoggingEvent event : events) {
-            logs = logs.concat("[" + event.getLevel() + "] " + simpleDateFormat.format(new Date(event.getTimeStamp()))
-                    + " - " + event.getFormattedMessage()).concat(Constants.NEW_LINE);
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(DATE_FORMAT);
+        StringBuilder logs = new StringBuilder();
+        for (LogMapAppender.LogEvent event : events) {
+            logs.append('[').append(event.getLevel()).append("] ").append(simpleDateFormat.format(new Date(event.getTimeStamp())))
+                    .append(" - ").append(event.getMessage()).append(Constants.NEW_LINE);
         }
-        return logs;
+        return logs.toString();
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A request sent for a single batch of projects.
+     */
+    @FunctionalInterface
+    private interface BatchRequest<T> {
+
+        T send(WhitesourceService service, List<AgentProjectInfo> batch, boolean withLogs) throws WssServiceException;
     }
-}
\ No newline at end of file
+}
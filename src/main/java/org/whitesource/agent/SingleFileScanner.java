@@ -36,4 +36,22 @@ public class SingleFileScanner extends DirectoryScanner {
     public boolean isIncluded(File file) {
         return isIncluded(file.getAbsolutePath());
     }
+
+    /**
+     * Checks a path relative to the scanned folder against both the includes and the excludes.
+     *
+     * @param relativePath path relative to the scanned folder, using the platform separator
+     * @return whether the path is included and not excluded
+     */
+    public boolean isSelected(String relativePath) {
+        return isIncluded(relativePath) && !isExcluded(relativePath);
+    }
+
+    /**
+     * @param relativePath path relative to the scanned folder, using the platform separator
+     * @return whether the path matches the excludes
+     */
+    public boolean isExcludedPath(String relativePath) {
+        return isExcluded(relativePath);
+    }
 }
@@ -38,7 +38,11 @@ import org.redline_rpm.header.Format;
 import org.redline_rpm.header.Header;
 import org.slf4j.Logger;
 import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
 import org.whitesource.agent.Constants;
+import org.whitesource.agent.DependencyInfoFactory;
+import org.whitesource.agent.HashCache;
+import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.utils.FilesScanner;
 import org.whitesource.agent.utils.Pair;
 import org.whitesource.agent.TempFolders;
@@ -222,6 +226,48 @@ public class ArchiveExtractor {
         }
     }
 
+    /**
+     * The extracted files are reported as if their archives were extracted in place, inside the scanned folder.
+     *
+     * @param systemPath      - path of the extracted file
+     * @param unpackDirectory - the directory returned by {@link #extractArchives(String, int, List)}
+     * @param parentFolder    - the parent folder of the scanned directory
+     * @return the system path of the file inside the scanned directory
+     */
+    public static String getOriginalSystemPath(String systemPath, String unpackDirectory, String parentFolder) {
+        return systemPath.replace(unpackDirectory, parentFolder).replaceAll(DEPTH_REGEX, Constants.EMPTY_STRING);
+    }
+
+    /**
+     * Calculates the dependencies of the files inside the archives of scannerBaseDir without extracting them to disk.
+     * Archives are read as streams, nested archives are read from the stream of their parent up to archiveExtractionDepth.
+     * The system paths of the dependencies are the same as those reported for extracted files, see
+     * {@link #getOriginalSystemPath(String, String, String)}. As they are already inside the scanned directory, the
+     * dependencies are assigned to the project of the deepest project folder containing their archive.
+     * Files inside the archives are not visible to the dependency resolvers in this mode.
+     *
+     * @param scannerBaseDir         - directory for scanning.
+     * @param archiveExtractionDepth - drill down hierarchy level in archive files
+     * @param includes               - includes glob patterns of the files to create dependencies for
+     * @param globCaseSensitive      - whether the includes and excludes are case sensitive
+     * @param dependencyInfoFactory  - factory used to calculate the dependencies
+     * @param calculateMd5           - whether to calculate md5 checksums
+     * @param threads                - number of archives read concurrently
+     * @param hashCache              - cache of previously calculated hashes, null to hash all the files
+     * @return the dependencies of the files found in the archives
+     */
+    public Collection<DependencyInfo> streamArchives(String scannerBaseDir, int archiveExtractionDepth, String[] includes, boolean globCaseSensitive,
+                                                     DependencyInfoFactory dependencyInfoFactory, boolean calculateMd5, int threads, HashCache hashCache) {
+        logger.debug("Base directory is {}, streaming archives with depth {}", scannerBaseDir, archiveExtractionDepth);
+        Pair<String[], String> archivesWithFolder = getSearchedFileNames(scannerBaseDir);
+        if (archiveExtractionDepth <= 0 || archivesWithFolder == null || archivesWithFolder.getKey().length <= 0) {
+            return Collections.emptyList();
+        }
+        ArchiveStreamScanner archiveStreamScanner = new ArchiveStreamScanner(archiveIncludesPattern, archiveExcludesPattern, includes, filesExcludes,
+                globCaseSensitive, dependencyInfoFactory, calculateMd5, threads, hashCache);
+        return archiveStreamScanner.scanArchives(archivesWithFolder.getValue(), Arrays.asList(archivesWithFolder.getKey()), archiveExtractionDepth);
+    }
+
     // extract image layers
     public void extractDockerImageLayers(File imageTarFile, File imageExtractionDir) {
         FilesScanner filesScanner = new FilesScanner();
@@ -369,6 +415,7 @@ public class ArchiveExtractor {
             logger.warn("Error: {} is unsupported archive type", fileKey);
         }
         if (foundArchive) {
+            Metrics.counter("archives", "mode", "extract").increment();
             Pair resultArchive = new Pair(lowerCaseFileName, innerDir);
             return resultArchive;
         } else
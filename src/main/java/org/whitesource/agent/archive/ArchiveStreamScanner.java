@@ -0,0 +1,364 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.archive;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.slf4j.Logger;
+import org.whitesource.agent.Constants;
+import org.whitesource.agent.DependencyInfoFactory;
+import org.whitesource.agent.HashCache;
+import org.whitesource.agent.SingleFileScanner;
+import org.whitesource.agent.api.model.ChecksumType;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.hash.HashAlgorithm;
+import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Calculates the dependencies of files inside archives by reading the archives as streams.
+ * Nested archives are read from the stream of their parent entry, nothing is extracted to disk.
+ * <p>
+ * Entries smaller than {@link DependencyInfoFactory#MAX_IN_MEMORY_FILE_SIZE} are hashed in memory with all hashes,
+ * larger entries only get their sha1 (and md5) calculated while they are streamed.
+ * Entries whose archive did not change since they were hashed are answered from the hash cache, if there is one.
+ * <p>
+ * Supports zip, gem and tar (including tar.gz, tar.bz2 and tar.xz) archives.
+ */
+class ArchiveStreamScanner {
+
+    /* --- Static members --- */
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveStreamScanner.class);
+
+    private static final String ZIP_ENCODING = StandardCharsets.UTF_8.name();
+
+    /* --- Members --- */
+
+    private final String[] archiveIncludes;
+    private final String[] archiveExcludes;
+    private final String[] includes;
+    private final String[] excludes;
+    private final boolean globCaseSensitive;
+    private final DependencyInfoFactory dependencyInfoFactory;
+    private final boolean calculateMd5;
+    private final int threads;
+    private final HashCache hashCache;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param threads   number of archives read concurrently, values below 1 mean a single thread
+     * @param hashCache cache of previously calculated hashes, null to hash all entries
+     */
+    ArchiveStreamScanner(String[] archiveIncludes, String[] archiveExcludes, String[] includes, String[] excludes,
+                         boolean globCaseSensitive, DependencyInfoFactory dependencyInfoFactory, boolean calculateMd5,
+                         int threads, HashCache hashCache) {
+        this.archiveIncludes = archiveIncludes;
+        this.archiveExcludes = archiveExcludes;
+        this.includes = includes;
+        this.excludes = excludes;
+        this.globCaseSensitive = globCaseSensitive;
+        this.dependencyInfoFactory = dependencyInfoFactory;
+        this.calculateMd5 = calculateMd5;
+        this.threads = Math.max(1, threads);
+        this.hashCache = hashCache;
+    }
+
+    /* --- Package methods --- */
+
+    /**
+     * @param folder                 the folder of the archives
+     * @param archiveNames           the archive paths relative to the folder
+     * @param archiveExtractionDepth how many levels of nested archives are read
+     * @return the dependencies of the files in the archives, in the order of the archives
+     */
+    Collection<DependencyInfo> scanArchives(String folder, Collection<String> archiveNames, int archiveExtractionDepth) {
+        Collection<DependencyInfo> dependencies = new ArrayList<>();
+        if (threads == 1 || archiveNames.size() == 1) {
+            for (String archiveName : archiveNames) {
+                dependencies.addAll(scanArchiveFile(folder, archiveName, archiveExtractionDepth));
+            }
+            return dependencies;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, archiveNames.size()));
+        try {
+            List<Future<List<DependencyInfo>>> handles = new ArrayList<>();
+            for (String archiveName : archiveNames) {
+                handles.add(executorService.submit(() -> scanArchiveFile(folder, archiveName, archiveExtractionDepth)));
+            }
+            for (Future<List<DependencyInfo>> handle : handles) {
+                try {
+                    dependencies.addAll(handle.get());
+                } catch (ExecutionException e) {
+                    logger.warn("Error: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Reading archives was interrupted: {}", e.getMessage());
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+        }
+        return dependencies;
+    }
+
+    /* --- Private methods --- */
+
+    private List<DependencyInfo> scanArchiveFile(String folder, String archiveName, int archiveExtractionDepth) {
+        List<DependencyInfo> dependencies = new ArrayList<>();
+        // glob scanners are not thread safe, each archive gets its own
+        EntryMatcher entryMatcher = new EntryMatcher();
+        File archiveFile = new File(folder, archiveName);
+        HashCache.FileStamp archiveStamp = hashCache == null ? null : hashCache.getFileStamp(archiveFile);
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(archiveFile))) {
+            String contentFolder = new File(folder, FilenameUtils.removeExtension(archiveName)).getPath();
+            scanArchive(inputStream, archiveFile.getName(), FilenameUtils.removeExtension(archiveName), contentFolder, archiveStamp, 0,
+                    archiveExtractionDepth, entryMatcher, dependencies);
+        } catch (IOException e) {
+            logger.warn("Error reading archive {}: {}", archiveFile.getPath(), e.getMessage());
+            logger.debug("Error reading archive {}: {}", archiveFile.getPath(), e.getStackTrace());
+        }
+        return dependencies;
+    }
+
+    /**
+     * @param relativeFolder path of the archive content relative to the scanned folder, used for glob matching
+     * @param contentFolder  system path of the archive content, the same path extracted files are reported with
+     *                       (see {@link ArchiveExtractor#getOriginalSystemPath(String, String, String)})
+     * @param archiveStamp   hash cache stamp of the archive, null if its entries are not cached
+     */
+    private void scanArchive(InputStream inputStream, String archiveName, String relativeFolder, String contentFolder, HashCache.FileStamp archiveStamp,
+                             int level, int archiveExtractionDepth, EntryMatcher entryMatcher, List<DependencyInfo> dependencies) throws IOException {
+        String lowerCaseName = archiveName.toLowerCase();
+        ArchiveInputStream archiveInputStream = openArchive(inputStream, lowerCaseName);
+        if (archiveInputStream == null) {
+            logger.warn("Error: {} is unsupported archive type when streaming archives", archiveName);
+            return;
+        }
+        Metrics.counter("archives", "mode", "stream").increment();
+        boolean gem = lowerCaseName.matches(ArchiveExtractor.GEM_EXTENSION_PATTERN);
+        ArchiveEntry entry;
+        while ((entry = archiveInputStream.getNextEntry()) != null) {
+            if (entry.isDirectory() || !archiveInputStream.canReadEntryData(entry)) {
+                continue;
+            }
+            String entryName = FilenameUtils.separatorsToSystem(entry.getName());
+            while (entryName.startsWith(File.separator)) {
+                entryName = entryName.substring(1);
+            }
+            String relativePath = relativeFolder + File.separator + entryName;
+            if (entryMatcher.isExcluded(relativePath)) {
+                continue;
+            }
+
+            // the data of a gem is extracted together with the gem itself
+            boolean gemData = gem && ArchiveExtractor.RUBY_DATA_FILE.equals(entryName);
+            int entryLevel = gemData ? level : level + 1;
+            boolean nestedArchive = gemData || (entryLevel < archiveExtractionDepth && entryMatcher.isArchive(relativePath));
+            boolean included = entryMatcher.isIncluded(relativePath);
+            if (!nestedArchive && !included) {
+                continue;
+            }
+
+            String fileName = new File(entryName).getName();
+            String systemPath = contentFolder + File.separator + entryName;
+            long lastModified = entry.getLastModifiedDate() == null ? 0 : entry.getLastModifiedDate().getTime();
+            // the size of an entry is not always known before it is read, e.g. zip entries followed by a data descriptor
+            if (included && !nestedArchive && entry.getSize() >= 0 &&
+                    addCachedDependency(archiveStamp, entryName, entry.getSize(), lastModified, fileName, systemPath, dependencies)) {
+                continue;
+            }
+            byte[] content = readUpTo(archiveInputStream, DependencyInfoFactory.MAX_IN_MEMORY_FILE_SIZE);
+            if (content.length < DependencyInfoFactory.MAX_IN_MEMORY_FILE_SIZE) {
+                HashCache.FileStamp entryStamp = archiveStamp == null ? null : hashCache.getEntryStamp(archiveStamp, entryName, content.length, lastModified);
+                if (included && !addCachedDependency(archiveStamp, entryName, content.length, lastModified, fileName, systemPath, dependencies)) {
+                    try {
+                        DependencyInfo dependency = dependencyInfoFactory.createDependencyInfo(content, fileName, systemPath);
+                        if (entryStamp != null) {
+                            hashCache.put(entryStamp, dependency);
+                        }
+                        dependencies.add(dependency);
+                    } catch (IOException e) {
+                        // only this entry is skipped, the rest of the archive is still read
+                        logger.warn("Error calculating the dependency of {}: {}", systemPath, e.getMessage());
+                        logger.debug("Error calculating the dependency of {}: {}", systemPath, e.getStackTrace());
+                    }
+                }
+                if (nestedArchive) {
+                    scanNestedArchive(new ByteArrayInputStream(content), fileName, relativePath, systemPath, entryStamp, entryLevel,
+                            archiveExtractionDepth, entryMatcher, dependencies);
+                }
+            } else {
+                // too large to keep in memory, calculate the sha1 while the nested archive is read from the same stream
+                InputStream entryStream = new SequenceInputStream(new ByteArrayInputStream(content), new CloseShieldInputStream(archiveInputStream));
+                MessageDigest sha1 = getMessageDigest(HashAlgorithm.SHA1);
+                MessageDigest md5 = calculateMd5 ? getMessageDigest(HashAlgorithm.MD5) : null;
+                InputStream digestStream = new DigestInputStream(new BOMInputStream(entryStream), sha1);
+                if (md5 != null) {
+                    digestStream = new DigestInputStream(digestStream, md5);
+                }
+                // nested archives of unknown size are read again on every scan, as their entries can't be keyed
+                HashCache.FileStamp entryStamp = archiveStamp == null || entry.getSize() < 0 ? null :
+                        hashCache.getEntryStamp(archiveStamp, entryName, entry.getSize(), lastModified);
+                if (nestedArchive) {
+                    scanNestedArchive(new CloseShieldInputStream(digestStream), fileName, relativePath, systemPath, entryStamp, entryLevel,
+                            archiveExtractionDepth, entryMatcher, dependencies);
+                }
+                IOUtils.skip(digestStream, Long.MAX_VALUE);
+                if (included) {
+                    DependencyInfo dependency = new DependencyInfo(toHex(sha1.digest()));
+                    dependency.setArtifactId(fileName);
+                    dependency.setFilename(fileName);
+                    dependency.setSystemPath(systemPath);
+                    if (md5 != null) {
+                        dependency.addChecksum(ChecksumType.MD5, toHex(md5.digest()));
+                    }
+                    if (entryStamp != null) {
+                        hashCache.put(entryStamp, dependency);
+                    }
+                    dependencies.add(dependency);
+                }
+            }
+        }
+    }
+
+    private void scanNestedArchive(InputStream inputStream, String archiveName, String relativePath, String systemPath, HashCache.FileStamp archiveStamp,
+                                   int level, int archiveExtractionDepth, EntryMatcher entryMatcher, List<DependencyInfo> dependencies) {
+        try {
+            scanArchive(inputStream, archiveName, FilenameUtils.removeExtension(relativePath), FilenameUtils.removeExtension(systemPath),
+                    archiveStamp, level, archiveExtractionDepth, entryMatcher, dependencies);
+        } catch (IOException e) {
+            logger.warn("Error reading archive {}: {}", systemPath, e.getMessage());
+            logger.debug("Error reading archive {}: {}", systemPath, e.getStackTrace());
+        }
+    }
+
+    // adds the cached dependency of the entry, returns false if the entry is not cached
+    private boolean addCachedDependency(HashCache.FileStamp archiveStamp, String entryName, long size, long lastModified,
+                                        String fileName, String systemPath, List<DependencyInfo> dependencies) {
+        if (archiveStamp == null) {
+            return false;
+        }
+        DependencyInfo dependency = hashCache.get(hashCache.getEntryStamp(archiveStamp, entryName, size, lastModified));
+        if (dependency == null) {
+            return false;
+        }
+        Metrics.counter("hash_cache_hits").increment();
+        dependency.setArtifactId(fileName);
+        dependency.setFilename(fileName);
+        dependency.setSystemPath(systemPath);
+        dependencies.add(dependency);
+        return true;
+    }
+
+    private ArchiveInputStream openArchive(InputStream inputStream, String lowerCaseName) throws IOException {
+        if (lowerCaseName.matches(ArchiveExtractor.ZIP_EXTENSION_PATTERN)) {
+            return new ZipArchiveInputStream(inputStream, ZIP_ENCODING, true, true);
+        } else if (lowerCaseName.matches(ArchiveExtractor.GEM_EXTENSION_PATTERN)) {
+            return new TarArchiveInputStream(inputStream);
+        } else if (lowerCaseName.matches(ArchiveExtractor.TAR_EXTENSION_PATTERN)) {
+            if (lowerCaseName.endsWith(ArchiveExtractor.TAR_GZ_SUFFIX) || lowerCaseName.endsWith(ArchiveExtractor.TGZ_SUFFIX)) {
+                return new TarArchiveInputStream(new GzipCompressorInputStream(inputStream));
+            } else if (lowerCaseName.endsWith(ArchiveExtractor.TAR_BZ2_SUFFIX)) {
+                return new TarArchiveInputStream(new BZip2CompressorInputStream(inputStream));
+            } else if (lowerCaseName.endsWith(ArchiveExtractor.XZ_SUFFIX)) {
+                return new TarArchiveInputStream(new XZCompressorInputStream(inputStream));
+            }
+            return new TarArchiveInputStream(inputStream);
+        }
+        return null;
+    }
+
+    // read at most maxSize bytes, fewer bytes means the whole stream was read
+    private byte[] readUpTo(InputStream inputStream, long maxSize) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        IOUtils.copyLarge(inputStream, outputStream, 0, maxSize);
+        return outputStream.toByteArray();
+    }
+
+    private MessageDigest getMessageDigest(HashAlgorithm hashAlgorithm) {
+        try {
+            return MessageDigest.getInstance(hashAlgorithm.getAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Matches entry paths relative to the scanned folder against the archive and file glob patterns.
+     */
+    private class EntryMatcher {
+
+        private final SingleFileScanner archiveScanner = new SingleFileScanner();
+        private final SingleFileScanner filesScanner = new SingleFileScanner();
+
+        private EntryMatcher() {
+            archiveScanner.setIncludes(archiveIncludes);
+            archiveScanner.setExcludes(archiveExcludes);
+            archiveScanner.setCaseSensitive(false);
+            filesScanner.setIncludes(includes);
+            filesScanner.setExcludes(excludes);
+            filesScanner.setCaseSensitive(globCaseSensitive);
+        }
+
+        private boolean isArchive(String relativePath) {
+            return archiveScanner.isSelected(relativePath) && openableName(relativePath);
+        }
+
+        private boolean isIncluded(String relativePath) {
+            return filesScanner.isSelected(relativePath);
+        }
+
+        private boolean isExcluded(String relativePath) {
+            return filesScanner.isExcludedPath(relativePath);
+        }
+
+        private boolean openableName(String relativePath) {
+            String lowerCaseName = relativePath.toLowerCase();
+            return lowerCaseName.matches(ArchiveExtractor.ZIP_EXTENSION_PATTERN) || lowerCaseName.matches(ArchiveExtractor.GEM_EXTENSION_PATTERN) ||
+                    lowerCaseName.matches(ArchiveExtractor.TAR_EXTENSION_PATTERN);
+        }
+    }
+}
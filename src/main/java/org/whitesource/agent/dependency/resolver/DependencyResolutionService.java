@@ -34,12 +34,18 @@ import org.whitesource.agent.dependency.resolver.php.PhpDependencyResolver;
 import org.whitesource.agent.dependency.resolver.python.PythonDependencyResolver;
 import org.whitesource.agent.dependency.resolver.ruby.RubyDependencyResolver;
 import org.whitesource.agent.dependency.resolver.sbt.SbtDependencyResolver;
-import org.whitesource.agent.utils.FilesScanner;
+import org.whitesource.agent.utils.FilesIndex;
 import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
 import org.whitesource.fs.configuration.ResolverConfiguration;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Holds and initiates all {@link AbstractDependencyResolver}s.
@@ -52,9 +58,11 @@ public class DependencyResolutionService {
 
     private final Logger logger = LoggerFactory.getLogger(DependencyResolutionService.class);
 
-    private final FilesScanner fileScanner;
     private final Collection<AbstractDependencyResolver> dependencyResolvers;
+    // creates more instances of each resolver, so the folders of a resolver can be resolved concurrently
+    private final Map<AbstractDependencyResolver, Supplier<AbstractDependencyResolver>> resolverFactories = new IdentityHashMap<>();
     private final boolean ignoreSourceFiles;
+    private final int resolverThreads;
 
     private boolean separateProjects;
     private boolean mavenAggregateModules;
@@ -77,6 +85,8 @@ public class DependencyResolutionService {
         final String npmAccessToken = config.getNpmAccessToken();
         final boolean npmYarnProject = config.getNpmYarnProject();
         final boolean npmIgnoreSourceFiles = config.isNpmIgnoreSourceFiles();
+        final String npmRegistryCacheFile = config.getNpmRegistryCacheFile();
+        final int npmRegistryConcurrency = config.getNpmRegistryConcurrency();
 
         final boolean bowerResolveDependencies = config.isBowerResolveDependencies();
         final boolean bowerRunPreStep = config.isBowerRunPreStep();
@@ -93,6 +103,7 @@ public class DependencyResolutionService {
         final boolean mavenIgnorePomModules = config.isMavenIgnorePomModules();
         final boolean mavenIgnoreSourceFiles = config.isMavenIgnoreSourceFiles();
         final boolean mavenRunPreStep = config.isMavenRunPreStep();
+        final int mavenSha1FileVerificationRate = config.getMavenSha1FileVerificationRate();
 
         boolean pythonResolveDependencies = config.isPythonResolveDependencies();
         final String[] pythonRequirementsFileIncludes = config.getPythonRequirementsFileIncludes();
@@ -141,61 +152,65 @@ public class DependencyResolutionService {
         final boolean cocoapodsIgnoreSourceFiles = config.isCocoapodsIgnoreSourceFiles();
 
         ignoreSourceFiles = config.isIgnoreSourceFiles();
+        // top folders are resolved one at a time unless more threads are configured, the package managers may share caches
+        // (e.g. ~/.m2) that are not safe for concurrent writes
+        resolverThreads = Math.max(1, config.getResolverThreads());
 
-        fileScanner = new FilesScanner();
         dependencyResolvers = new ArrayList<>();
         if (npmResolveDependencies) {
-            dependencyResolvers.add(new NpmDependencyResolver(npmIncludeDevDependencies, npmIgnoreSourceFiles, npmTimeoutDependenciesCollector, npmRunPreStep, npmIgnoreNpmLsErrors, npmAccessToken, npmYarnProject, npmIgnoreScripts));
+            addResolver(() -> new NpmDependencyResolver(npmIncludeDevDependencies, npmIgnoreSourceFiles, npmTimeoutDependenciesCollector, npmRunPreStep, npmIgnoreNpmLsErrors, npmAccessToken, npmYarnProject, npmIgnoreScripts,
+                    npmRegistryCacheFile, npmRegistryConcurrency));
         }
         if (bowerResolveDependencies) {
-            dependencyResolvers.add(new BowerDependencyResolver(npmTimeoutDependenciesCollector, bowerRunPreStep, bowerIgnoreSourceFiles));
+            addResolver(() -> new BowerDependencyResolver(npmTimeoutDependenciesCollector, bowerRunPreStep, bowerIgnoreSourceFiles));
         }
         if (nugetResolveDependencies) {
             String whitesourceConfiguration = config.getWhitesourceConfiguration();
-            dependencyResolvers.add(new NugetDependencyResolver(whitesourceConfiguration, NugetConfigFileType.CONFIG_FILE_TYPE, nugetRunPreStep, nugetIgnoreSourceFiles));
-            dependencyResolvers.add(new DotNetDependencyResolver(whitesourceConfiguration, NugetConfigFileType.CSPROJ_TYPE, nugetRestoreDependencies, nugetIgnoreSourceFiles));
+            addResolver(() -> new NugetDependencyResolver(whitesourceConfiguration, NugetConfigFileType.CONFIG_FILE_TYPE, nugetRunPreStep, nugetIgnoreSourceFiles));
+            addResolver(() -> new DotNetDependencyResolver(whitesourceConfiguration, NugetConfigFileType.CSPROJ_TYPE, nugetRestoreDependencies, nugetIgnoreSourceFiles));
         }
         if (mavenResolveDependencies) {
-            dependencyResolvers.add(new MavenDependencyResolver(mavenAggregateModules, mavenIgnoredScopes, mavenIgnoreSourceFiles, mavenIgnorePomModules, mavenRunPreStep));
+            addResolver(() -> new MavenDependencyResolver(mavenAggregateModules, mavenIgnoredScopes, mavenIgnoreSourceFiles, mavenIgnorePomModules, mavenRunPreStep,
+                    mavenSha1FileVerificationRate));
             this.mavenAggregateModules = mavenAggregateModules;
         }
         if (pythonResolveDependencies) {
-            dependencyResolvers.add(new PythonDependencyResolver(config.getPythonPath(), config.getPipPath(),
+            addResolver(() -> new PythonDependencyResolver(config.getPythonPath(), config.getPipPath(),
                     config.isPythonIgnorePipInstallErrors(), config.isPythonInstallVirtualenv(), config.isPythonResolveHierarchyTree(), pythonRequirementsFileIncludes, pythonIgnoreSourceFiles, ignorePipEnvInstallErrors, runPipenvPreStep, pipenvInstallDevDependencies));
         }
 
         if (gradleResolveDependencies) {
-            dependencyResolvers.add(new GradleDependencyResolver(config.isGradleRunAssembleCommand(), gradleIgnoreSourceFiles, gradleAggregateModules, config.getGradlePreferredEnvironment(), gradleIgnoredScopes, gradleRunPreStep));
+            addResolver(() -> new GradleDependencyResolver(config.isGradleRunAssembleCommand(), gradleIgnoreSourceFiles, gradleAggregateModules, config.getGradlePreferredEnvironment(), gradleIgnoredScopes, gradleRunPreStep));
             this.gradleAggregateModules = gradleAggregateModules;
         }
 
         if (paketResolveDependencies) {
-            dependencyResolvers.add(new PaketDependencyResolver(paketIgnoredScopes, paketIgnoreSourceFiles, paketRunPreStep, paketPath));
+            addResolver(() -> new PaketDependencyResolver(paketIgnoredScopes, paketIgnoreSourceFiles, paketRunPreStep, paketPath));
         }
 
         if (goResolveDependencies) {
-            dependencyResolvers.add(new GoDependencyResolver(config.getGoDependencyManager(), config.isGoCollectDependenciesAtRuntime(), goIgnoreSourceFiles, config.isGoIgnoreTestPackages(), config.isGoGradleEnableTaskAlias(), config.getGradlePreferredEnvironment()));
+            addResolver(() -> new GoDependencyResolver(config.getGoDependencyManager(), config.isGoCollectDependenciesAtRuntime(), goIgnoreSourceFiles, config.isGoIgnoreTestPackages(), config.isGoGradleEnableTaskAlias(), config.getGradlePreferredEnvironment()));
         }
 
         if (rubyResolveDependencies) {
-            dependencyResolvers.add(new RubyDependencyResolver(rubyRunBundleInstall, rubyOverwriteGemFile, rubyInstallMissingGems, rubyIgnoreSourceFiles));
+            addResolver(() -> new RubyDependencyResolver(rubyRunBundleInstall, rubyOverwriteGemFile, rubyInstallMissingGems, rubyIgnoreSourceFiles));
         }
 
         if (phpResolveDependencies) {
-            dependencyResolvers.add(new PhpDependencyResolver(phpRunPreStep, phpIncludeDevDependencies));
+            addResolver(() -> new PhpDependencyResolver(phpRunPreStep, phpIncludeDevDependencies));
         }
 
         if (htmlResolveDependencies) {
-            dependencyResolvers.add(new HtmlDependencyResolver());
+            addResolver(() -> new HtmlDependencyResolver());
         }
 
         if (sbtResolveDependencies) {
-            dependencyResolvers.add(new SbtDependencyResolver(sbtAggregateModules, sbtIgnoreSourceFiles, sbtRunPreStep, sbtTargetFolder));
+            addResolver(() -> new SbtDependencyResolver(sbtAggregateModules, sbtIgnoreSourceFiles, sbtRunPreStep, sbtTargetFolder));
             this.sbtAggregateModules = sbtAggregateModules;
         }
 
         if (cocoapodsResolveDependencies) {
-            dependencyResolvers.add(new CocoaPodsDependencyResolver(cocoapodsRunPreStep, cocoapodsIgnoreSourceFiles));
+            addResolver(() -> new CocoaPodsDependencyResolver(cocoapodsRunPreStep, cocoapodsIgnoreSourceFiles));
         }
 
         this.separateProjects = false;
@@ -236,7 +251,22 @@ public class DependencyResolutionService {
     }
 
     public List<ResolutionResult> resolveDependencies(Collection<String> pathsToScan, String[] excludes) {
-        Map<ResolvedFolder, AbstractDependencyResolver> topFolderResolverMap = new HashMap<>();
+        return resolveDependencies(pathsToScan, excludes, new FilesIndex(pathsToScan, excludes, false, false));
+    }
+
+    /**
+     * Resolves the dependencies of all the resolvers, the bom files of all the resolvers are looked up in the given files index.
+     * When resolver.threads is set above 1, the top folders run concurrently (up to that number), each with its own instance of its resolver,
+     * so the folders of a single resolver are resolved in parallel as well. The results are returned in the order of the
+     * resolvers and their folders regardless of which finishes first.
+     *
+     * @param pathsToScan folders to resolve
+     * @param excludes    excludes glob patterns
+     * @param filesIndex  index of the files under the folders to resolve
+     * @return the resolution results
+     */
+    public List<ResolutionResult> resolveDependencies(Collection<String> pathsToScan, String[] excludes, FilesIndex filesIndex) {
+        Map<ResolvedFolder, AbstractDependencyResolver> topFolderResolverMap = new LinkedHashMap<>();
         Collection<ResolutionResult> multiModuleResults = new LinkedList<>();
         Collection<ResolutionResult> htmlResults = new LinkedList<>();
 
@@ -248,7 +278,7 @@ public class DependencyResolutionService {
                 combinedExcludes.add(exclude);
             }
             logger.debug("Attempting to find the top folders of {} with pattern {}", pathsToScan, dependencyResolver.getBomPattern());
-            Collection<ResolvedFolder> topFolders = fileScanner.findTopFolders(pathsToScan, dependencyResolver.getBomPattern(), combinedExcludes);
+            Collection<ResolvedFolder> topFolders = filesIndex.findTopFolders(pathsToScan, dependencyResolver.getBomPattern(), combinedExcludes);
             topFolders.forEach(topFolder -> topFolderResolverMap.put(topFolder, dependencyResolver));
         });
         logger.debug("Attempting to reduce dependencies");
@@ -258,34 +288,54 @@ public class DependencyResolutionService {
         logger.debug("Finishing reduce dependencies");
         List<ResolutionResult> resolutionResults = new ArrayList<>();
 
-
-        topFolderResolverMap.forEach((resolvedFolder, dependencyResolver) -> {
-            if (!resolvedFolder.getTopFoldersFound().isEmpty()) {
-                logger.info("Trying to resolve " + dependencyResolver.getDependencyTypeName() + " dependencies");
+        // each top folder is a task of its own, results are collected in the order of the resolvers and their folders
+        Map<AbstractDependencyResolver, List<FolderTask>> resolverTasks = new LinkedHashMap<>();
+        topFolderResolverMap.forEach((resolvedFolder, dependencyResolver) ->
+                resolvedFolder.getTopFoldersFound().forEach((topFolder, bomFiles) ->
+                        resolverTasks.computeIfAbsent(dependencyResolver, resolver -> new ArrayList<>())
+                                .add(new FolderTask(resolvedFolder.getOriginalScanFolder(), topFolder, bomFiles))));
+        int folderCount = resolverTasks.values().stream().mapToInt(List::size).sum();
+
+        Map<AbstractDependencyResolver, List<ResolutionResult>> resolverResults = new LinkedHashMap<>();
+        int threads = Math.min(resolverThreads, folderCount);
+        if (threads > 1) {
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            try {
+                Map<AbstractDependencyResolver, List<Future<ResolutionResult>>> futures = new LinkedHashMap<>();
+                resolverTasks.forEach((dependencyResolver, folderTasks) -> {
+                    logger.info("Trying to resolve " + dependencyResolver.getDependencyTypeName() + " dependencies");
+                    List<Future<ResolutionResult>> resolverFutures = new ArrayList<>();
+                    for (FolderTask folderTask : folderTasks) {
+                        // resolvers keep state while resolving a folder, so each concurrent folder gets an instance of its own
+                        AbstractDependencyResolver folderResolver = resolverFactories.containsKey(dependencyResolver) ?
+                                resolverFactories.get(dependencyResolver).get() : dependencyResolver;
+                        resolverFutures.add(executorService.submit(() -> resolveFolder(folderResolver, folderTask)));
+                    }
+                    futures.put(dependencyResolver, resolverFutures);
+                });
+                collectResults(futures, resolverResults);
+            } finally {
+                executorService.shutdownNow();
             }
-            resolvedFolder.getTopFoldersFound().forEach((topFolder, bomFiles) -> {
-                // don't print folder in case of html resolution
-                if (dependencyResolver.printResolvedFolder()) {
-                    logger.info("topFolder = " + topFolder);
-                }
-                logger.debug("topFolder = " + topFolder);
-                ResolutionResult result = null;
-                try {
-                    result = dependencyResolver.resolveDependencies(resolvedFolder.getOriginalScanFolder(), topFolder, bomFiles);
-                } catch (Exception e) {
-                    logger.error(e.getMessage());
-                    logger.debug("{}", e.getStackTrace());
-                }
-                resolutionResults.add(result);
+        } else {
+            resolverTasks.forEach((dependencyResolver, folderTasks) -> {
+                logger.info("Trying to resolve " + dependencyResolver.getDependencyTypeName() + " dependencies");
+                List<ResolutionResult> results = new ArrayList<>();
+                folderTasks.forEach(folderTask -> results.add(resolveFolder(dependencyResolver, folderTask)));
+                resolverResults.put(dependencyResolver, results);
+            });
+        }
 
-                // create lists in order to match htmlResolver dependencies to their original project (Maven/Gradle/Sbt)
-                if (multiModuleDependencyTypes.contains(dependencyResolver.getDependencyType())) {
-                    multiModuleResults.add(result);
+        resolverResults.forEach((dependencyResolver, results) -> {
+            resolutionResults.addAll(results);
 
-                } else if (Constants.HTML.toUpperCase().equals(dependencyResolver.getDependencyTypeName())) {
-                    htmlResults.add(result);
-                }
-            });
+            // create lists in order to match htmlResolver dependencies to their original project (Maven/Gradle/Sbt)
+            if (multiModuleDependencyTypes.contains(dependencyResolver.getDependencyType())) {
+                multiModuleResults.addAll(results);
+
+            } else if (Constants.HTML.toUpperCase().equals(dependencyResolver.getDependencyTypeName())) {
+                htmlResults.addAll(results);
+            }
         });
         // match htmlResolver dependencies to their original project (Maven/Gradle/Sbt)
         findAndSetHtmlProject(multiModuleResults, htmlResults, resolutionResults);
@@ -333,6 +383,63 @@ public class DependencyResolutionService {
     }
 
     /* --- Private methods --- */
+
+    private void addResolver(Supplier<AbstractDependencyResolver> resolverFactory) {
+        AbstractDependencyResolver dependencyResolver = resolverFactory.get();
+        dependencyResolvers.add(dependencyResolver);
+        resolverFactories.put(dependencyResolver, resolverFactory);
+    }
+
+    private ResolutionResult resolveFolder(AbstractDependencyResolver dependencyResolver, FolderTask folderTask) {
+        // don't print folder in case of html resolution
+        if (dependencyResolver.printResolvedFolder()) {
+            logger.info("topFolder = " + folderTask.topFolder);
+        }
+        logger.debug("topFolder = " + folderTask.topFolder);
+        try (Metrics.Timer.Context ignored = Metrics.timer("resolve", "resolver", dependencyResolver.getDependencyTypeName()).start()) {
+            return dependencyResolver.resolveDependencies(folderTask.originalScanFolder, folderTask.topFolder, folderTask.bomFiles);
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            logger.debug("{}", e.getStackTrace());
+            return null;
+        }
+    }
+
+    /**
+     * Wait for the folders to be resolved. When interrupted, the results of the folders already resolved are still
+     * returned, the others are cancelled and logged.
+     */
+    private void collectResults(Map<AbstractDependencyResolver, List<Future<ResolutionResult>>> futures,
+                                Map<AbstractDependencyResolver, List<ResolutionResult>> resolverResults) {
+        boolean interrupted = false;
+        int cancelled = 0;
+        for (Map.Entry<AbstractDependencyResolver, List<Future<ResolutionResult>>> entry : futures.entrySet()) {
+            List<ResolutionResult> results = new ArrayList<>();
+            for (Future<ResolutionResult> future : entry.getValue()) {
+                if (interrupted && !future.isDone()) {
+                    future.cancel(true);
+                    cancelled++;
+                    continue;
+                }
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    logger.warn("Resolving dependencies was interrupted: {}", e.getMessage());
+                    interrupted = true;
+                    future.cancel(true);
+                    cancelled++;
+                } catch (ExecutionException e) {
+                    logger.error("Failed to resolve {} dependencies: {}", entry.getKey().getDependencyTypeName(), e.getMessage());
+                }
+            }
+            resolverResults.put(entry.getKey(), results);
+        }
+        if (interrupted) {
+            logger.warn("Returning the dependencies resolved before the interruption, {} folders were not resolved", cancelled);
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void reduceDependencies(Map<ResolvedFolder, AbstractDependencyResolver> topFolderResolverMap) {
         //reduce the dependencies and duplicates files
         Set<String> topFolders = new HashSet<>();
@@ -358,4 +465,19 @@ public class DependencyResolutionService {
         boolean result = childFolder.contains(topFolderParent) && !childFolder.equals(topFolderParent);
         return result;
     }
-}
\ No newline at end of file
+
+    /* --- Nested classes --- */
+
+    private static class FolderTask {
+
+        private final String originalScanFolder;
+        private final String topFolder;
+        private final Set<String> bomFiles;
+
+        private FolderTask(String originalScanFolder, String topFolder, Set<String> bomFiles) {
+            this.originalScanFolder = originalScanFolder;
+            this.topFolder = topFolder;
+            this.bomFiles = bomFiles;
+        }
+    }
+}
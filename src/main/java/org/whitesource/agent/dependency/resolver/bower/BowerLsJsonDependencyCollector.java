@@ -23,6 +23,7 @@ import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.api.model.DependencyType;
 import org.whitesource.agent.dependency.resolver.npm.NpmLsJsonDependencyCollector;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -53,6 +54,11 @@ public class BowerLsJsonDependencyCollector extends NpmLsJsonDependencyCollector
         return new String[]{BOWER_COMMAND, Constants.INSTALL};
     }
 
+    @Override
+    protected File getLockFile(String folder) {
+        return null;
+    }
+
     @Override
     protected String[] getLsCommandParamsJson() {
         return new String[]{BOWER_COMMAND, NpmLsJsonDependencyCollector.LS_COMMAND, NpmLsJsonDependencyCollector.LS_PARAMETER_JSON};
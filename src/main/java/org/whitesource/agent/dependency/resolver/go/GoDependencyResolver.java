@@ -6,6 +6,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
+import org.whitesource.agent.ConfigPropertyKeys;
 import org.whitesource.agent.Constants;
 import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.api.model.DependencyType;
@@ -56,6 +57,7 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
     private static final String ASTERIX         = "(*)";
     private static final String SLASH           = "\\--";
     private static final String GOPKG_LOCK      = "Gopkg.lock";
+    private static final String GODEPS          = "Godeps";
     private static final String GODEPS_JSON     = "Godeps.json";
     private static final String GOVENDOR_JSON   = "vendor.json";
     private static final String VNDR_CONF       = "vendor.conf";
@@ -84,6 +86,8 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
     public static String  GO_DEPENDENCIES = "goDependencies";
     public static final String GRADLE_LOCK = "lock";
     public static final String GRADLE_GO_LOCK = "goLock";
+    private static final List<GoDependencyManager> DETECTION_ORDER = Arrays.asList(GoDependencyManager.DEP, GoDependencyManager.GO_DEP,
+            GoDependencyManager.VNDR, GoDependencyManager.GO_GRADLE, GoDependencyManager.GLIDE, GoDependencyManager.GO_VENDOR, GoDependencyManager.GOPM);
 
     private Cli cli;
     private GoDependencyManager goDependencyManager;
@@ -213,8 +217,25 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
         return dependencyInfos;
     }
 
-    // when no dependency manager is defined - trying to run one manager after the other, till one succeeds.  if not - returning an error
+    // when no dependency manager is defined - the manager is detected by its lock file, which is parsed without running
+    // any tool.  only if there is no lock file and collecting at runtime is enabled, trying to run one manager after the other
     private String collectDependenciesWithoutDefinedManager(String rootDirectory, List<DependencyInfo> dependencyInfos){
+        GoDependencyManager detectedManager = detectDependencyManager(rootDirectory);
+        if (detectedManager != null) {
+            logger.debug("found the lock file of '{}' in {}", detectedManager.getType(), rootDirectory);
+            try {
+                dependencyInfos.addAll(parseLockFile(detectedManager, rootDirectory));
+                return null;
+            } catch (IOException e) {
+                logger.warn("Error parsing the lock file of '{}' in {}, exception: {}", detectedManager.getType(), rootDirectory, e.getMessage());
+                logger.debug("Exception: {}", e.getStackTrace());
+            }
+        }
+        if (!collectDependenciesAtRuntime) {
+            return "Couldn't collect dependencies - no dependency manager's lock file was found in " + rootDirectory +
+                    ".  Set '" + ConfigPropertyKeys.GO_DEPENDENCY_MANAGER + "' or '" + ConfigPropertyKeys.GO_COLLECT_DEPENDENCIES_AT_RUNTIME + "=true' to run the dependency manager";
+        }
+        dependencyInfos.clear();
         String error = null;
         try {
             collectDepDependencies(rootDirectory, dependencyInfos);
@@ -248,6 +269,55 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
         return error;
     }
 
+    // the manager whose lock file is found first, in the same order the managers are run
+    GoDependencyManager detectDependencyManager(String rootDirectory) {
+        for (GoDependencyManager manager : DETECTION_ORDER) {
+            if (getLockFile(manager, rootDirectory).isFile()) {
+                return manager;
+            }
+        }
+        return null;
+    }
+
+    private File getLockFile(GoDependencyManager manager, String rootDirectory) {
+        switch (manager) {
+            case DEP:
+                return new File(rootDirectory, GOPKG_LOCK);
+            case GO_DEP:
+                return new File(rootDirectory, GODEPS + fileSeparator + GODEPS_JSON);
+            case VNDR:
+                return new File(rootDirectory, VNDR_CONF);
+            case GO_GRADLE:
+                return new File(rootDirectory, GOGRADLE_LOCK);
+            case GLIDE:
+                return new File(rootDirectory, GLIDE_LOCK);
+            case GO_VENDOR:
+                return new File(rootDirectory, GOVENDOR_JSON);
+            default:
+                return new File(rootDirectory, GOPM_FILE);
+        }
+    }
+
+    List<DependencyInfo> parseLockFile(GoDependencyManager manager, String rootDirectory) throws IOException {
+        File lockFile = getLockFile(manager, rootDirectory);
+        switch (manager) {
+            case DEP:
+                return parseGopckLock(lockFile);
+            case GO_DEP:
+                return parseGoDeps(lockFile);
+            case VNDR:
+                return parseVendorConf(lockFile);
+            case GO_GRADLE:
+                return parseGoGradleLock(lockFile);
+            case GLIDE:
+                return new ArrayList<>(parseGlideLock(lockFile));
+            case GO_VENDOR:
+                return parseGoVendor(lockFile);
+            default:
+                return parseGoPm(lockFile);
+        }
+    }
+
     private void collectDepDependencies(String rootDirectory, List<DependencyInfo> dependencyInfos) throws Exception {
         logger.debug("collecting dependencies using 'dep'");
         File goPkgLock = new File(rootDirectory + fileSeparator + GOPKG_LOCK);
@@ -458,7 +528,7 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
 
     private void collectGoDepDependencies(String rootDirectory, List<DependencyInfo> dependencyInfos) throws Exception {
         logger.debug("collecting dependencies using 'godep'");
-        File goDepJson = new File(rootDirectory + fileSeparator + "Godeps" + fileSeparator +  GODEPS_JSON);
+        File goDepJson = new File(rootDirectory + fileSeparator + GODEPS + fileSeparator +  GODEPS_JSON);
         if (goDepJson.isFile() || (collectDependenciesAtRuntime && runCmd(rootDirectory, cli.getCommandParams(GoDependencyManager.GO_DEP.getType(), GO_SAVE)))){
             dependencyInfos.addAll(parseGoDeps(goDepJson));
         } else {
@@ -786,6 +856,17 @@ public class GoDependencyResolver extends AbstractDependencyResolver {
         return dependenciesCommits;
     }
 
+    // without running gradle only the lock file is available - each of its dependencies is listed with its commit-id
+    private List<DependencyInfo> parseGoGradleLock(File goGradleLock) {
+        List<DependencyInfo> dependencyInfos = new ArrayList<>();
+        parseGoGradleLockFile(goGradleLock).forEach((name, commit) -> {
+            DependencyInfo dependencyInfo = createGlideDependency(name, commit, goGradleLock.getAbsolutePath());
+            dependencyInfo.setGroupId(getGroupId(name));
+            dependencyInfos.add(dependencyInfo);
+        });
+        return dependencyInfos;
+    }
+
     private void collectGlideDependencies(String rootDirectory, List<DependencyInfo> dependencyInfos) throws Exception {
         logger.debug("collecting dependencies using 'Glide'");
         File glideLock = new File(rootDirectory + fileSeparator + GLIDE_LOCK);
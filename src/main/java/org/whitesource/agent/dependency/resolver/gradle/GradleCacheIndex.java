@@ -0,0 +1,199 @@
+package org.whitesource.agent.dependency.resolver.gradle;
+
+import org.slf4j.Logger;
+import org.whitesource.agent.Constants;
+import org.whitesource.agent.hash.ChecksumUtils;
+import org.whitesource.agent.utils.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the Gradle module cache (.gradle/caches/modules-2/files-2.1).
+ * The cache keeps each file in a folder named after its sha1 - group/artifact/version/sha1/file - so the sha1s are read
+ * from the folder names and the files are hashed only when a folder name is not a sha1.
+ * A version folder is listed once, the first time one of its artifacts is looked up, and the index is shared by all
+ * the Gradle projects of the scan.
+ */
+public class GradleCacheIndex {
+
+    /* --- Static members --- */
+
+    private static final String JAR_EXTENSION = ".jar";
+    private static final String AAR_EXTENSION = ".aar";
+    private static final String SOURCES = "sources";
+    private static final String JAVADOC = "javadoc";
+    private static final int SHA1_LENGTH = 40;
+
+    private static final Logger logger = LoggerFactory.getLogger(GradleCacheIndex.class);
+    private static GradleCacheIndex instance;
+
+    /* --- Members --- */
+
+    private final File cacheRoot;
+    // the artifacts of each group:artifact:version, only versions having artifacts are kept so later downloads are found
+    private final Map<String, List<CachedArtifact>> modules = new ConcurrentHashMap<>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param cacheRoot the files-2.1 folder of the Gradle cache
+     */
+    public GradleCacheIndex(File cacheRoot) {
+        this.cacheRoot = cacheRoot;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the index shared by the process, a new one is created only when the cache folder changes
+     */
+    public static synchronized GradleCacheIndex getInstance(File cacheRoot) {
+        if (instance == null || !instance.cacheRoot.equals(cacheRoot)) {
+            instance = new GradleCacheIndex(cacheRoot);
+        }
+        return instance;
+    }
+
+    /**
+     * @param classifier the classifier of the artifact, null for the main artifact
+     * @return the cached jar or aar of the module, null if it is not in the cache
+     */
+    public CachedArtifact find(String groupId, String artifactId, String version, String classifier) {
+        String key = groupId + Constants.COLON + artifactId + Constants.COLON + version;
+        List<CachedArtifact> artifacts = modules.computeIfAbsent(key, k -> {
+            List<CachedArtifact> found = listArtifacts(groupId, artifactId, version);
+            // computeIfAbsent does not keep null values
+            return found.isEmpty() ? null : found;
+        });
+        if (artifacts == null) {
+            return null;
+        }
+        String wantedClassifier = classifier == null ? Constants.EMPTY_STRING : classifier;
+        CachedArtifact fallback = null;
+        for (CachedArtifact artifact : artifacts) {
+            if (artifact.getClassifier().equals(wantedClassifier)) {
+                return artifact;
+            }
+            if (classifier == null && fallback == null && !isSourcesOrJavadoc(artifact)) {
+                fallback = artifact;
+            }
+        }
+        // a main artifact not named artifact-version, e.g. a relocated or renamed jar
+        return fallback;
+    }
+
+    /* --- Private methods --- */
+
+    private List<CachedArtifact> listArtifacts(String groupId, String artifactId, String version) {
+        File versionFolder = new File(new File(new File(cacheRoot, groupId), artifactId), version);
+        File[] sha1Folders = versionFolder.listFiles(File::isDirectory);
+        if (sha1Folders == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(sha1Folders);
+        String prefix = artifactId + Constants.DASH + version;
+        List<CachedArtifact> artifacts = new ArrayList<>();
+        for (File sha1Folder : sha1Folders) {
+            File[] files = sha1Folder.listFiles(File::isFile);
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String fileName = file.getName();
+                String extension = fileName.endsWith(JAR_EXTENSION) ? JAR_EXTENSION : fileName.endsWith(AAR_EXTENSION) ? AAR_EXTENSION : null;
+                if (extension == null) {
+                    continue;
+                }
+                String sha1 = toSha1(sha1Folder.getName());
+                if (sha1 == null) {
+                    sha1 = calculateSha1(file);
+                    if (sha1 == null) {
+                        continue;
+                    }
+                }
+                String baseName = fileName.substring(0, fileName.length() - extension.length());
+                String classifier;
+                if (baseName.equals(prefix)) {
+                    classifier = Constants.EMPTY_STRING;
+                } else if (baseName.startsWith(prefix + Constants.DASH)) {
+                    classifier = baseName.substring(prefix.length() + 1);
+                } else {
+                    classifier = baseName;
+                }
+                artifacts.add(new CachedArtifact(sha1, file, classifier));
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Gradle names the folders after the sha1 written as a number, so leading zeros are dropped.
+     *
+     * @return the sha1 of the folder name, null if it is not one
+     */
+    private String toSha1(String folderName) {
+        if (folderName.isEmpty() || folderName.length() > SHA1_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < folderName.length(); i++) {
+            if (Character.digit(folderName.charAt(i), 16) < 0) {
+                return null;
+            }
+        }
+        StringBuilder sha1 = new StringBuilder(SHA1_LENGTH);
+        for (int i = folderName.length(); i < SHA1_LENGTH; i++) {
+            sha1.append('0');
+        }
+        return sha1.append(folderName.toLowerCase()).toString();
+    }
+
+    private String calculateSha1(File file) {
+        logger.debug("The folder of {} is not named after its sha1, calculating it", file.getPath());
+        try {
+            return ChecksumUtils.calculateSHA1(file);
+        } catch (IOException e) {
+            logger.warn("Failed calculating the sha1 of {}: {}", file.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isSourcesOrJavadoc(CachedArtifact artifact) {
+        return artifact.getClassifier().endsWith(SOURCES) || artifact.getClassifier().endsWith(JAVADOC);
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A jar or aar file in the Gradle cache.
+     */
+    public static class CachedArtifact {
+
+        private final String sha1;
+        private final File file;
+        private final String classifier;
+
+        private CachedArtifact(String sha1, File file, String classifier) {
+            this.sha1 = sha1;
+            this.file = file;
+            this.classifier = classifier;
+        }
+
+        public String getSha1() {
+            return sha1;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the classifier of the file, empty for the main artifact
+         */
+        public String getClassifier() {
+            return classifier;
+        }
+    }
+}
@@ -20,7 +20,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -38,6 +37,8 @@ public class GradleDependencyResolver extends AbstractDependencyResolver {
     public static final String COPY_DEPENDENCIES_TASK_TXT = "copyDependenciesTask.txt";
     private static final String DEPENDENCIES = "dependencies";
     private static final String CURLY_BRACKETS = "{";
+    private static final String SETTINGS_GRADLE = "settings.gradle";
+    private static final String SETTINGS_GRADLE_KTS = "settings.gradle.kts";
 
     /* --- Private Members --- */
 
@@ -74,37 +75,30 @@ public class GradleDependencyResolver extends AbstractDependencyResolver {
         Map<AgentProjectInfo, Path> projectInfoPathMap = new HashMap<>();
         Collection<String> excludes = new HashSet<>();
 
-//        // Get the list of projects as paths
-//        List<String> projectsList = null;
-//        if (bomFiles.size() > 1) {
-//            projectsList = collectProjects(topLevelFolder);
-//        }
-//        if (projectsList == null) {
-//            logger.warn("Command \"gradle projects\" did not return a list of projects");
-//        }
         if (gradleRunPreStep) {
             downloadMissingDependencies(projectFolder);
         }
 
+        // the modules of a multi-project build are reported by a single gradle run, so the build is configured once
+        Map<String, List<String>> projectsLines = null;
+        if (bomFiles.size() > 1 && isMultiProjectBuild(topLevelFolder)) {
+            projectsLines = collectProjectsLines(topLevelFolder, bomFiles);
+        }
+
         for (String bomFile : bomFiles) {
             String bomFileFolder = new File(bomFile).getParent();
             File bomFolder = new File(new File(bomFile).getParent());
             String moduleName = bomFolder.getName();
-//            String moduleRelativeName = Constants.EMPTY_STRING;
-//            try {
-//                String canonicalPath = bomFolder.getCanonicalPath();
-//                // Relative name by replacing the root folder with "." - will look something like .\abc\def
-//                moduleRelativeName = Constants.DOT + canonicalPath.replaceFirst(Pattern.quote(topLevelFolder), Constants.EMPTY_STRING);
-//            } catch (Exception e) {
-//                logger.debug("Error getting path - {} ", e.getMessage());
-//            }
-//            // making sure the module's folder was listed by "gradle projects" command
-//            if (!moduleRelativeName.isEmpty() && projectsList != null && !projectsList.contains(moduleRelativeName)) {
-//                logger.debug("Ignoring project at {} - because it was not listed by \"gradle projects\" command", moduleRelativeName);
-//                continue;
-//            }
-
-            List<DependencyInfo> dependencies = collectDependencies(bomFileFolder, bomFileFolder.equals(topLevelFolder));
+
+            boolean isParent = bomFileFolder.equals(topLevelFolder);
+            List<String> moduleLines = projectsLines == null ? null : projectsLines.get(getProjectPath(topLevelFolder, bomFileFolder));
+            List<DependencyInfo> dependencies;
+            if (moduleLines != null) {
+                dependencies = parseDependencies(moduleLines, bomFileFolder, isParent);
+            } else {
+                // not a subproject of the build (e.g. buildSrc or a nested build), or the single run failed
+                dependencies = collectDependencies(bomFileFolder, isParent);
+            }
             if (dependencies.size() > 0) {
                 AgentProjectInfo agentProjectInfo = new AgentProjectInfo();
                 agentProjectInfo.getDependencies().addAll(dependencies);
@@ -168,28 +162,76 @@ public class GradleDependencyResolver extends AbstractDependencyResolver {
     /* --- Private methods --- */
 
     private List<DependencyInfo> collectDependencies(String directory, boolean isParent) {
-        List<DependencyInfo> dependencyInfos = new ArrayList<>();
         String[] gradleCommandParams = gradleCli.getGradleCommandParams(GradleMvnCommand.DEPENDENCIES);
+        // get gradle dependencies, if the command runs successfully parse the dependencies
+        List<String> lines = gradleCli.runGradleCmd(directory, gradleCommandParams);
+        if (lines != null) {
+            return parseDependencies(lines, directory, isParent);
+        }
+        return new ArrayList<>();
+    }
+
+    private List<DependencyInfo> parseDependencies(List<String> lines, String directory, boolean isParent) {
         String directoryName = Constants.EMPTY_STRING;
         if (!isParent) {
             // get the name of the directory
             String[] directoryPath = directory.split(Pattern.quote(fileSeparator));
             directoryName = directoryPath[directoryPath.length - 1];
         }
-        // get gradle dependencies, if the command runs successfully parse the dependencies
         directoryName = fileSeparator.concat(directoryName);
-        List<String> lines = gradleCli.runGradleCmd(directory, gradleCommandParams);
-        if (lines != null) {
-            dependencyInfos.addAll(gradleLinesParser.parseLines(lines, directory, directoryName, ignoredScopes));
+        return gradleLinesParser.parseLines(lines, directory, directoryName, ignoredScopes);
+    }
+
+    private boolean isMultiProjectBuild(String topLevelFolder) {
+        return new File(topLevelFolder, SETTINGS_GRADLE).isFile() || new File(topLevelFolder, SETTINGS_GRADLE_KTS).isFile();
+    }
+
+    /**
+     * Run 'gradle dependencies' once for the root project and all the subprojects of the modules found.
+     *
+     * @return the report lines of each project by its path, null if the projects could not be listed or the run failed
+     */
+    private Map<String, List<String>> collectProjectsLines(String topLevelFolder, Set<String> bomFiles) {
+        Set<String> projects = collectProjects(topLevelFolder);
+        if (projects == null) {
+            logger.warn("Command \"gradle projects\" did not return a list of projects, running \"gradle dependencies\" for each module");
+            return null;
+        }
+        List<String> params = new ArrayList<>(Arrays.asList(gradleCli.getGradleCommandParams(GradleMvnCommand.DEPENDENCIES)));
+        for (String bomFile : bomFiles) {
+            String projectPath = getProjectPath(topLevelFolder, new File(bomFile).getParent());
+            if (projects.contains(projectPath)) {
+                params.add(projectPath + Constants.COLON + DEPENDENCIES);
+            }
+        }
+        logger.debug("Collecting the dependencies of {} projects of {} in a single run", params.size() - 1, topLevelFolder);
+        List<String> lines = gradleCli.runGradleCmd(topLevelFolder, params.toArray(new String[params.size()]));
+        if (lines == null) {
+            logger.warn("Failed collecting the dependencies of all the projects of {}, running \"gradle dependencies\" for each module", topLevelFolder);
+            return null;
+        }
+        return GradleLinesParser.splitByProject(lines);
+    }
+
+    // by default the path of a subproject follows its folder - the folder abc/def is the project ':abc:def'
+    private String getProjectPath(String topLevelFolder, String moduleFolder) {
+        Path relativePath = Paths.get(topLevelFolder).relativize(Paths.get(moduleFolder));
+        StringBuilder projectPath = new StringBuilder();
+        for (Path name : relativePath) {
+            if (!name.toString().isEmpty()) {
+                projectPath.append(Constants.COLON).append(name.toString());
+            }
         }
-        return dependencyInfos;
+        return projectPath.length() == 0 ? Constants.COLON : projectPath.toString();
     }
 
-    private List<String> collectProjects(String rootDirectory) {
+    // the paths of the root project and its subprojects, e.g. ':', ':abc', ':abc:def'
+    private Set<String> collectProjects(String rootDirectory) {
         List<String> projectsList = gradleCli.runGradleCmd(rootDirectory, gradleCli.getGradleCommandParams(GradleMvnCommand.PROJECTS));
-        List<String> resultProjectsList = null;
+        Set<String> resultProjectsList = null;
         if (projectsList != null) {
-            resultProjectsList = new ArrayList<>();
+            resultProjectsList = new HashSet<>();
+            resultProjectsList.add(Constants.COLON);
             for (String line : projectsList) {
                 if (line.contains(PROJECT)) {
                     // Relevant lines look like:
@@ -208,11 +250,7 @@ public class GradleDependencyResolver extends AbstractDependencyResolver {
                             String[] projectAndDescription = partWithNameAndDescription.split(Constants.APOSTROPHE);
                             projectName = projectAndDescription[1];
                         }
-                        // Convert the project name to a path name
-                        // Example: :abc:def --> .\abc\def
-                        String projectNameAsPath = Constants.DOT + projectName;
-                        projectNameAsPath = projectNameAsPath.replaceAll(Constants.COLON, Matcher.quoteReplacement(File.separator));
-                        resultProjectsList.add(projectNameAsPath);
+                        resultProjectsList.add(projectName);
                     }
                 }
             }
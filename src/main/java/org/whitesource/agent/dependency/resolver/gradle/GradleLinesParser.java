@@ -34,13 +34,15 @@ public class GradleLinesParser extends MavenTreeDependencyCollector {
     private static final String MAIN = "main";
     private static final String JAVA = "java";
     private static final String JAVA_EXTENSION = ".java";
-    private static final String AAR_EXTENTION = ".aar";
     private static final String PLUS = "+---";
     private static final String SLASH = "\\---";
     private static final String USER_HOME = "user.home";
     private static final int INDENTETION_SPACE = 5;
     private static final String JAR_EXTENSION = ".jar";
     private static final String ASTERIX = "(*)";
+    private static final String ROOT_PROJECT_HEADER = "Root project";
+    private static final String PROJECT_HEADER = "Project ";
+    private static final String HEADER_SEPARATOR = "------";
 
     private String fileSeparator;
     private String dotGradlePath;
@@ -90,7 +92,7 @@ public class GradleLinesParser extends MavenTreeDependencyCollector {
                 .collect(Collectors.toList());
         List<DependencyInfo> dependenciesList = new ArrayList<>();
         Stack<DependencyInfo> parentDependencies = new Stack<>();
-        List<String> sha1s = new ArrayList<>();
+        Set<String> sha1s = new HashSet<>();
         int prevLineIndentation = 0;
         boolean duplicateDependency = false;
         boolean insideProject = false;
@@ -143,9 +145,8 @@ public class GradleLinesParser extends MavenTreeDependencyCollector {
                 DependencyInfo currentDependency = new DependencyInfo(groupId, artifactId, version);
                 DependencyFile dependencyFile = getDependencySha1(currentDependency);
                 if (dependencyFile != null && !dependencyFile.getSha1().equals(Constants.EMPTY_STRING)) {
-                    if (sha1s.contains(dependencyFile.getSha1()))
+                    if (!sha1s.add(dependencyFile.getSha1()))
                         continue;
-                    sha1s.add(dependencyFile.getSha1());
                     currentDependency.setSha1(dependencyFile.getSha1());
                     currentDependency.setSystemPath(dependencyFile.getFilePath());
                     currentDependency.setFilename(dependencyFile.getFileName());
@@ -205,6 +206,41 @@ public class GradleLinesParser extends MavenTreeDependencyCollector {
         return dependenciesList;
     }
 
+    /**
+     * Split the output of a single 'gradle dependencies :a:dependencies ...' run into the reports of the projects.
+     * Each report starts with a header such as "Project ':a'" (or "Project :a" in older Gradle versions) between two
+     * separator lines, the root project's report is kept under ':'.
+     *
+     * @return the lines of each project's report by the project's path, in the order of the output
+     */
+    static Map<String, List<String>> splitByProject(List<String> lines) {
+        Map<String, List<String>> projectsLines = new LinkedHashMap<>();
+        List<String> currentLines = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            boolean header = i > 0 && lines.get(i - 1).startsWith(HEADER_SEPARATOR) &&
+                    (line.startsWith(ROOT_PROJECT_HEADER) || line.startsWith(PROJECT_HEADER));
+            if (header) {
+                String projectPath = Constants.COLON;
+                if (line.startsWith(PROJECT_HEADER)) {
+                    String name = line.substring(PROJECT_HEADER.length()).trim();
+                    if (name.startsWith(Constants.APOSTROPHE)) {
+                        int end = name.indexOf(Constants.APOSTROPHE, 1);
+                        projectPath = end > 0 ? name.substring(1, end) : name.substring(1);
+                    } else {
+                        int end = name.indexOf(Constants.WHITESPACE);
+                        projectPath = end > 0 ? name.substring(0, end) : name;
+                    }
+                }
+                currentLines = new ArrayList<>();
+                projectsLines.put(projectPath, currentLines);
+            } else if (currentLines != null) {
+                currentLines.add(line);
+            }
+        }
+        return projectsLines;
+    }
+
     private List<String> ignoreScopesOfGradleDependencies(String[] ignoredScopes, List<String> lines) {
         String scope = Constants.EMPTY_STRING;
         Map<String, String> gradleScopes = new HashMap<>();
@@ -273,26 +309,11 @@ public class GradleLinesParser extends MavenTreeDependencyCollector {
         String version = dependencyInfo.getVersion();
         logger.debug("looking for " + groupId + "." + artifactId + "." + version + " in .gradle cache");
         DependencyFile dependencyFile = null;
-        // gradle file path includes the sha1
+        // gradle file path includes the sha1, e.g. .gradle\caches\modules-2\files-2.1\junit\junit\4.12\2973d150c0dc1fefe998f834810d68f278ea58ec
         if (dotGradlePath != null) {
-            String pathToDependency = dotGradlePath.concat(fileSeparator + groupId + fileSeparator + artifactId + fileSeparator + version);
-            File dependencyFolder = new File(pathToDependency);
-            // parsing gradle file path, get file hash from its path. the dependency folder version contains
-            // 2 folders one for pom and another for the jar. Look for the one with the jar in order to get the sha1
-            // .gradle\caches\modules-2\files-2.1\junit\junit\4.12\2973d150c0dc1fefe998f834810d68f278ea58ec
-            if (dependencyFolder.isDirectory()) {
-                outerloop:
-                for (File folder : dependencyFolder.listFiles()) {
-                    if (folder.isDirectory()) {
-                        for (File file : folder.listFiles()) {
-                            if ((file.getName().contains(JAR_EXTENSION) || file.getName().contains(AAR_EXTENTION)) && !file.getName().contains("-sources")) {
-                                String sha1 = getSha1(file.getPath());
-                                dependencyFile = new DependencyFile(sha1,file);
-                                break outerloop;
-                            }
-                        }
-                    }
-                }
+            GradleCacheIndex.CachedArtifact artifact = GradleCacheIndex.getInstance(new File(dotGradlePath)).find(groupId, artifactId, version, null);
+            if (artifact != null) {
+                dependencyFile = new DependencyFile(artifact.getSha1(), artifact.getFile());
             }
         }
         if (dependencyFile == null){
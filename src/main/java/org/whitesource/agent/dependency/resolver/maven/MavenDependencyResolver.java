@@ -14,8 +14,10 @@
  * limitations under the License.
  */
 package org.whitesource.agent.dependency.resolver.maven;
+import org.apache.commons.lang.StringUtils;
 import org.whitesource.agent.Constants;
 import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
 import org.whitesource.agent.api.model.DependencyType;
 import org.whitesource.agent.dependency.resolver.AbstractDependencyResolver;
 import org.whitesource.agent.dependency.resolver.BomFile;
@@ -46,8 +48,13 @@ public class MavenDependencyResolver extends AbstractDependencyResolver {
     /* --- Constructor --- */
 
     public MavenDependencyResolver(boolean mavenAggregateModules, String[] mavenIgnoredScopes, boolean ignoreSourceFiles, boolean ignorePomModules, boolean runPreStep) {
+        this(mavenAggregateModules, mavenIgnoredScopes, ignoreSourceFiles, ignorePomModules, runPreStep, 0);
+    }
+
+    public MavenDependencyResolver(boolean mavenAggregateModules, String[] mavenIgnoredScopes, boolean ignoreSourceFiles, boolean ignorePomModules, boolean runPreStep,
+                                   int sha1FileVerificationRate) {
         super();
-        this.dependencyCollector = new MavenTreeDependencyCollector(mavenIgnoredScopes, ignorePomModules, runPreStep);
+        this.dependencyCollector = new MavenTreeDependencyCollector(mavenIgnoredScopes, ignorePomModules, runPreStep, sha1FileVerificationRate);
         this.bomParser = new MavenPomParser();
         this.mavenAggregateModules = mavenAggregateModules;
         this.ignoreSourceFiles = ignoreSourceFiles;
@@ -68,12 +75,26 @@ public class MavenDependencyResolver extends AbstractDependencyResolver {
         // create excludes for .JAVA files upon finding MAVEN dependencies
         Set<String> excludes = new HashSet<>();
 
+        // index the pom files by their coordinates, the first pom of each artifact is the one mapped to its project
+        Map<String, BomFile> filesByGroupAndArtifact = new HashMap<>();
+        Map<String, BomFile> filesByArtifact = new HashMap<>();
+        for (BomFile file : files) {
+            if (StringUtils.isNotBlank(file.getGroupId())) {
+                filesByGroupAndArtifact.putIfAbsent(file.getGroupId() + Constants.COLON + file.getName(), file);
+            }
+            filesByArtifact.putIfAbsent(file.getName(), file);
+        }
+
         Map<AgentProjectInfo, Path> projectInfoPathMap = projects.stream().collect(Collectors.toMap(projectInfo -> projectInfo, projectInfo -> {
 
-            // map each pom file to specific project
-            Optional<BomFile> folderPath = files.stream().filter(file -> projectInfo.getCoordinates().getArtifactId().equals(file.getName())).findFirst();
-            if (folderPath.isPresent()) {
-                File topFolderFound = new File(folderPath.get().getLocalFileName()).getParentFile();
+            // map each pom file to specific project, by group and artifact when the pom declares its group
+            Coordinates coordinates = projectInfo.getCoordinates();
+            BomFile bomFile = filesByGroupAndArtifact.get(coordinates.getGroupId() + Constants.COLON + coordinates.getArtifactId());
+            if (bomFile == null) {
+                bomFile = filesByArtifact.get(coordinates.getArtifactId());
+            }
+            if (bomFile != null) {
+                File topFolderFound = new File(bomFile.getLocalFileName()).getParentFile();
 
                 // in java do not remove anything since they are not the duplicates of the dependencies found
                 // discard other java files only if specified ( decenciesOnly = true)
@@ -30,8 +30,15 @@ import org.whitesource.agent.utils.CommandLineProcess;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -65,6 +72,14 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
     private static final String MVN_CLEAN = "clean";
     private static final String MVN_INSTALL = "install";
     private static final String MVN_SKIP_TESTS = "-DskipTests";
+    private static final String SHA1_EXTENSION = ".sha1";
+    private static final int SHA1_LENGTH = 40;
+    // the jars without a valid .sha1 file are hashed on a pool of their own rather than the common fork-join pool
+    private static final ExecutorService hashExecutorService = Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
+    // the maven installation and its local repository do not change while the process runs, so once found they aren't
+    // probed again. Failed probes aren't kept, they are run again by the next collector from its own folder
+    private static volatile boolean mavenFound;
+    private static volatile String localRepositoryPath;
 
 
     /* --- Members --- */
@@ -75,10 +90,21 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
     private boolean ignorePomModules;
     private boolean runPreStep;
     private MavenLinesParser mavenLinesParser;
+    private final int sha1FileVerificationRate;
+    private final AtomicLong sha1FilesRead = new AtomicLong();
 
     /* --- Constructors --- */
 
     public MavenTreeDependencyCollector(String[] mavenIgnoredScopes, boolean ignorePomModules, boolean runPreStep) {
+        this(mavenIgnoredScopes, ignorePomModules, runPreStep, 0);
+    }
+
+    /**
+     * @param sha1FileVerificationRate the sha1 of one in every this many artifacts having a .sha1 file is also calculated
+     *                                 to verify the file, 0 to trust the .sha1 files
+     */
+    public MavenTreeDependencyCollector(String[] mavenIgnoredScopes, boolean ignorePomModules, boolean runPreStep, int sha1FileVerificationRate) {
+        this.sha1FileVerificationRate = sha1FileVerificationRate;
         mavenLinesParser = new MavenLinesParser();
         this.mavenIgnoredScopes = new HashSet<>();
         if (mavenIgnoredScopes == null) {
@@ -144,7 +170,7 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
                                 List<DependencyInfo> dependencies = new LinkedList<>();
                                 Stream<Node> nodeStream = tree.getChildNodes().stream().filter(node -> !mavenIgnoredScopes.contains(node.getScope()));
                                 dependencies.addAll(nodeStream.map(node -> getDependencyFromNode(node, pathToDependenciesMap)).collect(Collectors.toList()));
-                                Map<String, String> pathToSha1Map = pathToDependenciesMap.keySet().stream().distinct().parallel().collect(Collectors.toMap(file -> file, file -> getSha1(file)));
+                                Map<String, String> pathToSha1Map = getSha1s(pathToDependenciesMap.keySet());
                                 pathToSha1Map.entrySet().forEach(pathSha1Pair -> pathToDependenciesMap.get(pathSha1Pair.getKey()).stream().forEach(dependency -> {
                                     dependency.setSha1(pathSha1Pair.getValue());
                                     dependency.setSystemPath(pathSha1Pair.getKey());
@@ -179,7 +205,95 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
         return projects;
     }
 
+    /**
+     * @return the sha1 from the .sha1 file maven keeps next to the artifact, calculated when there is no valid one
+     */
     protected String getSha1(String filePath) {
+        String sha1 = getSha1FromFile(filePath);
+        if (sha1 == null || isSampledForVerification()) {
+            return verifySha1(filePath, sha1);
+        }
+        return sha1;
+    }
+
+    private Map<String, String> getSha1s(Collection<String> filePaths) {
+        Map<String, String> sha1s = new HashMap<>();
+        Map<String, Future<String>> calculations = new HashMap<>();
+        for (String filePath : filePaths) {
+            String sha1 = getSha1FromFile(filePath);
+            if (sha1 == null || isSampledForVerification()) {
+                calculations.put(filePath, hashExecutorService.submit(() -> verifySha1(filePath, sha1)));
+            } else {
+                sha1s.put(filePath, sha1);
+            }
+        }
+        for (Map.Entry<String, Future<String>> calculation : calculations.entrySet()) {
+            String sha1 = Constants.EMPTY_STRING;
+            try {
+                sha1 = calculation.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.warn("Failed calculating the sha1 of {}: {}", calculation.getKey(), e.getMessage());
+            }
+            sha1s.put(calculation.getKey(), sha1);
+        }
+        return sha1s;
+    }
+
+    /**
+     * @param sha1 the sha1 read from the .sha1 file, null if there is none
+     * @return the calculated sha1, logging when it does not match the .sha1 file
+     */
+    private String verifySha1(String filePath, String sha1) {
+        String calculatedSha1 = calculateSha1(filePath);
+        if (sha1 != null && !sha1.equals(calculatedSha1)) {
+            logger.warn("The sha1 file of {} does not match its content, using the calculated sha1", filePath);
+        }
+        return calculatedSha1;
+    }
+
+    private boolean isSampledForVerification() {
+        return sha1FileVerificationRate > 0 && sha1FilesRead.getAndIncrement() % sha1FileVerificationRate == 0;
+    }
+
+    /**
+     * The .sha1 file holds the hex sha1, sometimes followed by the file name.
+     *
+     * @return the sha1 in the .sha1 file of the artifact, null if the artifact or the file is missing or it holds no sha1
+     */
+    private String getSha1FromFile(String filePath) {
+        File sha1File = new File(filePath + SHA1_EXTENSION);
+        if (!sha1File.isFile() || !new File(filePath).isFile()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(sha1File.toPath()), StandardCharsets.UTF_8).trim();
+            for (String token : content.split("\\s+")) {
+                if (isSha1(token)) {
+                    return token.toLowerCase();
+                }
+            }
+            logger.debug("No sha1 found in {}", sha1File.getPath());
+        } catch (IOException e) {
+            logger.debug("Failed reading {}: {}", sha1File.getPath(), e.getMessage());
+        }
+        return null;
+    }
+
+    private boolean isSha1(String token) {
+        if (token.length() != SHA1_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < SHA1_LENGTH; i++) {
+            if (Character.digit(token.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String calculateSha1(String filePath) {
         try {
             return ChecksumUtils.calculateSHA1(new File(filePath));
         } catch (IOException e) {
@@ -189,6 +303,17 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
     }
 
     private boolean isMavenExist(String rootDirectory) {
+        if (!mavenFound) {
+            synchronized (MavenTreeDependencyCollector.class) {
+                if (!mavenFound) {
+                    mavenFound = probeMaven(rootDirectory);
+                }
+            }
+        }
+        return mavenFound;
+    }
+
+    private boolean probeMaven(String rootDirectory) {
         try {
             CommandLineProcess mvnProcess = new CommandLineProcess(rootDirectory, getVersionCommandParams());
             List<String> lines = mvnProcess.executeProcess();
@@ -277,6 +402,20 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
     }
 
     protected String getMavenM2Path(String rootDirectory) {
+        String path = localRepositoryPath;
+        if (path == null) {
+            synchronized (MavenTreeDependencyCollector.class) {
+                if (localRepositoryPath == null) {
+                    // a failed probe sets the error flag of this collector
+                    localRepositoryPath = findMavenM2Path(rootDirectory);
+                }
+                path = localRepositoryPath;
+            }
+        }
+        return path;
+    }
+
+    private String findMavenM2Path(String rootDirectory) {
         String currentUsersHomeDir = System.getProperty(USER_HOME);
         File m2Path = Paths.get(currentUsersHomeDir, M2, REPOSITORY).toFile();
 
@@ -303,6 +442,7 @@ public class MavenTreeDependencyCollector extends DependencyCollector {
                 }
             } else {
                 logger.warn("Failed to scan and send {}", getLsCommandParams());
+                showMavenTreeError = true;
                 return null;
             }
         } catch (IOException io) {
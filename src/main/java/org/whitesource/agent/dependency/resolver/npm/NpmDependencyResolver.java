@@ -16,13 +16,8 @@
 package org.whitesource.agent.dependency.resolver.npm;
 
 import org.eclipse.jgit.util.StringUtils;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.whitesource.agent.utils.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.web.client.RestTemplate;
 import org.whitesource.agent.Constants;
 import org.whitesource.agent.api.model.AgentProjectInfo;
 import org.whitesource.agent.api.model.DependencyInfo;
@@ -35,7 +30,6 @@ import org.whitesource.agent.utils.FilesScanner;
 import org.whitesource.fs.StatusCode;
 
 import java.io.File;
-import java.net.URI;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.Callable;
@@ -66,16 +60,11 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
     private static final String WS_BOWER_FOLDER = "**/.ws_bower/**/";
     private static final String TEST = "**/test/**/";
     private static final long NPM_DEFAULT_LS_TIMEOUT = 60;
-    private static final String VERSIONS = "versions";
-    private static final String DIST = "dist";
-    private static final String SHASUM = "shasum";
 
     private static final String EXCLUDE_TOP_FOLDER = "node_modules";
-    private static final String AUTHORIZATION = "Authorization";
-    private static final String BEARER = "Bearer";
-    private static final String BASIC = "Basic";
     private static final int NUM_THREADS = 8;
-    private static final String URL_SLASH = "%2F";
+    // shared by all the modules and resolvers, its threads end when idle
+    private static final ExecutorService enrichExecutorService = Executors.newWorkStealingPool(NUM_THREADS);
 
     /* --- Members --- */
 
@@ -86,11 +75,13 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
     private final FilesScanner filesScanner;
     private final String npmAccessToken;
     private final boolean npmYarnProject;
+    private final NpmRegistryClient registryClient;
 
     /* --- Constructor --- */
 
     public NpmDependencyResolver(boolean includeDevDependencies, boolean ignoreSourceFiles, long npmTimeoutDependenciesCollector,
-                                 boolean runPreStep, boolean npmIgnoreNpmLsErrors, String npmAccessToken, boolean npmYarnProject, boolean ignoreScripts) {
+                                 boolean runPreStep, boolean npmIgnoreNpmLsErrors, String npmAccessToken, boolean npmYarnProject, boolean ignoreScripts,
+                                 String npmRegistryCacheFile, int npmRegistryConcurrency) {
         super();
         bomCollector = npmYarnProject ? new YarnDependencyCollector(includeDevDependencies, npmTimeoutDependenciesCollector, ignoreSourceFiles, ignoreScripts) : new NpmLsJsonDependencyCollector(includeDevDependencies, npmTimeoutDependenciesCollector, npmIgnoreNpmLsErrors, ignoreScripts);
         bomParser = new NpmBomParser();
@@ -99,10 +90,13 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
         this.filesScanner = new FilesScanner();
         this.npmAccessToken = npmAccessToken;
         this.npmYarnProject = npmYarnProject;
+        this.registryClient = NpmRegistryClient.getInstance(npmRegistryConcurrency,
+                StringUtils.isEmptyOrNull(npmRegistryCacheFile) ? null : new File(npmRegistryCacheFile));
     }
 
     public NpmDependencyResolver(boolean runPreStep, String npmAccessToken, boolean bowerIgnoreSourceFiles) {
-        this(false,bowerIgnoreSourceFiles, NPM_DEFAULT_LS_TIMEOUT , runPreStep, false, npmAccessToken, false, false);
+        this(false,bowerIgnoreSourceFiles, NPM_DEFAULT_LS_TIMEOUT , runPreStep, false, npmAccessToken, false, false,
+                null, NpmRegistryClient.DEFAULT_MAX_CONCURRENT_REQUESTS);
     }
 
     /* --- Overridden methods --- */
@@ -194,6 +188,7 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
                         Constants.PATTERN + TSX_EXTENSION), EXCLUDE_TOP_FOLDER));
             }
         }
+        registryClient.save();
         return new ResolutionResult(dependencies, excludes, getDependencyType(), topLevelFolder);
     }
 
@@ -246,9 +241,13 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
 
     protected void enrichDependency(DependencyInfo dependency, BomFile packageJson, String npmAccessToken) {
         String sha1 = packageJson.getSha1();
+        if (StringUtils.isEmptyOrNull(sha1)) {
+            // the sha1 may already be known from the integrity in the lock file
+            sha1 = dependency.getSha1();
+        }
         String registryPackageUrl = packageJson.getRegistryPackageUrl();
         if (StringUtils.isEmptyOrNull(sha1) && !StringUtils.isEmptyOrNull(registryPackageUrl)) {
-            sha1 = getSha1FromRegistryPackageUrl(registryPackageUrl, packageJson.isScopedPackage(), packageJson.getVersion(), npmAccessToken);
+            sha1 = registryClient.getSha1(packageJson.getName(), packageJson.getVersion(), registryPackageUrl, packageJson.isScopedPackage(), npmAccessToken);
         }
         dependency.setSha1(sha1);
         dependency.setGroupId(packageJson.getName());
@@ -261,57 +260,12 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
 
     /* --- Private methods --- */
 
-    private String getSha1FromRegistryPackageUrl(String registryPackageUrl, boolean isScopeDep, String versionOfPackage, String npmAccessToken) {
-        RestTemplate restTemplate = new RestTemplate();
-        URI uriScopeDep = null;
-        if (isScopeDep) {
-            try {
-                uriScopeDep = new URI(registryPackageUrl.replace(BomFile.DUMMY_PARAMETER_SCOPE_PACKAGE, URL_SLASH));
-            } catch (Exception e) {
-                logger.warn("Failed creating uri of {}", registryPackageUrl);
-                return Constants.EMPTY_STRING;
-            }
-        }
-
-        String responseFromRegistry = null;
-        try {
-            if (isScopeDep) {
-                HttpHeaders httpHeaders = new HttpHeaders();
-                if (StringUtils.isEmptyOrNull(npmAccessToken)) {
-                    logger.debug("npm.accessToken is not defined");
-                } else {
-                    logger.debug("npm.accessToken is defined");
-                    String userCredentials = BEARER + Constants.COLON + npmAccessToken;
-                    String basicAuth = BASIC + Constants.WHITESPACE + new String(Base64.getEncoder().encode(userCredentials.getBytes()));
-                    httpHeaders.set(AUTHORIZATION, basicAuth);
-                }
-
-                HttpEntity entity = new HttpEntity(httpHeaders);
-                responseFromRegistry = restTemplate.exchange(uriScopeDep, HttpMethod.GET, entity,String.class).getBody();
-            } else {
-                responseFromRegistry = restTemplate.getForObject(registryPackageUrl, String.class);
-            }
-        } catch (Exception e) {
-            logger.warn("Could not reach the registry using the URL: {}. Got an error: {}", registryPackageUrl, e.getMessage());
-            return Constants.EMPTY_STRING;
-        }
-        JSONObject jsonRegistry = new JSONObject(responseFromRegistry);
-        String shasum;
-        if (isScopeDep) {
-            shasum = jsonRegistry.getJSONObject(VERSIONS).getJSONObject(versionOfPackage).getJSONObject(DIST).getString(SHASUM);
-        } else {
-            shasum = jsonRegistry.getJSONObject(DIST).getString(SHASUM);
-        }
-        return shasum;
-    }
-
     /**
      * Collect dependencies from package.json files - without 'npm ls'
      */
     private Collection<DependencyInfo> collectPackageJsonDependencies(Collection<BomFile> packageJsons) {
         Collection<DependencyInfo> dependencies = new LinkedList<>();
         ConcurrentHashMap<DependencyInfo, BomFile> dependencyPackageJsonMap = new ConcurrentHashMap<>();
-        ExecutorService executorService = Executors.newWorkStealingPool(NUM_THREADS);
         Collection<EnrichDependency> threadsCollection = new LinkedList<>();
         for (BomFile packageJson : packageJsons) {
             if (packageJson != null && packageJson.isValid()) {
@@ -322,7 +276,7 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
                 logger.debug("Collect package.json of the dependency in the file: {}", dependency.getFilename());
             }
         }
-        runThreadCollection(executorService, threadsCollection);
+        runThreadCollection(threadsCollection);
         logger.debug("set hierarchy of the dependencies");
         // remove duplicates dependencies
         Map<String, DependencyInfo> existDependencies = new HashMap<>();
@@ -339,10 +293,9 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
         return existDependencies.values();
     }
 
-    private void runThreadCollection(ExecutorService executorService, Collection<EnrichDependency> threadsCollection) {
+    private void runThreadCollection(Collection<EnrichDependency> threadsCollection) {
         try {
-            executorService.invokeAll(threadsCollection);
-            executorService.shutdown();
+            enrichExecutorService.invokeAll(threadsCollection);
         } catch (InterruptedException e) {
             logger.error("One of the threads was interrupted, please try to scan again the project. Error: {}", e.getMessage());
             System.exit(StatusCode.ERROR.getValue());
@@ -380,21 +333,25 @@ public class NpmDependencyResolver extends AbstractDependencyResolver {
 
         logger.debug("Handling all dependencies");
         Collection<EnrichDependency> threadsCollection = new LinkedList<>();
-        dependencies.forEach(dependency -> handleLSDependencyRecursivelyImpl(dependency, resultFiles, threadsCollection, npmAccessToken));
-        ExecutorService executorService = Executors.newWorkStealingPool(NUM_THREADS);
-        runThreadCollection(executorService, threadsCollection);
+        handleLsDependencies(dependencies, resultFiles, threadsCollection, npmAccessToken);
+        runThreadCollection(threadsCollection);
     }
 
-    private void handleLSDependencyRecursivelyImpl(DependencyInfo dependency, Map<String, BomFile> resultFiles, Collection<EnrichDependency> threadsCollection, String npmAccessToken) {
-        String uniqueName = BomFile.getUniqueDependencyName(dependency.getGroupId(), dependency.getVersion());
-        BomFile packageJson = resultFiles.get(uniqueName);
-        if (packageJson != null) {
-            threadsCollection.add(new EnrichDependency(packageJson, dependency, npmAccessToken));
-        } else {
-            logger.debug("Dependency {} could not be retrieved. 'package.json' could not be found", dependency.getArtifactId());
+    // the trees of lock files may be thousands of levels deep, so they are walked with a stack instead of recursively
+    private void handleLsDependencies(Collection<DependencyInfo> dependencies, Map<String, BomFile> resultFiles, Collection<EnrichDependency> threadsCollection, String npmAccessToken) {
+        Deque<DependencyInfo> stack = new ArrayDeque<>(dependencies);
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            String uniqueName = BomFile.getUniqueDependencyName(dependency.getGroupId(), dependency.getVersion());
+            BomFile packageJson = resultFiles.get(uniqueName);
+            if (packageJson != null) {
+                threadsCollection.add(new EnrichDependency(packageJson, dependency, npmAccessToken));
+            } else {
+                logger.debug("Dependency {} could not be retrieved. 'package.json' could not be found", dependency.getArtifactId());
+            }
+            logger.debug("handle the children dependencies in the file: {}", dependency.getFilename());
+            dependency.getChildren().forEach(stack::push);
         }
-        logger.debug("handle the children dependencies in the file: {}", dependency.getFilename());
-        dependency.getChildren().forEach(childDependency -> handleLSDependencyRecursivelyImpl(childDependency, resultFiles, threadsCollection, npmAccessToken));
     }
 
     // currently deprecated - not relevant
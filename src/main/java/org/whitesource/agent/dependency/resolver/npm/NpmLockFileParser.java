@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2017 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.dependency.resolver.npm;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.whitesource.agent.Constants;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.DependencyType;
+import org.whitesource.agent.utils.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the dependencies tree from npm-shrinkwrap.json or package-lock.json files without running 'npm ls'.
+ * Supports the nested 'dependencies' format of lockfile version 1 and the flat 'packages' format of lockfile versions 2 and 3.
+ * The required packages are resolved the way node resolves them, from the closest node_modules folder up to the root.
+ * Like in the output of 'npm ls', the children of a package installed once are listed only on its first occurrence,
+ * and packages that are not installed are skipped unless the lock file holds their sha1.
+ */
+public class NpmLockFileParser {
+
+    /* --- Static members --- */
+
+    public static final String NPM_SHRINKWRAP_JSON = "npm-shrinkwrap.json";
+    public static final String PACKAGE_LOCK_JSON = "package-lock.json";
+
+    private static final String PACKAGE_JSON = "package.json";
+    private static final String PACKAGES = "packages";
+    private static final String REQUIRES = "requires";
+    private static final String DEV_DEPENDENCIES = "devDependencies";
+    private static final String OPTIONAL_DEPENDENCIES = "optionalDependencies";
+    private static final String RESOLVED = "resolved";
+    private static final String INTEGRITY = "integrity";
+    private static final String DEV = "dev";
+    private static final String OPTIONAL = "optional";
+    private static final String LINK = "link";
+    private static final String NODE_MODULES = "node_modules";
+    private static final String NODE_MODULES_PATH = NODE_MODULES + "/";
+    private static final String NESTED_NODE_MODULES_PATH = "/" + NODE_MODULES_PATH;
+    private static final String SHA1_INTEGRITY_PREFIX = "sha1-";
+    private static final Pattern RESOLVED_SHA1_PATTERN = Pattern.compile("#([0-9a-fA-F]{40})$");
+
+    private final Logger logger = LoggerFactory.getLogger(NpmLockFileParser.class);
+
+    /* --- Members --- */
+
+    private final boolean includeDevDependencies;
+
+    /* --- Constructors --- */
+
+    public NpmLockFileParser(boolean includeDevDependencies) {
+        this.includeDevDependencies = includeDevDependencies;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the lock file of the folder, npm-shrinkwrap.json takes precedence like in npm, null if there is none
+     */
+    public static File findLockFile(String folder) {
+        File shrinkwrap = new File(folder, NPM_SHRINKWRAP_JSON);
+        if (shrinkwrap.isFile()) {
+            return shrinkwrap;
+        }
+        File packageLock = new File(folder, PACKAGE_LOCK_JSON);
+        return packageLock.isFile() ? packageLock : null;
+    }
+
+    /**
+     * @return the direct dependencies of the project with their children, null if the lock file could not be read
+     */
+    public List<DependencyInfo> parse(File lockFile) {
+        JSONObject lockJson;
+        try {
+            lockJson = new JSONObject(FileUtils.readFileToString(lockFile, Constants.UTF8));
+        } catch (IOException | JSONException e) {
+            logger.warn("Failed to read {}: {}", lockFile.getPath(), e.getMessage());
+            logger.debug("Failed to read {}", lockFile.getPath(), e);
+            return null;
+        }
+
+        // the packages of the lock file by their path relative to the project folder, e.g. node_modules/a/node_modules/b
+        Map<String, LockPackage> packages = new HashMap<>();
+        Map<String, String> rootRequires;
+        if (lockJson.has(PACKAGES)) {
+            rootRequires = readPackages(lockJson.getJSONObject(PACKAGES), packages);
+        } else {
+            readDependencies(lockJson, Constants.EMPTY_STRING, packages);
+            rootRequires = getRootRequires(lockFile.getParentFile(), packages);
+        }
+
+        List<DependencyInfo> dependencies = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        String folder = lockFile.getParent();
+        for (String name : rootRequires.keySet()) {
+            DependencyInfo dependency = getDependency(name, Constants.EMPTY_STRING, packages, visited, folder);
+            if (dependency != null) {
+                dependencies.add(dependency);
+            }
+        }
+        logger.debug("Found {} direct dependencies in {}", dependencies.size(), lockFile.getPath());
+        return dependencies;
+    }
+
+    /* --- Private methods --- */
+
+    private Map<String, String> readPackages(JSONObject packagesJson, Map<String, LockPackage> packages) {
+        Map<String, String> rootRequires = new TreeMap<>();
+        for (String path : packagesJson.keySet()) {
+            JSONObject packageJson = packagesJson.getJSONObject(path);
+            if (path.isEmpty()) {
+                rootRequires.putAll(getRequires(packageJson, Constants.DEPENDENCIES));
+                rootRequires.putAll(getRequires(packageJson, OPTIONAL_DEPENDENCIES));
+                if (includeDevDependencies) {
+                    rootRequires.putAll(getRequires(packageJson, DEV_DEPENDENCIES));
+                }
+                continue;
+            }
+            LockPackage lockPackage = new LockPackage(getName(path, packageJson));
+            lockPackage.version = packageJson.optString(Constants.VERSION, null);
+            lockPackage.resolved = packageJson.optString(RESOLVED, null);
+            lockPackage.integrity = packageJson.optString(INTEGRITY, null);
+            lockPackage.dev = packageJson.optBoolean(DEV);
+            lockPackage.optional = packageJson.optBoolean(OPTIONAL);
+            // workspaces are linked to their folder, which is listed as a package of its own
+            lockPackage.link = packageJson.optBoolean(LINK) ? lockPackage.resolved : null;
+            lockPackage.requires.putAll(getRequires(packageJson, Constants.DEPENDENCIES));
+            lockPackage.requires.putAll(getRequires(packageJson, OPTIONAL_DEPENDENCIES));
+            packages.put(path, lockPackage);
+        }
+        return rootRequires;
+    }
+
+    private void readDependencies(JSONObject parentJson, String parentPath, Map<String, LockPackage> packages) {
+        if (!parentJson.has(Constants.DEPENDENCIES)) {
+            return;
+        }
+        JSONObject dependenciesJson = parentJson.getJSONObject(Constants.DEPENDENCIES);
+        for (String name : dependenciesJson.keySet()) {
+            JSONObject packageJson = dependenciesJson.getJSONObject(name);
+            String path = (parentPath.isEmpty() ? Constants.EMPTY_STRING : parentPath + Constants.FORWARD_SLASH) + NODE_MODULES_PATH + name;
+            LockPackage lockPackage = new LockPackage(name);
+            lockPackage.version = packageJson.optString(Constants.VERSION, null);
+            lockPackage.resolved = packageJson.optString(RESOLVED, null);
+            lockPackage.integrity = packageJson.optString(INTEGRITY, null);
+            lockPackage.dev = packageJson.optBoolean(DEV);
+            lockPackage.optional = packageJson.optBoolean(OPTIONAL);
+            lockPackage.requires.putAll(getRequires(packageJson, REQUIRES));
+            packages.put(path, lockPackage);
+            readDependencies(packageJson, path, packages);
+        }
+    }
+
+    // version 1 lock files do not list the project's own dependencies, they are taken from package.json
+    private Map<String, String> getRootRequires(File folder, Map<String, LockPackage> packages) {
+        File packageJsonFile = new File(folder, PACKAGE_JSON);
+        if (packageJsonFile.isFile()) {
+            try {
+                JSONObject packageJson = new JSONObject(FileUtils.readFileToString(packageJsonFile, Constants.UTF8));
+                Map<String, String> rootRequires = new TreeMap<>(getRequires(packageJson, Constants.DEPENDENCIES));
+                rootRequires.putAll(getRequires(packageJson, OPTIONAL_DEPENDENCIES));
+                if (includeDevDependencies) {
+                    rootRequires.putAll(getRequires(packageJson, DEV_DEPENDENCIES));
+                }
+                return rootRequires;
+            } catch (IOException | JSONException e) {
+                logger.debug("Failed to read {}: {}", packageJsonFile.getPath(), e.getMessage());
+            }
+        }
+        // without package.json all the top level packages are considered direct dependencies
+        Map<String, String> rootRequires = new TreeMap<>();
+        packages.forEach((path, lockPackage) -> {
+            if (!path.contains(NESTED_NODE_MODULES_PATH)) {
+                rootRequires.put(lockPackage.name, lockPackage.version);
+            }
+        });
+        return rootRequires;
+    }
+
+    private DependencyInfo getDependency(String name, String requiredFrom, Map<String, LockPackage> packages, Set<String> visited, String folder) {
+        String path = resolvePath(name, requiredFrom, packages);
+        if (path == null) {
+            logger.debug("Unmet dependency --> {}", name);
+            return null;
+        }
+        LockPackage lockPackage = packages.get(path);
+        if (lockPackage.link != null) {
+            path = lockPackage.link;
+            lockPackage = packages.get(path);
+            if (lockPackage == null) {
+                return null;
+            }
+        }
+        if (!visited.add(path)) {
+            // same as a 'deduped' package in 'npm ls'
+            return null;
+        }
+        if ((lockPackage.dev && !includeDevDependencies) || lockPackage.version == null) {
+            return null;
+        }
+        // packages listed in the lock file but not installed (e.g. optional packages of other platforms) are unmet in 'npm ls',
+        // without a sha1 in the lock file nor a package.json to find it by, they are skipped as well
+        File packageJson = new File(new File(folder, path), PACKAGE_JSON);
+        String sha1 = getSha1(lockPackage);
+        if (sha1 == null && !packageJson.isFile()) {
+            logger.debug("Unmet dependency --> {}@{} is not installed", lockPackage.name, lockPackage.version);
+            return null;
+        }
+
+        DependencyInfo dependency = new DependencyInfo();
+        String filename = NpmBomParser.getNpmArtifactId(lockPackage.name, lockPackage.version);
+        dependency.setGroupId(lockPackage.name);
+        dependency.setArtifactId(filename);
+        dependency.setVersion(lockPackage.version);
+        dependency.setFilename(filename);
+        dependency.setSystemPath(packageJson.getPath());
+        dependency.setOptional(lockPackage.optional);
+        dependency.setDependencyType(DependencyType.NPM);
+        if (sha1 != null) {
+            dependency.setSha1(sha1);
+        }
+        for (String childName : lockPackage.requires.keySet()) {
+            DependencyInfo child = getDependency(childName, path, packages, visited, folder);
+            if (child != null) {
+                dependency.getChildren().add(child);
+            }
+        }
+        return dependency;
+    }
+
+    // look for the package in the node_modules folder of the requiring package and then in the ones above it
+    private String resolvePath(String name, String requiredFrom, Map<String, LockPackage> packages) {
+        String parentPath = requiredFrom;
+        while (true) {
+            String path = (parentPath.isEmpty() ? Constants.EMPTY_STRING : parentPath + Constants.FORWARD_SLASH) + NODE_MODULES_PATH + name;
+            if (packages.containsKey(path)) {
+                return path;
+            }
+            if (parentPath.isEmpty()) {
+                return null;
+            }
+            int nodeModulesIndex = parentPath.lastIndexOf(NESTED_NODE_MODULES_PATH);
+            if (nodeModulesIndex >= 0) {
+                parentPath = parentPath.substring(0, nodeModulesIndex);
+            } else if (parentPath.startsWith(NODE_MODULES_PATH)) {
+                parentPath = Constants.EMPTY_STRING;
+            } else {
+                // a linked workspace folder, its packages are hoisted to the root
+                int slashIndex = parentPath.lastIndexOf(Constants.FORWARD_SLASH);
+                parentPath = slashIndex > 0 ? parentPath.substring(0, slashIndex) : Constants.EMPTY_STRING;
+            }
+        }
+    }
+
+    private String getName(String path, JSONObject packageJson) {
+        if (packageJson.has(Constants.NAME)) {
+            return packageJson.getString(Constants.NAME);
+        }
+        int nodeModulesIndex = path.lastIndexOf(NODE_MODULES_PATH);
+        return nodeModulesIndex >= 0 ? path.substring(nodeModulesIndex + NODE_MODULES_PATH.length()) : path;
+    }
+
+    // sorted by name, the order in which 'npm ls' lists them
+    private Map<String, String> getRequires(JSONObject json, String key) {
+        Map<String, String> requires = new TreeMap<>();
+        JSONObject requiresJson = json.optJSONObject(key);
+        if (requiresJson != null) {
+            for (String name : requiresJson.keySet()) {
+                requires.put(name, String.valueOf(requiresJson.get(name)));
+            }
+        }
+        return requires;
+    }
+
+    // the integrity holds base64 hashes, e.g. 'sha1-2jmj7l5rSw0yVb/vlWAYkK/YBwk=', older lock files put the sha1 in the resolved URL
+    private String getSha1(LockPackage lockPackage) {
+        if (lockPackage.integrity != null) {
+            for (String integrity : lockPackage.integrity.split(Constants.WHITESPACE)) {
+                if (integrity.startsWith(SHA1_INTEGRITY_PREFIX)) {
+                    try {
+                        return toHex(Base64.getDecoder().decode(integrity.substring(SHA1_INTEGRITY_PREFIX.length())));
+                    } catch (IllegalArgumentException e) {
+                        logger.debug("Invalid integrity of {}: {}", lockPackage.name, integrity);
+                    }
+                }
+            }
+        }
+        if (lockPackage.resolved != null) {
+            Matcher matcher = RESOLVED_SHA1_PATTERN.matcher(lockPackage.resolved);
+            if (matcher.find()) {
+                return matcher.group(1).toLowerCase();
+            }
+        }
+        return null;
+    }
+
+    private String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /* --- Nested classes --- */
+
+    private static class LockPackage {
+
+        private final String name;
+        private final Map<String, String> requires = new TreeMap<>();
+        private String version;
+        private String resolved;
+        private String integrity;
+        private String link;
+        private boolean dev;
+        private boolean optional;
+
+        private LockPackage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.whitesource.agent.dependency.resolver.DependencyCollector;
 import org.whitesource.agent.utils.CommandLineProcess;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -71,6 +72,7 @@ public class NpmLsJsonDependencyCollector extends DependencyCollector {
     protected boolean npmLsFailureStatus;
     protected final long npmTimeoutDependenciesCollector;
     private final boolean ignoreScripts;
+    private final NpmLockFileParser lockFileParser;
 
     /* --- Constructors --- */
 
@@ -80,12 +82,23 @@ public class NpmLsJsonDependencyCollector extends DependencyCollector {
         this.ignoreNpmLsErrors = ignoreNpmLsErrors;
         this.ignoreScripts = ignoreScripts;
         this.npmLsFailureStatus = false;
+        this.lockFileParser = new NpmLockFileParser(includeDevDependencies);
     }
 
     /* --- Public methods --- */
 
     @Override
     public Collection<AgentProjectInfo> collectDependencies(String rootDirectory) {
+        // reading the lock file takes milliseconds while 'npm ls' takes seconds, 'npm ls' is run only when there is none
+        File lockFile = getLockFile(rootDirectory);
+        if (lockFile != null) {
+            List<DependencyInfo> lockFileDependencies = lockFileParser.parse(lockFile);
+            if (lockFileDependencies != null) {
+                logger.debug("Collected dependencies of {} from {}", rootDirectory, lockFile.getName());
+                this.npmLsFailureStatus = false;
+                return getSingleProjectList(lockFileDependencies);
+            }
+        }
         Collection<DependencyInfo> dependencies = new ArrayList<>();
         try {
             CommandLineProcess npmLsJson = new CommandLineProcess(rootDirectory, getLsCommandParamsJson());
@@ -134,7 +147,7 @@ public class NpmLsJsonDependencyCollector extends DependencyCollector {
 
     /* --- Private methods --- */
 
-    private int getDependencies(JSONObject npmLsJson, List<String> linesOfNpmLs, int currentLineNumber, Collection<DependencyInfo> dependencies) {
+    protected int getDependencies(JSONObject npmLsJson, List<String> linesOfNpmLs, int currentLineNumber, Collection<DependencyInfo> dependencies) {
         if (npmLsJson.has(Constants.DEPENDENCIES)) {
             JSONObject dependenciesJsonObject = npmLsJson.getJSONObject(Constants.DEPENDENCIES);
             if (dependenciesJsonObject != null) {
@@ -236,6 +249,13 @@ public class NpmLsJsonDependencyCollector extends DependencyCollector {
         }
     }
 
+    /**
+     * @return the npm-shrinkwrap.json or package-lock.json file of the folder, null to always run 'npm ls'
+     */
+    protected File getLockFile(String folder) {
+        return NpmLockFileParser.findLockFile(folder);
+    }
+
     protected String[] getInstallParams() {
         if (this.ignoreScripts) {
             return new String[]{NPM_COMMAND, Constants.INSTALL, IGNORE_SCRIPTS};
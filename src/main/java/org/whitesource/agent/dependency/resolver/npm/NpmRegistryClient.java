@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2017 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.dependency.resolver.npm;
+
+import com.google.gson.Gson;
+import org.eclipse.jgit.util.StringUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import org.whitesource.agent.Constants;
+import org.whitesource.agent.dependency.resolver.BomFile;
+import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Looks up the sha1 of npm packages in their registry.
+ * The client is shared by the whole process: the sha1s found are kept, concurrent lookups of the same package with the
+ * same access token wait for the same request, and at most a fixed number of requests are sent at a time over a single
+ * RestTemplate. Failed lookups are not kept, the next scan requests them again.
+ * The number of sha1s kept is bounded, they can also be kept in a cache file so later runs do not request them again.
+ */
+public class NpmRegistryClient {
+
+    /* --- Static members --- */
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    public static final int MAX_CACHED_SHA1S = 100000;
+
+    private static final String VERSIONS = "versions";
+    private static final String DIST = "dist";
+    private static final String SHASUM = "shasum";
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String BEARER = "Bearer";
+    private static final String BASIC = "Basic";
+    private static final String URL_SLASH = "%2F";
+    private static final String AT = "@";
+    private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+    // bump when the cached fields change
+    private static final int CACHE_VERSION = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(NpmRegistryClient.class);
+    private static NpmRegistryClient instance;
+
+    /* --- Members --- */
+
+    private final int maxConcurrentRequests;
+    private final File cacheFile;
+    private final RestTemplate restTemplate;
+    private final Semaphore requestPermits;
+    // the requests in progress by name@version and access token, removed once they complete
+    private final Map<String, CompletableFuture<String>> lookups = new ConcurrentHashMap<>();
+    // the sha1s found by name@version, the least recently used are dropped first
+    private final Map<String, String> cachedSha1s;
+    private volatile boolean cacheChanged;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param maxConcurrentRequests maximal number of requests sent to the registries at a time
+     * @param cacheFile             file keeping the sha1s between runs, loaded if it exists, null to keep them in memory only
+     */
+    public NpmRegistryClient(int maxConcurrentRequests, File cacheFile) {
+        this.maxConcurrentRequests = maxConcurrentRequests > 0 ? maxConcurrentRequests : DEFAULT_MAX_CONCURRENT_REQUESTS;
+        this.cacheFile = cacheFile;
+        this.requestPermits = new Semaphore(this.maxConcurrentRequests);
+        // connections are kept alive and reused by the JDK between requests to the same registry
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        requestFactory.setReadTimeout(READ_TIMEOUT_MILLIS);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.cachedSha1s = load();
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the client shared by the process, a new one is created only when the settings change
+     */
+    public static synchronized NpmRegistryClient getInstance(int maxConcurrentRequests, File cacheFile) {
+        if (instance == null || instance.maxConcurrentRequests != (maxConcurrentRequests > 0 ? maxConcurrentRequests : DEFAULT_MAX_CONCURRENT_REQUESTS)
+                || !Objects.equals(instance.cacheFile, cacheFile)) {
+            instance = new NpmRegistryClient(maxConcurrentRequests, cacheFile);
+        }
+        return instance;
+    }
+
+    /**
+     * @param registryPackageUrl the registry URL of the package, see {@link BomFile#getRegistryPackageUrl()}
+     * @param scopedPackage      whether the URL is of a scoped package, whose document lists all its versions
+     * @param npmAccessToken     token for private scoped packages, may be empty
+     * @return the sha1 of the package, empty if the registry could not provide it
+     */
+    public String getSha1(String name, String version, String registryPackageUrl, boolean scopedPackage, String npmAccessToken) {
+        String key = name + AT + version;
+        String sha1 = cachedSha1s.get(key);
+        if (sha1 != null) {
+            Metrics.counter("npm_registry_cache_hits").increment();
+            return sha1;
+        }
+        // a lookup failing without a token must not answer the lookups having one
+        String lookupKey = StringUtils.isEmptyOrNull(npmAccessToken) ? key : key + AT + Integer.toHexString(npmAccessToken.hashCode());
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        CompletableFuture<String> existingLookup = lookups.putIfAbsent(lookupKey, lookup);
+        if (existingLookup != null) {
+            Metrics.counter("npm_registry_cache_hits").increment();
+            return existingLookup.join();
+        }
+        sha1 = Constants.EMPTY_STRING;
+        try {
+            // found by a lookup that completed since the cache was checked
+            String foundSha1 = cachedSha1s.get(key);
+            if (foundSha1 != null) {
+                sha1 = foundSha1;
+                return sha1;
+            }
+            sha1 = requestSha1(registryPackageUrl, scopedPackage, version, npmAccessToken);
+            if (!sha1.isEmpty()) {
+                cachedSha1s.put(key, sha1);
+                if (cacheFile != null) {
+                    cacheChanged = true;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to get the sha1 of {} from {}: {}", key, registryPackageUrl, e.getMessage());
+        } finally {
+            // the lookups of the same package waiting for this one get the same result, later ones look it up again
+            lookup.complete(sha1);
+            lookups.remove(lookupKey, lookup);
+        }
+        return sha1;
+    }
+
+    /**
+     * Write the sha1s to the cache file if new ones were found.
+     * The file is replaced atomically so an interrupted run never leaves a partial cache behind.
+     */
+    public synchronized void save() {
+        if (cacheFile == null || !cacheChanged) {
+            return;
+        }
+        cacheChanged = false;
+        CacheContent content = new CacheContent();
+        content.version = CACHE_VERSION;
+        synchronized (cachedSha1s) {
+            content.sha1s = new HashMap<>(cachedSha1s);
+        }
+        File tempFile = null;
+        try {
+            File parent = cacheFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", parent);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+                new Gson().toJson(content, writer);
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.debug("Saved {} entries to npm registry cache {}", content.sha1s.size(), cacheFile.getPath());
+        } catch (IOException e) {
+            logger.warn("Failed to save npm registry cache {}: {}", cacheFile.getPath(), e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private String requestSha1(String registryPackageUrl, boolean scopedPackage, String version, String npmAccessToken) {
+        URI uriScopeDep = null;
+        if (scopedPackage) {
+            try {
+                uriScopeDep = new URI(registryPackageUrl.replace(BomFile.DUMMY_PARAMETER_SCOPE_PACKAGE, URL_SLASH));
+            } catch (Exception e) {
+                logger.warn("Failed creating uri of {}", registryPackageUrl);
+                return Constants.EMPTY_STRING;
+            }
+        }
+
+        String responseFromRegistry;
+        try {
+            requestPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Constants.EMPTY_STRING;
+        }
+        try {
+            Metrics.counter("npm_registry_requests").increment();
+            if (scopedPackage) {
+                HttpHeaders httpHeaders = new HttpHeaders();
+                if (StringUtils.isEmptyOrNull(npmAccessToken)) {
+                    logger.debug("npm.accessToken is not defined");
+                } else {
+                    logger.debug("npm.accessToken is defined");
+                    String userCredentials = BEARER + Constants.COLON + npmAccessToken;
+                    String basicAuth = BASIC + Constants.WHITESPACE + new String(Base64.getEncoder().encode(userCredentials.getBytes()));
+                    httpHeaders.set(AUTHORIZATION, basicAuth);
+                }
+
+                HttpEntity entity = new HttpEntity(httpHeaders);
+                responseFromRegistry = restTemplate.exchange(uriScopeDep, HttpMethod.GET, entity, String.class).getBody();
+            } else {
+                responseFromRegistry = restTemplate.getForObject(registryPackageUrl, String.class);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not reach the registry using the URL: {}. Got an error: {}", registryPackageUrl, e.getMessage());
+            return Constants.EMPTY_STRING;
+        } finally {
+            requestPermits.release();
+        }
+        try {
+            JSONObject jsonRegistry = new JSONObject(responseFromRegistry);
+            if (scopedPackage) {
+                return jsonRegistry.getJSONObject(VERSIONS).getJSONObject(version).getJSONObject(DIST).getString(SHASUM);
+            } else {
+                return jsonRegistry.getJSONObject(DIST).getString(SHASUM);
+            }
+        } catch (JSONException e) {
+            logger.warn("Could not find the sha1 in the response of {}: {}", registryPackageUrl, e.getMessage());
+            return Constants.EMPTY_STRING;
+        }
+    }
+
+    private Map<String, String> load() {
+        Map<String, String> sha1s = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_CACHED_SHA1S;
+            }
+        });
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return sha1s;
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+            CacheContent content = new Gson().fromJson(reader, CacheContent.class);
+            if (content == null || content.version != CACHE_VERSION || content.sha1s == null) {
+                logger.info("npm registry cache {} has a different version, ignoring it", cacheFile.getPath());
+                return sha1s;
+            }
+            content.sha1s.forEach((key, sha1) -> {
+                if (key != null && !StringUtils.isEmptyOrNull(sha1)) {
+                    sha1s.put(key, sha1);
+                }
+            });
+            logger.debug("Loaded {} entries from npm registry cache {}", sha1s.size(), cacheFile.getPath());
+        } catch (Exception e) {
+            logger.warn("Failed to read npm registry cache {}, ignoring it: {}", cacheFile.getPath(), e.getMessage());
+            sha1s.clear();
+        }
+        return sha1s;
+    }
+
+    /* --- Nested classes --- */
+
+    private static class CacheContent {
+
+        private int version;
+        private Map<String, String> sha1s;
+    }
+}
@@ -76,99 +76,131 @@ public class YarnDependencyCollector extends NpmLsJsonDependencyCollector {
         return false;
     }
 
-    private List<DependencyInfo> parseYarnLock(File yarnLock){
-        List<DependencyInfo> dependencyInfos = new ArrayList<>();
-        HashMap<String, DependencyInfo> parentsMap = new HashMap<>();
-        HashMap<String, DependencyInfo> childrenMap = new HashMap<>();
-        FileReader fileReader = null;
-        try {
-            fileReader = new FileReader(yarnLock.getPath());
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
+    /**
+     * Parses the yarn.lock file in a single pass and builds the dependencies tree on an index of its specifiers.
+     * Like in the output of 'npm ls', each package is listed once, here under the shallowest package requiring it in a
+     * breadth first walk from the direct dependencies, so the tree is kept as flat as the lock file allows, the time is
+     * linear in the size of the file and cycles are never followed.
+     */
+    protected List<DependencyInfo> parseYarnLock(File yarnLock){
+        // the packages by each of their specifiers, e.g. 'debug@^2.6.9', in the order of the file
+        Map<String, YarnPackage> packages = new LinkedHashMap<>();
+        // all the specifiers required by any package
+        Set<String> requiredSpecifiers = new HashSet<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(yarnLock))) {
             String currLine;
             boolean insideDependencies = false;
-            DependencyInfo dependencyInfo = null;
+            YarnPackage yarnPackage = null;
             while ((currLine = bufferedReader.readLine()) != null){
-                if (currLine.isEmpty() || currLine.startsWith(Constants.POUND) || currLine.trim().isEmpty()){
+                String trimmedLine = currLine.trim();
+                if (trimmedLine.isEmpty() || currLine.startsWith(Constants.POUND)){
                     insideDependencies = false;
                     continue;
                 }
-                logger.debug(currLine);
                 if (currLine.startsWith(Constants.WHITESPACE)) {
-                   if (currLine.trim().startsWith(Constants.VERSION)){
-                       String version = currLine.substring(currLine.indexOf(Constants.QUOTATION_MARK) + 1, currLine.lastIndexOf(Constants.QUOTATION_MARK));
-                       dependencyInfo.setVersion(version);
-                       dependencyInfo.setArtifactId(dependencyInfo.getGroupId() + Constants.DASH + version + TGZ);
-                   } else if (currLine.trim().startsWith(RESOLVED)){
-                       String sha1 = currLine.substring(currLine.indexOf(Constants.POUND) + 1, currLine.lastIndexOf(Constants.QUOTATION_MARK));
-                       dependencyInfo.setSha1(sha1);
-                   } else if (currLine.trim().startsWith(Constants.DEPENDENCIES) || currLine.trim().startsWith(OPTIONAL_DEPENDENCIES)) {
-                       insideDependencies = true;
-                   } else if (insideDependencies){
-                       String name = currLine.trim().replaceFirst(Constants.WHITESPACE, AT);
-                       name = name.replaceAll(Constants.QUOTATION_MARK, Constants.EMPTY_STRING);
-                       childrenMap.put(name, dependencyInfo);
-                   }
+                    if (yarnPackage == null) {
+                        continue;
+                    }
+                    if (trimmedLine.startsWith(Constants.VERSION)){
+                        String version = currLine.substring(currLine.indexOf(Constants.QUOTATION_MARK) + 1, currLine.lastIndexOf(Constants.QUOTATION_MARK));
+                        yarnPackage.dependency.setVersion(version);
+                        yarnPackage.dependency.setArtifactId(yarnPackage.dependency.getGroupId() + Constants.DASH + version + TGZ);
+                    } else if (trimmedLine.startsWith(RESOLVED)){
+                        int poundIndex = currLine.indexOf(Constants.POUND);
+                        if (poundIndex >= 0) {
+                            yarnPackage.dependency.setSha1(currLine.substring(poundIndex + 1, currLine.lastIndexOf(Constants.QUOTATION_MARK)));
+                        }
+                    } else if (trimmedLine.startsWith(Constants.DEPENDENCIES) || trimmedLine.startsWith(OPTIONAL_DEPENDENCIES)) {
+                        insideDependencies = true;
+                    } else if (insideDependencies){
+                        // e.g. debug "^2.6.9" is required as debug@^2.6.9
+                        int spaceIndex = trimmedLine.indexOf(Constants.WHITESPACE);
+                        String name = removeQuotes(spaceIndex < 0 ? trimmedLine : trimmedLine.substring(0, spaceIndex) + AT + trimmedLine.substring(spaceIndex + 1));
+                        yarnPackage.requiredSpecifiers.add(name);
+                        requiredSpecifiers.add(name);
+                    }
                 } else {
-                    String[] split = currLine.split(Constants.COMMA + Constants.WHITESPACE);
-                    for (int i = 0; i < split.length; i++){
-                        String name = split[i].substring(0, split[i].length() - (split[i].endsWith(Constants.COLON) ? 1 : 0));
-                        name = name.replaceAll(Constants.QUOTATION_MARK,Constants.EMPTY_STRING);
-                        String groupId = name.split(AT)[name.startsWith(AT) ? 1 : 0];
-                        if (i==0) {
-                            dependencyInfo = new DependencyInfo();
+                    insideDependencies = false;
+                    yarnPackage = null;
+                    // e.g. "debug@^2.6.8", debug@^2.6.9:
+                    int start = 0;
+                    while (start < currLine.length()) {
+                        int end = currLine.indexOf(Constants.COMMA + Constants.WHITESPACE, start);
+                        String specifier = currLine.substring(start, end < 0 ? currLine.length() : end);
+                        start = end < 0 ? currLine.length() : end + 2;
+                        String name = removeQuotes(specifier.endsWith(Constants.COLON) ? specifier.substring(0, specifier.length() - 1) : specifier);
+                        String[] nameParts = name.split(AT);
+                        String groupId = nameParts[name.startsWith(AT) ? 1 : 0];
+                        if (yarnPackage == null) {
+                            DependencyInfo dependencyInfo = new DependencyInfo();
                             dependencyInfo.setGroupId(groupId);
                             dependencyInfo.setDependencyType(DependencyType.NPM);
                             String pathToPackageJson = yarnLock.getParent() + fileSeparator + NODE_MODULES + fileSeparator + groupId + fileSeparator + PACKAGE_JSON;
                             dependencyInfo.setSystemPath(pathToPackageJson);
                             dependencyInfo.setFilename(pathToPackageJson);
+                            yarnPackage = new YarnPackage(dependencyInfo);
                         }
-                        // adding the dependency to the parents map, if:  it's not there already and either dev-dependencies should be included or
+                        // indexing the specifier if it's not there already and either dev-dependencies should be included or
                         // they shouldn't but this is not a dev-dependency
-                        if (parentsMap.get(name) == null &&
-                            ((includeDevDependencies ||
-                             (!includeDevDependencies &&
-                              (devDependencies.get(groupId) == null || devDependencies.get(groupId).equals(name.split(AT)[1]) == false))))){
-                            parentsMap.put(name, dependencyInfo);
+                        if (!packages.containsKey(name) &&
+                            (includeDevDependencies || devDependencies.get(groupId) == null || !devDependencies.get(groupId).equals(nameParts[1]))){
+                            packages.put(name, yarnPackage);
                         }
                     }
                 }
             }
-            for (String child : childrenMap.keySet()){
-                if (parentsMap.get(child) != null && !isDescendant(parentsMap.get(child),childrenMap.get(child))) {
-                    childrenMap.get(child).getChildren().add(parentsMap.get(child));
-                }
-            }
-            for (String parent : parentsMap.keySet()){
-                if (childrenMap.get(parent) == null){
-                    dependencyInfos.add(parentsMap.get(parent));
-                }
-            }
         } catch (Exception e){
             logger.error(e.getMessage());
             logger.debug("{}", e.getStackTrace());
-        } finally {
-            if (fileReader != null){
-                try {
-                    fileReader.close();
-                } catch (IOException e) {
-                    logger.error("can't close {}: {}", yarnLock.getPath(), e.getMessage());
-                }
+            return new ArrayList<>();
+        }
+
+        // the packages none of whose specifiers is required by another package are the direct dependencies
+        Set<YarnPackage> requiredPackages = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String specifier : requiredSpecifiers) {
+            YarnPackage requiredPackage = packages.get(specifier);
+            if (requiredPackage != null) {
+                requiredPackages.add(requiredPackage);
             }
         }
+        List<YarnPackage> roots = new ArrayList<>();
+        List<DependencyInfo> dependencyInfos = new ArrayList<>();
+        for (YarnPackage yarnPackage : packages.values()) {
+            // a package with several specifiers is listed once
+            if (requiredPackages.add(yarnPackage)) {
+                roots.add(yarnPackage);
+                dependencyInfos.add(yarnPackage.dependency);
+            }
+        }
+        linkChildren(roots, packages);
         return dependencyInfos;
     }
 
-    // preventing circular dependencies by making sure the dependency is not a descendant of its own
-    private boolean isDescendant(DependencyInfo ancestor, DependencyInfo descendant){
-        for (DependencyInfo child : ancestor.getChildren()){
-            if (child.equals(descendant)){
-                return true;
+    /* --- Private methods --- */
+
+    // breadth first walk, a package is added as a child only when it is first reached, like a 'deduped' package in 'npm ls'
+    private void linkChildren(List<YarnPackage> roots, Map<String, YarnPackage> packages) {
+        Set<YarnPackage> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<YarnPackage> queue = new ArrayDeque<>();
+        for (YarnPackage root : roots) {
+            if (visited.add(root)) {
+                queue.add(root);
             }
-            if (isDescendant(child, descendant)){
-                return true;
+        }
+        while (!queue.isEmpty()) {
+            YarnPackage parent = queue.poll();
+            for (String requiredSpecifier : parent.requiredSpecifiers) {
+                YarnPackage child = packages.get(requiredSpecifier);
+                if (child != null && visited.add(child)) {
+                    parent.dependency.getChildren().add(child.dependency);
+                    queue.add(child);
+                }
             }
         }
-        return false;
+    }
+
+    private String removeQuotes(String value) {
+        return value.indexOf(Constants.QUOTATION_MARK) < 0 ? value : value.replace(Constants.QUOTATION_MARK, Constants.EMPTY_STRING);
     }
 
     private Map<String, Object> findDevDependencies(String folder){
@@ -192,4 +224,16 @@ public class YarnDependencyCollector extends NpmLsJsonDependencyCollector {
         }
         return devDependenciesMap;
     }
+
+    /* --- Nested classes --- */
+
+    private static class YarnPackage {
+
+        private final DependencyInfo dependency;
+        private final List<String> requiredSpecifiers = new ArrayList<>();
+
+        private YarnPackage(DependencyInfo dependency) {
+            this.dependency = dependency;
+        }
+    }
 }
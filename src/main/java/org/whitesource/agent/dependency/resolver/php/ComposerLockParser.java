@@ -0,0 +1,137 @@
+package org.whitesource.agent.dependency.resolver.php;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.whitesource.agent.dependency.resolver.php.phpModel.PackageSource;
+import org.whitesource.agent.dependency.resolver.php.phpModel.PhpPackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/**
+ * Reads the packages of a composer.lock file as a stream.
+ * Only the name, version, source reference and require map of each package are kept, the rest of the file
+ * (dist, autoload, descriptions, etc.) is skipped without being loaded to memory.
+ */
+public class ComposerLockParser {
+
+    /* --- Static members --- */
+
+    private static final String PACKAGES = "packages";
+    private static final String PACKAGES_DEV = "packages-dev";
+    private static final String NAME = "name";
+    private static final String VERSION = "version";
+    private static final String SOURCE = "source";
+    private static final String REFERENCE = "reference";
+    private static final String REQUIRE = "require";
+
+    /* --- Members --- */
+
+    private final boolean includeDevDependencies;
+
+    /* --- Constructors --- */
+
+    public ComposerLockParser(boolean includeDevDependencies) {
+        this.includeDevDependencies = includeDevDependencies;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the packages of the file, followed by its dev packages if they are included
+     */
+    public Collection<PhpPackage> parse(File composerLock) throws IOException {
+        Collection<PhpPackage> packages = new LinkedList<>();
+        Collection<PhpPackage> devPackages = new LinkedList<>();
+        try (JsonReader jsonReader = new JsonReader(new BufferedReader(new InputStreamReader(new FileInputStream(composerLock), StandardCharsets.UTF_8)))) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if (PACKAGES.equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    readPackages(jsonReader, packages);
+                } else if (PACKAGES_DEV.equals(name) && includeDevDependencies && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    readPackages(jsonReader, devPackages);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected content in " + composerLock.getPath() + ": " + e.getMessage(), e);
+        }
+        packages.addAll(devPackages);
+        return packages;
+    }
+
+    /* --- Private methods --- */
+
+    private void readPackages(JsonReader jsonReader, Collection<PhpPackage> packages) throws IOException {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            if (jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                packages.add(readPackage(jsonReader));
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endArray();
+    }
+
+    private PhpPackage readPackage(JsonReader jsonReader) throws IOException {
+        PhpPackage phpPackage = new PhpPackage();
+        phpPackage.setPackageSource(new PackageSource());
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String field = jsonReader.nextName();
+            if (NAME.equals(field)) {
+                phpPackage.setName(nextString(jsonReader));
+            } else if (VERSION.equals(field)) {
+                phpPackage.setVersion(nextString(jsonReader));
+            } else if (SOURCE.equals(field) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                phpPackage.getPackageSource().setReference(readReference(jsonReader));
+            } else if (REQUIRE.equals(field) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                phpPackage.setPackageRequire(readRequire(jsonReader));
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return phpPackage;
+    }
+
+    private String readReference(JsonReader jsonReader) throws IOException {
+        String reference = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (REFERENCE.equals(jsonReader.nextName())) {
+                reference = nextString(jsonReader);
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return reference;
+    }
+
+    private LinkedHashMap<String, String> readRequire(JsonReader jsonReader) throws IOException {
+        LinkedHashMap<String, String> require = new LinkedHashMap<>();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            require.put(name, nextString(jsonReader));
+        }
+        jsonReader.endObject();
+        return require;
+    }
+
+    private String nextString(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.STRING || jsonReader.peek() == JsonToken.NUMBER) {
+            return jsonReader.nextString();
+        }
+        jsonReader.skipValue();
+        return null;
+    }
+}
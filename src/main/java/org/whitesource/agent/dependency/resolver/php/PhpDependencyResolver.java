@@ -1,7 +1,5 @@
 package org.whitesource.agent.dependency.resolver.php;
 
-import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONObject;
@@ -13,7 +11,6 @@ import org.whitesource.agent.api.model.DependencyType;
 import org.whitesource.agent.dependency.resolver.AbstractDependencyResolver;
 import org.whitesource.agent.dependency.resolver.DependencyCollector;
 import org.whitesource.agent.dependency.resolver.ResolutionResult;
-import org.whitesource.agent.dependency.resolver.php.phpModel.PhpModel;
 import org.whitesource.agent.dependency.resolver.php.phpModel.PhpPackage;
 import org.whitesource.agent.utils.CommandLineProcess;
 
@@ -105,12 +102,7 @@ public class PhpDependencyResolver extends AbstractDependencyResolver {
 
         if (!directDependencies.isEmpty()) {
             try {
-                JsonReader jsonReader = new JsonReader(new FileReader(topLevelFolder + FORWARD_SLASH + COMPOSER_LOCK));
-                PhpModel phpModel = new Gson().fromJson(jsonReader, PhpModel.class);
-                Collection<PhpPackage> phpPackages = phpModel.getPhpPackages();
-                if (includeDevDependencies) {
-                    phpPackages.addAll(phpModel.getPhpPackagesDev());
-                }
+                Collection<PhpPackage> phpPackages = new ComposerLockParser(includeDevDependencies).parse(composerLock);
                 if (!phpPackages.isEmpty()) {
                     dependencyInfos = createDependencyInfos(phpPackages, dependencyInfos, directDependencies);
                 } else {
@@ -156,25 +148,29 @@ public class PhpDependencyResolver extends AbstractDependencyResolver {
     /* --- Private methods --- */
 
     // create dependencyInfo objects from each direct dependency
-    private Collection<DependencyInfo> createDependencyInfos(Collection<PhpPackage> phpPackages, Collection<DependencyInfo> dependencyInfos, Collection<String> directDependencies) {
-        HashMap<DependencyInfo, Collection<String>> parentToChildMap = new HashMap<>();
+    Collection<DependencyInfo> createDependencyInfos(Collection<PhpPackage> phpPackages, Collection<DependencyInfo> dependencyInfos, Collection<String> directDependencies) {
+        HashMap<String, Collection<String>> parentToChildMap = new HashMap<>();
         HashMap<String, DependencyInfo> packageDependencyMap = new HashMap<>();
         // collect packages data and create its dependencyInfo
         for (PhpPackage phpPackage : phpPackages) {
             DependencyInfo dependencyInfo = createDependencyInfo(phpPackage);
             if (dependencyInfo != null) {
-                parentToChildMap.put(dependencyInfo, phpPackage.getPackageRequire().keySet());
+                parentToChildMap.put(phpPackage.getName(), phpPackage.getPackageRequire().keySet());
                 packageDependencyMap.put(phpPackage.getName(), dependencyInfo);
             } else {
                 logger.debug("Didn't succeed to create dependencyInfo for {}", phpPackage.getName());
             }
         }
         if (!packageDependencyMap.isEmpty()) {
+            // true for the packages of the current path, false for those whose children are already collected
+            HashMap<String, Boolean> onPath = new HashMap<>();
             for (String directDependency : directDependencies) {
                 // create hierarchy tree
                 DependencyInfo dependencyInfo = packageDependencyMap.get(directDependency);
                 if (dependencyInfo != null) {
-                    collectChildren(dependencyInfo, packageDependencyMap, parentToChildMap);
+                    if (!onPath.containsKey(directDependency)) {
+                        collectChildren(directDependency, packageDependencyMap, parentToChildMap, onPath);
+                    }
                     dependencyInfos.add(dependencyInfo);
                 } else {
                     logger.debug("Didn't found {} in map {}", directDependency, packageDependencyMap.getClass().getName());
@@ -191,7 +187,7 @@ public class PhpDependencyResolver extends AbstractDependencyResolver {
         String groupId = getGroupIdFromName(phpPackage);
         String artifactId = phpPackage.getName();
         String version = phpPackage.getVersion();
-        String commit = phpPackage.getPackageSource().getReference();
+        String commit = phpPackage.getPackageSource() == null ? null : phpPackage.getPackageSource().getReference();
         if (StringUtils.isNotBlank(version) || StringUtils.isNotBlank(commit)) {
             DependencyInfo dependencyInfo = new DependencyInfo(groupId, artifactId, version);
             dependencyInfo.setCommit(commit);
@@ -203,20 +199,27 @@ public class PhpDependencyResolver extends AbstractDependencyResolver {
         }
     }
 
-    // collect children's recursively for each dependencyInfo object
-    private void collectChildren(DependencyInfo dependencyInfo, HashMap<String, DependencyInfo> packageDependencyMap,
-                                 HashMap<DependencyInfo, Collection<String>> requireDependenciesMap) {
-        Collection<String> requires = requireDependenciesMap.get(dependencyInfo);
-        // check if dependencyInfo object already have children's
-        if (dependencyInfo.getChildren().isEmpty()) {
-            for (String require : requires) {
-                DependencyInfo dependencyChild = packageDependencyMap.get(require);
-                if (dependencyChild != null) {
-                    dependencyInfo.getChildren().add(dependencyChild);
-                    collectChildren(dependencyChild, packageDependencyMap, requireDependenciesMap);
-                }
+    // collect children's recursively, once for each package - packages required by several others share their dependencyInfo
+    private void collectChildren(String packageName, HashMap<String, DependencyInfo> packageDependencyMap,
+                                 HashMap<String, Collection<String>> requireDependenciesMap, HashMap<String, Boolean> onPath) {
+        onPath.put(packageName, true);
+        DependencyInfo dependencyInfo = packageDependencyMap.get(packageName);
+        for (String require : requireDependenciesMap.get(packageName)) {
+            DependencyInfo dependencyChild = packageDependencyMap.get(require);
+            if (dependencyChild == null) {
+                continue;
+            }
+            Boolean childOnPath = onPath.get(require);
+            if (Boolean.TRUE.equals(childOnPath)) {
+                logger.debug("Dependency Cycle: Remove {} from Parent {}", require, packageName);
+                continue;
+            }
+            if (childOnPath == null) {
+                collectChildren(require, packageDependencyMap, requireDependenciesMap, onPath);
             }
+            dependencyInfo.getChildren().add(dependencyChild);
         }
+        onPath.put(packageName, false);
     }
 
     // get the groupId from the name of package
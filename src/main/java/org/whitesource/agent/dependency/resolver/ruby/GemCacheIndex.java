@@ -0,0 +1,107 @@
+package org.whitesource.agent.dependency.resolver.ruby;
+
+import org.whitesource.agent.Constants;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Index of the gems cache folder (name -> version -> gem file).
+ * The folder is listed once per resolution instead of once per gem, and again only after gems were installed into it.
+ */
+public class GemCacheIndex {
+
+    /* --- Static members --- */
+
+    private static final String GEM_EXTENSION = Constants.DOT + RubyDependencyResolver.GEM;
+
+    /* --- Members --- */
+
+    private final File gemsFolder;
+    // versions are ordered numerically (1.10.0 after 1.9.0), platform builds (0.21.0-x64-mingw32) right after their version
+    private final Map<String, TreeMap<String, File>> gems = new HashMap<>();
+
+    /* --- Constructors --- */
+
+    public GemCacheIndex(File gemsFolder) {
+        this.gemsFolder = gemsFolder;
+        refresh();
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * List the gems folder again, to find the gems installed since the index was built.
+     */
+    public void refresh() {
+        gems.clear();
+        File[] files = gemsFolder.listFiles((dir, name) -> name.endsWith(GEM_EXTENSION));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String baseName = file.getName().substring(0, file.getName().length() - GEM_EXTENSION.length());
+            int versionIndex = getVersionIndex(baseName);
+            if (versionIndex > 0) {
+                String name = baseName.substring(0, versionIndex - 1);
+                gems.computeIfAbsent(name, k -> new TreeMap<>(GemCacheIndex::compareVersions)).put(baseName.substring(versionIndex), file);
+            }
+        }
+    }
+
+    /**
+     * @return the gem file of the version, or of a platform specific build of it (e.g. 0.21.0-x64-mingw32), null if not cached
+     */
+    public File find(String name, String version) {
+        TreeMap<String, File> versions = gems.get(name);
+        if (versions == null) {
+            return null;
+        }
+        File file = versions.get(version);
+        if (file == null) {
+            Map.Entry<String, File> platformBuild = versions.ceilingEntry(version + Constants.DASH);
+            if (platformBuild != null && platformBuild.getKey().startsWith(version + Constants.DASH)) {
+                file = platformBuild.getValue();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return the highest cached version of the gem, null if it is not cached
+     */
+    public String findMaxVersion(String name) {
+        TreeMap<String, File> versions = gems.get(name);
+        return versions == null ? null : versions.lastKey();
+    }
+
+    /* --- Private methods --- */
+
+    private static int compareVersions(String version1, String version2) {
+        int result;
+        try {
+            result = RubyDependencyResolver.versionCompare(getReleaseVersion(version1), getReleaseVersion(version2));
+        } catch (NumberFormatException e) {
+            // prerelease versions such as 2.0.0.beta1 aren't numeric
+            result = 0;
+        }
+        // equal versions are ordered by name, so that platform builds of a version are distinct keys following it
+        return result != 0 ? result : version1.compareTo(version2);
+    }
+
+    // the version without the platform of the build (0.21.0-x64-mingw32 -> 0.21.0)
+    private static String getReleaseVersion(String version) {
+        int platformIndex = version.indexOf(Constants.DASH);
+        return platformIndex == -1 ? version : version.substring(0, platformIndex);
+    }
+
+    // gem names may contain dashes, the version starts after the first dash followed by a digit
+    private int getVersionIndex(String baseName) {
+        for (int i = 1; i < baseName.length() - 1; i++) {
+            if (baseName.charAt(i) == Constants.DASH.charAt(0) && Character.isDigit(baseName.charAt(i + 1))) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
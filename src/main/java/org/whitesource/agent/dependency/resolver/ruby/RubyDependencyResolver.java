@@ -12,12 +12,8 @@ import org.whitesource.agent.hash.ChecksumUtils;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
-import static org.whitesource.agent.dependency.resolver.ruby.RubyDependencyResolver.GEM;
 
 public class RubyDependencyResolver extends AbstractDependencyResolver {
 
@@ -30,9 +26,9 @@ public class RubyDependencyResolver extends AbstractDependencyResolver {
     protected static final String REGEX         = "\\S";
     protected static final String SPECS         = "specs:";
     protected static final String CACHE         = "cache";
-    protected static final String V             = "-v";
     protected static final String ERROR         = "ERROR";
     protected static final String MINGW         = "mingw";
+    protected static final String V             = "-v";
 
     private static final List<String> RUBY_SCRIPT_EXTENSION = Arrays.asList(".rb");
     private final Logger logger = LoggerFactory.getLogger(RubyDependencyResolver.class);
@@ -142,6 +138,32 @@ public class RubyDependencyResolver extends AbstractDependencyResolver {
     }
 
     private void parseGemFileLock(File gemLockFile, List<DependencyInfo> dependencyInfos){
+        String pathToGems = null;
+        try {
+            pathToGems = findPathToGems();
+            if (pathToGems == null){
+                logger.warn("Can't find path to gems' cache folder");
+                return;
+            }
+        } catch (FileNotFoundException e) {
+            logger.warn("Can't find path to gems' cache folder {}", e.getMessage());
+            return;
+        }
+        Map<String, GemSpec> specs = readGemFileLock(gemLockFile);
+        // the cache is listed once and the missing gems of known versions are installed by a single 'gem install' run
+        GemCacheIndex gemCache = new GemCacheIndex(new File(pathToGems));
+        if (installMissingGems) {
+            installGems(specs, gemCache);
+        }
+        dependencyInfos.addAll(buildDependencies(specs, gemLockFile, pathToGems, gemCache));
+    }
+
+    /**
+     * Read the gems of the Gemfile.lock, indexed by their name.
+     * Gems appearing only as requirements of other gems are included without being listed, with the first requirement
+     * found as their version.
+     */
+    Map<String, GemSpec> readGemFileLock(File gemLockFile) {
         /*
         * Gemfile.lock's (relevant) content structure:
          GEM
@@ -155,264 +177,145 @@ public class RubyDependencyResolver extends AbstractDependencyResolver {
                 multi_xml (0.5.5)
                 parallel (1.6.1)
         * */
-        String pathToGems = null;
-        try {
-            pathToGems = findPathToGems();
-            if (pathToGems == null){
-                logger.warn("Can't find path to gems' cache folder");
-                return;
-            }
-        } catch (FileNotFoundException e) {
-            logger.warn("Can't find path to gems' cache folder {}", e.getMessage());
-            return;
-        }
-        FileReader fileReader = null;
-        BufferedReader bufferedReader = null;
-        try {
-            fileReader = new FileReader(gemLockFile);
-            bufferedReader = new BufferedReader(fileReader);
+        Map<String, GemSpec> specs = new LinkedHashMap<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(gemLockFile))) {
             String currLine;
             boolean insideGem = false;
             boolean insideSpecs = false;
+            int specsIndex = -1;
+            GemSpec parent = null;
             Pattern pattern = Pattern.compile(REGEX);
-            Matcher matcher;
-            Integer previousIndex = 0;
-            boolean indented = false;
-            DependencyInfo dependencyInfo = null;
-            List<DependencyInfo> parentsList = new LinkedList<>();
-            List<DependencyInfo> childrenList = new LinkedList<>();
-            List<DependencyInfo> partialDependencies = new LinkedList<>();
-            DependencyInfo parentDependency = null;
-            whileLoop:
             while ((currLine = bufferedReader.readLine()) != null) {
-                if (insideGem && insideSpecs){
+                if (insideGem && insideSpecs) {
                     if (currLine.isEmpty()) {
                         break;
-                    } else {
-                        matcher = pattern.matcher(currLine);
-                        if (matcher.find()){
-                            int index = matcher.start();
-                            if ((index > previousIndex && previousIndex > 0) || (indented && index == previousIndex)){
-                                // inside indentation - a child dependency
-                                indented = true;
-                                previousIndex = index;
-                                int spaceIndex = currLine.indexOf(Constants.WHITESPACE, index);
-                                String name = currLine.substring(index, spaceIndex > -1 ? spaceIndex : currLine.length());
-                                // looking for the dependency in the parents' list
-                                dependencyInfo = parentsList.stream().filter(d -> d.getGroupId().equals(name)).findFirst().orElse(null);
-                                boolean inParentsList = dependencyInfo!=null;
-                                if (!inParentsList) {
-                                    dependencyInfo = childrenList.stream().filter(d -> d.getGroupId().equals(name)).findFirst().orElse(null);
-                                    if (dependencyInfo == null) {
-                                        dependencyInfo = new DependencyInfo();
-                                        dependencyInfo.setGroupId(name);
-                                        int indexOfOpenBracket = currLine.indexOf(Constants.OPEN_BRACKET);
-                                        int indexOfCloseBracket = currLine.indexOf(Constants.CLOSE_BRACKET);
-                                        if (indexOfOpenBracket != -1 && indexOfCloseBracket != -1) {
-                                            String version = currLine.substring(currLine.indexOf(Constants.OPEN_BRACKET) + 1, currLine.indexOf(Constants.CLOSE_BRACKET));
-                                            int indexSeparator = version.indexOf(Constants.COMMA);
-                                            if (indexSeparator != -1) {
-                                                version = version.substring(0, indexSeparator);
-                                            }
-                                            // take only the version number in case of version with tilde. For example: concurrent-ruby (~> 1.0)
-                                            if (version.charAt(0) == TILDE) {
-                                                dependencyInfo.setVersion(version.substring(3));
-                                            } else {
-                                                dependencyInfo.setVersion(version);
-                                            }
-                                        }
-                                    }
-                                }
-                                if(parentDependency != null) {
-                                    if (!partialDependencies.contains(dependencyInfo)) {
-                                        partialDependencies.add(dependencyInfo);
-                                    }
-                                    // adding this dependency as a child to its parent
-                                    parentDependency.getChildren().add(dependencyInfo); // using loop with `equal` and not `contains` since the contains would fail when the key of a hash map is modified after its creation (as in this case)
-                                    // if this dependency is already found in the children's list - continue
-                                    for (DependencyInfo d : childrenList){
-                                        if (d.equals(dependencyInfo)){
-                                            continue whileLoop;
-                                        }
-                                    }
-                                    childrenList.add(dependencyInfo);
-                                }
-                                else if(!inParentsList){
-                                    // Adding this dependency as a parent although its a child of other dependency.
-                                    // This case happens when failed to create parent of this dependency (for example in case parent gem isn't installed)
-                                    String version = dependencyInfo.getVersion();
-                                    try {
-                                        String sha1 = getRubyDependenciesSha1(name, version, pathToGems);
-                                        if (sha1 == null) {
-                                            logger.warn("Can't find gem file for {}-{}", name, version);
-                                            continue whileLoop;
-                                        }
-                                        dependencyInfo.setSha1(sha1);
-                                        setDependencyInfoProperties(dependencyInfo, name, version, gemLockFile, pathToGems);
-                                        parentsList.add(dependencyInfo);
-                                    } catch (IOException e) {
-                                        logger.warn("Can't find gem file for {}-{}", name, version);
-                                    }
-                                }
-                            } else {
-                                // inside a parent dependency
-                                String[] split = currLine.trim().split(Constants.WHITESPACE);
-                                String name = split[0];
-                                String version = split[1].substring(1, split[1].length()-1);
-                                try {
-                                    String sha1 = getRubyDependenciesSha1(name, version, pathToGems);
-                                    if (sha1 == null){
-                                        parentDependency = null;
-                                        logger.warn("Can't find gem file for {}-{}", name, version);
-                                        continue whileLoop;
-                                    }
-                                    // looking for this dependency in the children's list (in case its already a child of some other dependency)
-                                    dependencyInfo = childrenList.stream().filter(d -> d.getGroupId().equals(name)).findFirst().orElse(null);
-                                    if (dependencyInfo == null) {
-                                        dependencyInfo = new DependencyInfo(sha1);
-                                        dependencyInfo.setGroupId(name);
-                                    } else {
-                                        dependencyInfo.setSha1(sha1);
-                                    }
-                                    partialDependencies.remove(dependencyInfo);
-                                    setDependencyInfoProperties(dependencyInfo, name, version,gemLockFile, pathToGems);
-                                    parentsList.add(dependencyInfo);
-                                    parentDependency = dependencyInfo;
-                                } catch (IOException e){
-                                    logger.warn("Can't find gem file for {}-{}", name, version);
-                                } finally {
-                                    indented = false;
-                                    previousIndex = index;
-                                }
-                            }
-                        }
                     }
-                } else if (currLine.contains(GEM.toUpperCase())){
-                    insideGem = true;
-                } else if (insideGem && currLine.contains(SPECS)){
-                    insideSpecs = true;
-                }
-            }
-            // creating the dependencies list by using only the parent dependencies, i.e. - those that aren't found in the children's list
-            // using loop with `equal` and not `contains` since the contains would fail when the key of a hash map is modified after its creation (as in this case)
-            for (DependencyInfo parent : parentsList){
-                boolean foundChild = false;
-                for (DependencyInfo child : childrenList){
-                    if (parent.equals(child)) {
-                        foundChild = true;
-                        break;
+                    Matcher matcher = pattern.matcher(currLine);
+                    if (!matcher.find()) {
+                        continue;
                     }
-                }
-                if (!foundChild){
-                    dependencyInfos.add(parent);
-                }
-            }
-
-            // Remove dependency cycle, the case when dependency depend on itself.
-            removeDependencyCycle(dependencyInfos);
-
-            // partial dependencies are those who appear in the Gemfile.lock only as child dependencies, thus without valid version.
-            // in such case, remove that dependency from its parent
-            for (DependencyInfo partialDependency : partialDependencies){
-                try {
-                    String version = findGemVersion(partialDependency.getGroupId(), pathToGems);
-                    String versionToCompare = null;
-                    String partialDependencyVersion = partialDependency.getVersion();
-                    if (partialDependencyVersion != null) {
-                        char firstChar = partialDependencyVersion.charAt(0);
-                        if (firstChar == '>' || firstChar == Constants.EQUALS_CHAR) {
-                            versionToCompare = partialDependencyVersion.substring(partialDependencyVersion.indexOf(" ") + 1);
-                        }
+                    int index = matcher.start();
+                    if (specsIndex == -1) {
+                        specsIndex = index;
                     }
-                    if (version == null || (versionToCompare != null && versionCompare(versionToCompare, version) > 0)) {
-                        List<String> lines = installGem(partialDependency.getGroupId(), Constants.APOSTROPHE + partialDependency.getVersion() + Constants.APOSTROPHE);
-                        if (!lines.isEmpty()) {
-                            File file = findMaxVersionFile(partialDependency.getGroupId(), pathToGems);
-                            if (file != null) {
-                                String sha1 = ChecksumUtils.calculateSHA1(file);
-                                fillDependency(sha1, partialDependency, getVersionFromFileName(file.getName(), partialDependency.getGroupId()), gemLockFile, pathToGems, dependencyInfos);
-                            } else {
-                                logger.warn("Can't find version for {}", partialDependency.getGroupId());
-                                removeChildren(dependencyInfos, partialDependency);
-                            }
-                        } else {
-                            logger.warn("Can't find version for {}", partialDependency.getGroupId());
-                            removeChildren(dependencyInfos, partialDependency);
+                    String[] split = currLine.trim().split(Constants.WHITESPACE, 2);
+                    String name = split[0];
+                    String version = split.length > 1 ? split[1].substring(1, split[1].length() - 1) : null;
+                    if (index == specsIndex) {
+                        parent = specs.computeIfAbsent(name, GemSpec::new);
+                        parent.version = version;
+                        parent.listed = true;
+                    } else if (parent != null) {
+                        GemSpec child = specs.computeIfAbsent(name, GemSpec::new);
+                        if (!child.listed && child.version == null) {
+                            child.version = version;
                         }
-                    } else {
-                        String sha1 = getRubyDependenciesSha1(partialDependency.getGroupId(), version, pathToGems);
-                        fillDependency(sha1, partialDependency, version, gemLockFile, pathToGems, dependencyInfos);
+                        parent.requirements.add(name);
                     }
-                } catch (Exception e) {
-                    logger.warn("Could not remove partial dependency {} with invalid version {}",partialDependency.getGroupId(), e.getMessage());
-                    logger.debug("stacktrace {}", e.getStackTrace());
+                } else if (currLine.contains(GEM.toUpperCase())) {
+                    insideGem = true;
+                } else if (insideGem && currLine.contains(SPECS)) {
+                    insideSpecs = true;
                 }
             }
-        } catch (FileNotFoundException e){
-            logger.warn("Could not find Gemfile.lock {}", e.getMessage());
-            logger.debug("stacktrace {}", e.getStackTrace());
-        } catch (Exception e) {
+        } catch (IOException e) {
             logger.warn("Could not parse Gemfile.lock {}", e.getMessage());
             logger.debug("stacktrace {}", e.getStackTrace());
-        } finally {
-            try {
-                bufferedReader.close();
-                fileReader.close();
-            } catch (IOException e) {
-                logger.warn("Can't close Gemfile.lock {}", e.getMessage());
-                logger.debug("stacktrace {}", e.getStackTrace());
-            }
         }
+        return specs;
     }
 
-
     /**
-     * Removes dependencies tree cycles from dependencies trees.
-     * Dependency cycle is a dependency that one (or more) of its grand-children or grand-parents is itself.
-     * This method use Recursive DFS - https://www.geeksforgeeks.org/detect-cycle-in-a-graph/
-     * @param dependenciesInfo
+     * Create a dependency for each gem found in the cache, once, and link each one to the dependencies of the gems it
+     * requires. Gems required by several others share the same dependency, and a requirement closing a cycle is
+     * dropped. Gems that can't be found leave their requirements to the gems requiring them or to the top level.
+     *
+     * @return the top level dependencies, those not required by any other gem
      */
-    private void removeDependencyCycle(List<DependencyInfo> dependenciesInfo)
-    {
-        HashSet<DependencyInfo> recursiveDependecies = new HashSet<>();
-
-       Iterator<DependencyInfo> parentDependenciesIterator = dependenciesInfo.iterator();
-
-        while(parentDependenciesIterator.hasNext()){
-            recursiveDependecies.clear();
-            removeDependencyCycle(parentDependenciesIterator.next(), recursiveDependecies);
+    List<DependencyInfo> buildDependencies(Map<String, GemSpec> specs, File gemLockFile, String pathToGems, GemCacheIndex gemCache) {
+        Map<String, DependencyInfo> dependencies = new LinkedHashMap<>();
+        for (GemSpec spec : specs.values()) {
+            DependencyInfo dependencyInfo = createDependency(spec, gemLockFile, pathToGems, gemCache);
+            if (dependencyInfo != null) {
+                dependencies.put(spec.name, dependencyInfo);
+            }
+        }
+        Map<String, Boolean> onPath = new HashMap<>();
+        Set<String> children = new HashSet<>();
+        for (String name : dependencies.keySet()) {
+            if (!onPath.containsKey(name)) {
+                linkChildren(name, specs, dependencies, onPath, children);
+            }
         }
+        List<DependencyInfo> topLevelDependencies = new ArrayList<>();
+        dependencies.forEach((name, dependencyInfo) -> {
+            if (!children.contains(name)) {
+                topLevelDependencies.add(dependencyInfo);
+            }
+        });
+        return topLevelDependencies;
     }
 
-    private boolean removeDependencyCycle(DependencyInfo dependencyInfo, HashSet<DependencyInfo> recursiveDependecies)
-    {
-        if(recursiveDependecies.contains(dependencyInfo)){
-            logger.debug("Dependency Cycle: {} ", dependencyInfo.getArtifactId());
-            return true;
+    // depth first search, onPath holds true for the gems of the current path and false for those already linked
+    private void linkChildren(String name, Map<String, GemSpec> specs, Map<String, DependencyInfo> dependencies, Map<String, Boolean> onPath, Set<String> children) {
+        onPath.put(name, true);
+        DependencyInfo dependencyInfo = dependencies.get(name);
+        for (String childName : specs.get(name).requirements) {
+            DependencyInfo child = dependencies.get(childName);
+            if (child == null) {
+                continue;
+            }
+            Boolean childOnPath = onPath.get(childName);
+            if (Boolean.TRUE.equals(childOnPath)) {
+                logger.debug("Dependency Cycle: Remove {} from Parent {}", child.getArtifactId(), dependencyInfo.getArtifactId());
+                continue;
+            }
+            if (childOnPath == null) {
+                linkChildren(childName, specs, dependencies, onPath, children);
+            }
+            dependencyInfo.getChildren().add(child);
+            children.add(childName);
         }
+        onPath.put(name, false);
+    }
 
-        recursiveDependecies.add(dependencyInfo);
-
-        List<DependencyInfo> childrenToRemove = new ArrayList<>();
-        dependencyInfo.getChildren().forEach(d -> {
-            if(removeDependencyCycle(d, recursiveDependecies)){
-                logger.debug("Dependency Cycle: Remove {} from Parent {}", d.getArtifactId(), dependencyInfo.getArtifactId());
-                childrenToRemove.add(d);
+    private DependencyInfo createDependency(GemSpec spec, File gemLockFile, String pathToGems, GemCacheIndex gemCache) {
+        String version = spec.version;
+        if (!spec.listed) {
+            // gems appearing only as requirements - use the highest cached version, if it satisfies the requirement
+            version = gemCache.findMaxVersion(spec.name);
+            if (version == null || !isSatisfied(spec.version, version)) {
+                logger.warn("Can't find version for {}", spec.name);
+                return null;
             }
-        });
-
-        dependencyInfo.getChildren().removeAll(childrenToRemove);
-        recursiveDependecies.remove(dependencyInfo);
-        return false;
+        }
+        if (version == null) {
+            return null;
+        }
+        try {
+            String sha1 = getRubyDependenciesSha1(spec.name, version, gemCache);
+            if (sha1 == null) {
+                logger.warn("Can't find gem file for {}-{}", spec.name, version);
+                return null;
+            }
+            DependencyInfo dependencyInfo = new DependencyInfo(sha1);
+            dependencyInfo.setGroupId(spec.name);
+            setDependencyInfoProperties(dependencyInfo, spec.name, version, gemLockFile, pathToGems);
+            return dependencyInfo;
+        } catch (IOException e) {
+            logger.warn("Can't find gem file for {}-{}", spec.name, version);
+            return null;
+        }
     }
 
-    private void fillDependency(String sha1, DependencyInfo partialDependency, String version, File gemLockFile, String pathToGems, List<DependencyInfo> dependencyInfos) {
-        if (sha1 == null){
-            logger.warn("Can't find gem file for {}-{}", partialDependency.getGroupId(), version);
-            removeChildren(dependencyInfos, partialDependency);
-        } else {
-            partialDependency.setSha1(sha1);
-            setDependencyInfoProperties(partialDependency, partialDependency.getGroupId(), version, gemLockFile, pathToGems);
+    private boolean isSatisfied(String requirement, String version) {
+        String minimalVersion = getMinimalVersion(requirement);
+        try {
+            return minimalVersion == null || versionCompare(minimalVersion, version) <= 0;
+        } catch (NumberFormatException e) {
+            // pre-release versions such as 1.0.beta can't be compared, keep the cached one
+            logger.debug("Can't compare versions {} and {}", minimalVersion, version);
+            return true;
         }
     }
 
@@ -440,18 +343,6 @@ public class RubyDependencyResolver extends AbstractDependencyResolver {
         return Integer.signum(vals1.length - vals2.length);
     }
 
-    private void removeChildren(Collection<DependencyInfo> dependencyInfos, DependencyInfo child){
-        Iterator<DependencyInfo> iterator = dependencyInfos.iterator();
-        while (iterator.hasNext()) {
-            DependencyInfo dependencyInfo = iterator.next();
-            if (dependencyInfo.getChildren().size() > 0) {
-                removeChildren(dependencyInfo.getChildren(), child);
-            } else if (dependencyInfo.equals(child)) {
-                iterator.remove();
-            }
-        }
-    }
-
     private void setDependencyInfoProperties(DependencyInfo dependencyInfo, String name, String version, File gemLockFile, String pathToGems){
         dependencyInfo.setArtifactId(name + Constants.DASH + version + Constants.DOT + GEM);
         dependencyInfo.setVersion(version);
@@ -474,101 +365,99 @@ public class RubyDependencyResolver extends AbstractDependencyResolver {
         return path;
     }
 
-    private String getRubyDependenciesSha1(String name, String version, String pathToGems) throws IOException {
-        String sha1 = null;
-        File file = new File(pathToGems + fileSeparator + name + Constants.DASH + version + Constants.DOT + GEM);
-        if (file.isFile()){
-            sha1 = ChecksumUtils.calculateSHA1(file);
-        } else {
-            file = installMissingGem(name,version, file);
-            if (file != null) {
-                sha1 = ChecksumUtils.calculateSHA1(file);
-            }
-        }
-        return sha1;
+    private String getRubyDependenciesSha1(String name, String version, GemCacheIndex gemCache) throws IOException {
+        File file = gemCache.find(name, version);
+        return file == null ? null : ChecksumUtils.calculateSHA1(file);
     }
 
-    private File installMissingGem(String name, String version, File file){
-        if (installMissingGems) {
-            logger.info("installing gem file for {}-{}", name, version);
-            if (version.toLowerCase().contains(MINGW)) {
-                version = version.substring(0, version.indexOf(Constants.DASH));
-            }
-            List<String> lines = installGem(name, version);
-            if (file.isFile()) {
-                return file;
-            }
-            if (!lines.isEmpty()) {
-                List<String> errors = lines.stream().filter(line -> line.startsWith(ERROR)).collect(Collectors.toList());
-                if (errors.size() > 0) {
-                    return null;
-                }
-                /* there are some cases where a gem is installed successfully, but with a slightly different name, e.g.
-                    'pg -v 0.21.0' becomes 'pg-0.21.0-x64-mingw32'
-                   for those cases, this piece of code extracts the updated version and return the downloaded file
-                 */
-                try {
-                    String installed = lines.stream().filter(line -> line.startsWith("Successfully installed") && line.contains(name)).findFirst().orElse(Constants.EMPTY_STRING);
-                    String gem = installed.split(Constants.WHITESPACE)[2];
-                    File newFile = new File(file.getParent() + fileSeparator + gem + Constants.DOT + GEM);
-                    if (newFile.isFile()) {
-                        return newFile;
+    /**
+     * Install the gems of the Gemfile.lock that aren't in the cache: the listed gems whose version isn't cached are installed
+     * together, the gems appearing only as requirements without a cached version satisfying them are installed one by one,
+     * as 'gem install' takes a single requirement, so that the latest version satisfying it is installed like Bundler would.
+     */
+    private void installGems(Map<String, GemSpec> specs, GemCacheIndex gemCache) {
+        Set<String> listedGems = new LinkedHashSet<>();
+        Map<String, String> requiredGems = new LinkedHashMap<>();
+        for (GemSpec spec : specs.values()) {
+            String version = spec.version;
+            if (spec.listed) {
+                if (version != null && gemCache.find(spec.name, version) == null) {
+                    if (version.toLowerCase().contains(MINGW)) {
+                        version = version.substring(0, version.indexOf(Constants.DASH));
                     }
-                } catch (IndexOutOfBoundsException e){
-                    logger.warn("failed installing gem file for {}-{}", name, version);
-                    logger.debug("stacktrace {}", e.getStackTrace());
+                    listedGems.add(spec.name + Constants.COLON + version);
+                }
+            } else {
+                String cachedVersion = gemCache.findMaxVersion(spec.name);
+                if (cachedVersion == null || !isSatisfied(version, cachedVersion)) {
+                    // no requirement means the latest version
+                    requiredGems.put(spec.name, version == null || version.isEmpty() ? null : version);
                 }
             }
         }
-        return null;
-    }
-
-    private List<String> installGem(String name, String version) {
-        String param = Constants.INSTALL.concat(Constants.WHITESPACE + name + Constants.WHITESPACE + V + Constants.WHITESPACE + version);
-        String[] commandParams = cli.getCommandParams(GEM, param);
-        return cli.runCmd(rootDirectory, commandParams);
+        if (listedGems.isEmpty() && requiredGems.isEmpty()) {
+            return;
+        }
+        logger.info("installing {} missing gem files: {} {}", listedGems.size() + requiredGems.size(), listedGems, requiredGems.keySet());
+        if (!listedGems.isEmpty()) {
+            String param = Constants.INSTALL + Constants.WHITESPACE + String.join(Constants.WHITESPACE, listedGems);
+            logInstallErrors(cli.runCmd(rootDirectory, cli.getCommandParams(GEM, param)));
+        }
+        requiredGems.forEach((name, requirement) -> {
+            // the requirement (e.g. '~> 2.3' or '>= 0.5.2, < 1') is a single argument, it isn't split like the other params
+            List<String> command = new ArrayList<>(Arrays.asList(cli.getCommandParams(GEM, Constants.INSTALL)));
+            command.add(name);
+            if (requirement != null) {
+                command.add(V);
+                command.add(requirement);
+            }
+            logInstallErrors(cli.runCmd(rootDirectory, command.toArray(new String[0])));
+        });
+        // gems that failed don't stop the others from being installed, so the cache is listed again in any case
+        gemCache.refresh();
     }
 
-    // there are cases where a dependency appears in the Gemfile.lock only as a child.
-    // in such cases, look for the relevant gem file in the cache with the highest version
-    private String findGemVersion(String gemName, String pathToGems){
-        String version = null;
-        File maxVersionFile = findMaxVersionFile(gemName, pathToGems);
-        if (maxVersionFile != null) {
-            String fileName = maxVersionFile.getName();
-            version = getVersionFromFileName(fileName, gemName);
+    // the lowest version satisfying a requirement such as '>= 0.5.2, < 1' or '~> 1.8', null if there isn't one
+    private String getMinimalVersion(String requirement) {
+        if (requirement == null || requirement.isEmpty()) {
+            return null;
+        }
+        int indexSeparator = requirement.indexOf(Constants.COMMA);
+        if (indexSeparator != -1) {
+            requirement = requirement.substring(0, indexSeparator);
+        }
+        char firstChar = requirement.charAt(0);
+        if (firstChar == '>' || firstChar == Constants.EQUALS_CHAR || firstChar == TILDE) {
+            return requirement.substring(requirement.indexOf(Constants.WHITESPACE) + 1);
         }
-        return version;
+        return null;
     }
 
-    private String getVersionFromFileName(String fileName, String gemName) {
-        return fileName.substring(gemName.length()+1,fileName.lastIndexOf(Constants.DOT));
+    private void logInstallErrors(List<String> lines) {
+        lines.stream().filter(line -> line.startsWith(ERROR)).forEach(line -> logger.warn("failed installing gem file: {}", line));
     }
 
-    private File findMaxVersionFile(String gemName, String pathToGems) {
-        File gemsFolder = new File(pathToGems);
-        File[] files = gemsFolder.listFiles(new GemFileNameFilter(gemName));
-        if (files.length > 0) {
-            Arrays.sort(files, Collections.reverseOrder());
-            return files[0];
-        }
-        return null;
-    }
-}
+    /**
+     * A gem of the Gemfile.lock with the names of the gems it requires.
+     */
+    static class GemSpec {
 
-class GemFileNameFilter implements FilenameFilter{
+        private final String name;
+        // the version listed, or the requirement of gems not listed
+        private String version;
+        private boolean listed;
+        private final List<String> requirements = new ArrayList<>();
 
-    private String fileName;
+        GemSpec(String name) {
+            this.name = name;
+        }
 
-    public GemFileNameFilter(String name){
-        fileName = name;
-    }
-    @Override
-    public boolean accept(File dir, String name) {
-        if(name.toLowerCase().startsWith(fileName) && name.endsWith(Constants.DOT + GEM)) {
-            int indx = name.toLowerCase().indexOf(fileName.toLowerCase()) + fileName.length() + 1; // index of first char after fileName + "-"
-            return Character.isDigit(name.charAt(indx));
+        String getVersion() {
+            return version;
+        }
+
+        boolean isListed() {
+            return listed;
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,6 @@ package org.whitesource.agent.utils;
 import com.sun.jna.Native;
 import com.sun.jna.platform.win32.Kernel32;
 import org.apache.commons.compress.utils.IOUtils;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.whitesource.agent.utils.LoggerFactory;
@@ -11,11 +10,18 @@ import org.whitesource.agent.Constants;
 import org.whitesource.agent.dependency.resolver.DependencyCollector;
 
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
+ * Runs a command and pumps its output and error streams on dedicated threads, output lines are either collected or
+ * passed to a callback as they arrive.
+ *
  * @author raz.nitzan
  */
 public class CommandLineProcess {
@@ -28,11 +34,14 @@ public class CommandLineProcess {
     private long timeoutProcessMinutes;
     private boolean errorInProcess = false;
     private Process processStart = null;
-    private File errorLog = new File("error.log");
+    private final Deque<String> errorLines = new ArrayDeque<>();
 
     /* --- Statics Members --- */
     private static final long DEFAULT_TIMEOUT_READLINE_SECONDS = 300;
     private static final long DEFAULT_TIMEOUT_PROCESS_MINUTES = 15;
+    // only the last error lines of the process are kept
+    private static final int MAX_ERROR_LINES = 1000;
+    private static final long WAIT_INTERVAL_MILLIS = 100;
     private static final String WINDOWS_SEPARATOR = "\\";
     private final Logger logger = LoggerFactory.getLogger(org.whitesource.agent.utils.CommandLineProcess.class);
 
@@ -44,87 +53,149 @@ public class CommandLineProcess {
     }
 
     public List<String> executeProcess() throws IOException {
-        return executeProcess(true, false);
+        List<String> linesOutput = new LinkedList<>();
+        executeProcess(true, linesOutput::add);
+        return linesOutput;
     }
 
-    private List<String> executeProcess(boolean includeOutput, boolean includeErrorLines) throws IOException {
-        List<String> linesOutput = new LinkedList<>();
+    /**
+     * Execute the process and pass each non blank output line to the consumer as soon as it is read,
+     * the lines are called from a single pump thread in their output order and are not kept in memory.
+     *
+     * @param lineConsumer receives the output lines
+     */
+    public void executeProcess(Consumer<String> lineConsumer) throws IOException {
+        executeProcess(true, lineConsumer);
+    }
+
+    public void executeProcessWithoutOutput() throws IOException {
+        executeProcess(false, null);
+    }
+
+    /**
+     * @return the error output lines of the process
+     */
+    public List<String> executeProcessWithErrorOutput() throws IOException {
+        executeProcess(false, null);
+        return getErrorLines();
+    }
+
+    /* --- Private methods --- */
+
+    private void executeProcess(boolean includeOutput, Consumer<String> lineConsumer) throws IOException {
         ProcessBuilder pb = new ProcessBuilder(args);
         String osName = System.getProperty(Constants.OS_NAME);
         if (osName.startsWith(Constants.WINDOWS)) {
             rootDirectory = getShortPath(rootDirectory);
         }
         pb.directory(new File(rootDirectory));
-        // redirect the error output to avoid output of npm ls by operating system
-        String redirectErrorOutput = DependencyCollector.isWindows() ? "nul" : "/dev/null";
-        if (includeErrorLines) {
-            pb.redirectError(errorLog);
-        } else {
-            pb.redirectError(new File(redirectErrorOutput));
-        }
-        if (!includeOutput || includeErrorLines) {
-            pb.redirectOutput(new File(redirectErrorOutput));
-        }
-        if (!includeErrorLines) {
-            logger.debug("start execute command '{}' in '{}'", String.join(Constants.WHITESPACE, args), rootDirectory);
+        if (!includeOutput) {
+            // redirect the output to avoid output of npm ls by operating system
+            String redirectOutput = DependencyCollector.isWindows() ? "nul" : "/dev/null";
+            pb.redirectOutput(new File(redirectOutput));
         }
+        logger.debug("start execute command '{}' in '{}'", String.join(Constants.WHITESPACE, args), rootDirectory);
         this.processStart = pb.start();
+        Metrics.counter("subprocesses", "command", new File(args[0]).getName()).increment();
+
+        StreamPump errorPump = new StreamPump(this.processStart.getErrorStream(), this::addErrorLine);
+        errorPump.start();
+        StreamPump outputPump = null;
         if (includeOutput) {
-            InputStreamReader inputStreamReader;
-            BufferedReader reader;
-            ExecutorService executorService = Executors.newFixedThreadPool(1);
-            if (!includeErrorLines) {
-                inputStreamReader = new InputStreamReader(this.processStart.getInputStream());
-            } else {
-                inputStreamReader = new InputStreamReader(this.processStart.getErrorStream());
-            }
-            reader = new BufferedReader(inputStreamReader);
-            this.errorInProcess = readBlock(inputStreamReader, reader, executorService, linesOutput, includeErrorLines);
+            outputPump = new StreamPump(this.processStart.getInputStream(), new Consumer<String>() {
+                private int lineIndex = 1;
+
+                @Override
+                public void accept(String line) {
+                    logger.debug("Read line #{}: {}", lineIndex++, line);
+                    lineConsumer.accept(line);
+                }
+            });
+            outputPump.start();
         }
+
         try {
-            this.processStart.waitFor(this.timeoutProcessMinutes, TimeUnit.MINUTES);
+            this.errorInProcess = !waitForProcess(outputPump);
+            if (this.errorInProcess) {
+                logger.debug("error executing command destroying process");
+                Metrics.counter("subprocess_timeouts", "command", new File(args[0]).getName()).increment();
+                this.processStart.destroy();
+                closePump(outputPump);
+                closePump(errorPump);
+                return;
+            }
+            joinPump(errorPump);
         } catch (InterruptedException e) {
             this.errorInProcess = true;
             logger.error("'{}' was interrupted {}", args, e);
-        }
-        if (this.processStart.isAlive() && errorInProcess) {
-            logger.debug("error executing command destroying process");
             this.processStart.destroy();
-            return linesOutput;
+            closePump(outputPump);
+            closePump(errorPump);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (outputPump != null) {
+            logger.debug("Finished reading {} lines", outputPump.getLinesCount());
         }
         if (this.getExitStatus() != 0) {
             logger.debug("error in execute command {}", this.getExitStatus());
             this.errorInProcess = true;
         }
         printErrors();
-        return linesOutput;
     }
 
-    // using this technique to print to the log the Process's errors as it the easiest way i found to do so -
-    // ues a file to redirect the errors to, read from it and then delete it.
-    // if you find a better way - go ahead and replace it
-    private void printErrors(){
-        if (errorLog.isFile()){
-            FileReader fileReader;
-            try {
-                fileReader = new FileReader(errorLog);
-                BufferedReader bufferedReader = new BufferedReader(fileReader);
-                String currLine;
-                while ((currLine = bufferedReader.readLine()) != null){
-                    logger.debug(currLine);
-                }
-                fileReader.close();
-            } catch (Exception e) {
-                logger.warn("Error printing cmd command errors {} " , e.getMessage());
-                logger.debug("Error: {}", e.getStackTrace());
-            } finally {
-                try {
-                    FileUtils.forceDelete(errorLog);
-                } catch (IOException e) {
-                    logger.warn("Error closing cmd command errors file {} " , e.getMessage());
-                    logger.debug("Error: {}", e.getStackTrace());
-                }
+    /**
+     * Wait until the process exits and its output is fully read, within the overall process deadline
+     * and as long as output keeps arriving within the read line timeout.
+     *
+     * @return false if the process timed out or its output could not be read
+     */
+    private boolean waitForProcess(StreamPump outputPump) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(this.timeoutProcessMinutes);
+        long readLineTimeout = TimeUnit.SECONDS.toMillis(this.timeoutReadLineSeconds);
+        while (this.processStart.isAlive() || (outputPump != null && outputPump.isAlive())) {
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                logger.debug("Received timeout when executing '{}'", String.join(Constants.WHITESPACE, args));
+                return false;
+            }
+            if (outputPump != null && outputPump.isAlive() && now - outputPump.getLastReadTime() >= readLineTimeout) {
+                logger.debug("Received timeout when reading line #{}", outputPump.getLinesCount() + 1);
+                return false;
+            }
+            if (outputPump != null && outputPump.isAlive()) {
+                outputPump.join(Math.min(WAIT_INTERVAL_MILLIS, deadline - now));
+            } else {
+                this.processStart.waitFor(Math.min(WAIT_INTERVAL_MILLIS, deadline - now), TimeUnit.MILLISECONDS);
+            }
+        }
+        return outputPump == null || !outputPump.isFailed();
+    }
+
+    private void joinPump(StreamPump pump) throws InterruptedException {
+        pump.join(TimeUnit.SECONDS.toMillis(this.timeoutReadLineSeconds));
+        // a child of the process may still hold the stream open
+        closePump(pump);
+    }
+
+    private void closePump(StreamPump pump) {
+        if (pump != null) {
+            pump.close();
+        }
+    }
+
+    private void addErrorLine(String line) {
+        synchronized (errorLines) {
+            if (errorLines.size() == MAX_ERROR_LINES) {
+                errorLines.removeFirst();
             }
+            errorLines.addLast(line);
+        }
+    }
+
+    private void printErrors() {
+        for (String errorLine : getErrorLines()) {
+            logger.debug(errorLine);
         }
     }
 
@@ -160,60 +231,6 @@ public class CommandLineProcess {
         return path;
     }
 
-    private boolean readBlock(InputStreamReader inputStreamReader, BufferedReader reader, ExecutorService executorService, List<String> lines, boolean includeErrorLines) {
-        boolean wasError = false;
-        boolean continueReadingLines = true;
-        try {
-            if (!includeErrorLines) {
-                logger.debug("trying to read lines using '{}'", args.toString());
-            }
-            int lineIndex = 1;
-            String line = Constants.EMPTY_STRING;
-            while (continueReadingLines && line != null) {
-                Future<String> future = executorService.submit(new CommandLineProcess.ReadLineTask(reader));
-                try {
-                    line = future.get(this.timeoutReadLineSeconds, TimeUnit.SECONDS);
-                    if (!includeErrorLines) {
-                        if (StringUtils.isNotBlank(line)) {
-                            logger.debug("Read line #{}: {}", lineIndex, line);
-                            lines.add(line);
-                        } else {
-                            logger.debug("Finished reading {} lines", lineIndex - 1);
-                        }
-                    } else {
-                        if (StringUtils.isNotBlank(line)) {
-                            lines.add(line);
-                        }
-                    }
-                } catch (TimeoutException e) {
-                    logger.debug("Received timeout when reading line #" + lineIndex, e.getStackTrace());
-                    continueReadingLines = false;
-                    wasError = true;
-                } catch (Exception e) {
-                    logger.debug("Error reading line #" + lineIndex, e.getStackTrace());
-                    continueReadingLines = false;
-                    wasError = true;
-                }
-                lineIndex++;
-            }
-        } catch (Exception e) {
-            logger.error("error parsing output : {}", e.getStackTrace());
-        } finally {
-            executorService.shutdown();
-            IOUtils.closeQuietly(inputStreamReader);
-            IOUtils.closeQuietly(reader);
-        }
-        return wasError;
-    }
-
-    public void executeProcessWithoutOutput() throws IOException {
-        executeProcess(false, false);
-    }
-
-    public List<String> executeProcessWithErrorOutput() throws IOException {
-        return executeProcess(false, true);
-    }
-
     public void setTimeoutReadLineSeconds(long timeoutReadLineSeconds) {
         this.timeoutReadLineSeconds = timeoutReadLineSeconds;
     }
@@ -226,6 +243,12 @@ public class CommandLineProcess {
         return this.errorInProcess;
     }
 
+    public List<String> getErrorLines() {
+        synchronized (errorLines) {
+            return new ArrayList<>(errorLines);
+        }
+    }
+
     public int getExitStatus() {
         if (processStart != null) {
             return processStart.exitValue();
@@ -235,23 +258,80 @@ public class CommandLineProcess {
 
     /* --- Nested classes --- */
 
-    class ReadLineTask implements Callable<String> {
+    /**
+     * Reads the lines of a process stream until it ends and passes the non blank ones to a consumer.
+     */
+    private class StreamPump extends Thread {
 
         /* --- Members --- */
 
-        private final BufferedReader reader;
+        private final InputStream inputStream;
+        private final Consumer<String> lineConsumer;
+        private volatile long lastReadTime = System.currentTimeMillis();
+        private volatile int linesCount = 0;
+        private volatile boolean failed = false;
+        private final Object lock = new Object();
+        private boolean closed = false;
 
         /* --- Constructors --- */
 
-        ReadLineTask(BufferedReader reader) {
-            this.reader = reader;
+        StreamPump(InputStream inputStream, Consumer<String> lineConsumer) {
+            super("command-line-process-pump");
+            setDaemon(true);
+            this.inputStream = inputStream;
+            this.lineConsumer = lineConsumer;
         }
 
         /* --- Overridden methods --- */
 
         @Override
-        public String call() throws Exception {
-            return reader.readLine();
+        public void run() {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lastReadTime = System.currentTimeMillis();
+                    if (StringUtils.isNotBlank(line)) {
+                        synchronized (lock) {
+                            if (closed) {
+                                break;
+                            }
+                            linesCount++;
+                            lineConsumer.accept(line);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("Error reading line #{}: {}", linesCount + 1, e.getMessage());
+                failed = true;
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+
+        /* --- Public methods --- */
+
+        /**
+         * Stop passing lines to the consumer, no line is passed once this method returns.
+         */
+        void close() {
+            synchronized (lock) {
+                closed = true;
+            }
+        }
+
+        /* --- Getters --- */
+
+        long getLastReadTime() {
+            return lastReadTime;
+        }
+
+        int getLinesCount() {
+            return linesCount;
+        }
+
+        boolean isFailed() {
+            return failed;
         }
     }
 }
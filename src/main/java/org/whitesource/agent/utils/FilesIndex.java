@@ -0,0 +1,440 @@
+/**
+ * Copyright (C) 2017 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.selectors.TokenizedPath;
+import org.apache.tools.ant.types.selectors.TokenizedPattern;
+import org.slf4j.Logger;
+import org.whitesource.agent.Constants;
+import org.whitesource.agent.dependency.resolver.ResolvedFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory index of all the files found under the scanned folders.
+ * Each folder is walked only once, includes/excludes queries, bom files lookups and source files lookups are answered
+ * from the index (using the same glob semantics as {@link org.apache.tools.ant.DirectoryScanner}).
+ * <p>
+ * Folders whose content was changed after the walk (for example by a resolver pre-step) are detected by their
+ * modification time and re-listed on {@link #refresh()}, without walking the whole tree again.
+ */
+public class FilesIndex {
+
+    /* --- Static members --- */
+
+    private static final String DEEP_TREE_MATCH = "**";
+    private static final String CONTENTS_EXCLUDED_SUFFIX = File.separator + DEEP_TREE_MATCH;
+    // file systems with a coarse timestamp granularity may not change the folder time for changes done right after the walk
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    private final Logger logger = LoggerFactory.getLogger(FilesIndex.class);
+
+    /* --- Private members --- */
+
+    private final Collection<TokenizedPattern> prunedFolderPatterns;
+    private final boolean followSymlinks;
+    private final boolean globCaseSensitive;
+    private final Map<String, TreeMap<String, IndexedFolder>> baseDirToFolders = new LinkedHashMap<>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param pathsToScan       folders to index
+     * @param excludes          glob patterns excluded from every query, folders matching 'folder/**' patterns are not walked
+     * @param followSymlinks    whether symbolic links should be followed
+     * @param globCaseSensitive whether the excludes patterns are case sensitive
+     */
+    public FilesIndex(Collection<String> pathsToScan, String[] excludes, boolean followSymlinks, boolean globCaseSensitive) {
+        this.followSymlinks = followSymlinks;
+        this.globCaseSensitive = globCaseSensitive;
+        this.prunedFolderPatterns = new ArrayList<>();
+        if (excludes != null) {
+            for (String exclude : excludes) {
+                String pattern = normalizePattern(exclude);
+                if (pattern != null && pattern.endsWith(CONTENTS_EXCLUDED_SUFFIX)) {
+                    prunedFolderPatterns.add(new TokenizedPattern(pattern.substring(0, pattern.length() - CONTENTS_EXCLUDED_SUFFIX.length())));
+                }
+            }
+        }
+        for (String path : pathsToScan) {
+            getFolders(path);
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Same as {@link FilesScanner#getDirectoryContent(String, String[], String[], boolean, boolean, boolean)}, answered from the index.
+     */
+    public String[] getDirectoryContent(String scannerBaseDir, String[] includes, String[] excludes, boolean followSymlinks,
+                                        boolean globCaseSensitive, boolean scanDirectories) {
+        List<String> result = new ArrayList<>();
+        GlobMatcher globMatcher = new GlobMatcher(includes, excludes, globCaseSensitive);
+        forEachFolder(scannerBaseDir, (relativePath, folder) -> {
+            if (folder.isSymbolicLink() && !followSymlinks) {
+                return;
+            }
+            TokenizedPath folderPath = new TokenizedPath(relativePath);
+            if (scanDirectories) {
+                if (globMatcher.matches(folderPath)) {
+                    result.add(relativePath);
+                }
+            } else {
+                for (IndexedFile file : folder.getFiles()) {
+                    if ((followSymlinks || !file.isSymbolicLink()) && globMatcher.matches(new TokenizedPath(folderPath, file.getName()))) {
+                        result.add(relativePath.isEmpty() ? file.getName() : relativePath + File.separator + file.getName());
+                    }
+                }
+            }
+        });
+        return result.toArray(new String[result.size()]);
+    }
+
+    public String[] getDirectoryContent(String scannerBaseDir, String[] includes, String[] excludes, boolean followSymlinks, boolean globCaseSensitive) {
+        return getDirectoryContent(scannerBaseDir, includes, excludes, followSymlinks, globCaseSensitive, false);
+    }
+
+    /**
+     * Same as {@link FilesScanner#findTopFolders(Collection, String[], Collection)}, answered from the index.
+     */
+    public Collection<ResolvedFolder> findTopFolders(Collection<String> pathsToScan, String[] includesPattern, Collection<String> excludes) {
+        Map<String, String[]> pathToIncludedFilesMap = new HashMap<>();
+        String[] excludesArray = excludes.toArray(new String[excludes.size()]);
+        pathsToScan.forEach(scanFolder -> {
+            String[] includedFiles = getDirectoryContent(new File(scanFolder).getPath(), includesPattern, excludesArray, false, false);
+            pathToIncludedFilesMap.put(new File(scanFolder).getAbsolutePath(), includedFiles);
+        });
+        return new FilesScanner().findTopFolders(pathToIncludedFilesMap);
+    }
+
+    /**
+     * Re-lists the folders that were changed since they were indexed. New folders are walked, removed folders are dropped.
+     */
+    public void refresh() {
+        int refreshedFolders = 0;
+        for (Map.Entry<String, TreeMap<String, IndexedFolder>> entry : baseDirToFolders.entrySet()) {
+            String baseDir = entry.getKey();
+            TreeMap<String, IndexedFolder> folders = entry.getValue();
+            if (folders.isEmpty()) {
+                File file = new File(baseDir);
+                if (file.isDirectory()) {
+                    scanBaseDir(baseDir, folders);
+                    refreshedFolders++;
+                }
+                continue;
+            }
+            for (IndexedFolder folder : new ArrayList<>(folders.values())) {
+                // the folder might have been removed together with its parent
+                if (folders.get(folder.getRelativePath()) != folder) {
+                    continue;
+                }
+                Path folderPath = Paths.get(baseDir, folder.getRelativePath());
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(folderPath, BasicFileAttributes.class);
+                    if (attributes.isDirectory() && !folder.isUpToDate(attributes.lastModifiedTime().toMillis())) {
+                        Collection<String> previousSubFolders = folder.getSubFolders();
+                        IndexedFolder newFolder = scanFolder(folderPath, folder.getRelativePath(), attributes, folder.isSymbolicLink(), folders);
+                        previousSubFolders.stream()
+                                .filter(subFolder -> !newFolder.getSubFolders().contains(subFolder))
+                                .forEach(subFolder -> removeFolder(folders, getChildPath(folder.getRelativePath(), subFolder)));
+                        refreshedFolders++;
+                    } else if (!attributes.isDirectory()) {
+                        removeFolder(folders, folder.getRelativePath());
+                    }
+                } catch (IOException e) {
+                    removeFolder(folders, folder.getRelativePath());
+                }
+            }
+        }
+        logger.debug("Refreshed {} folders of the files index", refreshedFolders);
+    }
+
+    /* --- Private methods --- */
+
+    private TreeMap<String, IndexedFolder> getFolders(String baseDir) {
+        TreeMap<String, IndexedFolder> folders = baseDirToFolders.get(baseDir);
+        if (folders == null) {
+            folders = new TreeMap<>();
+            if (new File(baseDir).isDirectory()) {
+                scanBaseDir(baseDir, folders);
+            }
+            baseDirToFolders.put(baseDir, folders);
+        }
+        return folders;
+    }
+
+    private void scanBaseDir(String baseDir, TreeMap<String, IndexedFolder> folders) {
+        logger.debug("Indexing {}", baseDir);
+        try {
+            Path basePath = Paths.get(baseDir);
+            scanFolder(basePath, Constants.EMPTY_STRING, Files.readAttributes(basePath, BasicFileAttributes.class), false, folders);
+        } catch (IOException | InvalidPathException e) {
+            logger.warn("Error indexing {}: {}", baseDir, e.getMessage());
+        }
+    }
+
+    // lists the folder and walks into sub folders which are not indexed yet
+    private IndexedFolder scanFolder(Path folderPath, String relativePath, BasicFileAttributes folderAttributes, boolean symbolicLink,
+                                     TreeMap<String, IndexedFolder> folders) {
+        IndexedFolder folder = new IndexedFolder(relativePath, folderAttributes.lastModifiedTime().toMillis(), symbolicLink);
+        folders.put(relativePath, folder);
+
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folderPath)) {
+            directoryStream.forEach(children::add);
+        } catch (IOException | DirectoryIteratorException e) {
+            logger.debug("Error listing {}: {}", folderPath, e.getMessage());
+            return folder;
+        }
+        children.sort(Comparator.comparing(child -> child.getFileName().toString()));
+
+        for (Path child : children) {
+            String name = child.getFileName().toString();
+            String childRelativePath = getChildPath(relativePath, name);
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                boolean childSymbolicLink = symbolicLink;
+                if (attributes.isSymbolicLink()) {
+                    if (!followSymlinks) {
+                        continue;
+                    }
+                    childSymbolicLink = true;
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                    if (attributes.isDirectory() && folderPath.toRealPath().startsWith(child.toRealPath())) {
+                        logger.debug("Skipping symbolic link cycle {}", child);
+                        continue;
+                    }
+                }
+                if (attributes.isDirectory()) {
+                    if (!isPruned(childRelativePath)) {
+                        folder.getSubFolders().add(name);
+                        if (!folders.containsKey(childRelativePath)) {
+                            scanFolder(child, childRelativePath, attributes, childSymbolicLink, folders);
+                        }
+                    }
+                } else if (attributes.isRegularFile()) {
+                    folder.getFiles().add(new IndexedFile(name, attributes.size(), attributes.lastModifiedTime().toMillis(), childSymbolicLink));
+                }
+            } catch (IOException e) {
+                logger.debug("Error reading attributes of {}: {}", child, e.getMessage());
+            }
+        }
+        return folder;
+    }
+
+    private boolean isPruned(String relativePath) {
+        if (prunedFolderPatterns.isEmpty()) {
+            return false;
+        }
+        TokenizedPath path = new TokenizedPath(relativePath);
+        return prunedFolderPatterns.stream().anyMatch(pattern -> pattern.matchPath(path, globCaseSensitive));
+    }
+
+    private void removeFolder(TreeMap<String, IndexedFolder> folders, String relativePath) {
+        folders.remove(relativePath);
+        if (relativePath.isEmpty()) {
+            folders.clear();
+        } else {
+            folders.subMap(relativePath + File.separator, relativePath + (char) (File.separatorChar + 1)).clear();
+        }
+    }
+
+    // iterates over the indexed folders under the directory, the consumer gets the folder path relative to the directory
+    private void forEachFolder(String directory, BiConsumer<String, IndexedFolder> consumer) {
+        if (!forEachIndexedFolder(directory, consumer)) {
+            String canonicalPath = getCanonicalPath(directory);
+            if (canonicalPath.equals(directory) || !forEachIndexedFolder(canonicalPath, consumer)) {
+                // not indexed yet
+                getFolders(directory).forEach(consumer);
+            }
+        }
+    }
+
+    private boolean forEachIndexedFolder(String directory, BiConsumer<String, IndexedFolder> consumer) {
+        for (Map.Entry<String, TreeMap<String, IndexedFolder>> entry : baseDirToFolders.entrySet()) {
+            String relativePath = getRelativePath(entry.getKey(), directory);
+            if (relativePath != null) {
+                TreeMap<String, IndexedFolder> folders = entry.getValue();
+                if (relativePath.isEmpty()) {
+                    folders.forEach(consumer);
+                } else {
+                    IndexedFolder folder = folders.get(relativePath);
+                    if (folder != null) {
+                        consumer.accept(Constants.EMPTY_STRING, folder);
+                        int prefixLength = relativePath.length() + 1;
+                        folders.subMap(relativePath + File.separator, relativePath + (char) (File.separatorChar + 1))
+                                .forEach((subFolderPath, subFolder) -> consumer.accept(subFolderPath.substring(prefixLength), subFolder));
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getCanonicalPath(String directory) {
+        try {
+            return new File(directory).getCanonicalPath();
+        } catch (IOException e) {
+            return directory;
+        }
+    }
+
+    // returns the path of the directory relative to the base directory or null if it is not under the base directory
+    private String getRelativePath(String baseDir, String directory) {
+        if (directory.equals(baseDir)) {
+            return Constants.EMPTY_STRING;
+        }
+        String prefix = baseDir.endsWith(File.separator) ? baseDir : baseDir + File.separator;
+        if (directory.startsWith(prefix)) {
+            return directory.substring(prefix.length());
+        }
+        return null;
+    }
+
+    private String getChildPath(String relativePath, String name) {
+        return relativePath.isEmpty() ? name : relativePath + File.separator + name;
+    }
+
+    // the same normalization as org.apache.tools.ant.DirectoryScanner does
+    private static String normalizePattern(String pattern) {
+        if (StringUtils.isBlank(pattern)) {
+            return null;
+        }
+        String normalized = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+        if (normalized.endsWith(File.separator)) {
+            normalized += DEEP_TREE_MATCH;
+        }
+        return normalized;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A file found while walking the scanned folders.
+     */
+    public static class IndexedFile {
+
+        private final String name;
+        private final long size;
+        private final long lastModified;
+        private final boolean symbolicLink;
+
+        IndexedFile(String name, long size, long lastModified, boolean symbolicLink) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.symbolicLink = symbolicLink;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public boolean isSymbolicLink() {
+            return symbolicLink;
+        }
+    }
+
+    private static class IndexedFolder {
+
+        private final String relativePath;
+        private final long lastModified;
+        private final long indexedAt;
+        private final boolean symbolicLink;
+        private final List<IndexedFile> files = new ArrayList<>();
+        private final Set<String> subFolders = new LinkedHashSet<>();
+
+        IndexedFolder(String relativePath, long lastModified, boolean symbolicLink) {
+            this.relativePath = relativePath;
+            this.lastModified = lastModified;
+            this.indexedAt = System.currentTimeMillis();
+            this.symbolicLink = symbolicLink;
+        }
+
+        boolean isUpToDate(long currentLastModified) {
+            return currentLastModified == lastModified && lastModified < indexedAt - TIMESTAMP_GRANULARITY_MILLIS;
+        }
+
+        String getRelativePath() {
+            return relativePath;
+        }
+
+        boolean isSymbolicLink() {
+            return symbolicLink;
+        }
+
+        List<IndexedFile> getFiles() {
+            return files;
+        }
+
+        Set<String> getSubFolders() {
+            return subFolders;
+        }
+    }
+
+    private static class GlobMatcher {
+
+        private final Collection<TokenizedPattern> includes;
+        private final Collection<TokenizedPattern> excludes;
+        private final boolean caseSensitive;
+
+        GlobMatcher(String[] includes, String[] excludes, boolean caseSensitive) {
+            // no includes means everything is included (DirectoryScanner behavior)
+            this.includes = includes == null ? Collections.singletonList(new TokenizedPattern(DEEP_TREE_MATCH)) : tokenize(includes);
+            this.excludes = excludes == null ? Collections.emptyList() : tokenize(excludes);
+            this.caseSensitive = caseSensitive;
+        }
+
+        boolean matches(TokenizedPath path) {
+            return matchesAny(includes, path) && !matchesAny(excludes, path);
+        }
+
+        private boolean matchesAny(Collection<TokenizedPattern> patterns, TokenizedPath path) {
+            for (TokenizedPattern pattern : patterns) {
+                if (pattern.matchPath(path, caseSensitive)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Collection<TokenizedPattern> tokenize(String[] patterns) {
+            Collection<TokenizedPattern> result = new ArrayList<>();
+            for (String pattern : patterns) {
+                String normalized = normalizePattern(pattern);
+                if (normalized != null) {
+                    result.add(new TokenizedPattern(normalized));
+                }
+            }
+            return result;
+        }
+    }
+}
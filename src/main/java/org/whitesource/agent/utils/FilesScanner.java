@@ -66,10 +66,13 @@ public class FilesScanner {
     }
 
     public Collection<ResolvedFolder> findTopFolders(Collection<String> pathsToScan, String[] includesPattern, Collection<String> excludes) {
-        Collection<ResolvedFolder> resolvedFolders = new ArrayList<>();
         // get folders containing bom files
         Map<String, String[]> pathToBomFilesMap = findAllFiles(pathsToScan, includesPattern, excludes);
+        return findTopFolders(pathToBomFilesMap);
+    }
 
+    public Collection<ResolvedFolder> findTopFolders(Map<String, String[]> pathToBomFilesMap) {
+        Collection<ResolvedFolder> resolvedFolders = new ArrayList<>();
         // resolve dependencies
         pathToBomFilesMap.forEach((folder, bomFile) -> {
             // get top folders with boms (the parent of each project)
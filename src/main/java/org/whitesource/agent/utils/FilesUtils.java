@@ -64,10 +64,18 @@ public class FilesUtils {
     }
 
     public List<Path> getSubDirectories(String directory, String[] includes, String[] excludesExtended, boolean followSymlinks, boolean globCaseSensitive) {
+        return getSubDirectories(null, directory, includes, excludesExtended, followSymlinks, globCaseSensitive);
+    }
+
+    public List<Path> getSubDirectories(FilesIndex filesIndex, String directory, String[] includes, String[] excludesExtended, boolean followSymlinks, boolean globCaseSensitive) {
         String[] files;
         FilesScanner filesScanner = new FilesScanner();
         try {
-            files = filesScanner.getDirectoryContent(directory, includes, excludesExtended, followSymlinks, globCaseSensitive,true);
+            if (filesIndex == null) {
+                files = filesScanner.getDirectoryContent(directory, includes, excludesExtended, followSymlinks, globCaseSensitive, true);
+            } else {
+                files = filesIndex.getDirectoryContent(directory, includes, excludesExtended, followSymlinks, globCaseSensitive, true);
+            }
         } catch (Exception ex) {
             logger.info("Error getting sub directories from: " + directory, ex.getMessage());
             files = new String[0];
@@ -77,6 +85,15 @@ public class FilesUtils {
 
     public Map<File, Collection<String>> fillFilesMap(Collection<String> pathsToScan, String[] includes, String[] excludesExtended,
                                                       boolean followSymlinks, boolean globCaseSensitive) {
+        return fillFilesMap(null, pathsToScan, includes, excludesExtended, followSymlinks, globCaseSensitive);
+    }
+
+    /**
+     * Same as {@link #fillFilesMap(Collection, String[], String[], boolean, boolean)}, the folders content is taken from the files index
+     * (if not null) instead of walking the folders again.
+     */
+    public Map<File, Collection<String>> fillFilesMap(FilesIndex filesIndex, Collection<String> pathsToScan, String[] includes, String[] excludesExtended,
+                                                      boolean followSymlinks, boolean globCaseSensitive) {
         Map<File, Collection<String>> fileMap = new HashMap<>();
         for (String scannerBaseDir : pathsToScan) {
             File file = new File(scannerBaseDir);
@@ -85,7 +102,12 @@ public class FilesUtils {
                 FilesScanner filesScanner = new FilesScanner();
                 if (file.isDirectory()) {
                     File basedir = new File(scannerBaseDir);
-                    String[] fileNames = filesScanner.getDirectoryContent(scannerBaseDir, includes, excludesExtended, followSymlinks, globCaseSensitive);
+                    String[] fileNames;
+                    if (filesIndex == null) {
+                        fileNames = filesScanner.getDirectoryContent(scannerBaseDir, includes, excludesExtended, followSymlinks, globCaseSensitive);
+                    } else {
+                        fileNames = filesIndex.getDirectoryContent(scannerBaseDir, includes, excludesExtended, followSymlinks, globCaseSensitive);
+                    }
                     // convert array to list (don't use Arrays.asList, might be added to later)
                     List<String> fileNameList = Arrays.stream(fileNames).collect(Collectors.toList());
                     fileMap.put(basedir, fileNameList);
@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.utils;
+
+import org.slf4j.Logger;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Timers, counters and gauges of the scan stages, exposed over JMX as {@value #OBJECT_NAME} and in the Prometheus text format.
+ * Metrics are identified by their name and labels, the labels are given as name and value pairs:
+ * <pre>
+ * try (Metrics.Timer.Context context = Metrics.timer("resolve", "resolver", "npm").start()) {
+ *     ...
+ * }
+ * Metrics.counter("files_hashed").increment();
+ * </pre>
+ */
+public final class Metrics {
+
+    /* --- Static members --- */
+
+    public static final String OBJECT_NAME = "org.whitesource.fs:type=Metrics";
+    private static final String PREFIX = "fsa_";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    static {
+        gauge("heap_used_bytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        gauge("heap_max_bytes", () -> Runtime.getRuntime().maxMemory());
+    }
+
+    /* --- Constructors --- */
+
+    private Metrics() {
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return the timer of the name and labels, created on first use
+     */
+    public static Timer timer(String name, String... labels) {
+        return timers.computeIfAbsent(getKey(name, labels), key -> new Timer(name, formatLabels(labels)));
+    }
+
+    /**
+     * @return the counter of the name and labels, created on first use
+     */
+    public static Counter counter(String name, String... labels) {
+        return counters.computeIfAbsent(getKey(name, labels), key -> new Counter(name, formatLabels(labels)));
+    }
+
+    /**
+     * @return the gauge of the name and labels holding the last value set, created on first use
+     */
+    public static Gauge gauge(String name, String... labels) {
+        return gauges.computeIfAbsent(getKey(name, labels), key -> new Gauge(name, formatLabels(labels), null));
+    }
+
+    /**
+     * Register a gauge reading its value when the metrics are collected, replacing the gauge of the same name and labels.
+     */
+    public static void gauge(String name, Supplier<Number> value, String... labels) {
+        gauges.put(getKey(name, labels), new Gauge(name, formatLabels(labels), value));
+    }
+
+    public static void removeGauge(String name, String... labels) {
+        gauges.remove(getKey(name, labels));
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, does nothing if they are already registered.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(), objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to register the metrics MBean: {}", e.getMessage());
+            logger.debug("Failed to register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * @return all the current values by their sample name, e.g. walk_seconds_sum or resolve_seconds_count{resolver="npm"}
+     */
+    public static Map<String, Number> getValues() {
+        Map<String, Number> values = new TreeMap<>();
+        timers.values().forEach(timer -> {
+            values.put(timer.name + "_seconds_count" + timer.labels, timer.getCount());
+            values.put(timer.name + "_seconds_sum" + timer.labels, timer.getTotalNanos() / NANOS_PER_SECOND);
+            values.put(timer.name + "_seconds_max" + timer.labels, timer.getMaxNanos() / NANOS_PER_SECOND);
+        });
+        counters.values().forEach(counter -> values.put(counter.name + "_total" + counter.labels, counter.get()));
+        gauges.values().forEach(gauge -> values.put(gauge.name + gauge.labels, gauge.get()));
+        return values;
+    }
+
+    /**
+     * @return all the metrics in the Prometheus text exposition format
+     */
+    public static String toPrometheus() {
+        StringBuilder builder = new StringBuilder();
+        appendSamples(builder, timers, "summary", (timer, samples) -> {
+            samples.add(new Sample(timer.name + "_seconds_count", timer.labels, timer.getCount()));
+            samples.add(new Sample(timer.name + "_seconds_sum", timer.labels, timer.getTotalNanos() / NANOS_PER_SECOND));
+        });
+        appendSamples(builder, counters, "counter", (counter, samples) -> samples.add(new Sample(counter.name + "_total", counter.labels, counter.get())));
+        appendSamples(builder, gauges, "gauge", (gauge, samples) -> samples.add(new Sample(gauge.name, gauge.labels, gauge.get())));
+        return builder.toString();
+    }
+
+    /* --- Private methods --- */
+
+    private static <T extends Metric> void appendSamples(StringBuilder builder, Map<String, T> metrics, String type,
+                                                         BiConsumer<T, List<Sample>> samplesOf) {
+        // group the samples of the same name under one type line
+        Map<String, List<Sample>> samplesByName = new TreeMap<>();
+        for (T metric : metrics.values()) {
+            List<Sample> samples = new ArrayList<>();
+            samplesOf.accept(metric, samples);
+            samplesByName.computeIfAbsent(metric.name, name -> new ArrayList<>()).addAll(samples);
+        }
+        samplesByName.forEach((name, samples) -> {
+            String typeName = "summary".equals(type) ? name + "_seconds" : "counter".equals(type) ? name + "_total" : name;
+            builder.append("# TYPE ").append(PREFIX).append(typeName).append(' ').append(type).append('\n');
+            for (Sample sample : samples) {
+                builder.append(PREFIX).append(sample.name).append(sample.labels).append(' ').append(sample.value).append('\n');
+            }
+        });
+    }
+
+    private static String getKey(String name, String[] labels) {
+        return labels.length == 0 ? name : name + formatLabels(labels);
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            String value = labels[i + 1] == null ? "" : labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            builder.append(labels[i]).append("=\"").append(value).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    /* --- Nested classes --- */
+
+    private abstract static class Metric {
+
+        final String name;
+        final String labels;
+
+        Metric(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+    }
+
+    public static class Timer extends Metric {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(String name, String labels) {
+            super(name, labels);
+        }
+
+        /**
+         * @return a context recording the time until it is closed
+         */
+        public Context start() {
+            return new Context(this, System.nanoTime());
+        }
+
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public static class Context implements AutoCloseable {
+
+            private final Timer timer;
+            private final long startNanos;
+
+            private Context(Timer timer, long startNanos) {
+                this.timer = timer;
+                this.startNanos = startNanos;
+            }
+
+            @Override
+            public void close() {
+                timer.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    public static class Counter extends Metric {
+
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String labels) {
+            super(name, labels);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static class Gauge extends Metric {
+
+        private final AtomicLong value = new AtomicLong();
+        private final Supplier<Number> supplier;
+
+        private Gauge(String name, String labels, Supplier<Number> supplier) {
+            super(name, labels);
+            this.supplier = supplier;
+        }
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public Number get() {
+            if (supplier == null) {
+                return value.get();
+            }
+            try {
+                Number number = supplier.get();
+                return number == null ? 0 : number;
+            } catch (Exception e) {
+                logger.debug("Failed to read gauge {}: {}", name, e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    private static class Sample {
+
+        private final String name;
+        private final String labels;
+        private final Object value;
+
+        private Sample(String name, String labels, Object value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Exposes the current values as read-only attributes named by their sample names.
+     */
+    private static class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = getValues().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = getValues();
+            AttributeList attributeList = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute)) {
+                    attributeList.add(new Attribute(attribute, values.get(attribute)));
+                }
+            }
+            return attributeList;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            getValues().forEach((name, value) -> attributes.add(
+                    new MBeanAttributeInfo(name, value.getClass().getName(), name, true, false, false)));
+            return new MBeanInfo(Metrics.class.getName(), "File System Agent scan metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.agent.utils;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps folders to values by path components, finding the value of the deepest folder containing a path
+ * in time proportional to the depth of the path rather than to the number of folders.
+ *
+ * @param <T> type of the values
+ */
+public class PathTrie<T> {
+
+    /* --- Members --- */
+
+    private final Node<T> root = new Node<>();
+
+    /* --- Public methods --- */
+
+    /**
+     * Map a folder to a value, replacing the existing value if the folder was already added.
+     */
+    public void put(Path folder, T value) {
+        Node<T> node = root;
+        for (String component : getComponents(folder)) {
+            node = node.children.computeIfAbsent(component, key -> new Node<>());
+        }
+        node.value = value;
+    }
+
+    /**
+     * @return the value of the deepest folder containing the path (or equal to it), null if there is none
+     */
+    public T getDeepest(String path) {
+        Path filePath;
+        try {
+            filePath = Paths.get(path);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        Node<T> node = root;
+        T deepest = null;
+        for (String component : getComponents(filePath)) {
+            node = node.children.get(component);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                deepest = node.value;
+            }
+        }
+        return deepest;
+    }
+
+    /* --- Private methods --- */
+
+    private Iterable<String> getComponents(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        List<String> components = new ArrayList<>(normalized.getNameCount() + 1);
+        if (normalized.getRoot() != null) {
+            components.add(normalized.getRoot().toString());
+        }
+        for (Path name : normalized) {
+            components.add(name.toString());
+        }
+        return components;
+    }
+
+    /* --- Nested classes --- */
+
+    private static class Node<T> {
+
+        private final Map<String, Node<T>> children = new HashMap<>();
+        private T value;
+    }
+}
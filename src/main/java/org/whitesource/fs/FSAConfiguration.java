@@ -26,6 +26,7 @@ import org.whitesource.agent.ViaLanguage;
 import org.whitesource.agent.api.dispatch.UpdateType;
 import org.whitesource.agent.client.ClientConstants;
 import org.whitesource.agent.dependency.resolver.maven.MavenTreeDependencyCollector;
+import org.whitesource.agent.dependency.resolver.npm.NpmRegistryClient;
 import org.whitesource.agent.utils.LoggerFactory;
 import org.whitesource.agent.utils.Pair;
 import org.whitesource.fs.configuration.*;
@@ -53,7 +54,7 @@ public class FSAConfiguration {
 
     public static Collection<String> ignoredWebProperties = Arrays.asList(
             ConfigPropertyKeys.SCM_REPOSITORIES_FILE, ConfigPropertyKeys.LOG_LEVEL_KEY, ConfigPropertyKeys.FOLLOW_SYMBOLIC_LINKS, ConfigPropertyKeys.SHOW_PROGRESS_BAR, ConfigPropertyKeys.PROJECT_CONFIGURATION_PATH, ConfigPropertyKeys.SCAN_PACKAGE_MANAGER, ConfigPropertyKeys.WHITESOURCE_FOLDER_PATH,
-            ConfigPropertyKeys.ENDPOINT_ENABLED, ConfigPropertyKeys.ENDPOINT_PORT, ConfigPropertyKeys.ENDPOINT_CERTIFICATE, ConfigPropertyKeys.ENDPOINT_PASS, ConfigPropertyKeys.ENDPOINT_SSL_ENABLED, ConfigPropertyKeys.OFFLINE_PROPERTY_KEY, ConfigPropertyKeys.OFFLINE_ZIP_PROPERTY_KEY,
+            ConfigPropertyKeys.ENDPOINT_ENABLED, ConfigPropertyKeys.ENDPOINT_PORT, ConfigPropertyKeys.ENDPOINT_CERTIFICATE, ConfigPropertyKeys.ENDPOINT_PASS, ConfigPropertyKeys.ENDPOINT_SSL_ENABLED, ConfigPropertyKeys.ENDPOINT_WORKERS, ConfigPropertyKeys.ENDPOINT_QUEUE_SIZE, ConfigPropertyKeys.OFFLINE_PROPERTY_KEY, ConfigPropertyKeys.OFFLINE_ZIP_PROPERTY_KEY,
             ConfigPropertyKeys.OFFLINE_PRETTY_JSON_KEY, ConfigPropertyKeys.WHITESOURCE_CONFIGURATION, ConfigPropertyKeys.SCANNED_FOLDERS);
 
     public static final int VIA_DEFAULT_ANALYSIS_LEVEL = 2;
@@ -92,6 +93,11 @@ public class FSAConfiguration {
     public static final int DEFAULT_PORT = 443;
     public static final boolean DEFAULT_SSL = true;
     private static final boolean DEFAULT_ENABLED = false;
+    public static final int DEFAULT_WORKERS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 10;
+    // maximum number of dependencies sent in a single request, 0 sends all the projects together
+    public static final int DEFAULT_SEND_BATCH_SIZE = 100000;
+    public static final int DEFAULT_SEND_THREADS = 2;
 
     private boolean projectPerFolder;
     private int connectionTimeOut;
@@ -477,7 +483,9 @@ public class FSAConfiguration {
                 config.getProperty(ConfigPropertyKeys.ENDPOINT_CERTIFICATE),
                 config.getProperty(ConfigPropertyKeys.ENDPOINT_PASS),
                 config.getBooleanProperty(ConfigPropertyKeys.ENDPOINT_ENABLED, DEFAULT_ENABLED),
-                config.getBooleanProperty(ConfigPropertyKeys.ENDPOINT_SSL_ENABLED, DEFAULT_SSL));
+                config.getBooleanProperty(ConfigPropertyKeys.ENDPOINT_SSL_ENABLED, DEFAULT_SSL),
+                config.getIntProperty(ConfigPropertyKeys.ENDPOINT_WORKERS, DEFAULT_WORKERS),
+                config.getIntProperty(ConfigPropertyKeys.ENDPOINT_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
     }
 
     private ResolverConfiguration getResolver(FSAConfigProperties config) {
@@ -505,6 +513,7 @@ public class FSAConfiguration {
         boolean mavenAggregateModules = config.getBooleanProperty(ConfigPropertyKeys.MAVEN_AGGREGATE_MODULES, false);
         boolean mavenIgnoredPomModules = config.getBooleanProperty(ConfigPropertyKeys.MAVEN_IGNORE_POM_MODULES, true);
         boolean mavenRunPreStep = config.getBooleanProperty(ConfigPropertyKeys.MAVEN_RUN_PRE_STEP, false);
+        int mavenSha1FileVerificationRate = config.getIntProperty(ConfigPropertyKeys.MAVEN_SHA1_FILE_VERIFICATION_RATE, 0);
 
         String whiteSourceConfiguration = config.getProperty(ConfigPropertyKeys.PROJECT_CONFIGURATION_PATH);
 
@@ -569,6 +578,10 @@ public class FSAConfiguration {
         boolean cocoapodsResolveDependencies = config.getBooleanProperty(ConfigPropertyKeys.COCOAPODS_RESOLVE_DEPENDENCIES, true);
         boolean cocoapodsRunPreStep = config.getBooleanProperty(ConfigPropertyKeys.COCOAPODS_RUN_PRE_STEP, false);
 
+        int resolverThreads = config.getIntProperty(ConfigPropertyKeys.RESOLVER_THREADS, 1);
+        String npmRegistryCacheFile = config.getProperty(ConfigPropertyKeys.NPM_REGISTRY_CACHE_FILE);
+        int npmRegistryConcurrency = config.getIntProperty(ConfigPropertyKeys.NPM_REGISTRY_CONCURRENCY, NpmRegistryClient.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
         boolean npmIgnoreSourceFiles;
         boolean bowerIgnoreSourceFiles;
         boolean nugetIgnoreSourceFiles;
@@ -609,10 +622,10 @@ public class FSAConfiguration {
         }
 
         return new ResolverConfiguration(npmRunPreStep, npmResolveDependencies, npmIgnoreScripts, npmIncludeDevDependencies, npmIgnoreSourceFiles,
-                npmTimeoutDependenciesCollector, npmAccessToken, npmIgnoreNpmLsErrors, npmYarnProject,
+                npmTimeoutDependenciesCollector, npmAccessToken, npmIgnoreNpmLsErrors, npmYarnProject, npmRegistryCacheFile, npmRegistryConcurrency,
                 bowerResolveDependencies, bowerRunPreStep, bowerIgnoreSourceFiles,
                 nugetResolveDependencies, nugetRestoreDependencies, nugetRunPreStep, nugetIgnoreSourceFiles,
-                mavenResolveDependencies, mavenIgnoredScopes, mavenAggregateModules, mavenIgnoredPomModules, mavenIgnoreSourceFiles, mavenRunPreStep,
+                mavenResolveDependencies, mavenIgnoredScopes, mavenAggregateModules, mavenIgnoredPomModules, mavenIgnoreSourceFiles, mavenRunPreStep, mavenSha1FileVerificationRate,
                 pythonResolveDependencies, pipPath, pythonPath, pythonIsWssPluginInstalled, pythonUninstallWssPluginInstalled,
                 pythonIgnorePipInstallErrors, pythonInstallVirtualenv, pythonResolveHierarchyTree, pythonRequirementsFileIncludes, pythonResolveSetupPyFiles, pythonIgnoreSourceFiles,
                 pythonIgnorePipenvInstallErrors, pythonRunPipenvPreStep, pythonInstallDevDependencies,
@@ -623,7 +636,7 @@ public class FSAConfiguration {
                 rubyResolveDependencies, rubyRunBundleInstall, rubyOverwriteGemFile, rubyInstallMissingGems, rubyIgnoreSourceFiles,
                 phpResolveDependencies, phpRunPreStep, phpIncludeDevDependencies,
                 sbtResolveDependencies, sbtAggregateModules, sbtRunPreStep, sbtTargetFolder, sbtIgnoreSourceFiles,
-                htmlResolveDependencies, cocoapodsResolveDependencies, cocoapodsRunPreStep, cocoapodsIgnoreSourceFiles);
+                htmlResolveDependencies, cocoapodsResolveDependencies, cocoapodsRunPreStep, cocoapodsIgnoreSourceFiles, resolverThreads);
     }
 
     private RequestConfiguration getRequest(FSAConfigProperties config, String apiToken, String userKey, String projectName, String projectToken, String scanComment) {
@@ -656,6 +669,8 @@ public class FSAConfiguration {
                 String.valueOf(ClientConstants.DEFAULT_CONNECTION_TIMEOUT_MINUTES)));
         int connectionRetries = config.getIntProperty(ConfigPropertyKeys.CONNECTION_RETRIES, 1);
         int connectionRetriesIntervals = config.getIntProperty(ConfigPropertyKeys.CONNECTION_RETRIES_INTERVALS, 3000);
+        int sendBatchSize = config.getIntProperty(ConfigPropertyKeys.SEND_BATCH_SIZE, DEFAULT_SEND_BATCH_SIZE);
+        int sendThreads = config.getIntProperty(ConfigPropertyKeys.SEND_THREADS, DEFAULT_SEND_THREADS);
         String senderPort = config.getProperty(ConfigPropertyKeys.PROXY_PORT_PROPERTY_KEY);
 
         int proxyPort;
@@ -673,7 +688,8 @@ public class FSAConfiguration {
         return new SenderConfiguration(checkPolicies, serviceUrl, connectionTimeOut,
                 proxyHost, proxyPort, proxyUser, proxyPassword,
                 forceCheckAllDependencies, forceUpdate, forceUpdateBuildFailed, updateTypeValue,
-                enableImpactAnalysis, ignoreCertificateCheck, connectionRetries, connectionRetriesIntervals, isSendLogsToWss, updateInventory);
+                enableImpactAnalysis, ignoreCertificateCheck, connectionRetries, connectionRetriesIntervals, isSendLogsToWss, updateInventory,
+                sendBatchSize, sendThreads);
     }
 
     private OfflineConfiguration getOffline(FSAConfigProperties config) {
@@ -696,11 +712,14 @@ public class FSAConfiguration {
         String[] archiveExcludes = config.getProperty(ConfigPropertyKeys.ARCHIVE_EXCLUDES_PATTERN_KEY, EMPTY_STRING).split(FSAConfiguration.INCLUDES_EXCLUDES_SEPARATOR_REGEX);
         String[] pythonRequirementsFileIncludes = config.getPythonIncludes();
         boolean archiveFastUnpack = config.getBooleanProperty(ConfigPropertyKeys.ARCHIVE_FAST_UNPACK_KEY, false);
+        boolean archiveStreaming = config.getBooleanProperty(ConfigPropertyKeys.ARCHIVE_STREAMING_KEY, false);
         boolean archiveFollowSymbolicLinks = config.getBooleanProperty(ConfigPropertyKeys.FOLLOW_SYMBOLIC_LINKS, true);
         boolean dockerScan = config.getBooleanProperty(ConfigPropertyKeys.SCAN_DOCKER_IMAGES, false);
         boolean partialSha1Match = config.getBooleanProperty(ConfigPropertyKeys.PARTIAL_SHA1_MATCH_KEY, false);
         boolean calculateHints = config.getBooleanProperty(ConfigPropertyKeys.CALCULATE_HINTS, false);
         boolean calculateMd5 = config.getBooleanProperty(ConfigPropertyKeys.CALCULATE_MD5, false);
+        int calculateThreads = config.getIntProperty(ConfigPropertyKeys.CALCULATE_THREADS, 1);
+        String hashCacheFile = config.getProperty(ConfigPropertyKeys.CALCULATE_HASH_CACHE_FILE);
         boolean showProgress = config.getBooleanProperty(ConfigPropertyKeys.SHOW_PROGRESS_BAR, true);
         Pair<Boolean, String> globalCaseSensitive = getGlobalCaseSensitive(config.getProperty(ConfigPropertyKeys.CASE_SENSITIVE_GLOB_PROPERTY_KEY));
 
@@ -709,8 +728,8 @@ public class FSAConfiguration {
         Collection<String> excludesCopyrights = getExcludeCopyrights(config.getProperty(ConfigPropertyKeys.EXCLUDED_COPYRIGHT_KEY, EMPTY_STRING));
 
         return new AgentConfiguration(includes, excludes, dockerIncludes, dockerExcludes,
-                archiveExtractionDepth, archiveIncludes, archiveExcludes, archiveFastUnpack, archiveFollowSymbolicLinks,
-                partialSha1Match, calculateHints, calculateMd5, showProgress, globalCaseSensitive.getKey(), dockerScan, excludesCopyrights, projectPerFolderIncludes,
+                archiveExtractionDepth, archiveIncludes, archiveExcludes, archiveFastUnpack, archiveStreaming, archiveFollowSymbolicLinks,
+                partialSha1Match, calculateHints, calculateMd5, calculateThreads, hashCacheFile, showProgress, globalCaseSensitive.getKey(), dockerScan, excludesCopyrights, projectPerFolderIncludes,
                 projectPerFolderExcludes, pythonRequirementsFileIncludes, globalCaseSensitive.getValue());
     }
 
@@ -2,36 +2,218 @@ package org.whitesource.fs;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import org.slf4j.LoggerFactory;
 import org.whitesource.agent.Constants;
-import java.util.concurrent.ConcurrentSkipListMap;
 
-public class LogMapAppender extends AppenderBase<ILoggingEvent> {
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-    // using this collection as its thread-safe and easily sortable
-    private ConcurrentSkipListMap<Long, ILoggingEvent> logEvents = new ConcurrentSkipListMap<>();
+/**
+ * Keeps the latest log events in memory so they can be sent with the requests to the server.
+ * The events are kept in a fixed-capacity ring buffer, the oldest events are dropped when the buffer is full or when
+ * the retained messages exceed the size cap. Appending is lock-free.
+ * Each event gets a sequence number, so the events of a single scan are the events logged since its first sequence.
+ */
+public class LogMapAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    /* --- Static members --- */
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_MAX_EVENT_SIZE = 4096;
+    public static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    private static final String TRUNCATED = "...";
+
+    /* --- Members --- */
+
+    private AtomicReferenceArray<LogEvent> events;
+    private int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    // sequence of the oldest event not dropped by the size cap
+    private final AtomicLong oldestSequence = new AtomicLong();
+    private final AtomicLong retainedSize = new AtomicLong();
+    private int capacity = DEFAULT_CAPACITY;
+    private int maxEventSize = DEFAULT_MAX_EVENT_SIZE;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private Level captureLevel = Level.DEBUG;
     private Level rootLevel;
+    private ch.qos.logback.classic.Logger logsSet;
+
+    /* --- Overridden methods --- */
+
+    @Override
+    public void start() {
+        // round the capacity up to a power of two so the slot of a sequence is a mask of it
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        events = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        logsSet = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Constants.MAP_LOG_NAME);
+        super.start();
+    }
 
     @Override
     protected void append(ILoggingEvent iLoggingEvent) {
-        // it is possible that multiple events have the same time-stamp.  in such case - increment the time-stamp key
-        long timeStamp = iLoggingEvent.getTimeStamp();
-        while (logEvents.get(timeStamp) != null){
-            timeStamp++;
+        if (rootLevel != null) {
+            // by setting the 'additive' property of this logger dynamically, it allows the pass the incoming event to the
+            // parent logger depending on the event's level and root's level
+            logsSet.setAdditive(iLoggingEvent.getLevel().levelInt >= rootLevel.levelInt);
+        }
+        if (!iLoggingEvent.getLevel().isGreaterOrEqual(captureLevel)) {
+            return;
+        }
+        String message = iLoggingEvent.getFormattedMessage();
+        if (message == null || message.isEmpty() || message.equals(Constants.NEW_LINE)) {
+            return;
+        }
+        if (message.length() > maxEventSize) {
+            message = message.substring(0, maxEventSize) + TRUNCATED;
+        }
+
+        long eventSequence = sequence.getAndIncrement();
+        LogEvent event = new LogEvent(eventSequence, iLoggingEvent.getLevel(), iLoggingEvent.getTimeStamp(), message);
+        LogEvent replaced = events.getAndSet(slot(eventSequence), event);
+        long size = retainedSize.addAndGet(event.getSize() - (replaced == null ? 0 : replaced.getSize()));
+        // drop the oldest events until the retained messages fit the size cap
+        while (size > maxSize) {
+            long oldest = oldestSequence.get();
+            if (oldest >= eventSequence) {
+                break;
+            }
+            if (oldestSequence.compareAndSet(oldest, oldest + 1)) {
+                LogEvent oldestEvent = events.get(slot(oldest));
+                if (oldestEvent != null && oldestEvent.getSequence() == oldest && events.compareAndSet(slot(oldest), oldestEvent, null)) {
+                    size = retainedSize.addAndGet(-oldestEvent.getSize());
+                    continue;
+                }
+            }
+            size = retainedSize.get();
         }
-        logEvents.put(timeStamp, iLoggingEvent);
-        ch.qos.logback.classic.Logger logsSet = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Constants.MAP_LOG_NAME);
-        // by setting the 'additive' property of this logger dynamically, it allows the pass the incoming event to the
-        // parent logger depending on the event's level and root's level
-        logsSet.setAdditive(iLoggingEvent.getLevel().levelInt >= rootLevel.levelInt);
     }
 
-    public ConcurrentSkipListMap getLogEvents(){
-        return logEvents;
+    /* --- Public methods --- */
+
+    /**
+     * @return the appender collecting the logs, null if logging was not configured with it
+     */
+    public static LogMapAppender getInstance() {
+        org.slf4j.Logger logger = LoggerFactory.getLogger(Constants.MAP_LOG_NAME);
+        if (logger instanceof ch.qos.logback.classic.Logger) {
+            Object appender = ((ch.qos.logback.classic.Logger) logger).getAppender(Constants.MAP_APPENDER_NAME);
+            if (appender instanceof LogMapAppender) {
+                return (LogMapAppender) appender;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the sequence of the next event, events logged from now on have this sequence or a later one
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * @param fromSequence sequence of the first event to return, 0 for all the retained events
+     * @return the retained events logged since the sequence, in the order they were logged
+     */
+    public List<LogEvent> getLogEvents(long fromSequence) {
+        if (events == null) {
+            return Collections.emptyList();
+        }
+        long end = sequence.get();
+        long start = Math.max(Math.max(fromSequence, oldestSequence.get()), end - events.length());
+        List<LogEvent> result = new ArrayList<>((int) Math.max(end - start, 0));
+        for (long eventSequence = start; eventSequence < end; eventSequence++) {
+            LogEvent event = events.get(slot(eventSequence));
+            // the slot may already hold a later event or not be written yet
+            if (event != null && event.getSequence() == eventSequence) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /* --- Private methods --- */
+
+    private int slot(long eventSequence) {
+        return (int) (eventSequence & mask);
     }
 
+    /* --- Setters --- */
+
     public void setRootLevel(Level rootLevel) {
         this.rootLevel = rootLevel;
     }
-}
\ No newline at end of file
+
+    /**
+     * @param capacity maximal number of retained events, rounded up to a power of two
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param maxEventSize maximal length of a single message, longer messages are truncated
+     */
+    public void setMaxEventSize(int maxEventSize) {
+        this.maxEventSize = maxEventSize;
+    }
+
+    /**
+     * @param maxSize maximal total length of the retained messages
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param captureLevel events below this level are not retained
+     */
+    public void setCaptureLevel(String captureLevel) {
+        this.captureLevel = Level.toLevel(captureLevel, Level.DEBUG);
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A retained log event, holds only the formatted message and not the arguments of the event.
+     */
+    public static class LogEvent {
+
+        private final long sequence;
+        private final Level level;
+        private final long timeStamp;
+        private final String message;
+
+        private LogEvent(long sequence, Level level, long timeStamp, String message) {
+            this.sequence = sequence;
+            this.level = level;
+            this.timeStamp = timeStamp;
+            this.message = message;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public long getTimeStamp() {
+            return timeStamp;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        private long getSize() {
+            return message.length();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.whitesource.agent.api.dispatch.UpdateInventoryRequest;
 import org.whitesource.agent.api.model.AgentProjectInfo;
 import org.whitesource.agent.api.model.Coordinates;
 import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
 import org.whitesource.agent.utils.Pair;
 import org.whitesource.fs.configuration.ConfigurationSerializer;
 import org.whitesource.fs.configuration.RequestConfiguration;
@@ -73,6 +74,8 @@ public class Main {
 
         CommandLineArgs commandLineArgs = new CommandLineArgs();
         commandLineArgs.parseCommandLine(args);
+        // the metrics of the scan stages can be watched over JMX while the scan is running
+        Metrics.registerMBean();
 
         StatusCode processExitCode;
 
@@ -148,6 +151,9 @@ public class Main {
             return new ProjectsDetails(new ArrayList<>(), StatusCode.ERROR, String.join(System.lineSeparator(), fsaConfiguration.getErrors()));
         }
 
+        // the logs sent with the request are the ones logged since this scan started
+        LogMapAppender logMapAppender = LogMapAppender.getInstance();
+        long logStartSequence = logMapAppender == null ? 0 : logMapAppender.getSequence();
         ProjectsDetails result = projectsCalculator.getAllProjects(fsaConfiguration);
 
         OfflineReader offlineReader = new OfflineReader();
@@ -191,6 +197,7 @@ public class Main {
 
         if (shouldSend) {
             ProjectsSender projectsSender = getProjectsSender(fsaConfiguration, req);
+            projectsSender.setLogStartSequence(logStartSequence);
             Pair<String, StatusCode> processExitCode = sendProjects(projectsSender, result);
             logger.debug("Process finished with exit code {} ({})", processExitCode.getKey(), processExitCode.getValue());
             return new ProjectsDetails(new ArrayList<>(), processExitCode.getValue(), processExitCode.getKey());
@@ -35,10 +35,13 @@ public class AgentConfiguration {
     private final String[] archiveIncludes;
     private final String[] archiveExcludes;
     private final boolean archiveFastUnpack;
+    private final boolean archiveStreaming;
     private final boolean followSymlinks;
     private final boolean partialSha1Match;
     private final boolean calculateHints;
     private final boolean calculateMd5;
+    private final int calculateThreads;
+    private final String hashCacheFile;
     private final boolean dockerScan;
     private final boolean showProgressBar;
     private final boolean globCaseSensitive;
@@ -61,10 +64,13 @@ public class AgentConfiguration {
                               @JsonProperty(ARCHIVE_INCLUDES_PATTERN_KEY) String[] archiveIncludes,
                               @JsonProperty(ARCHIVE_EXCLUDES_PATTERN_KEY) String[] archiveExcludes,
                               @JsonProperty(ARCHIVE_FAST_UNPACK_KEY) boolean archiveFastUnpack,
+                              @JsonProperty(ARCHIVE_STREAMING_KEY) boolean archiveStreaming,
                               @JsonProperty(FOLLOW_SYMBOLIC_LINKS) boolean followSymlinks,
                               @JsonProperty(PARTIAL_SHA1_MATCH_KEY) boolean partialSha1Match,
                               @JsonProperty(CALCULATE_HINTS) boolean calculateHints,
                               @JsonProperty(CALCULATE_MD5) boolean calculateMd5,
+                              @JsonProperty(CALCULATE_THREADS) int calculateThreads,
+                              @JsonProperty(CALCULATE_HASH_CACHE_FILE) String hashCacheFile,
                               @JsonProperty(SHOW_PROGRESS_BAR) boolean showProgressBar,
                               @JsonProperty(CASE_SENSITIVE_GLOB_PROPERTY_KEY) boolean globCaseSensitive,
                               @JsonProperty(SCAN_DOCKER_IMAGES) boolean dockerScan,
@@ -81,11 +87,14 @@ public class AgentConfiguration {
         this.archiveIncludes = archiveIncludes == null ? new String[0] : archiveIncludes;
         this.archiveExcludes = archiveExcludes == null ? new String[0] : archiveExcludes;
         this.archiveFastUnpack = archiveFastUnpack;
+        this.archiveStreaming = archiveStreaming;
         this.followSymlinks = followSymlinks;
         this.dockerScan = dockerScan;
         this.partialSha1Match = partialSha1Match;
         this.calculateHints = calculateHints;
         this.calculateMd5 = calculateMd5;
+        this.calculateThreads = calculateThreads;
+        this.hashCacheFile = hashCacheFile;
         this.showProgressBar = showProgressBar;
         this.globCaseSensitive = globCaseSensitive;
         this.error = error;
@@ -145,6 +154,11 @@ public class AgentConfiguration {
         return archiveFastUnpack;
     }
 
+    @JsonProperty(ARCHIVE_STREAMING_KEY)
+    public boolean isArchiveStreaming() {
+        return archiveStreaming;
+    }
+
     @JsonProperty(FOLLOW_SYMBOLIC_LINKS)
     public boolean isFollowSymlinks() {
         return followSymlinks;
@@ -165,6 +179,16 @@ public class AgentConfiguration {
         return calculateMd5;
     }
 
+    @JsonProperty(CALCULATE_THREADS)
+    public int getCalculateThreads() {
+        return calculateThreads;
+    }
+
+    @JsonProperty(CALCULATE_HASH_CACHE_FILE)
+    public String getHashCacheFile() {
+        return hashCacheFile;
+    }
+
     @JsonProperty(DOCKER_INCLUDES_PATTERN_PROPERTY_KEY)
     public String[] getDockerIncludes() {
         return dockerIncludes;
@@ -200,9 +224,12 @@ public class AgentConfiguration {
                 ", dockerExcludes=" + Arrays.toString(dockerExcludes) + "\n" +
                 ", archiveExtractionDepth=" + archiveExtractionDepth +
                 ", archiveIncludes=" + Arrays.toString(archiveIncludes) +
-                ", archiveExcludes=" + Arrays.toString(archiveExcludes) + "\n" +
+                ", archiveExcludes=" + Arrays.toString(archiveExcludes) +
+                ", archiveStreaming=" + archiveStreaming + "\n" +
                 ", followSymlinks=" + followSymlinks +
                 ", globCaseSensitive=" + globCaseSensitive +
+                ", calculateThreads=" + calculateThreads +
+                ", hashCacheFile=" + hashCacheFile +
                 ", projectPerFolderIncludes=" + Arrays.toString(projectPerFolderIncludes) +
                 ", projectPerFolderExcludes=" + Arrays.toString(projectPerFolderExcludes) +
                 ", pythonRequirementsFileIncludes=" + Arrays.toString(pythonRequirementsFileIncludes);
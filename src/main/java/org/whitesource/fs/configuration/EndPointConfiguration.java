@@ -25,6 +25,8 @@ public class EndPointConfiguration {
     private final String pass;
     private final boolean enabled;
     private final boolean ssl;
+    private final int workers;
+    private final int queueSize;
 
     @JsonProperty(ENDPOINT_PORT)
     public int getPort() {
@@ -51,17 +53,31 @@ public class EndPointConfiguration {
         return ssl;
     }
 
+    @JsonProperty(ENDPOINT_WORKERS)
+    public int getWorkers() {
+        return workers;
+    }
+
+    @JsonProperty(ENDPOINT_QUEUE_SIZE)
+    public int getQueueSize() {
+        return queueSize;
+    }
+
     @JsonCreator
     public EndPointConfiguration(
             @JsonProperty(ENDPOINT_PORT) int port,
             @JsonProperty(ENDPOINT_CERTIFICATE) String certificate,
             @JsonProperty(ENDPOINT_PASS) String pass,
             @JsonProperty(ENDPOINT_ENABLED) boolean enabled,
-            @JsonProperty(ENDPOINT_SSL_ENABLED) boolean ssl) {
+            @JsonProperty(ENDPOINT_SSL_ENABLED) boolean ssl,
+            @JsonProperty(ENDPOINT_WORKERS) int workers,
+            @JsonProperty(ENDPOINT_QUEUE_SIZE) int queueSize) {
         this.port = port;
         this.certificate = certificate;
         this.pass = pass;
         this.enabled = enabled;
         this.ssl = ssl;
+        this.workers = workers;
+        this.queueSize = queueSize;
     }
 }
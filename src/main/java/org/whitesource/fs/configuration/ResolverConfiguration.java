@@ -40,6 +40,8 @@ public class ResolverConfiguration {
             @JsonProperty(NPM_ACCESS_TOKEN) String npmAccessToken,
             @JsonProperty(NPM_IGNORE_NPM_LS_ERRORS) boolean npmIgnoreNpmLsErrors,
             @JsonProperty(NPM_YARN_PROJECT) boolean npmYarnProject,
+            @JsonProperty(NPM_REGISTRY_CACHE_FILE) String npmRegistryCacheFile,
+            @JsonProperty(NPM_REGISTRY_CONCURRENCY) int npmRegistryConcurrency,
 
             @JsonProperty(BOWER_RESOLVE_DEPENDENCIES) boolean bowerResolveDependencies,
             @JsonProperty(BOWER_RUN_PRE_STEP) boolean bowerRunPreStep,
@@ -56,6 +58,7 @@ public class ResolverConfiguration {
             @JsonProperty(MAVEN_IGNORE_POM_MODULES) boolean mavenIgnorePomModules,
             @JsonProperty(MAVEN_IGNORE_SOURCE_FILES) boolean mavenIgnoreSourceFiles,
             @JsonProperty(MAVEN_RUN_PRE_STEP) boolean mavenRunPreStep,
+            @JsonProperty(MAVEN_SHA1_FILE_VERIFICATION_RATE) int mavenSha1FileVerificationRate,
 
             @JsonProperty(PYTHON_RESOLVE_DEPENDENCIES) boolean pythonResolveDependencies,
             @JsonProperty(PYTHON_PIP_PATH) String pipPath,
@@ -115,7 +118,8 @@ public class ResolverConfiguration {
             @JsonProperty(HTML_RESOLVE_DEPENDENCIES) boolean htmlResolveDependencies,
             @JsonProperty(COCOAPODS_RESOLVE_DEPENDENCIES) boolean cocoapodsResolveDependencies,
             @JsonProperty(COCOAPODS_RUN_PRE_STEP) boolean cocoapodsRunPreStep,
-            @JsonProperty(COCOAPODS_IGNORE_SOURCE_FILES) boolean cocoapodsIgnoreSourceFiles) {
+            @JsonProperty(COCOAPODS_IGNORE_SOURCE_FILES) boolean cocoapodsIgnoreSourceFiles,
+            @JsonProperty(RESOLVER_THREADS) int resolverThreads) {
         this.npmRunPreStep                      = npmRunPreStep;
         this.npmIgnoreScripts                   = npmIgnoreScripts;
         this.npmResolveDependencies             = npmResolveDependencies;
@@ -125,6 +129,8 @@ public class ResolverConfiguration {
         this.npmIgnoreNpmLsErrors               = npmIgnoreNpmLsErrors;
         this.npmYarnProject                     = npmYarnProject;
         this.npmIgnoreSourceFiles               = npmIgnoreSourceFiles;
+        this.npmRegistryCacheFile               = npmRegistryCacheFile;
+        this.npmRegistryConcurrency             = npmRegistryConcurrency;
 
         this.bowerResolveDependencies   = bowerResolveDependencies;
         this.bowerRunPreStep            = bowerRunPreStep;
@@ -141,6 +147,7 @@ public class ResolverConfiguration {
         this.mavenIgnorePomModules      = mavenIgnorePomModules;
         this.mavenIgnoreSourceFiles     = mavenIgnoreSourceFiles;
         this.mavenRunPreStep            = mavenRunPreStep;
+        this.mavenSha1FileVerificationRate = mavenSha1FileVerificationRate;
 
         this.pythonResolveDependencies      = pythonResolveDependencies;
         this.pipPath                        = pipPath;
@@ -204,6 +211,8 @@ public class ResolverConfiguration {
         this.cocoapodsResolveDependencies = cocoapodsResolveDependencies;
         this.cocoapodsRunPreStep = cocoapodsRunPreStep;
         this.cocoapodsIgnoreSourceFiles   = cocoapodsIgnoreSourceFiles;
+
+        this.resolverThreads = resolverThreads;
     }
 
     /* --- Members --- */
@@ -217,6 +226,8 @@ public class ResolverConfiguration {
     private boolean npmIgnoreNpmLsErrors;
     private boolean npmYarnProject;
     private boolean npmIgnoreSourceFiles;
+    private String npmRegistryCacheFile;
+    private int npmRegistryConcurrency;
 
 
     private boolean bowerResolveDependencies;
@@ -234,6 +245,7 @@ public class ResolverConfiguration {
     private boolean mavenIgnorePomModules;
     private boolean mavenIgnoreSourceFiles;
     private boolean mavenRunPreStep;
+    private int mavenSha1FileVerificationRate;
 
 //    private boolean dependenciesOnly;
     private boolean ignoreSourceFiles;
@@ -298,6 +310,8 @@ public class ResolverConfiguration {
     private boolean cocoapodsRunPreStep;
     private boolean cocoapodsIgnoreSourceFiles;
 
+    private int resolverThreads;
+
     /* --- Public getters --- */
 
     @JsonProperty(NPM_RUN_PRE_STEP)
@@ -338,6 +352,16 @@ public class ResolverConfiguration {
         return npmIgnoreNpmLsErrors;
     }
 
+    @JsonProperty(NPM_REGISTRY_CACHE_FILE)
+    public String getNpmRegistryCacheFile() {
+        return npmRegistryCacheFile;
+    }
+
+    @JsonProperty(NPM_REGISTRY_CONCURRENCY)
+    public int getNpmRegistryConcurrency() {
+        return npmRegistryConcurrency;
+    }
+
     @JsonProperty(NPM_YARN_PROJECT)
     public boolean getNpmYarnProject() {
         return npmYarnProject;
@@ -398,6 +422,9 @@ public class ResolverConfiguration {
     @JsonProperty(MAVEN_RUN_PRE_STEP)
     public boolean isMavenRunPreStep() { return mavenRunPreStep; }
 
+    @JsonProperty(MAVEN_SHA1_FILE_VERIFICATION_RATE)
+    public int getMavenSha1FileVerificationRate() { return mavenSha1FileVerificationRate; }
+
     @JsonProperty(IGNORE_SOURCE_FILES)
     public boolean isIgnoreSourceFiles() {
         return ignoreSourceFiles;
@@ -624,6 +651,11 @@ public class ResolverConfiguration {
     @JsonProperty(COCOAPODS_IGNORE_SOURCE_FILES)
     public boolean isCocoapodsIgnoreSourceFiles() { return cocoapodsIgnoreSourceFiles; }
 
+    @JsonProperty(RESOLVER_THREADS)
+    public int getResolverThreads() {
+        return resolverThreads;
+    }
+
     public void setNpmResolveDependencies(boolean npmResolveDependencies) {
         this.npmResolveDependencies = npmResolveDependencies;
     }
@@ -711,7 +743,9 @@ public class ResolverConfiguration {
                 ", npm.IgnoreSourceFiles=" + npmIgnoreSourceFiles +
                 ", npm.TimeoutDependenciesCollector=" + npmTimeoutDependenciesCollector +
                 ", npm.IgnoreNpmLsErrors=" + npmIgnoreNpmLsErrors +
-                ", npm.yarnProject=" + npmYarnProject + '\n' +
+                ", npm.yarnProject=" + npmYarnProject +
+                ", npm.registryCacheFile=" + npmRegistryCacheFile +
+                ", npm.registryConcurrency=" + npmRegistryConcurrency + '\n' +
                 ", bower.ResolveDependencies=" + bowerResolveDependencies +
                 ", bower.RunPreStep=" + bowerRunPreStep + '\n' +
                 ", bower.IgnoreSourceFiles=" + bowerIgnoreSourceFiles + '\n' +
@@ -721,7 +755,8 @@ public class ResolverConfiguration {
                 ", maven.IgnoredScopes=" + Arrays.toString(mavenIgnoredScopes) +
                 ", maven.AggregateModules=" + mavenAggregateModules +
                 ", maven.IgnoreSourceFiles=" + mavenIgnoreSourceFiles +
-                ", maven.RunPreStep=" + mavenRunPreStep + '\n' +
+                ", maven.RunPreStep=" + mavenRunPreStep +
+                ", maven.sha1FileVerificationRate=" + mavenSha1FileVerificationRate + '\n' +
                 ", python.ResolveDependencies=" + pythonResolveDependencies +
                 ", python.IgnorePipInstallErrors=" + pythonIgnorePipInstallErrors +
                 ", python.InstallVirtualenv=" + pythonInstallVirtualenv +
@@ -762,7 +797,8 @@ public class ResolverConfiguration {
                 ", sbt.RunPreStep=" + sbtRunPreStep + '\n' +
                 ", sbt.TargetFolder=" + sbtTargetFolder + '\n' +
                 ", sbt.IgnoreSourceFiles=" + sbtIgnoreSourceFiles + '\n' +
-                ", html.ResolveDependencies=" + htmlResolveDependencies;
+                ", html.ResolveDependencies=" + htmlResolveDependencies + '\n' +
+                ", resolver.threads=" + resolverThreads;
     }
 
 }
\ No newline at end of file
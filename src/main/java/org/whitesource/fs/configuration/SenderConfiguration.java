@@ -40,6 +40,8 @@ public class SenderConfiguration {
     private final int connectionRetriesIntervals;
     private final boolean sendLogsToWss;
     private final boolean updateInventory;
+    private final int sendBatchSize;
+    private final int sendThreads;
 
     public SenderConfiguration(
             @JsonProperty(CHECK_POLICIES_PROPERTY_KEY) boolean checkPolicies,
@@ -60,7 +62,9 @@ public class SenderConfiguration {
             @JsonProperty(CONNECTION_RETRIES) int connectionRetries,
             @JsonProperty(CONNECTION_RETRIES_INTERVALS) int connectionRetriesIntervals,
             @JsonProperty(SEND_LOGS_TO_WSS) boolean sendLogsToWss,
-            @JsonProperty(UPDATE_INVENTORY) boolean updateInventory){
+            @JsonProperty(UPDATE_INVENTORY) boolean updateInventory,
+            @JsonProperty(SEND_BATCH_SIZE) int sendBatchSize,
+            @JsonProperty(SEND_THREADS) int sendThreads){
         this.checkPolicies = checkPolicies;
         this.serviceUrl = serviceUrl;
         this.proxyHost = proxyHost;
@@ -78,6 +82,8 @@ public class SenderConfiguration {
         this.connectionRetriesIntervals = connectionRetriesIntervals;
         this.sendLogsToWss = sendLogsToWss;
         this.updateInventory = updateInventory;
+        this.sendBatchSize = sendBatchSize;
+        this.sendThreads = sendThreads;
     }
 
     @JsonProperty(SERVICE_URL_KEYWORD)
@@ -163,6 +169,16 @@ public class SenderConfiguration {
         return updateInventory;
     }
 
+    @JsonProperty(SEND_BATCH_SIZE)
+    public int getSendBatchSize() {
+        return sendBatchSize;
+    }
+
+    @JsonProperty(SEND_THREADS)
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
     public void setEnableImpactAnalysis(boolean enableImpactAnalysis) { this.enableImpactAnalysis = enableImpactAnalysis; }
 
     @Override
@@ -173,7 +189,9 @@ public class SenderConfiguration {
                 ", forceUpdate=" + forceUpdate + '\n' +
                 ", forceUpdate.failBuildOnPolicyViolation=" + forceUpdateFailBuildOnPolicyViolation + '\n' +
                 ", updateTypeValue='" + updateTypeValue + "'" +'\n' +
-                ", updateInventory=" + updateInventory;
+                ", updateInventory=" + updateInventory + '\n' +
+                ", sendBatchSize=" + sendBatchSize +
+                ", sendThreads=" + sendThreads;
 //                ", enableImpactAnalysis=" + enableImpactAnalysis;
     }
 }
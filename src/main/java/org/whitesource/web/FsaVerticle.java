@@ -30,6 +30,7 @@ import org.slf4j.Logger;
 import org.whitesource.agent.utils.LoggerFactory;
 import org.whitesource.agent.Constants;
 import org.whitesource.agent.utils.CommandLineProcess;
+import org.whitesource.agent.utils.Metrics;
 import org.whitesource.fs.*;
 import org.whitesource.fs.configuration.ConfigurationSerializer;
 
@@ -40,22 +41,35 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import static org.whitesource.agent.ConfigPropertyKeys.ENDPOINT_PORT;
 
 /**
- * Blocking Verticle that does the work on top of the FSA
+ * Verticle that does the work on top of the FSA, either blocking on each request or through scan jobs
  */
 public class FsaVerticle extends AbstractVerticle {
 
     private final Logger logger = LoggerFactory.getLogger(FsaVerticle.class);
     public static final String API_ANALYZE = "/analyze";
     public static final String API_SEND = "/send";
+    public static final String API_JOBS = "/jobs";
+    public static final String JOB_ID = "id";
+    public static final String API_JOB = API_JOBS + "/:" + JOB_ID;
+    public static final String API_JOB_RESULT = API_JOB + "/result";
+    public static final String API_METRICS = "/metrics";
     public static final String HOME = "/";
     public static final String WELCOME_MESSAGE = "<h1>File system agent is up and running </h1>";
     public static final String CONFIGURATION = "configuration";
     public static final String KEYSTORE_JKS = "keystore.jks";
+    private static final int HTTP_ACCEPTED = 202;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
     private FSAConfiguration localFsaConfiguration;
+    private ScanJobs scanJobs;
 
     @Override
     public void start(Future<Void> fut) {
@@ -69,6 +83,15 @@ public class FsaVerticle extends AbstractVerticle {
         // expose a POST method endpoint on the URI: /send
         router.post(API_SEND).blockingHandler(this::send);
 
+        // asynchronous scans: submit a job and poll for its status and result
+        router.post(API_JOBS + API_ANALYZE).handler(context -> submitJob(context, this::getAnalyzeResult));
+        router.post(API_JOBS + API_SEND).handler(context -> submitJob(context, this::getSendResult));
+        router.get(API_JOB_RESULT).handler(this::jobResult);
+        router.get(API_JOB).handler(this::jobStatus);
+
+        // metrics of the scans in the Prometheus text format
+        router.get(API_METRICS).handler(this::metrics);
+
         router.get(HOME).handler(this::welcome);
 
         String config = config().getString(CONFIGURATION);
@@ -77,6 +100,8 @@ public class FsaVerticle extends AbstractVerticle {
         } else {
             localFsaConfiguration = ConfigurationSerializer.getFromString(config, FSAConfiguration.class, false);
         }
+        scanJobs = new ScanJobs(localFsaConfiguration.getEndpoint().getWorkers(), localFsaConfiguration.getEndpoint().getQueueSize());
+        Metrics.registerMBean();
 
         String certificate = localFsaConfiguration.getEndpoint().getCertificate();
         String pass = localFsaConfiguration.getEndpoint().getPass();
@@ -105,6 +130,13 @@ public class FsaVerticle extends AbstractVerticle {
                 );
     }
 
+    @Override
+    public void stop() {
+        if (scanJobs != null) {
+            scanJobs.shutdown();
+        }
+    }
+
     private boolean generateCertificateAndPass(String keystoreName, String password) {
         String keyToolPath = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
         String[] params = new String[]{keyToolPath, "-genkey", "-alias", "replserver", "-keyalg", "RSA", "-keystore", keystoreName, "-dname",
@@ -137,34 +169,76 @@ public class FsaVerticle extends AbstractVerticle {
     }
 
     private void send(RoutingContext context) {
+        String body = context.getBodyAsString();
         vertx.executeBlocking(future -> {
-            ProjectsDetails resultProjects = getProjects(context, true);
-            future.complete(resultProjects);
+            future.complete(getSendResult(body));
         }, false, res -> {
             if (res.failed()) {
                 logger.error("error running blocking request:", res.cause().getMessage());
             } else {
-                ProjectsDetails resultProjects = (ProjectsDetails)res.result();
-                ResultDto resultDto = new ResultDto(resultProjects.getDetails(), resultProjects.getStatusCode());
-                handleResponse(context, resultDto);
+                handleResponse(context, (ResultDto) res.result());
             }
         });
 
     }
 
     public void analyze(RoutingContext context) {
-        ProjectsDetails result = getProjects(context, false);
-        ResultDto resultDto = new ResultDto(new ProjectsDetails(result.getProjects(),result.getStatusCode(),result.getDetails()), result.getStatusCode());
-        handleResponse(context, resultDto);
+        handleResponse(context, getAnalyzeResult(context.getBodyAsString()));
+    }
+
+    private ResultDto getSendResult(String body) {
+        ProjectsDetails resultProjects = getProjects(body, true);
+        return new ResultDto(resultProjects.getDetails(), resultProjects.getStatusCode());
+    }
+
+    private ResultDto getAnalyzeResult(String body) {
+        ProjectsDetails result = getProjects(body, false);
+        return new ResultDto(new ProjectsDetails(result.getProjects(),result.getStatusCode(),result.getDetails()), result.getStatusCode());
+    }
+
+    private void submitJob(RoutingContext context, Function<String, ResultDto<?, ?>> scan) {
+        // the body is read on the event loop, the scan itself runs on a worker of the jobs pool
+        String body = context.getBodyAsString();
+        try {
+            ScanJobs.Job job = scanJobs.submit(() -> scan.apply(body));
+            context.response().setStatusCode(HTTP_ACCEPTED);
+            handleResponse(context, job);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Scan rejected, all the workers are busy and the queue is full");
+            context.response().setStatusCode(HTTP_SERVICE_UNAVAILABLE).end("Too many scans are running, try again later");
+        }
+    }
+
+    private void jobStatus(RoutingContext context) {
+        ScanJobs.Job job = scanJobs.getJob(context.request().getParam(JOB_ID));
+        if (job == null) {
+            context.response().setStatusCode(HTTP_NOT_FOUND).end("Job not found");
+        } else {
+            handleResponse(context, job);
+        }
     }
 
-    private void handleResponse(RoutingContext context, ResultDto resultDto) {
+    private void jobResult(RoutingContext context) {
+        ScanJobs.Job job = scanJobs.getJob(context.request().getParam(JOB_ID));
+        if (job == null) {
+            context.response().setStatusCode(HTTP_NOT_FOUND).end("Job not found");
+        } else if (job.getStatus() == ScanJobs.JobStatus.DONE) {
+            handleResponse(context, job.getResult());
+        } else {
+            // the job is still running or it failed, return its status instead
+            context.response().setStatusCode(job.isFinished() ? HTTP_INTERNAL_ERROR : HTTP_ACCEPTED);
+            handleResponse(context, job);
+        }
+    }
+
+    private void handleResponse(RoutingContext context, Object resultDto) {
         String result = null;
         try {
             result = new ObjectMapper().writeValueAsString(resultDto);
         } catch (JsonProcessingException e) {
             logger.error("Error writing json:", e);
             context.response().end("Scanning has failed");
+            return;
         }
         context.response().end(result);
     }
@@ -173,11 +247,15 @@ public class FsaVerticle extends AbstractVerticle {
         context.response().end(WELCOME_MESSAGE);
     }
 
-    private ProjectsDetails getProjects(RoutingContext context, boolean shouldSend) {
-        final FSAConfiguration webFsaConfiguration = ConfigurationSerializer.getFromString(context.getBodyAsString(), FSAConfiguration.class, false);
+    private void metrics(RoutingContext context) {
+        context.response().putHeader("content-type", PROMETHEUS_CONTENT_TYPE).end(Metrics.toPrometheus());
+    }
+
+    private ProjectsDetails getProjects(String body, boolean shouldSend) {
+        final FSAConfiguration webFsaConfiguration = ConfigurationSerializer.getFromString(body, FSAConfiguration.class, false);
 
         if (webFsaConfiguration != null) {
-            HashMap<String, Object> result = ConfigurationSerializer.getFromString(context.getBodyAsString(), HashMap.class, false);
+            HashMap<String, Object> result = ConfigurationSerializer.getFromString(body, HashMap.class, false);
             FSAConfiguration mergedFsaConfiguration = mergeConfigurations(localFsaConfiguration, result);
 
             Main main = new Main();
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014 WhiteSource Ltd.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.web;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.slf4j.Logger;
+import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.Metrics;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs scans submitted to the web endpoint on a bounded pool of workers, a scan submitted when all the workers are busy
+ * and the queue is full is rejected. Finished jobs are kept for a while so their results can be fetched.
+ */
+public class ScanJobs {
+
+    /* --- Static members --- */
+
+    private static final long JOB_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /* --- Members --- */
+
+    private final Logger logger = LoggerFactory.getLogger(ScanJobs.class);
+    private final long jobRetentionMillis;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param workers   number of scans running concurrently
+     * @param queueSize number of scans waiting for a worker, 0 or less means scans are only accepted when a worker is free
+     */
+    public ScanJobs(int workers, int queueSize) {
+        this(workers, queueSize, JOB_RETENTION_MILLIS);
+    }
+
+    ScanJobs(int workers, int queueSize, long jobRetentionMillis) {
+        this.jobRetentionMillis = jobRetentionMillis;
+        int poolSize = Math.max(workers, 1);
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue, new ThreadPoolExecutor.AbortPolicy());
+        Metrics.gauge("jobs_queued", () -> executor.getQueue().size());
+        Metrics.gauge("jobs_running", executor::getActiveCount);
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param scan the scan to run, returns the result of the job
+     * @return the submitted job
+     * @throws RejectedExecutionException if there is no room for the job
+     */
+    public Job submit(Supplier<ResultDto<?, ?>> scan) {
+        removeExpiredJobs();
+        Job job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, scan));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        logger.debug("Job {} submitted", job.getId());
+        return job;
+    }
+
+    /**
+     * @return the job, null if there is no such job or it expired
+     */
+    public Job getJob(String id) {
+        // jobs expire even when no scan is submitted for a while
+        removeExpiredJobs();
+        return id == null ? null : jobs.get(id);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        Metrics.removeGauge("jobs_queued");
+        Metrics.removeGauge("jobs_running");
+    }
+
+    /* --- Private methods --- */
+
+    private void run(Job job, Supplier<ResultDto<?, ?>> scan) {
+        job.status = JobStatus.RUNNING;
+        try {
+            job.result = scan.get();
+            job.status = JobStatus.DONE;
+        } catch (Exception e) {
+            logger.error("Job {} failed: {}", job.getId(), e.getMessage());
+            logger.debug("Job failed", e);
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            job.status = JobStatus.FAILED;
+        } finally {
+            job.finishTime = System.currentTimeMillis();
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long expiredTime = System.currentTimeMillis() - jobRetentionMillis;
+        jobs.values().removeIf(job -> job.isFinished() && job.finishTime < expiredTime);
+    }
+
+    /* --- Nested classes --- */
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    public static class Job {
+
+        /* --- Members --- */
+
+        private final String id;
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile ResultDto<?, ?> result;
+        private volatile String error;
+        private volatile long finishTime;
+
+        /* --- Constructors --- */
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        /* --- Getters --- */
+
+        public String getId() {
+            return id;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        @JsonIgnore
+        public ResultDto<?, ?> getResult() {
+            return result;
+        }
+
+        /**
+         * @return the message of the exception the job failed with, null if it didn't fail
+         */
+        public String getError() {
+            return error;
+        }
+
+        @JsonIgnore
+        public boolean isFinished() {
+            return status == JobStatus.DONE || status == JobStatus.FAILED;
+        }
+    }
+}
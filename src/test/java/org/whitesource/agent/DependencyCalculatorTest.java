@@ -0,0 +1,138 @@
+package org.whitesource.agent;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DependencyCalculatorTest {
+
+    private static final int FILES = 100;
+    private static final int THREADS = 2;
+    // the queue size of DependencyCalculator with THREADS threads
+    private static final int QUEUE_SIZE = THREADS * 4;
+
+    private File folder;
+    private List<String> fileNames;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("calculator").toFile();
+        fileNames = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            String fileName = "file" + i + ".js";
+            FileUtils.write(new File(folder, fileName), "var value" + i + " = " + i + ";\n");
+            fileNames.add(fileName);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Test
+    public void shouldReturnDependenciesInInputOrder() {
+        Collection<DependencyInfo> dependencies = new DependencyCalculator(false, 4).createDependencies(false, FILES,
+                Collections.singletonMap(folder, fileNames), Collections.emptyList(), false);
+
+        Assert.assertEquals(fileNames, getFileNames(dependencies));
+    }
+
+    @Test
+    public void shouldKeepOtherDependenciesWhenOneFileFails() {
+        String failingFile = fileNames.get(10);
+        String missingFile = fileNames.get(20);
+        FileUtils.deleteQuietly(new File(folder, missingFile));
+        DependencyCalculator calculator = new DependencyCalculator(false, THREADS) {
+            @Override
+            protected DependencyInfoFactory createFactory(Collection<String> excludedCopyrights, boolean partialSha1Match,
+                                                          boolean calculateHints, boolean calculateMd5) {
+                return new DependencyInfoFactory() {
+                    @Override
+                    public DependencyInfo createDependencyInfo(File basedir, String filename) {
+                        if (failingFile.equals(filename)) {
+                            // an error is not caught by the task and fails its future
+                            throw new AssertionError("Failed to hash " + filename);
+                        }
+                        return super.createDependencyInfo(basedir, filename);
+                    }
+                };
+            }
+        };
+
+        Collection<DependencyInfo> dependencies = calculator.createDependencies(false, FILES, Collections.singletonMap(folder, fileNames),
+                Collections.emptyList(), false);
+
+        List<String> expected = new ArrayList<>(fileNames);
+        expected.remove(failingFile);
+        expected.remove(missingFile);
+        Assert.assertEquals(expected, getFileNames(dependencies));
+    }
+
+    @Test
+    public void shouldBoundPendingFilesAndDrainQueue() throws InterruptedException {
+        AtomicInteger startedFiles = new AtomicInteger();
+        CountDownLatch firstFileReleased = new CountDownLatch(1);
+        DependencyCalculator calculator = new DependencyCalculator(false, THREADS) {
+            @Override
+            protected DependencyInfoFactory createFactory(Collection<String> excludedCopyrights, boolean partialSha1Match,
+                                                          boolean calculateHints, boolean calculateMd5) {
+                return new DependencyInfoFactory() {
+                    @Override
+                    public DependencyInfo createDependencyInfo(File basedir, String filename) {
+                        startedFiles.incrementAndGet();
+                        if (fileNames.get(0).equals(filename)) {
+                            try {
+                                firstFileReleased.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return super.createDependencyInfo(basedir, filename);
+                    }
+                };
+            }
+        };
+
+        AtomicReference<Collection<DependencyInfo>> dependencies = new AtomicReference<>();
+        Thread calculation = new Thread(() -> dependencies.set(calculator.createDependencies(false, FILES,
+                Collections.singletonMap(folder, fileNames), Collections.emptyList(), false)));
+        calculation.start();
+        try {
+            // while the first file is hashed no more than a full queue of files is submitted
+            long deadline = System.currentTimeMillis() + 10000;
+            while (startedFiles.get() < QUEUE_SIZE && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            Assert.assertEquals(QUEUE_SIZE, startedFiles.get());
+        } finally {
+            firstFileReleased.countDown();
+        }
+        calculation.join(TimeUnit.SECONDS.toMillis(30));
+
+        Assert.assertFalse(calculation.isAlive());
+        Assert.assertEquals(FILES, startedFiles.get());
+        Assert.assertEquals(fileNames, getFileNames(dependencies.get()));
+    }
+
+    private List<String> getFileNames(Collection<DependencyInfo> dependencies) {
+        List<String> names = new ArrayList<>();
+        for (DependencyInfo dependency : dependencies) {
+            names.add(dependency.getFilename());
+        }
+        return names;
+    }
+}
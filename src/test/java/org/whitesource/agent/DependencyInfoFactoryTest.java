@@ -1,11 +1,23 @@
 package org.whitesource.agent;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.whitesource.agent.api.model.ChecksumType;
 import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.dependency.resolver.npm.TestHelper;
+import org.whitesource.agent.hash.ChecksumUtils;
+import org.whitesource.agent.hash.HashAlgorithm;
+import org.whitesource.agent.hash.HashCalculator;
+import org.whitesource.agent.hash.WssHashException;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Test class for creadur-rat.
@@ -22,4 +34,50 @@ public class DependencyInfoFactoryTest {
         DependencyInfo dependencyInfo = factory.createDependencyInfo(file.getParentFile(),file.getName());
         dependencyInfo.getCopyrights();
     }
+
+    @Test
+    public void shouldCalculateSameHashesFromMemoryAndFromFile() throws IOException, WssHashException {
+        File sample = TestHelper.getFileFromResources("resolver/npm/sample.js");
+        assertSameHashes(sample);
+
+        // windows line endings and a byte order mark
+        File folder = Files.createTempDirectory("factory").toFile();
+        try {
+            File file = new File(folder, "windows.js");
+            String content = FileUtils.readFileToString(sample, StandardCharsets.UTF_8);
+            byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+            FileUtils.writeByteArrayToFile(file, bom);
+            FileUtils.writeStringToFile(file, content.replace("\r\n", "\n").replace("\n", "\r\n"), StandardCharsets.UTF_8, true);
+            assertSameHashes(file);
+        } finally {
+            FileUtils.deleteQuietly(folder);
+        }
+    }
+
+    private void assertSameHashes(File file) throws IOException, WssHashException {
+        DependencyInfoFactory factory = new DependencyInfoFactory(Collections.emptyList(), false, false, true);
+        DependencyInfo fromMemory = factory.createDependencyInfo(FileUtils.readFileToByteArray(file), file.getName(), file.getPath());
+        DependencyInfo fromFactory = factory.createDependencyInfo(file.getParentFile(), file.getName());
+
+        // the hashes calculated by reading the file once per hash
+        DependencyInfo fromFile = new DependencyInfo(ChecksumUtils.calculateSHA1(file));
+        fromFile.addChecksum(ChecksumType.MD5, ChecksumUtils.calculateHash(file, HashAlgorithm.MD5));
+        for (Map.Entry<ChecksumType, String> checksum : new HashCalculator().calculateJavaScriptHashes(file).entrySet()) {
+            fromFile.addChecksum(checksum.getKey(), checksum.getValue());
+        }
+        ChecksumUtils.calculateOtherPlatformSha1(fromFile, file);
+        ChecksumUtils.calculateSuperHash(fromFile, file);
+
+        Assert.assertNotNull(fromFile.getOtherPlatformSha1());
+        Assert.assertNotNull(fromFile.getFullHash());
+        Assert.assertTrue(fromFile.getChecksums().size() > 2);
+        for (DependencyInfo dependency : new DependencyInfo[]{fromMemory, fromFactory}) {
+            Assert.assertEquals(fromFile.getSha1(), dependency.getSha1());
+            Assert.assertEquals(fromFile.getOtherPlatformSha1(), dependency.getOtherPlatformSha1());
+            Assert.assertEquals(fromFile.getFullHash(), dependency.getFullHash());
+            Assert.assertEquals(fromFile.getMostSigBitsHash(), dependency.getMostSigBitsHash());
+            Assert.assertEquals(fromFile.getLeastSigBitsHash(), dependency.getLeastSigBitsHash());
+            Assert.assertEquals(fromFile.getChecksums(), dependency.getChecksums());
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package org.whitesource.agent;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.utils.LoggerFactory;
+import org.whitesource.agent.utils.SyntheticTreeGenerator;
+import org.whitesource.fs.FSAConfigProperties;
+import org.whitesource.fs.FSAConfiguration;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Scans a generated tree end to end and fails when the scan exceeds its time or peak heap budget.
+ * The tree and the budgets can be changed with system properties, e.g. -Dscale.files=2000000 -Dscale.maxSeconds=3600
+ * <p>
+ * The default build scans a small tree, the scale-test profile runs only this test on a large tree in its own JVM:
+ * mvn test -Pscale-test
+ */
+public class FileSystemScannerScaleTest {
+
+    private final Logger logger = LoggerFactory.getLogger(FileSystemScannerScaleTest.class);
+
+    private static final int FILES = Integer.getInteger("scale.files", 10000);
+    private static final int ARCHIVES = Integer.getInteger("scale.archives", 10);
+    private static final int ARCHIVE_NESTING = Integer.getInteger("scale.archiveNesting", 1);
+    private static final int MODULES = Integer.getInteger("scale.modules", 5);
+    private static final long MAX_SECONDS = Long.getLong("scale.maxSeconds", 120);
+    // the sum of the peaks of the heap pools, which includes the memory freed during the scan
+    private static final long MAX_PEAK_HEAP_MB = Long.getLong("scale.maxPeakHeapMb", 512);
+    // the package managers are usually not installed where the tests run, the modules are then scanned as plain files
+    private static final boolean RESOLVE_DEPENDENCIES = Boolean.getBoolean("scale.resolveDependencies");
+    private static final String[] RESOLVE_DEPENDENCIES_KEYS = {ConfigPropertyKeys.NPM_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.BOWER_RESOLVE_DEPENDENCIES,
+            ConfigPropertyKeys.NUGET_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.MAVEN_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.PYTHON_RESOLVE_DEPENDENCIES,
+            ConfigPropertyKeys.GRADLE_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.PAKET_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.GO_RESOLVE_DEPENDENCIES,
+            ConfigPropertyKeys.RUBY_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.PHP_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.SBT_RESOLVE_DEPENDENCIES,
+            ConfigPropertyKeys.HTML_RESOLVE_DEPENDENCIES, ConfigPropertyKeys.COCOAPODS_RESOLVE_DEPENDENCIES};
+
+    @Test
+    public void shouldScanLargeTreeWithinBudget() throws IOException {
+        Path root = Files.createTempDirectory("scale-test");
+        try {
+            SyntheticTreeGenerator.Summary summary = new SyntheticTreeGenerator().files(FILES).depth(4).archives(ARCHIVES)
+                    .archiveNesting(ARCHIVE_NESTING).npmModules(MODULES).mavenModules(MODULES).gradleModules(MODULES).generate(root);
+            FSAConfiguration configuration = configuration(ARCHIVE_NESTING + 1);
+            FileSystemScanner scanner = new FileSystemScanner(configuration.getResolver(), configuration.getAgent(), false);
+
+            // start from a collected heap so the peak is not taken by the garbage of the tree generation
+            System.gc();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            Collection<AgentProjectInfo> projects = scanner.createProjects(Collections.singletonList(root.toString()), false).keySet();
+            long seconds = (System.nanoTime() - start) / 1000000000L;
+            long peakHeapMb = getPeakHeap() / (1024 * 1024);
+            logger.info("Scanned {} in {} seconds, peak heap {}MB", summary, seconds, peakHeapMb);
+
+            int dependencies = 0;
+            for (AgentProjectInfo project : projects) {
+                dependencies += project.getDependencies().size();
+            }
+            Assert.assertTrue("Found only " + dependencies + " dependencies", dependencies >= summary.getFiles() + summary.getArchiveEntries());
+            Assert.assertTrue("Scan took " + seconds + " seconds, budget is " + MAX_SECONDS, seconds <= MAX_SECONDS);
+            Assert.assertTrue("Peak heap was " + peakHeapMb + "MB, budget is " + MAX_PEAK_HEAP_MB + "MB", peakHeapMb <= MAX_PEAK_HEAP_MB);
+        } finally {
+            FileUtils.deleteQuietly(root.toFile());
+        }
+    }
+
+    private FSAConfiguration configuration(int archiveExtractionDepth) {
+        FSAConfigProperties config = new FSAConfigProperties();
+        config.setProperty(ConfigPropertyKeys.ORG_TOKEN_PROPERTY_KEY, "token");
+        config.setProperty(ConfigPropertyKeys.OFFLINE_PROPERTY_KEY, Constants.TRUE);
+        config.setProperty(ConfigPropertyKeys.INCLUDES_PATTERN_PROPERTY_KEY, "**/*.java **/*.js **/*.cs **/*.py **/*.txt **/*.jar **/*.dll **/*.so **/*.exe");
+        config.setProperty(ConfigPropertyKeys.ARCHIVE_EXTRACTION_DEPTH_KEY, String.valueOf(archiveExtractionDepth));
+        config.setProperty(ConfigPropertyKeys.ARCHIVE_INCLUDES_PATTERN_KEY, "**/*.zip **/*.jar");
+        for (String key : RESOLVE_DEPENDENCIES_KEYS) {
+            config.setProperty(key, String.valueOf(RESOLVE_DEPENDENCIES));
+        }
+        return new FSAConfiguration(config);
+    }
+
+    private void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,77 @@
+package org.whitesource.agent;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class HashCacheTest {
+
+    @Test
+    public void shouldReuseHashesOfUnchangedFiles() throws IOException {
+        Path folder = Files.createTempDirectory("hash-cache");
+        try {
+            File file = folder.resolve("library.js").toFile();
+            FileUtils.write(file, "var a = 1;\nvar b = 2;\n");
+            // files modified just before hashing are not cached
+            file.setLastModified(System.currentTimeMillis() - 60000);
+            File cacheFile = folder.resolve("cache").resolve("hashes.json").toFile();
+
+            HashCache hashCache = new HashCache(cacheFile, false);
+            DependencyInfo calculated = createDependencyInfo(hashCache, file);
+            hashCache.save();
+            Assert.assertTrue(cacheFile.isFile());
+
+            HashCache loadedCache = new HashCache(cacheFile, false);
+            DependencyInfo cached = loadedCache.get(loadedCache.getFileStamp(file));
+            Assert.assertNotNull(cached);
+            Assert.assertEquals(calculated.getSha1(), cached.getSha1());
+            Assert.assertNotNull(calculated.getOtherPlatformSha1());
+            Assert.assertEquals(calculated.getOtherPlatformSha1(), cached.getOtherPlatformSha1());
+            Assert.assertEquals(calculated.getChecksums(), cached.getChecksums());
+            Assert.assertEquals(calculated.getSystemPath(), cached.getSystemPath());
+
+            // a modified file is hashed again
+            FileUtils.write(file, "var a = 3;\n");
+            file.setLastModified(System.currentTimeMillis() - 30000);
+            Assert.assertNull(loadedCache.get(loadedCache.getFileStamp(file)));
+
+            // entries of a cache created with other settings are ignored
+            Assert.assertNull(new HashCache(cacheFile, true).get(loadedCache.getFileStamp(file)));
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    @Test
+    public void shouldIgnoreCorruptedCache() throws IOException {
+        Path folder = Files.createTempDirectory("hash-cache");
+        try {
+            File file = folder.resolve("library.js").toFile();
+            FileUtils.write(file, "var a = 1;\n");
+            file.setLastModified(System.currentTimeMillis() - 60000);
+            File cacheFile = folder.resolve("hashes.json").toFile();
+            FileUtils.write(cacheFile, "{\"version\":2,\"entries\":{\"");
+
+            HashCache hashCache = new HashCache(cacheFile, false);
+            Assert.assertNull(hashCache.get(hashCache.getFileStamp(file)));
+            Assert.assertNotNull(createDependencyInfo(hashCache, file));
+            hashCache.save();
+            HashCache savedCache = new HashCache(cacheFile, false);
+            Assert.assertNotNull(savedCache.get(savedCache.getFileStamp(file)));
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    private DependencyInfo createDependencyInfo(HashCache hashCache, File file) {
+        DependencyInfoFactory factory = new DependencyInfoFactory(Collections.emptyList(), false, false, false, hashCache);
+        return factory.createDependencyInfo(file.getParentFile(), file.getName());
+    }
+}
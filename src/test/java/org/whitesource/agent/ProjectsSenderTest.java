@@ -0,0 +1,125 @@
+package org.whitesource.agent;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.api.dispatch.UpdateType;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.fs.FSAConfigProperties;
+import org.whitesource.fs.FSAConfiguration;
+import org.whitesource.fs.FileSystemAgentInfo;
+import org.whitesource.fs.ProjectsDetails;
+import org.whitesource.fs.StatusCode;
+import org.whitesource.agent.utils.Pair;
+
+import java.net.ConnectException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProjectsSenderTest {
+
+    @Test
+    public void shouldSplitProjectsToBatches() {
+        BatchesSender sender = new BatchesSender(configuration(3, 1));
+        List<AgentProjectInfo> projects = Arrays.asList(project("a", 1), project("b", 2), project("c", 4), project("d", 1));
+        List<List<AgentProjectInfo>> batches = sender.getBatches(projects);
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(Arrays.asList(projects.get(0), projects.get(1)), batches.get(0));
+        // a project larger than the batch size is sent on its own
+        Assert.assertEquals(Collections.singletonList(projects.get(2)), batches.get(1));
+        Assert.assertEquals(Collections.singletonList(projects.get(3)), batches.get(2));
+
+        Assert.assertEquals(1, new BatchesSender(configuration(0, 1)).getBatches(projects).size());
+    }
+
+    @Test
+    public void shouldSendBatchesConcurrentlyAndRetryFailedBatches() {
+        BatchesSender sender = new BatchesSender(configuration(2, 3));
+        List<AgentProjectInfo> projects = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            projects.add(project("project" + i, 2));
+        }
+        // the first attempt to send project3 fails
+        sender.failures.put("project3", new AtomicInteger(1));
+        ProjectsDetails projectsDetails = new ProjectsDetails(projects, StatusCode.SUCCESS, Constants.EMPTY_STRING);
+
+        Pair<String, StatusCode> result = sender.sendRequest(projectsDetails);
+        Assert.assertEquals(StatusCode.SUCCESS, result.getValue());
+        Assert.assertEquals(11, sender.requests.get());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(result.getKey().contains("project" + i));
+        }
+    }
+
+    @Test
+    public void shouldFailWhenBatchKeepsFailing() {
+        BatchesSender sender = new BatchesSender(configuration(2, 3));
+        List<AgentProjectInfo> projects = Arrays.asList(project("a", 2), project("b", 2), project("c", 2));
+        sender.failures.put("b", new AtomicInteger(Integer.MAX_VALUE));
+
+        Pair<String, StatusCode> result = sender.sendRequest(new ProjectsDetails(projects, StatusCode.SUCCESS, Constants.EMPTY_STRING));
+        Assert.assertEquals(StatusCode.CONNECTION_FAILURE, result.getValue());
+    }
+
+    private FSAConfiguration configuration(int batchSize, int threads) {
+        FSAConfigProperties config = new FSAConfigProperties();
+        config.setProperty(ConfigPropertyKeys.ORG_TOKEN_PROPERTY_KEY, "token");
+        config.setProperty(ConfigPropertyKeys.SEND_BATCH_SIZE, String.valueOf(batchSize));
+        config.setProperty(ConfigPropertyKeys.SEND_THREADS, String.valueOf(threads));
+        config.setProperty(ConfigPropertyKeys.CONNECTION_RETRIES, "1");
+        config.setProperty(ConfigPropertyKeys.CONNECTION_RETRIES_INTERVALS, "0");
+        return new FSAConfiguration(config);
+    }
+
+    private AgentProjectInfo project(String name, int dependencies) {
+        AgentProjectInfo project = new AgentProjectInfo();
+        project.setCoordinates(new Coordinates(null, name, null));
+        for (int i = 0; i < dependencies; i++) {
+            project.getDependencies().add(new DependencyInfo(name, "dependency" + i, "1.0"));
+        }
+        return project;
+    }
+
+    /* --- Nested classes --- */
+
+    private static class BatchesSender extends ProjectsSender {
+
+        private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final FSAConfiguration configuration;
+
+        BatchesSender(FSAConfiguration configuration) {
+            super(configuration.getSender(), configuration.getOffline(), configuration.getRequest(), new FileSystemAgentInfo());
+            this.configuration = configuration;
+        }
+
+        @Override
+        protected WhitesourceService createService() {
+            return new WhitesourceService(Constants.EMPTY_STRING, Constants.EMPTY_STRING, Constants.EMPTY_STRING,
+                    configuration.getSender().getServiceUrl(), false, 1, false) {
+                @Override
+                public UpdateInventoryResult update(String orgToken, String requesterEmail, UpdateType updateType, String product, String productVersion,
+                                                    Collection<AgentProjectInfo> projectInfos, String userKey, String logData, String scanComment) throws WssServiceException {
+                    requests.incrementAndGet();
+                    for (AgentProjectInfo project : projectInfos) {
+                        AtomicInteger projectFailures = failures.get(project.getCoordinates().getArtifactId());
+                        if (projectFailures != null && projectFailures.getAndDecrement() > 0) {
+                            throw new WssServiceException(new ConnectException("Connection refused"));
+                        }
+                    }
+                    UpdateInventoryResult result = new UpdateInventoryResult("organization");
+                    List<String> created = new ArrayList<>();
+                    projectInfos.forEach(project -> created.add(project.getCoordinates().getArtifactId()));
+                    result.setCreatedProjects(created);
+                    result.setUpdatedProjects(new ArrayList<>());
+                    return result;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.whitesource.agent.archive;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.DependencyInfoFactory;
+import org.whitesource.agent.HashCache;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.utils.FilesScanner;
+import org.whitesource.agent.utils.PathTrie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ArchiveStreamScannerTest {
+
+    private static final String[] INCLUDES = {"**/*"};
+    private static final int DEPTH = 3;
+
+    @Test
+    public void shouldMatchExtractedArchives() throws IOException {
+        Path folder = Files.createTempDirectory("archive-stream");
+        List<String> archiveDirectories = new ArrayList<>();
+        try {
+            File baseDir = Files.createDirectories(folder.resolve("base")).toFile().getCanonicalFile();
+            createNestedArchive(new File(baseDir, "outer.zip"));
+            DependencyInfoFactory factory = new DependencyInfoFactory(Collections.emptyList(), false, false, true);
+
+            Map<String, Map<?, String>> streamed = new HashMap<>();
+            for (DependencyInfo dependency : streamArchives(baseDir, factory)) {
+                streamed.put(dependency.getSystemPath(), dependency.getChecksums());
+            }
+
+            // the extracted files are reported with the paths FileSystemScanner rewrites them to
+            String unpackDirectory = new ArchiveExtractor(new String[0], new String[0], new String[0])
+                    .extractArchives(baseDir.getPath(), DEPTH, archiveDirectories);
+            Map<String, Map<?, String>> extracted = new HashMap<>();
+            for (String fileName : new FilesScanner().getDirectoryContent(unpackDirectory, INCLUDES, new String[0], false, false)) {
+                DependencyInfo dependency = factory.createDependencyInfo(new File(unpackDirectory), fileName);
+                extracted.put(ArchiveExtractor.getOriginalSystemPath(dependency.getSystemPath(), unpackDirectory, baseDir.getParent()),
+                        dependency.getChecksums());
+            }
+
+            Assert.assertEquals(new HashSet<>(Arrays.asList(path(baseDir, "outer", "a.txt"), path(baseDir, "outer", "inner.jar"),
+                    path(baseDir, "outer", "inner", "b.js"), path(baseDir, "outer", "inner", "lib.tar.gz"),
+                    path(baseDir, "outer", "inner", "lib.tar", "c.txt"))), streamed.keySet());
+            Assert.assertEquals(extracted, streamed);
+        } finally {
+            archiveDirectories.forEach(directory -> FileUtils.deleteQuietly(new File(directory)));
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    @Test
+    public void shouldAssignEntriesToProjectOfArchiveFolder() throws IOException {
+        Path folder = Files.createTempDirectory("archive-stream");
+        try {
+            File baseDir = Files.createDirectories(folder.resolve("base")).toFile().getCanonicalFile();
+            File moduleDir = Files.createDirectories(baseDir.toPath().resolve("module")).toFile();
+            createNestedArchive(new File(moduleDir, "outer.zip"));
+            PathTrie<String> projectFolders = new PathTrie<>();
+            projectFolders.put(baseDir.toPath(), "main");
+            projectFolders.put(moduleDir.toPath(), "module");
+
+            Collection<DependencyInfo> dependencies = streamArchives(baseDir, new DependencyInfoFactory(Collections.emptyList(), false, false, true));
+            Assert.assertEquals(5, dependencies.size());
+            for (DependencyInfo dependency : dependencies) {
+                Assert.assertEquals(dependency.getSystemPath(), "module", projectFolders.getDeepest(dependency.getSystemPath()));
+            }
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    @Test
+    public void shouldSkipOnlyEntriesFailingToBeHashed() throws IOException {
+        Path folder = Files.createTempDirectory("archive-stream");
+        try {
+            File baseDir = Files.createDirectories(folder.resolve("base")).toFile().getCanonicalFile();
+            createNestedArchive(new File(baseDir, "outer.zip"));
+            DependencyInfoFactory factory = new DependencyInfoFactory(Collections.emptyList(), false, false, true) {
+                @Override
+                public DependencyInfo createDependencyInfo(byte[] content, String fileName, String systemPath) throws IOException {
+                    if (fileName.equals("a.txt")) {
+                        throw new IOException("failed hashing " + fileName);
+                    }
+                    return super.createDependencyInfo(content, fileName, systemPath);
+                }
+            };
+
+            Set<String> fileNames = new HashSet<>();
+            streamArchives(baseDir, factory).forEach(dependency -> fileNames.add(dependency.getFilename()));
+            Assert.assertEquals(new HashSet<>(Arrays.asList("inner.jar", "b.js", "lib.tar.gz", "c.txt")), fileNames);
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    @Test
+    public void shouldReuseCachedHashesOfUnchangedArchives() throws IOException {
+        Path folder = Files.createTempDirectory("archive-stream");
+        try {
+            File baseDir = Files.createDirectories(folder.resolve("base")).toFile().getCanonicalFile();
+            File outerZip = new File(baseDir, "outer.zip");
+            createNestedArchive(outerZip);
+            createNestedArchive(new File(baseDir, "other.zip"));
+            // archives modified just before they are read are not cached
+            outerZip.setLastModified(System.currentTimeMillis() - 60000);
+            new File(baseDir, "other.zip").setLastModified(System.currentTimeMillis() - 60000);
+            File cacheFile = folder.resolve("hashes.json").toFile();
+            AtomicInteger hashedEntries = new AtomicInteger();
+            DependencyInfoFactory factory = new DependencyInfoFactory(Collections.emptyList(), false, false, true) {
+                @Override
+                public DependencyInfo createDependencyInfo(byte[] content, String fileName, String systemPath) throws IOException {
+                    hashedEntries.incrementAndGet();
+                    return super.createDependencyInfo(content, fileName, systemPath);
+                }
+            };
+
+            HashCache hashCache = new HashCache(cacheFile, true);
+            Map<String, DependencyInfo> hashed = bySystemPath(streamArchives(baseDir, factory, hashCache));
+            hashCache.save();
+            Assert.assertEquals(10, hashedEntries.get());
+
+            // nothing is hashed again while the archives are unchanged
+            hashedEntries.set(0);
+            Map<String, DependencyInfo> cached = bySystemPath(streamArchives(baseDir, factory, new HashCache(cacheFile, true)));
+            Assert.assertEquals(0, hashedEntries.get());
+            Assert.assertEquals(hashed.keySet(), cached.keySet());
+            for (Map.Entry<String, DependencyInfo> entry : hashed.entrySet()) {
+                DependencyInfo dependency = cached.get(entry.getKey());
+                Assert.assertEquals(entry.getValue().getSha1(), dependency.getSha1());
+                Assert.assertEquals(entry.getValue().getChecksums(), dependency.getChecksums());
+                Assert.assertEquals(entry.getValue().getFilename(), dependency.getFilename());
+            }
+
+            // the entries of a modified archive are hashed again
+            outerZip.setLastModified(System.currentTimeMillis() - 30000);
+            streamArchives(baseDir, factory, new HashCache(cacheFile, true));
+            Assert.assertEquals(5, hashedEntries.get());
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+
+    private Collection<DependencyInfo> streamArchives(File baseDir, DependencyInfoFactory factory) {
+        return streamArchives(baseDir, factory, null);
+    }
+
+    private Collection<DependencyInfo> streamArchives(File baseDir, DependencyInfoFactory factory, HashCache hashCache) {
+        return new ArchiveExtractor(new String[0], new String[0], new String[0])
+                .streamArchives(baseDir.getPath(), DEPTH, INCLUDES, false, factory, true, 2, hashCache);
+    }
+
+    private Map<String, DependencyInfo> bySystemPath(Collection<DependencyInfo> dependencies) {
+        Map<String, DependencyInfo> bySystemPath = new HashMap<>();
+        dependencies.forEach(dependency -> bySystemPath.put(dependency.getSystemPath(), dependency));
+        return bySystemPath;
+    }
+
+    private void createNestedArchive(File outerZip) throws IOException {
+        ByteArrayOutputStream tarGz = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(tarGz))) {
+            byte[] content = "c\r\nc\r\n".getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("c.txt");
+            entry.setSize(content.length);
+            tar.putArchiveEntry(entry);
+            tar.write(content);
+            tar.closeArchiveEntry();
+        }
+
+        ByteArrayOutputStream innerJar = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(innerJar)) {
+            StringBuilder script = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                script.append("var value").append(i).append(" = ").append(i).append(";\n");
+            }
+            addZipEntry(zip, "b.js", script.toString().getBytes(StandardCharsets.UTF_8));
+            addZipEntry(zip, "lib.tar.gz", tarGz.toByteArray());
+        }
+
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(outerZip)) {
+            addZipEntry(zip, "a.txt", "a\na\n".getBytes(StandardCharsets.UTF_8));
+            addZipEntry(zip, "inner.jar", innerJar.toByteArray());
+        }
+    }
+
+    private void addZipEntry(ZipArchiveOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putArchiveEntry(new ZipArchiveEntry(name));
+        zip.write(content);
+        zip.closeArchiveEntry();
+    }
+
+    private String path(File baseDir, String... more) {
+        return Paths.get(baseDir.getPath(), more).toString();
+    }
+}
@@ -0,0 +1,52 @@
+package org.whitesource.agent.dependency.resolver;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.ConfigPropertyKeys;
+import org.whitesource.agent.dependency.resolver.npm.TestHelper;
+import org.whitesource.fs.FSAConfigProperties;
+import org.whitesource.fs.FSAConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DependencyResolutionServiceTest {
+
+    @Test
+    public void shouldResolveFoldersOfOneResolverConcurrently() throws IOException {
+        File folder = Files.createTempDirectory("resolution").toFile();
+        try {
+            File phpFolder = TestHelper.getFileFromResources("resolver/php/composer.json").getParentFile();
+            for (String module : new String[]{"a", "b", "c", "d"}) {
+                FileUtils.copyDirectory(phpFolder, new File(folder, module));
+            }
+
+            List<String> sequential = resolve(folder, "1");
+            List<String> concurrent = resolve(folder, "4");
+            Assert.assertEquals(4, concurrent.size());
+            Assert.assertEquals(sequential, concurrent);
+        } finally {
+            FileUtils.deleteQuietly(folder);
+        }
+    }
+
+    // the folder and dependencies count of each result
+    private List<String> resolve(File folder, String resolverThreads) {
+        FSAConfigProperties props = new FSAConfigProperties();
+        props.setProperty(ConfigPropertyKeys.PHP_RESOLVE_DEPENDENCIES, "true");
+        props.setProperty(ConfigPropertyKeys.PHP_INCLUDE_DEV_DEPENDENCIES, "true");
+        props.setProperty(ConfigPropertyKeys.RESOLVER_THREADS, resolverThreads);
+        DependencyResolutionService service = new DependencyResolutionService(new FSAConfiguration(props).getResolver());
+
+        List<String> results = new ArrayList<>();
+        for (ResolutionResult result : service.resolveDependencies(Collections.singletonList(folder.getPath()), new String[0])) {
+            result.getResolvedProjects().forEach((project, path) -> results.add(path + ":" + project.getDependencies().size()));
+        }
+        return results;
+    }
+}
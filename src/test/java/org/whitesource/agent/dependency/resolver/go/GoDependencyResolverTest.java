@@ -1,5 +1,6 @@
 package org.whitesource.agent.dependency.resolver.go;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.model.Build;
 import org.junit.Assert;
 import org.junit.Test;
@@ -17,6 +18,8 @@ import org.whitesource.fs.FSAConfiguration;
 import org.whitesource.fs.configuration.ResolverConfiguration;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,6 +55,32 @@ public class GoDependencyResolverTest {
         return dependencyResolutionService.resolveDependencies(pathsToScan, new String[0]);
     }
 
+    @Test
+    public void shouldDetectDependencyManagerFromLockFile() throws IOException {
+        File folder = Files.createTempDirectory("go").toFile();
+        try {
+            GoDependencyResolver goDependencyResolver = new GoDependencyResolver(null, false, false, false, false, Constants.EMPTY_STRING);
+            Assert.assertNull(goDependencyResolver.detectDependencyManager(folder.getPath()));
+
+            Files.write(new File(folder, ".gopmfile").toPath(), "[deps]".getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(folder, "vendor.conf").toPath(),
+                    "github.com/pkg/errors 645ef00459ed84a119197bfb8d8205042c6df63d".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(GoDependencyManager.VNDR, goDependencyResolver.detectDependencyManager(folder.getPath()));
+
+            List<DependencyInfo> dependencies = goDependencyResolver.parseLockFile(GoDependencyManager.VNDR, folder.getPath());
+            Assert.assertEquals(1, dependencies.size());
+            Assert.assertEquals("github.com/pkg/errors", dependencies.get(0).getArtifactId());
+            Assert.assertEquals("645ef00459ed84a119197bfb8d8205042c6df63d", dependencies.get(0).getCommit());
+
+            // the godep lock file is inside the Godeps folder
+            new File(folder, "Godeps").mkdir();
+            Files.write(new File(folder, "Godeps/Godeps.json").toPath(), "{\"Deps\": []}".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(GoDependencyManager.GO_DEP, goDependencyResolver.detectDependencyManager(folder.getPath()));
+        } finally {
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
     @Test
     public void testGoGradle(){
        List<String> lines = new ArrayList<>();
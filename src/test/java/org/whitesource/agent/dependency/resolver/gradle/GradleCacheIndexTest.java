@@ -0,0 +1,72 @@
+package org.whitesource.agent.dependency.resolver.gradle;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.hash.ChecksumUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class GradleCacheIndexTest {
+
+    private File cacheRoot;
+
+    @Before
+    public void setup() throws IOException {
+        cacheRoot = Files.createTempDirectory("files-2.1").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(cacheRoot);
+    }
+
+    @Test
+    public void shouldReadSha1FromFolderNames() throws IOException {
+        createFile("junit/junit/4.12/2973d150c0dc1fefe998f834810d68f278ea58ec/junit-4.12.jar");
+        createFile("junit/junit/4.12/a6c32b40bf3d76eca54e3c601e5d1470c86fcdfa/junit-4.12-sources.jar");
+        createFile("junit/junit/4.12/35fb238baee3f3af739074d723279ebea2028398/junit-4.12.pom");
+
+        GradleCacheIndex index = new GradleCacheIndex(cacheRoot);
+        GradleCacheIndex.CachedArtifact artifact = index.find("junit", "junit", "4.12", null);
+        Assert.assertEquals("2973d150c0dc1fefe998f834810d68f278ea58ec", artifact.getSha1());
+        Assert.assertEquals("junit-4.12.jar", artifact.getFile().getName());
+        Assert.assertEquals("a6c32b40bf3d76eca54e3c601e5d1470c86fcdfa", index.find("junit", "junit", "4.12", "sources").getSha1());
+    }
+
+    @Test
+    public void shouldRestoreLeadingZeros() throws IOException {
+        createFile("com.android/support/1.0/5f0e2b1a0d9c4c1c4ab0eb8a3c4d6a1e8f2c3a/support-1.0.aar");
+
+        GradleCacheIndex.CachedArtifact artifact = new GradleCacheIndex(cacheRoot).find("com.android", "support", "1.0", null);
+        Assert.assertEquals("005f0e2b1a0d9c4c1c4ab0eb8a3c4d6a1e8f2c3a", artifact.getSha1());
+    }
+
+    @Test
+    public void shouldHashFilesInFoldersNotNamedAfterSha1() throws IOException {
+        File jar = createFile("com.acme/tools/1.0/local/tools-1.0.jar");
+
+        GradleCacheIndex.CachedArtifact artifact = new GradleCacheIndex(cacheRoot).find("com.acme", "tools", "1.0", null);
+        Assert.assertEquals(ChecksumUtils.calculateSHA1(jar), artifact.getSha1());
+    }
+
+    @Test
+    public void shouldFindArtifactsDownloadedAfterMiss() throws IOException {
+        GradleCacheIndex index = new GradleCacheIndex(cacheRoot);
+        Assert.assertNull(index.find("junit", "junit", "4.12", null));
+
+        createFile("junit/junit/4.12/2973d150c0dc1fefe998f834810d68f278ea58ec/junit-4.12.jar");
+        Assert.assertNotNull(index.find("junit", "junit", "4.12", null));
+    }
+
+    private File createFile(String path) throws IOException {
+        File file = new File(cacheRoot, path);
+        FileUtils.writeStringToFile(file, path, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -12,7 +12,9 @@ import org.whitesource.agent.utils.CommandLineProcess;
 import java.io.*;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class GradleLinesParserTest {
 
@@ -43,6 +45,34 @@ public class GradleLinesParserTest {
         Assert.assertTrue(dependencyInfoList.size() > 0);
     }
 
+    @Test
+    public void shouldSplitLinesByProject() {
+        List<String> lines = Arrays.asList(
+                "> Task :dependencies",
+                "------------------------------------------------------------",
+                "Root project 'sample'",
+                "------------------------------------------------------------",
+                "compile - Dependencies for source set 'main'.",
+                "\\--- junit:junit:4.12",
+                "> Task :api:dependencies",
+                "------------------------------------------------------------",
+                "Project ':api' - The public API",
+                "------------------------------------------------------------",
+                "compile - Dependencies for source set 'main'.",
+                "+--- com.google.guava:guava:23.0",
+                "------------------------------------------------------------",
+                "Project :web:app",
+                "------------------------------------------------------------",
+                "No configurations");
+
+        Map<String, List<String>> projectsLines = GradleLinesParser.splitByProject(lines);
+        Assert.assertEquals(Arrays.asList(":", ":api", ":web:app"), new ArrayList<>(projectsLines.keySet()));
+        Assert.assertTrue(projectsLines.get(":").contains("\\--- junit:junit:4.12"));
+        Assert.assertFalse(projectsLines.get(":").contains("+--- com.google.guava:guava:23.0"));
+        Assert.assertTrue(projectsLines.get(":api").contains("+--- com.google.guava:guava:23.0"));
+        Assert.assertTrue(projectsLines.get(":web:app").contains("No configurations"));
+    }
+
     private List<String> readFileAsList(String fileName) {
         List<String> lines = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
@@ -1,5 +1,6 @@
 package org.whitesource.agent.dependency.resolver.maven;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -10,10 +11,15 @@ import org.whitesource.agent.api.model.DependencyType;
 import org.whitesource.agent.dependency.resolver.DependencyResolutionService;
 import org.whitesource.agent.dependency.resolver.ResolutionResult;
 import org.whitesource.agent.dependency.resolver.npm.TestHelper;
+import org.whitesource.agent.hash.ChecksumUtils;
 import org.whitesource.fs.FSAConfiguration;
 import org.whitesource.fs.FSAConfigProperties;
 import org.whitesource.fs.configuration.ResolverConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -42,6 +48,32 @@ public class MavenTreeDependencyCollectorTest {
         Assert.assertTrue(pomDeps.size() > 0);
     }
 
+    @Test
+    public void shouldUseSha1Files() throws IOException {
+        File folder = Files.createTempDirectory("m2").toFile();
+        try {
+            File jar = new File(folder, "artifact-1.0.jar");
+            Files.write(jar.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+            String sha1 = ChecksumUtils.calculateSHA1(jar);
+            File otherJar = new File(folder, "other-1.0.jar");
+            Files.write(otherJar.toPath(), "other".getBytes(StandardCharsets.UTF_8));
+
+            // a .sha1 file with the file name after the sha1 is trusted without reading the jar
+            String fakeSha1 = "0123456789abcdef0123456789abcdef01234567";
+            Files.write(new File(folder, "artifact-1.0.jar.sha1").toPath(), (fakeSha1 + "  artifact-1.0.jar").getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(folder, "other-1.0.jar.sha1").toPath(), "not a sha1".getBytes(StandardCharsets.UTF_8));
+            MavenTreeDependencyCollector collector = new MavenTreeDependencyCollector(null, true, false);
+            Assert.assertEquals(fakeSha1, collector.getSha1(jar.getPath()));
+            Assert.assertEquals(ChecksumUtils.calculateSHA1(otherJar), collector.getSha1(otherJar.getPath()));
+
+            // when verifying every .sha1 file the calculated sha1 wins
+            MavenTreeDependencyCollector verifyingCollector = new MavenTreeDependencyCollector(null, true, false, 1);
+            Assert.assertEquals(sha1, verifyingCollector.getSha1(jar.getPath()));
+        } finally {
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
     private Collection<DependencyInfo> testFsa(String currentDirectory) {
         MavenTreeDependencyCollector mavenTreeDependencyCollector = new MavenTreeDependencyCollector(null, true, false);
 
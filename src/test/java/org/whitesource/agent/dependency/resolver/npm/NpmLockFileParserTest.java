@@ -0,0 +1,80 @@
+package org.whitesource.agent.dependency.resolver.npm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.io.File;
+import java.util.List;
+
+public class NpmLockFileParserTest {
+
+    private static final File LOCK_V1_FOLDER = TestHelper.getFileFromResources("resolver/npm-lock/lock-v1/package-lock.json").getParentFile();
+    private static final File LOCK_V2_FOLDER = TestHelper.getFileFromResources("resolver/npm-lock/lock-v2/package-lock.json").getParentFile();
+    private static final File LOCK_V3_FOLDER = TestHelper.getFileFromResources("resolver/npm-lock/lock-v3/package-lock.json").getParentFile();
+
+    @Test
+    public void shouldParseLockFileVersion1() {
+        List<DependencyInfo> dependencies = new NpmLockFileParser(false).parse(NpmLockFileParser.findLockFile(LOCK_V1_FOLDER.getPath()));
+
+        Assert.assertEquals(2, dependencies.size());
+        DependencyInfo debug = dependencies.get(0);
+        Assert.assertEquals("debug-2.6.9.tgz", debug.getArtifactId());
+        Assert.assertNull(debug.getSha1());
+        Assert.assertEquals(1, debug.getChildren().size());
+        DependencyInfo nestedMs = debug.getChildren().iterator().next();
+        Assert.assertEquals("2.0.0", nestedMs.getVersion());
+        Assert.assertEquals("5608aeadfc00be6c2901df5f9861788de0d597c8", nestedMs.getSha1());
+        DependencyInfo ms = dependencies.get(1);
+        Assert.assertEquals("2.1.1", ms.getVersion());
+        Assert.assertEquals("30a5864eb3ebb0a66f2ebe6d727af06a09d86e0a", ms.getSha1());
+    }
+
+    @Test
+    public void shouldIncludeDevDependencies() {
+        List<DependencyInfo> dependencies = new NpmLockFileParser(true).parse(NpmLockFileParser.findLockFile(LOCK_V1_FOLDER.getPath()));
+
+        Assert.assertEquals(3, dependencies.size());
+        DependencyInfo mocha = dependencies.get(1);
+        Assert.assertEquals("mocha", mocha.getGroupId());
+        // debug is already listed as a direct dependency
+        Assert.assertTrue(mocha.getChildren().isEmpty());
+    }
+
+    @Test
+    public void shouldParseLockFileVersion2() {
+        List<DependencyInfo> dependencies = new NpmLockFileParser(false).parse(NpmLockFileParser.findLockFile(LOCK_V2_FOLDER.getPath()));
+
+        Assert.assertEquals(2, dependencies.size());
+        DependencyInfo app = dependencies.get(0);
+        Assert.assertEquals("app-0.1.0.tgz", app.getArtifactId());
+        Assert.assertEquals(1, app.getChildren().size());
+        DependencyInfo ms = app.getChildren().iterator().next();
+        Assert.assertEquals("2.1.1", ms.getVersion());
+        Assert.assertEquals("30a5864eb3ebb0a66f2ebe6d727af06a09d86e0a", ms.getSha1());
+        DependencyInfo debug = dependencies.get(1);
+        Assert.assertEquals("2.0.0", debug.getChildren().iterator().next().getVersion());
+    }
+
+    @Test
+    public void shouldSkipPackagesNotInstalledWithoutSha1() {
+        List<DependencyInfo> dependencies = new NpmLockFileParser(false).parse(NpmLockFileParser.findLockFile(LOCK_V3_FOLDER.getPath()));
+
+        Assert.assertEquals(1, dependencies.size());
+        DependencyInfo chokidar = dependencies.get(0);
+        Assert.assertEquals("chokidar-2.1.8.tgz", chokidar.getArtifactId());
+        // the lock file has only sha512 integrities, the sha1 is found later from the installed package.json
+        Assert.assertNull(chokidar.getSha1());
+        Assert.assertTrue(new File(chokidar.getSystemPath()).isFile());
+        // fsevents is an optional package of another platform which is not installed
+        Assert.assertEquals(1, chokidar.getChildren().size());
+        DependencyInfo normalizePath = chokidar.getChildren().iterator().next();
+        Assert.assertEquals("normalize-path", normalizePath.getGroupId());
+        Assert.assertTrue(new File(normalizePath.getSystemPath()).isFile());
+    }
+
+    @Test
+    public void shouldNotFindLockFileInFolderWithoutOne() {
+        Assert.assertNull(NpmLockFileParser.findLockFile(TestHelper.SUBFOLDER_WITH_OPTIONAL_DEPENDENCIES.getParent()));
+    }
+}
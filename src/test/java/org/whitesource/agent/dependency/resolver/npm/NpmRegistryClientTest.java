@@ -0,0 +1,137 @@
+package org.whitesource.agent.dependency.resolver.npm;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+public class NpmRegistryClientTest {
+
+    private static final String SHA1 = "30a5864eb3ebb0a66f2ebe6d727af06a09d86e0a";
+
+    private HttpServer registry;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger failingRequests = new AtomicInteger();
+
+    @Before
+    public void startRegistry() throws IOException {
+        registry = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        registry.setExecutor(Executors.newCachedThreadPool());
+        registry.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                if (failingRequests.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = ("{\"dist\":{\"shasum\":\"" + SHA1 + "\"}}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        registry.start();
+    }
+
+    @After
+    public void stopRegistry() {
+        registry.stop(0);
+    }
+
+    @Test
+    public void shouldRequestEachPackageOnce() throws Exception {
+        NpmRegistryClient client = new NpmRegistryClient(4, null);
+        List<String> sha1s = lookup(client, 16, index -> "ms");
+
+        Assert.assertEquals(1, requests.get());
+        sha1s.forEach(sha1 -> Assert.assertEquals(SHA1, sha1));
+    }
+
+    @Test
+    public void shouldBoundConcurrentRequests() throws Exception {
+        NpmRegistryClient client = new NpmRegistryClient(2, null);
+        List<String> sha1s = lookup(client, 12, index -> "package" + index);
+
+        Assert.assertEquals(12, requests.get());
+        Assert.assertTrue("Sent " + maxInFlight.get() + " requests at a time", maxInFlight.get() <= 2);
+        sha1s.forEach(sha1 -> Assert.assertEquals(SHA1, sha1));
+    }
+
+    @Test
+    public void shouldReuseCacheFile() throws Exception {
+        File cacheFile = File.createTempFile("npm-registry", ".json");
+        cacheFile.delete();
+        try {
+            NpmRegistryClient client = new NpmRegistryClient(2, cacheFile);
+            Assert.assertEquals(SHA1, client.getSha1("ms", "2.1.1", packageUrl("ms"), false, null));
+            client.save();
+            Assert.assertTrue(cacheFile.isFile());
+
+            NpmRegistryClient nextClient = new NpmRegistryClient(2, cacheFile);
+            Assert.assertEquals(SHA1, nextClient.getSha1("ms", "2.1.1", packageUrl("ms"), false, null));
+            Assert.assertEquals(1, requests.get());
+        } finally {
+            cacheFile.delete();
+        }
+    }
+
+    @Test
+    public void shouldRetryFailedLookups() {
+        failingRequests.set(1);
+        NpmRegistryClient client = new NpmRegistryClient(2, null);
+        Assert.assertEquals("", client.getSha1("ms", "2.1.1", packageUrl("ms"), false, null));
+        Assert.assertEquals(SHA1, client.getSha1("ms", "2.1.1", packageUrl("ms"), false, "token"));
+        Assert.assertEquals(SHA1, client.getSha1("ms", "2.1.1", packageUrl("ms"), false, null));
+        Assert.assertEquals(2, requests.get());
+    }
+
+    private List<String> lookup(NpmRegistryClient client, int count, IntFunction<String> name) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(count);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String packageName = name.apply(i);
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    return client.getSha1(packageName, "1.0.0", packageUrl(packageName), false, null);
+                }));
+            }
+            start.countDown();
+            List<String> sha1s = new ArrayList<>();
+            for (Future<String> future : futures) {
+                sha1s.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return sha1s;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private String packageUrl(String packageName) {
+        return "http://127.0.0.1:" + registry.getAddress().getPort() + "/" + packageName + "/1.0.0";
+    }
+}
@@ -1,14 +1,21 @@
 package org.whitesource.agent.dependency.resolver.npm;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.whitesource.agent.Constants;
 import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.dependency.resolver.ResolutionResult;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Collection;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class YarnDependencyCollectorTest {
@@ -27,4 +34,102 @@ public class YarnDependencyCollectorTest {
         Collection<AgentProjectInfo> agentProjectInfos = yarnDependencyCollector.collectDependencies(folderPath);
         Assert.assertTrue(agentProjectInfos.stream().flatMap(project -> project.getDependencies().stream()).collect(Collectors.toList()).size() == 4);
     }
+
+    @Test
+    public void shouldListEachPackageOnceAndCutCycles() {
+        File yarnLock = TestHelper.getFileFromResources("resolver/yarn-cycle/yarn.lock");
+        List<DependencyInfo> dependencies = new YarnDependencyCollector(true, 10000, true, true).parseYarnLock(yarnLock);
+
+        Assert.assertEquals(1, dependencies.size());
+        DependencyInfo app = dependencies.get(0);
+        Assert.assertEquals("1.0.0", app.getVersion());
+        Assert.assertEquals("0000000000000000000000000000000000000001", app.getSha1());
+        Assert.assertEquals(2, app.getChildren().size());
+        DependencyInfo a = app.getChildren().stream().filter(child -> child.getGroupId().equals("a")).findFirst().get();
+        DependencyInfo shared = app.getChildren().stream().filter(child -> child.getGroupId().equals("shared")).findFirst().get();
+        Assert.assertEquals("shared-2.0.1.tgz", shared.getArtifactId());
+        Assert.assertEquals(1, a.getChildren().size());
+        DependencyInfo b = a.getChildren().iterator().next();
+        Assert.assertEquals("b", b.getGroupId());
+        // b requires a back, which is cut, and the shared package, which is already listed under app where it is shallower
+        Assert.assertEquals(0, b.getChildren().size());
+    }
+
+    @Test(timeout = 30000)
+    public void shouldParseLargeSharedGraph() throws IOException {
+        int packages = 50000;
+        StringBuilder lock = new StringBuilder("# yarn lockfile v1\n");
+        for (int i = 0; i < packages; i++) {
+            lock.append("\npackage-").append(i).append("@^1.0.0:\n  version \"1.0.").append(i).append("\"\n");
+            // every package requires the next two, so most packages are reachable through many paths
+            if (i + 1 < packages) {
+                lock.append("  dependencies:\n    package-").append(i + 1).append(" \"^1.0.0\"\n");
+                if (i + 2 < packages) {
+                    lock.append("    package-").append(i + 2).append(" \"^1.0.0\"\n");
+                }
+            }
+        }
+        File yarnLock = Files.createTempFile("yarn", ".lock").toFile();
+        try {
+            Files.write(yarnLock.toPath(), lock.toString().getBytes(StandardCharsets.UTF_8));
+            List<DependencyInfo> dependencies = new YarnDependencyCollector(true, 10000, true, true).parseYarnLock(yarnLock);
+            Assert.assertEquals(1, dependencies.size());
+            Assert.assertEquals(packages, countPackages(dependencies));
+            // each package is listed under the shallowest package requiring it
+            Assert.assertEquals(packages / 2 + 1, getDepth(dependencies));
+        } finally {
+            yarnLock.delete();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void shouldResolveDeepLockFile() throws IOException {
+        int packages = 50000;
+        StringBuilder lock = new StringBuilder("# yarn lockfile v1\n");
+        for (int i = 0; i < packages; i++) {
+            lock.append("\npackage-").append(i).append("@^1.0.0:\n  version \"1.0.").append(i).append("\"\n");
+            // every package requires the next one only, so the tree is as deep as the number of packages
+            if (i + 1 < packages) {
+                lock.append("  dependencies:\n    package-").append(i + 1).append(" \"^1.0.0\"\n");
+            }
+        }
+        File folder = Files.createTempDirectory("yarn").toFile();
+        try {
+            File packageJson = new File(folder, "package.json");
+            Files.write(packageJson.toPath(), "{\"name\": \"app\", \"version\": \"1.0.0\", \"dependencies\": {\"package-0\": \"^1.0.0\"}}"
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(folder, "yarn.lock").toPath(), lock.toString().getBytes(StandardCharsets.UTF_8));
+
+            NpmDependencyResolver resolver = new NpmDependencyResolver(true, false, 10000, false, true, null, true, true,
+                    null, NpmRegistryClient.DEFAULT_MAX_CONCURRENT_REQUESTS);
+            ResolutionResult result = resolver.resolveDependencies(folder.getPath(), folder.getPath(),
+                    new HashSet<>(Collections.singletonList(packageJson.getPath())));
+
+            Collection<DependencyInfo> dependencies = result.getResolvedProjects().keySet().iterator().next().getDependencies();
+            Assert.assertEquals(packages, countPackages(dependencies));
+            Assert.assertEquals(packages, getDepth(dependencies));
+        } finally {
+            FileUtils.deleteQuietly(folder);
+        }
+    }
+
+    private int getDepth(Collection<DependencyInfo> dependencies) {
+        int depth = 0;
+        List<DependencyInfo> level = new ArrayList<>(dependencies);
+        while (!level.isEmpty()) {
+            depth++;
+            level = level.stream().flatMap(dependency -> dependency.getChildren().stream()).collect(Collectors.toList());
+        }
+        return depth;
+    }
+
+    private int countPackages(Collection<DependencyInfo> dependencies) {
+        int count = 0;
+        Deque<DependencyInfo> queue = new ArrayDeque<>(dependencies);
+        while (!queue.isEmpty()) {
+            count++;
+            queue.addAll(queue.poll().getChildren());
+        }
+        return count;
+    }
 }
\ No newline at end of file
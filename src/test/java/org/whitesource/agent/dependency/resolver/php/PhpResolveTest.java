@@ -5,11 +5,20 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.whitesource.agent.Constants;
+import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.dependency.resolver.ResolutionResult;
 import org.whitesource.agent.dependency.resolver.npm.TestHelper;
+import org.whitesource.agent.dependency.resolver.php.phpModel.PhpPackage;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author chen.luigi
@@ -30,4 +39,35 @@ public class PhpResolveTest {
         ResolutionResult resolutionResult = phpDependencyResolver.resolveDependencies(null, folderPath, null);
         Assert.assertTrue(resolutionResult.getResolvedProjects().keySet().iterator().next().getDependencies().size() == 5);
     }
+
+    @Test
+    public void parseComposerLock() throws IOException {
+        File composerLock = TestHelper.getFileFromResources("resolver/php/composer.lock");
+        Assert.assertEquals(4, new ComposerLockParser(false).parse(composerLock).size());
+
+        List<PhpPackage> phpPackages = new ArrayList<>(new ComposerLockParser(true).parse(composerLock));
+        Assert.assertEquals(31, phpPackages.size());
+        PhpPackage instantiator = phpPackages.get(0);
+        Assert.assertEquals("doctrine/instantiator", instantiator.getName());
+        Assert.assertEquals("1.1.0", instantiator.getVersion());
+        Assert.assertEquals("185b8868aa9bf7159f5f953ed5afb2d7fcdc3bda", instantiator.getPackageSource().getReference());
+        Assert.assertEquals("^7.1", instantiator.getPackageRequire().get("php"));
+    }
+
+    @Test
+    public void shareChildrenOfPackagesRequiredTwice() throws IOException {
+        File composerLock = TestHelper.getFileFromResources("resolver/php/composer.lock");
+        Collection<PhpPackage> phpPackages = new ComposerLockParser(true).parse(composerLock);
+        Collection<DependencyInfo> dependencyInfos = phpDependencyResolver.createDependencyInfos(phpPackages, new LinkedList<>(), Collections.singletonList("phpunit/phpunit"));
+
+        DependencyInfo phpunit = dependencyInfos.iterator().next();
+        DependencyInfo comparator = getChild(phpunit, "sebastian/comparator");
+        DependencyInfo prophecy = getChild(phpunit, "phpspec/prophecy");
+        Assert.assertSame(comparator, getChild(prophecy, "sebastian/comparator"));
+        Assert.assertEquals(2, comparator.getChildren().size());
+    }
+
+    private DependencyInfo getChild(DependencyInfo parent, String name) {
+        return parent.getChildren().stream().filter(child -> name.equals(child.getArtifactId())).findFirst().orElse(null);
+    }
 }
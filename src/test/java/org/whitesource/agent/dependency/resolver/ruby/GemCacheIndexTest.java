@@ -0,0 +1,74 @@
+package org.whitesource.agent.dependency.resolver.ruby;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class GemCacheIndexTest {
+
+    private File gemsFolder;
+
+    @Before
+    public void setup() throws IOException {
+        gemsFolder = Files.createTempDirectory("cache").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(gemsFolder);
+    }
+
+    @Test
+    public void shouldIndexGemsByNameAndVersion() throws IOException {
+        createGem("rack-2.0.5.gem");
+        createGem("rack-test-1.1.0.gem");
+        createGem("pg-0.21.0-x64-mingw32.gem");
+
+        GemCacheIndex index = new GemCacheIndex(gemsFolder);
+        Assert.assertEquals("rack-2.0.5.gem", index.find("rack", "2.0.5").getName());
+        Assert.assertEquals("rack-test-1.1.0.gem", index.find("rack-test", "1.1.0").getName());
+        Assert.assertEquals("pg-0.21.0-x64-mingw32.gem", index.find("pg", "0.21.0").getName());
+        Assert.assertNull(index.find("rack", "1.6.0"));
+    }
+
+    @Test
+    public void shouldFindMaxVersion() throws IOException {
+        createGem("json-1.8.3.gem");
+        createGem("json-1.8.6.gem");
+
+        Assert.assertEquals("1.8.6", new GemCacheIndex(gemsFolder).findMaxVersion("json"));
+        Assert.assertNull(new GemCacheIndex(gemsFolder).findMaxVersion("kramdown"));
+    }
+
+    @Test
+    public void shouldOrderVersionsNumerically() throws IOException {
+        createGem("json-1.9.0.gem");
+        createGem("json-1.10.0.gem");
+        createGem("json-1.10.0-x64-mingw32.gem");
+
+        GemCacheIndex index = new GemCacheIndex(gemsFolder);
+        Assert.assertEquals("1.10.0-x64-mingw32", index.findMaxVersion("json"));
+        Assert.assertEquals("json-1.9.0.gem", index.find("json", "1.9.0").getName());
+        Assert.assertEquals("json-1.10.0.gem", index.find("json", "1.10.0").getName());
+    }
+
+    @Test
+    public void shouldFindGemsInstalledAfterRefresh() throws IOException {
+        GemCacheIndex index = new GemCacheIndex(gemsFolder);
+        createGem("parallel-1.6.1.gem");
+        Assert.assertNull(index.find("parallel", "1.6.1"));
+
+        index.refresh();
+        Assert.assertNotNull(index.find("parallel", "1.6.1"));
+    }
+
+    private void createGem(String fileName) throws IOException {
+        Files.createFile(new File(gemsFolder, fileName).toPath());
+    }
+}
@@ -1,11 +1,13 @@
 package org.whitesource.agent.dependency.resolver.ruby;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.whitesource.agent.ConfigPropertyKeys;
 import org.whitesource.agent.Constants;
+import org.whitesource.agent.api.model.DependencyInfo;
 import org.whitesource.agent.api.model.DependencyType;
 import org.whitesource.agent.dependency.resolver.DependencyResolutionService;
 import org.whitesource.agent.dependency.resolver.ResolutionResult;
@@ -14,9 +16,15 @@ import org.whitesource.fs.FSAConfigProperties;
 import org.whitesource.fs.FSAConfiguration;
 import org.whitesource.fs.configuration.ResolverConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class RubyDependencyResolverTest {
 
@@ -46,6 +54,57 @@ public class RubyDependencyResolverTest {
         Assert.assertFalse(TestHelper.checkResultOfScanFiles(folderPath, bothExcludes.get(0), bothExcludes.get(1), includes, DependencyType.RUBY));
     }
 
+    @Test
+    public void shouldBuildSharedDependenciesWithoutCycles() throws IOException {
+        File folder = Files.createTempDirectory("ruby").toFile();
+        try {
+            File gemLockFile = new File(folder, "Gemfile.lock");
+            FileUtils.writeLines(gemLockFile, Arrays.asList(
+                    "GEM",
+                    "  remote: https://rubygems.org/",
+                    "  specs:",
+                    "    a (1.0)",
+                    "      b (~> 1.0)",
+                    "      c (>= 0.1)",
+                    "    b (1.0)",
+                    "      a (= 1.0)",
+                    "      c",
+                    "    c (0.2)",
+                    "      missing (>= 1)",
+                    "    d (2.0)",
+                    "      e (>= 3.0)",
+                    "",
+                    "PLATFORMS",
+                    "  ruby"));
+            File gemsFolder = new File(folder, "cache");
+            for (String gem : new String[]{"a-1.0", "b-1.0", "c-0.2", "d-2.0", "e-2.9", "e-3.1"}) {
+                FileUtils.writeStringToFile(new File(gemsFolder, gem + ".gem"), gem, StandardCharsets.UTF_8);
+            }
+
+            RubyDependencyResolver resolver = new RubyDependencyResolver(false, false, false, false);
+            Map<String, RubyDependencyResolver.GemSpec> specs = resolver.readGemFileLock(gemLockFile);
+            Assert.assertEquals(Arrays.asList("a", "b", "c", "missing", "d", "e"), new ArrayList<>(specs.keySet()));
+            Assert.assertFalse(specs.get("e").isListed());
+            Assert.assertEquals(">= 3.0", specs.get("e").getVersion());
+
+            List<DependencyInfo> dependencies = resolver.buildDependencies(specs, gemLockFile, gemsFolder.getPath(), new GemCacheIndex(gemsFolder));
+            Assert.assertEquals(2, dependencies.size());
+            DependencyInfo a = dependencies.get(0);
+            Assert.assertEquals("a-1.0.gem", a.getArtifactId());
+            List<DependencyInfo> aChildren = new ArrayList<>(a.getChildren());
+            Assert.assertEquals(2, aChildren.size());
+            DependencyInfo b = aChildren.get(0);
+            // the requirement of a by b closes a cycle and is dropped, c is shared by a and b
+            Assert.assertEquals(1, b.getChildren().size());
+            Assert.assertSame(aChildren.get(1), b.getChildren().iterator().next());
+            Assert.assertTrue(aChildren.get(1).getChildren().isEmpty());
+            DependencyInfo d = dependencies.get(1);
+            Assert.assertEquals("3.1", d.getChildren().iterator().next().getVersion());
+        } finally {
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
     private List<ResolutionResult> getResolutionResults(List<String> pathsToScan,String isIgnoreSourceFiles) {
         FSAConfigProperties props = new FSAConfigProperties();
         props.setProperty(ConfigPropertyKeys.RUBY_RESOLVE_DEPENDENCIES, "true");
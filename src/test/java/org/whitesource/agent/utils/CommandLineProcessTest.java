@@ -0,0 +1,56 @@
+package org.whitesource.agent.utils;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.dependency.resolver.DependencyCollector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CommandLineProcessTest {
+
+    private static final String USER_DIR = System.getProperty("user.dir");
+
+    @Before
+    public void setUp() {
+        Assume.assumeFalse(DependencyCollector.isWindows());
+    }
+
+    @Test
+    public void shouldReadOutputAndErrors() throws IOException {
+        CommandLineProcess process = new CommandLineProcess(USER_DIR, new String[]{"sh", "-c", "echo first; echo; echo failed >&2; echo second"});
+        Assert.assertEquals(Arrays.asList("first", "second"), process.executeProcess());
+        Assert.assertEquals(Collections.singletonList("failed"), process.getErrorLines());
+        Assert.assertFalse(process.isErrorInProcess());
+
+        process = new CommandLineProcess(USER_DIR, new String[]{"sh", "-c", "echo missing >&2; exit 3"});
+        Assert.assertEquals(Collections.singletonList("missing"), process.executeProcessWithErrorOutput());
+        Assert.assertTrue(process.isErrorInProcess());
+        Assert.assertEquals(3, process.getExitStatus());
+    }
+
+    @Test
+    public void shouldStreamLinesToConsumer() throws IOException {
+        List<String> lines = new ArrayList<>();
+        CommandLineProcess process = new CommandLineProcess(USER_DIR, new String[]{"sh", "-c", "i=0; while [ $i -lt 1000 ]; do echo line$i; i=$((i+1)); done"});
+        process.executeProcess(lines::add);
+        Assert.assertFalse(process.isErrorInProcess());
+        Assert.assertEquals(1000, lines.size());
+        Assert.assertEquals("line999", lines.get(999));
+    }
+
+    @Test
+    public void shouldStopWhenNoOutputArrives() throws IOException {
+        CommandLineProcess process = new CommandLineProcess(USER_DIR, new String[]{"sh", "-c", "echo started; sleep 30"});
+        process.setTimeoutReadLineSeconds(1);
+        long start = System.currentTimeMillis();
+        Assert.assertEquals(Collections.singletonList("started"), process.executeProcess());
+        Assert.assertTrue(process.isErrorInProcess());
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+}
@@ -0,0 +1,58 @@
+package org.whitesource.agent.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.agent.dependency.resolver.npm.TestHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class FilesIndexTest {
+
+    private static final String[] EXCLUDES = {"**/node_modules/**", "**/*.txt"};
+
+    @Test
+    public void shouldMatchDirectoryScanner() {
+        String folder = TestHelper.getFileFromResources("resolver").getAbsolutePath();
+        FilesIndex filesIndex = new FilesIndex(Collections.singletonList(folder), EXCLUDES, true, false);
+        FilesScanner filesScanner = new FilesScanner();
+        String[][] includesList = {{"**/*.json", "**/*.lock"}, {"**/pom.xml"}, {"**/*"}, {"**/*.GRADLE"}};
+        for (String[] includes : includesList) {
+            for (boolean caseSensitive : new boolean[]{true, false}) {
+                Set<String> expected = new HashSet<>(Arrays.asList(filesScanner.getDirectoryContent(folder, includes, EXCLUDES, true, caseSensitive)));
+                Set<String> actual = new HashSet<>(Arrays.asList(filesIndex.getDirectoryContent(folder, includes, EXCLUDES, true, caseSensitive)));
+                Assert.assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void shouldRefreshChangedFolders() throws IOException {
+        Path folder = Files.createTempDirectory("files-index");
+        try {
+            Files.createDirectories(folder.resolve("a"));
+            Files.createDirectories(folder.resolve("removed"));
+            Files.write(folder.resolve("a").resolve("first.jar"), new byte[]{1});
+            Files.write(folder.resolve("removed").resolve("second.jar"), new byte[]{1});
+            String[] includes = {"**/*.jar"};
+
+            FilesIndex filesIndex = new FilesIndex(Collections.singletonList(folder.toString()), new String[0], true, false);
+            Assert.assertEquals(2, filesIndex.getDirectoryContent(folder.toString(), includes, null, true, false).length);
+
+            Files.createDirectories(folder.resolve("a").resolve("b"));
+            Files.write(folder.resolve("a").resolve("b").resolve("third.jar"), new byte[]{1});
+            FileUtils.deleteDirectory(folder.resolve("removed").toFile());
+            filesIndex.refresh();
+
+            Set<String> files = new HashSet<>(Arrays.asList(filesIndex.getDirectoryContent(folder.toString(), includes, null, true, false)));
+            Assert.assertEquals(new HashSet<>(Arrays.asList("a" + File.separator + "first.jar",
+                    "a" + File.separator + "b" + File.separator + "third.jar")), files);
+        } finally {
+            FileUtils.deleteQuietly(folder.toFile());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.whitesource.agent.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    @Test
+    public void shouldExposeMetricsInPrometheusFormat() {
+        Metrics.timer("test_stage", "resolver", "npm").record(TimeUnit.MILLISECONDS.toNanos(1500));
+        Metrics.timer("test_stage", "resolver", "npm").record(TimeUnit.MILLISECONDS.toNanos(500));
+        Metrics.counter("test_files").add(3);
+        Metrics.gauge("test_depth").set(7);
+
+        String prometheus = Metrics.toPrometheus();
+        Assert.assertTrue(prometheus, prometheus.contains("# TYPE fsa_test_stage_seconds summary\n"));
+        Assert.assertTrue(prometheus, prometheus.contains("fsa_test_stage_seconds_count{resolver=\"npm\"} 2\n"));
+        Assert.assertTrue(prometheus, prometheus.contains("fsa_test_stage_seconds_sum{resolver=\"npm\"} 2.0\n"));
+        Assert.assertTrue(prometheus, prometheus.contains("# TYPE fsa_test_files_total counter\nfsa_test_files_total 3\n"));
+        Assert.assertTrue(prometheus, prometheus.contains("# TYPE fsa_test_depth gauge\nfsa_test_depth 7\n"));
+        Assert.assertTrue(prometheus, prometheus.contains("fsa_heap_used_bytes "));
+    }
+
+    @Test
+    public void shouldExposeMetricsOverJmx() throws Exception {
+        Metrics.counter("test_jmx").increment();
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(Metrics.OBJECT_NAME);
+        Assert.assertEquals(1L, server.getAttribute(objectName, "test_jmx_total"));
+        Metrics.counter("test_jmx").increment();
+        Assert.assertEquals(2L, server.getAttribute(objectName, "test_jmx_total"));
+    }
+}
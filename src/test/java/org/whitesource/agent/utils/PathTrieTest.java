@@ -0,0 +1,30 @@
+package org.whitesource.agent.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class PathTrieTest {
+
+    @Test
+    public void shouldFindDeepestFolder() {
+        Path root = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().resolve("path-trie");
+        PathTrie<String> pathTrie = new PathTrie<>();
+        pathTrie.put(root.resolve("data"), "data");
+        pathTrie.put(root.resolve("data").resolve("folder"), "folder");
+
+        Assert.assertEquals("folder", pathTrie.getDeepest(root.resolve("data").resolve("folder").resolve("a.jar").toString()));
+        Assert.assertEquals("data", pathTrie.getDeepest(root.resolve("data").resolve("other").resolve("a.jar").toString()));
+        Assert.assertEquals("data", pathTrie.getDeepest(root.resolve("data").toString()));
+        // folders are matched by whole path components
+        Assert.assertEquals("data", pathTrie.getDeepest(root.resolve("data").resolve("folder2").resolve("a.jar").toString()));
+        Assert.assertNull(pathTrie.getDeepest(root.resolve("data2").resolve("a.jar").toString()));
+        Assert.assertEquals("folder", pathTrie.getDeepest(root + File.separator + "data" + File.separator + "." + File.separator + "folder" + File.separator + "a.jar"));
+
+        pathTrie.put(root.resolve("data"), "replaced");
+        Assert.assertEquals("replaced", pathTrie.getDeepest(root.resolve("data").resolve("b.jar").toString()));
+    }
+}
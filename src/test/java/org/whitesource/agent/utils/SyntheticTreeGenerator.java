@@ -0,0 +1,321 @@
+package org.whitesource.agent.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates reproducible trees for scale tests, the same settings and seed always generate the same tree.
+ * The files are spread over folders of the given depth, with archives nested in each other and npm, maven and gradle modules.
+ * <p>
+ * Can be run on its own to generate a tree for a manual scan:
+ * <pre>SyntheticTreeGenerator &lt;folder&gt; [files=N] [depth=N] [filesPerFolder=N] [fileSize=N] [archives=N] [archiveNesting=N]
+ *     [archiveEntries=N] [npmModules=N] [mavenModules=N] [gradleModules=N] [seed=N]</pre>
+ */
+public class SyntheticTreeGenerator {
+
+    /* --- Static members --- */
+
+    private static final String[] TEXT_EXTENSIONS = {"java", "js", "cs", "py", "txt"};
+    private static final String[] BINARY_EXTENSIONS = {"dll", "so", "exe"};
+    private static final String FILES_FOLDER = "files";
+    private static final String ARCHIVES_FOLDER = "archives";
+    private static final String MODULES_FOLDER = "modules";
+    // every n-th file has the same content as a previous file, as copies of the same library do in real trees
+    private static final int DUPLICATE_EVERY = 10;
+
+    /* --- Members --- */
+
+    private int files = 1000;
+    private int depth = 3;
+    private int filesPerFolder = 50;
+    private int fileSize = 2048;
+    private int archives = 10;
+    private int archiveNesting = 1;
+    private int archiveEntries = 20;
+    private int npmModules = 0;
+    private int mavenModules = 0;
+    private int gradleModules = 0;
+    private long seed = 1;
+
+    /* --- Public methods --- */
+
+    public SyntheticTreeGenerator files(int files) {
+        this.files = files;
+        return this;
+    }
+
+    public SyntheticTreeGenerator depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public SyntheticTreeGenerator filesPerFolder(int filesPerFolder) {
+        this.filesPerFolder = filesPerFolder;
+        return this;
+    }
+
+    public SyntheticTreeGenerator fileSize(int fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public SyntheticTreeGenerator archives(int archives) {
+        this.archives = archives;
+        return this;
+    }
+
+    /**
+     * @param archiveNesting number of archives each archive is nested in, 0 means plain archives
+     */
+    public SyntheticTreeGenerator archiveNesting(int archiveNesting) {
+        this.archiveNesting = archiveNesting;
+        return this;
+    }
+
+    public SyntheticTreeGenerator archiveEntries(int archiveEntries) {
+        this.archiveEntries = archiveEntries;
+        return this;
+    }
+
+    public SyntheticTreeGenerator npmModules(int npmModules) {
+        this.npmModules = npmModules;
+        return this;
+    }
+
+    public SyntheticTreeGenerator mavenModules(int mavenModules) {
+        this.mavenModules = mavenModules;
+        return this;
+    }
+
+    public SyntheticTreeGenerator gradleModules(int gradleModules) {
+        this.gradleModules = gradleModules;
+        return this;
+    }
+
+    public SyntheticTreeGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param root folder to generate the tree in, created if needed
+     * @return what was generated
+     */
+    public Summary generate(Path root) throws IOException {
+        Summary summary = new Summary();
+        generateFiles(root.resolve(FILES_FOLDER), summary);
+        generateArchives(root.resolve(ARCHIVES_FOLDER), summary);
+        generateModules(root.resolve(MODULES_FOLDER), summary);
+        return summary;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: SyntheticTreeGenerator <folder> [files=N] [depth=N] [filesPerFolder=N] [fileSize=N] [archives=N] " +
+                    "[archiveNesting=N] [archiveEntries=N] [npmModules=N] [mavenModules=N] [gradleModules=N] [seed=N]");
+            return;
+        }
+        SyntheticTreeGenerator generator = new SyntheticTreeGenerator();
+        for (int i = 1; i < args.length; i++) {
+            String[] setting = args[i].split("=", 2);
+            long value = Long.parseLong(setting[1]);
+            switch (setting[0]) {
+                case "files": generator.files((int) value); break;
+                case "depth": generator.depth((int) value); break;
+                case "filesPerFolder": generator.filesPerFolder((int) value); break;
+                case "fileSize": generator.fileSize((int) value); break;
+                case "archives": generator.archives((int) value); break;
+                case "archiveNesting": generator.archiveNesting((int) value); break;
+                case "archiveEntries": generator.archiveEntries((int) value); break;
+                case "npmModules": generator.npmModules((int) value); break;
+                case "mavenModules": generator.mavenModules((int) value); break;
+                case "gradleModules": generator.gradleModules((int) value); break;
+                case "seed": generator.seed(value); break;
+                default: throw new IllegalArgumentException("Unknown setting " + setting[0]);
+            }
+        }
+        Summary summary = generator.generate(Paths.get(args[0]));
+        System.out.println("Generated " + summary);
+    }
+
+    /* --- Private methods --- */
+
+    private void generateFiles(Path folder, Summary summary) throws IOException {
+        int folders = Math.max(1, (files + filesPerFolder - 1) / filesPerFolder);
+        // the number of sub folders per folder so that the deepest level holds all the folders
+        int width = Math.max(2, (int) Math.ceil(Math.pow(folders, 1.0 / Math.max(depth, 1))));
+        for (int i = 0; i < files; i++) {
+            Path file = getFolder(folder, i / filesPerFolder, width).resolve(getFileName(i));
+            int contentIndex = i > 0 && i % DUPLICATE_EVERY == 0 ? i / 2 : i;
+            write(file, getContent(contentIndex, getFileName(contentIndex)));
+            summary.files++;
+        }
+    }
+
+    private Path getFolder(Path root, int folderIndex, int width) {
+        Path folder = root;
+        int index = folderIndex;
+        for (int level = 0; level < depth; level++) {
+            folder = folder.resolve("dir" + index % width);
+            index /= width;
+        }
+        return folder;
+    }
+
+    private String getFileName(int index) {
+        if (index % 4 == 3) {
+            return "library" + index + "." + BINARY_EXTENSIONS[index % BINARY_EXTENSIONS.length];
+        }
+        return "File" + index + "." + TEXT_EXTENSIONS[index % TEXT_EXTENSIONS.length];
+    }
+
+    private byte[] getContent(int index, String fileName) {
+        Random random = new Random(seed * 31 + index);
+        int size = fileSize / 2 + random.nextInt(fileSize + 1);
+        if (fileName.startsWith("library")) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            return content;
+        }
+        StringBuilder builder = new StringBuilder(size + 64);
+        builder.append("// file ").append(index).append('\n');
+        while (builder.length() < size) {
+            builder.append("    int value").append(random.nextInt(1000)).append(" = ").append(random.nextInt()).append(";\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void generateArchives(Path folder, Summary summary) throws IOException {
+        for (int i = 0; i < archives; i++) {
+            byte[] archive = createArchive(i, 0);
+            for (int level = 1; level <= archiveNesting; level++) {
+                archive = wrapArchive("nested" + level + ".jar", archive);
+            }
+            write(folder.resolve("archive" + i + (i % 2 == 0 ? ".zip" : ".jar")), archive);
+            summary.archives++;
+            summary.archiveEntries += archiveEntries;
+        }
+    }
+
+    private byte[] createArchive(int archiveIndex, int level) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(bytes)) {
+            for (int i = 0; i < archiveEntries; i++) {
+                int index = files + archiveIndex * archiveEntries + i;
+                String fileName = getFileName(index);
+                addEntry(zip, "entries" + level + "/" + fileName, getContent(index, fileName));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] wrapArchive(String name, byte[] archive) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(bytes)) {
+            addEntry(zip, name, archive);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void addEntry(ZipArchiveOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putArchiveEntry(new ZipArchiveEntry(name));
+        zip.write(content);
+        zip.closeArchiveEntry();
+    }
+
+    private void generateModules(Path folder, Summary summary) throws IOException {
+        for (int i = 0; i < npmModules; i++) {
+            Path module = folder.resolve("npm").resolve("npm-module" + i);
+            write(module.resolve("package.json"), ("{\n  \"name\": \"npm-module" + i + "\",\n  \"version\": \"1.0.0\",\n  \"dependencies\": {\n" +
+                    "    \"left-pad\": \"1.3.0\",\n    \"is-number\": \"7.0.0\"\n  }\n}\n").getBytes(StandardCharsets.UTF_8));
+            write(module.resolve("index.js"), getContent(i, "index.js"));
+            summary.modules++;
+        }
+        StringBuilder mavenModulesXml = new StringBuilder();
+        for (int i = 0; i < mavenModules; i++) {
+            Path module = folder.resolve("maven").resolve("maven-module" + i);
+            write(module.resolve("pom.xml"), getPom("maven-module" + i, "jar", "        <dependency>\n" +
+                    "            <groupId>junit</groupId>\n            <artifactId>junit</artifactId>\n            <version>4.12</version>\n" +
+                    "        </dependency>\n").getBytes(StandardCharsets.UTF_8));
+            write(module.resolve("src").resolve("main").resolve("java").resolve("Module" + i + ".java"), getContent(i, "Module.java"));
+            mavenModulesXml.append("        <module>maven-module").append(i).append("</module>\n");
+            summary.modules++;
+        }
+        if (mavenModules > 0) {
+            write(folder.resolve("maven").resolve("pom.xml"), getPom("maven-parent", "pom", "").replace("<dependencies>\n    </dependencies>",
+                    "<modules>\n" + mavenModulesXml + "    </modules>").getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder settings = new StringBuilder("rootProject.name = 'gradle-root'\n");
+        for (int i = 0; i < gradleModules; i++) {
+            Path module = folder.resolve("gradle").resolve("gradle-module" + i);
+            write(module.resolve("build.gradle"), ("apply plugin: 'java'\n\nrepositories {\n    mavenCentral()\n}\n\n" +
+                    "dependencies {\n    compile 'com.google.guava:guava:23.0'\n}\n").getBytes(StandardCharsets.UTF_8));
+            write(module.resolve("src").resolve("main").resolve("java").resolve("Module" + i + ".java"), getContent(i, "Module.java"));
+            settings.append("include 'gradle-module").append(i).append("'\n");
+            summary.modules++;
+        }
+        if (gradleModules > 0) {
+            write(folder.resolve("gradle").resolve("settings.gradle"), settings.toString().getBytes(StandardCharsets.UTF_8));
+            write(folder.resolve("gradle").resolve("build.gradle"), "allprojects {\n    group = 'org.example'\n}\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String getPom(String artifactId, String packaging, String dependencies) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+                "    <modelVersion>4.0.0</modelVersion>\n" +
+                "    <groupId>org.example</groupId>\n" +
+                "    <artifactId>" + artifactId + "</artifactId>\n" +
+                "    <version>1.0.0</version>\n" +
+                "    <packaging>" + packaging + "</packaging>\n" +
+                "    <dependencies>\n" + dependencies + "    </dependencies>\n" +
+                "</project>\n";
+    }
+
+    private void write(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    public static class Summary {
+
+        private int files;
+        private int archives;
+        private int archiveEntries;
+        private int modules;
+
+        public int getFiles() {
+            return files;
+        }
+
+        public int getArchives() {
+            return archives;
+        }
+
+        public int getArchiveEntries() {
+            return archiveEntries;
+        }
+
+        public int getModules() {
+            return modules;
+        }
+
+        @Override
+        public String toString() {
+            return files + " files, " + archives + " archives with " + archiveEntries + " entries, " + modules + " modules";
+        }
+    }
+}
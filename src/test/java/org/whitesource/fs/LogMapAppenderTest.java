@@ -0,0 +1,89 @@
+package org.whitesource.fs;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class LogMapAppenderTest {
+
+    @Test
+    public void shouldKeepLatestEventsWhenFull() {
+        LogMapAppender appender = createAppender(8, 1000);
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(createEvent(Level.INFO, "message " + i));
+        }
+
+        List<LogMapAppender.LogEvent> events = appender.getLogEvents(0);
+        Assert.assertEquals(8, events.size());
+        Assert.assertEquals("message 12", events.get(0).getMessage());
+        Assert.assertEquals("message 19", events.get(7).getMessage());
+    }
+
+    @Test
+    public void shouldDropOldestEventsBeyondMaxSize() {
+        LogMapAppender appender = createAppender(64, 100);
+        appender.setMaxEventSize(30);
+        for (int i = 0; i < 10; i++) {
+            appender.doAppend(createEvent(Level.INFO, "0123456789" + i));
+        }
+        appender.doAppend(createEvent(Level.INFO, new String(new char[50]).replace('\0', 'x')));
+
+        List<LogMapAppender.LogEvent> events = appender.getLogEvents(0);
+        int size = 0;
+        for (LogMapAppender.LogEvent event : events) {
+            size += event.getMessage().length();
+        }
+        Assert.assertTrue("Retained " + size + " characters", size <= 100);
+        LogMapAppender.LogEvent last = events.get(events.size() - 1);
+        Assert.assertEquals(33, last.getMessage().length());
+        Assert.assertTrue(last.getMessage().endsWith("..."));
+    }
+
+    @Test
+    public void shouldReturnEventsSinceSequence() {
+        LogMapAppender appender = createAppender(16, 1000);
+        appender.doAppend(createEvent(Level.INFO, "previous scan"));
+        long start = appender.getSequence();
+        appender.doAppend(createEvent(Level.INFO, "current scan"));
+        appender.doAppend(createEvent(Level.WARN, "current scan warning"));
+
+        List<LogMapAppender.LogEvent> events = appender.getLogEvents(start);
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("current scan", events.get(0).getMessage());
+        Assert.assertEquals(Level.WARN, events.get(1).getLevel());
+    }
+
+    @Test
+    public void shouldIgnoreEventsBelowCaptureLevel() {
+        LogMapAppender appender = createAppender(16, 1000);
+        appender.setCaptureLevel("info");
+        appender.doAppend(createEvent(Level.DEBUG, "debug"));
+        appender.doAppend(createEvent(Level.INFO, "info"));
+        appender.doAppend(createEvent(Level.INFO, ""));
+
+        List<LogMapAppender.LogEvent> events = appender.getLogEvents(0);
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("info", events.get(0).getMessage());
+    }
+
+    private LogMapAppender createAppender(int capacity, long maxSize) {
+        LogMapAppender appender = new LogMapAppender();
+        appender.setContext(new LoggerContext());
+        appender.setCapacity(capacity);
+        appender.setMaxSize(maxSize);
+        appender.start();
+        return appender;
+    }
+
+    private LoggingEvent createEvent(Level level, String message) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(level);
+        event.setMessage(message);
+        event.setTimeStamp(System.currentTimeMillis());
+        return event;
+    }
+}
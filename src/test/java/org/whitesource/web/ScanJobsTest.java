@@ -0,0 +1,86 @@
+package org.whitesource.web;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.whitesource.fs.StatusCode;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ScanJobsTest {
+
+    @Test
+    public void shouldRunJobsAndRejectWhenSaturated() throws InterruptedException {
+        ScanJobs scanJobs = new ScanJobs(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ScanJobs.Job running = scanJobs.submit(() -> {
+                started.countDown();
+                await(release);
+                return new ResultDto<>("done", StatusCode.SUCCESS);
+            });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            ScanJobs.Job queued = scanJobs.submit(() -> new ResultDto<>("queued", StatusCode.SUCCESS));
+            Assert.assertEquals(ScanJobs.JobStatus.RUNNING, running.getStatus());
+            Assert.assertEquals(ScanJobs.JobStatus.QUEUED, queued.getStatus());
+
+            try {
+                scanJobs.submit(() -> new ResultDto<>("rejected", StatusCode.SUCCESS));
+                Assert.fail("the job should be rejected when the worker is busy and the queue is full");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+
+            release.countDown();
+            waitUntilFinished(queued);
+            Assert.assertSame(running, scanJobs.getJob(running.getId()));
+            Assert.assertEquals(ScanJobs.JobStatus.DONE, running.getStatus());
+            Assert.assertEquals("done", running.getResult().getResult());
+            Assert.assertEquals("queued", queued.getResult().getResult());
+
+            ScanJobs.Job failed = scanJobs.submit(() -> {
+                throw new IllegalStateException("scan failed");
+            });
+            waitUntilFinished(failed);
+            Assert.assertEquals(ScanJobs.JobStatus.FAILED, failed.getStatus());
+            Assert.assertEquals("scan failed", failed.getError());
+            Assert.assertNull(running.getError());
+            Assert.assertNull(scanJobs.getJob("unknown"));
+        } finally {
+            release.countDown();
+            scanJobs.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRemoveExpiredJobsWhenFetched() throws InterruptedException {
+        ScanJobs scanJobs = new ScanJobs(1, 1, 0);
+        try {
+            ScanJobs.Job job = scanJobs.submit(() -> new ResultDto<>("done", StatusCode.SUCCESS));
+            waitUntilFinished(job);
+            Thread.sleep(10);
+
+            Assert.assertNull(scanJobs.getJob(job.getId()));
+        } finally {
+            scanJobs.shutdown();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitUntilFinished(ScanJobs.Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(job.isFinished());
+    }
+}